@@ -0,0 +1,25 @@
+package de.philipbolting.product_catalog;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// in-memory indexes and caches must only see a write once it is visible to every other reader as well
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    // outside a transaction there is nothing to wait for, so the action runs right away
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package de.philipbolting.product_catalog;
+
+import de.philipbolting.product_catalog.error.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "\u001f";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(String... values) {
+        final var joined = String.join(SEPARATOR, values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int size) {
+        final String joined;
+        try {
+            joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+        final var values = joined.split(SEPARATOR, -1);
+        if (values.length != size) {
+            throw new InvalidCursorException();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,62 @@
+package de.philipbolting.product_catalog;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// a strong validator of one resource, built from its id and the modification times of every row its representation
+// is read from; any of them changing changes the tag, the latest of them is the resource's Last-Modified
+public record ResourceVersion(String etag, Instant lastModified) {
+
+    // JPQL constructor expressions take no varargs, so there is one constructor per number of rows
+    public ResourceVersion(long id, Instant lastModified) {
+        this(etag(id, lastModified), latest(lastModified));
+    }
+
+    public ResourceVersion(long id, Instant lastModified, Instant dependencyLastModified) {
+        this(etag(id, lastModified, dependencyLastModified), latest(lastModified, dependencyLastModified));
+    }
+
+    public ResourceVersion(long id, Instant lastModified, Instant dependencyLastModified, Instant otherDependencyLastModified) {
+        this(etag(id, lastModified, dependencyLastModified, otherDependencyLastModified),
+                latest(lastModified, dependencyLastModified, otherDependencyLastModified));
+    }
+
+    public static boolean isConditional(WebRequest webRequest) {
+        return webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null || webRequest.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    public boolean checkNotModified(WebRequest webRequest) {
+        return webRequest.checkNotModified(etag, lastModified == null ? -1 : lastModified.toEpochMilli());
+    }
+
+    public ResponseEntity.BodyBuilder ok() {
+        final var builder = ResponseEntity.ok().eTag(etag);
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    // rows written outside of auditing may have no modification time yet, they count as unmodified since the epoch
+    private static String etag(long id, Instant... lastModified) {
+        final var etag = new StringBuilder("\"").append(Long.toHexString(id));
+        for (final var instant : lastModified) {
+            etag.append('-').append(Long.toHexString(instant == null ? 0 : ChronoUnit.MICROS.between(Instant.EPOCH, instant)));
+        }
+        return etag.append('"').toString();
+    }
+
+    private static Instant latest(Instant... lastModified) {
+        Instant latest = null;
+        for (final var instant : lastModified) {
+            if (instant != null && (latest == null || instant.isAfter(latest))) {
+                latest = instant;
+            }
+        }
+        return latest;
+    }
+}
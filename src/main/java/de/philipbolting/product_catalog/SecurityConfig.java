@@ -14,7 +14,7 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) {
         http
                 .csrf((csrf) -> csrf
-                        .ignoringRequestMatchers("/api/*")
+                        .ignoringRequestMatchers("/api/**")
                 );
         return http.build();
     }
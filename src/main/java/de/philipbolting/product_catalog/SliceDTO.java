@@ -0,0 +1,6 @@
+package de.philipbolting.product_catalog;
+
+import java.util.List;
+
+public record SliceDTO<T>(List<T> items, String next) {
+}
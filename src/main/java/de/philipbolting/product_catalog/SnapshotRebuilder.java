@@ -0,0 +1,60 @@
+package de.philipbolting.product_catalog;
+
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// rebuilds of an in-memory snapshot run one at a time and without blocking writes; a rebuild may have read before a
+// write committed, so the writes applied while it reads are handed to it again when it installs its result
+public final class SnapshotRebuilder<C> {
+
+    private final TaskExecutor taskExecutor;
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    // guarded by this, non-null while a rebuild reads
+    private List<C> pending;
+
+    public SnapshotRebuilder(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public <S> void rebuild(Supplier<S> read, BiConsumer<S, List<C>> install) {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                final var result = read.get();
+                synchronized (this) {
+                    install.accept(result, pending);
+                }
+            } finally {
+                synchronized (this) {
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    public synchronized void apply(C change, Consumer<C> apply) {
+        apply.accept(change);
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    // requests arriving while a rebuild is waiting to start are served by that rebuild
+    public void rebuildInBackground(Runnable rebuild) {
+        if (requested.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                requested.set(false);
+                rebuild.run();
+            });
+        }
+    }
+}
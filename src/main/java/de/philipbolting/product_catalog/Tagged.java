@@ -0,0 +1,4 @@
+package de.philipbolting.product_catalog;
+
+public record Tagged<T>(ResourceVersion version, T value) {
+}
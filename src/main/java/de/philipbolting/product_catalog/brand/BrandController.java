@@ -1,8 +1,16 @@
 package de.philipbolting.product_catalog.brand;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
@@ -10,9 +18,11 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 class BrandController {
 
     private final BrandService brandService;
+    private final SlugRedirects slugRedirects;
 
-    public BrandController(BrandService brandService) {
+    public BrandController(BrandService brandService, SlugRedirects slugRedirects) {
         this.brandService = brandService;
+        this.slugRedirects = slugRedirects;
     }
 
     @PostMapping()
@@ -26,8 +36,28 @@ class BrandController {
         return ResponseEntity.created(location).build();
     }
 
+    @GetMapping()
+    public BrandDirectoryDTO findBrands(@RequestParam(required = false) @Pattern(regexp = "^[A-Za-z#]$") String startsWith,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        return brandService.findBrands(startsWith, after, limit);
+    }
+
+    @PatchMapping("{slug}")
+    public BrandDTO changeBrandSlug(@PathVariable String slug, @Valid @RequestBody final SlugChangeDTO request) {
+        return brandService.changeBrandSlug(slug, request);
+    }
+
     @GetMapping("{slug}")
-    public BrandDTO findBrandBySlug(@PathVariable String slug) {
-        return brandService.findBrandBySlug(slug);
+    public ResponseEntity<BrandDTO> findBrandBySlug(@PathVariable String slug, WebRequest webRequest) {
+        final var currentSlug = slugRedirects.find(SlugType.BRAND, slug);
+        if (currentSlug.isPresent()) {
+            return SlugRedirects.movedPermanently("/api/brands/{slug}", currentSlug.get());
+        }
+        if (ResourceVersion.isConditional(webRequest) && brandService.findBrandVersion(slug).checkNotModified(webRequest)) {
+            return null;
+        }
+        final var brand = brandService.findTaggedBrandBySlug(slug);
+        return brand.version().ok().body(brand.value());
     }
 }
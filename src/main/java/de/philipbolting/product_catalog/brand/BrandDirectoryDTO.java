@@ -0,0 +1,6 @@
+package de.philipbolting.product_catalog.brand;
+
+import java.util.List;
+
+public record BrandDirectoryDTO(List<BrandInitialDTO> initials, List<BrandDTO> items, String next) {
+}
@@ -0,0 +1,54 @@
+package de.philipbolting.product_catalog.brand;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.util.Objects;
+
+@Entity
+@Immutable
+@Table(name = "brand_initial_count")
+public class BrandInitialCount {
+
+    @Id
+    private String initial;
+    private long brandCount;
+
+    public BrandInitialCount() {
+    }
+
+    public BrandInitialCount(String initial, long brandCount) {
+        this.initial = initial;
+        this.brandCount = brandCount;
+    }
+
+    public String getInitial() {
+        return initial;
+    }
+
+    public long getBrandCount() {
+        return brandCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        BrandInitialCount that = (BrandInitialCount) o;
+        return Objects.equals(initial, that.initial);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(initial);
+    }
+
+    @Override
+    public String toString() {
+        return "BrandInitialCount{" +
+                "initial='" + initial + '\'' +
+                ", brandCount=" + brandCount +
+                '}';
+    }
+}
@@ -0,0 +1,9 @@
+package de.philipbolting.product_catalog.brand;
+
+import de.philipbolting.product_catalog.ReadOnlyRepository;
+
+import java.util.List;
+
+public interface BrandInitialCountRepository extends ReadOnlyRepository<BrandInitialCount, String> {
+    List<BrandInitialCount> findByBrandCountGreaterThanOrderByInitial(long brandCount);
+}
@@ -0,0 +1,4 @@
+package de.philipbolting.product_catalog.brand;
+
+public record BrandInitialDTO(String initial, long count) {
+}
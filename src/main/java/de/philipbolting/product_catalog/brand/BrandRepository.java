@@ -1,10 +1,34 @@
 package de.philipbolting.product_catalog.brand;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BrandRepository extends CrudRepository<Brand, Long> {
     Optional<Brand> findBySlug(String slug);
     Optional<Brand> findByName(String name);
+    List<Brand> findBySlugIn(Collection<String> slugs);
+
+    // answered from the slug index alone
+    @Query("SELECT new de.philipbolting.product_catalog.ResourceVersion(brand.id, brand.lastModified) FROM Brand brand WHERE brand.slug = :slug")
+    Optional<ResourceVersion> findVersionBySlug(String slug);
+
+    @Query(value = """
+            SELECT * FROM brand
+            WHERE (name COLLATE "und-x-icu", id) > (:afterName, :afterId)
+            ORDER BY name COLLATE "und-x-icu", id
+            LIMIT :limit""", nativeQuery = true)
+    List<Brand> scrollByName(String afterName, long afterId, int limit);
+
+    @Query(value = """
+            SELECT * FROM brand
+            WHERE initial = :initial
+              AND (name COLLATE "und-x-icu", id) > (:afterName, :afterId)
+            ORDER BY name COLLATE "und-x-icu", id
+            LIMIT :limit""", nativeQuery = true)
+    List<Brand> scrollByInitialAndName(String initial, String afterName, long afterId, int limit);
 }
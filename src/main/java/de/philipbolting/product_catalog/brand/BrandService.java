@@ -1,18 +1,36 @@
 package de.philipbolting.product_catalog.brand;
 
+import de.philipbolting.product_catalog.KeysetCursor;
+import de.philipbolting.product_catalog.ResourceVersion;
+import de.philipbolting.product_catalog.Tagged;
+import de.philipbolting.product_catalog.error.InvalidCursorException;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
 import de.philipbolting.product_catalog.error.NotFoundException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Locale;
+
 @Service
 class BrandService {
 
     private final BrandRepository brandRepository;
+    private final BrandInitialCountRepository brandInitialCountRepository;
+    private final SlugRedirects slugRedirects;
+    private final SuggestIndex suggestIndex;
 
-    public BrandService(BrandRepository brandRepository) {
+    public BrandService(BrandRepository brandRepository, BrandInitialCountRepository brandInitialCountRepository, SlugRedirects slugRedirects,
+                        SuggestIndex suggestIndex) {
         this.brandRepository = brandRepository;
+        this.brandInitialCountRepository = brandInitialCountRepository;
+        this.slugRedirects = slugRedirects;
+        this.suggestIndex = suggestIndex;
     }
 
     @Transactional
@@ -23,10 +41,67 @@ class BrandService {
         if (brandRepository.findByName(dto.name()).isPresent()) {
             throw new NameAlreadyExistsException();
         }
+        slugRedirects.release(SlugType.BRAND, List.of(dto.slug()));
+        suggestIndex.refreshBrandsAfterCommit();
         return BrandDTO.fromBrand(brandRepository.save(dto.toBrand()));
     }
 
+    @Transactional
+    public BrandDTO changeBrandSlug(String slug, SlugChangeDTO dto) {
+        final var brand = brandRepository.findBySlug(slug).orElseThrow(NotFoundException::new);
+        if (slug.equals(dto.slug())) {
+            return BrandDTO.fromBrand(brand);
+        }
+        if (brandRepository.findBySlug(dto.slug()).isPresent()) {
+            throw new SlugAlreadyExistsException();
+        }
+        brand.setSlug(dto.slug());
+        final var savedBrand = brandRepository.save(brand);
+        slugRedirects.recordChange(SlugType.BRAND, slug, dto.slug());
+        suggestIndex.refreshBrandsAfterCommit();
+        return BrandDTO.fromBrand(savedBrand);
+    }
+
     public BrandDTO findBrandBySlug(String slug) {
-        return BrandDTO.fromBrand(brandRepository.findBySlug(slug).orElseThrow(NotFoundException::new));
+        return findTaggedBrandBySlug(slug).value();
+    }
+
+    public Tagged<BrandDTO> findTaggedBrandBySlug(String slug) {
+        final var brand = brandRepository.findBySlug(slug).orElseThrow(NotFoundException::new);
+        return new Tagged<>(new ResourceVersion(brand.getId(), brand.getLastModified()), BrandDTO.fromBrand(brand));
+    }
+
+    public ResourceVersion findBrandVersion(String slug) {
+        return brandRepository.findVersionBySlug(slug).orElseThrow(NotFoundException::new);
+    }
+
+    public BrandDirectoryDTO findBrands(String startsWith, String after, int limit) {
+        var afterName = "";
+        var afterId = 0L;
+        if (after != null) {
+            final var cursor = KeysetCursor.decode(after, 2);
+            afterName = cursor[0];
+            try {
+                afterId = Long.parseLong(cursor[1]);
+            } catch (NumberFormatException e) {
+                throw new InvalidCursorException();
+            }
+        }
+        final var brands = startsWith == null
+                ? brandRepository.scrollByName(afterName, afterId, limit + 1)
+                : brandRepository.scrollByInitialAndName(startsWith.toUpperCase(Locale.ROOT), afterName, afterId, limit + 1);
+        final var items = brands.stream()
+                .limit(limit)
+                .map(BrandDTO::fromBrand)
+                .toList();
+        String next = null;
+        if (brands.size() > limit) {
+            final var last = brands.get(limit - 1);
+            next = KeysetCursor.encode(last.getName(), Long.toString(last.getId()));
+        }
+        final var initials = brandInitialCountRepository.findByBrandCountGreaterThanOrderByInitial(0).stream()
+                .map(count -> new BrandInitialDTO(count.getInitial(), count.getBrandCount()))
+                .toList();
+        return new BrandDirectoryDTO(initials, items, next);
     }
 }
@@ -0,0 +1,61 @@
+package de.philipbolting.product_catalog.category;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Entity
+@Immutable
+@Table(name = "category_closure")
+@IdClass(CategoryClosure.Key.class)
+public class CategoryClosure {
+
+    public record Key(long ancestorId, long descendantId) implements Serializable {}
+
+    @Id
+    private long ancestorId;
+    @Id
+    private long descendantId;
+    private int depth;
+
+    public CategoryClosure() {
+    }
+
+    public long getAncestorId() {
+        return ancestorId;
+    }
+
+    public long getDescendantId() {
+        return descendantId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CategoryClosure that = (CategoryClosure) o;
+        return ancestorId == that.ancestorId && descendantId == that.descendantId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ancestorId, descendantId);
+    }
+
+    @Override
+    public String toString() {
+        return "CategoryClosure{" +
+                "ancestorId=" + ancestorId +
+                ", descendantId=" + descendantId +
+                ", depth=" + depth +
+                '}';
+    }
+}
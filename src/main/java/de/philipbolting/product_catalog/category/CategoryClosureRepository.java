@@ -0,0 +1,63 @@
+package de.philipbolting.product_catalog.category;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import java.util.List;
+
+public interface CategoryClosureRepository extends Repository<CategoryClosure, CategoryClosure.Key> {
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+            SELECT ancestor_id, :descendantId, depth + 1 FROM category_closure WHERE descendant_id = :parentId
+            UNION ALL
+            SELECT :descendantId, :descendantId, 0
+            """, nativeQuery = true)
+    void insertPaths(long descendantId, Long parentId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            DELETE FROM category_closure
+            WHERE descendant_id IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :id)
+              AND ancestor_id IN (SELECT ancestor_id FROM category_closure WHERE descendant_id = :id AND ancestor_id <> :id)
+            """, nativeQuery = true)
+    void detachSubtree(long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+            SELECT parent.ancestor_id, subtree.descendant_id, parent.depth + subtree.depth + 1
+            FROM category_closure parent
+                CROSS JOIN category_closure subtree
+            WHERE parent.descendant_id = :parentId AND subtree.ancestor_id = :id
+            """, nativeQuery = true)
+    void attachSubtree(long id, long parentId);
+
+    boolean existsByAncestorIdAndDescendantId(long ancestorId, long descendantId);
+
+    @Query("""
+            SELECT new de.philipbolting.product_catalog.category.CategoryDTO(tree.slug, category.name, category.description,
+                coalesce(count.productCount, 0L), coalesce(count.subtreeProductCount, 0L))
+            FROM CategoryClosure closure, CategoryTree tree, Category category
+                LEFT JOIN CategoryProductCount count
+                ON count.categoryId = category.id
+            WHERE closure.ancestorId = :ancestorId AND closure.depth > 0
+            AND tree.id = closure.descendantId AND category.id = closure.descendantId
+            ORDER BY tree.sortPath
+            """)
+    List<CategoryDTO> findDescendants(long ancestorId);
+
+    @Query("""
+            SELECT new de.philipbolting.product_catalog.category.CategoryDTO(tree.slug, category.name, category.description,
+                coalesce(count.productCount, 0L), coalesce(count.subtreeProductCount, 0L))
+            FROM CategoryClosure closure, CategoryTree tree, Category category
+                LEFT JOIN CategoryProductCount count
+                ON count.categoryId = category.id
+            WHERE closure.descendantId = :descendantId AND closure.depth > 0
+            AND tree.id = closure.ancestorId AND category.id = closure.ancestorId
+            ORDER BY closure.depth DESC
+            """)
+    List<CategoryDTO> findAncestors(long descendantId);
+}
@@ -1,18 +1,47 @@
 package de.philipbolting.product_catalog.category;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import de.philipbolting.product_catalog.error.NotFoundException;
+import de.philipbolting.product_catalog.product.ProductService;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/categories")
 class CategoryController {
 
+    static final String DESCENDANTS = "descendants";
+    static final String ANCESTORS = "ancestors";
+    static final String PRODUCTS = "products";
+    static final String MOVE = "move";
+    static final String POSITION = "position";
+    static final String MERGE_INTO = "merge-into";
+    static final String EXPAND_CHILDREN = "children";
+    static final Set<String> READ_ACTIONS = Set.of(DESCENDANTS, ANCESTORS, PRODUCTS);
+
     private final CategoryService categoryService;
+    private final CategoryImportService categoryImportService;
+    private final CategoryMergeService categoryMergeService;
+    private final ProductService productService;
+    private final SlugRedirects slugRedirects;
 
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, CategoryImportService categoryImportService,
+                              CategoryMergeService categoryMergeService, ProductService productService, SlugRedirects slugRedirects) {
         this.categoryService = categoryService;
+        this.categoryImportService = categoryImportService;
+        this.categoryMergeService = categoryMergeService;
+        this.productService = productService;
+        this.slugRedirects = slugRedirects;
     }
 
     @PostMapping()
@@ -26,9 +55,93 @@ class CategoryController {
         return ResponseEntity.created(location).build();
     }
 
+    @PostMapping("bulk")
+    public List<CategoryImportResultDTO> importCategories(@RequestBody final List<CategoryImportDTO> request) {
+        return categoryImportService.importCategories(request);
+    }
+
+    @PostMapping("{*slugWithLeadingSlash}")
+    public CategoryDTO moveCategory(@PathVariable String slugWithLeadingSlash, @Valid @RequestBody final CategoryMoveDTO request) {
+        final var slug = slugWithLeadingSlash.substring(1);
+        if (!MOVE.equals(action(slug))) {
+            throw new NotFoundException();
+        }
+        return categoryService.moveCategory(withoutAction(slug), request);
+    }
+
+    // a catch-all path cannot be followed by more segments, so the target is passed as a parameter
+    @PostMapping(value = "{*slugWithLeadingSlash}", params = MERGE_INTO)
+    public CategoryDTO mergeCategory(@PathVariable String slugWithLeadingSlash, @RequestParam(MERGE_INTO) String target) {
+        return categoryMergeService.mergeCategory(slugWithLeadingSlash.substring(1), target);
+    }
+
+    @PutMapping("{*slugWithLeadingSlash}")
+    public CategoryDTO positionCategory(@PathVariable String slugWithLeadingSlash, @Valid @RequestBody final CategoryPositionDTO request) {
+        final var slug = slugWithLeadingSlash.substring(1);
+        if (!POSITION.equals(action(slug))) {
+            throw new NotFoundException();
+        }
+        return categoryService.positionCategory(withoutAction(slug), request);
+    }
+
+    @PatchMapping("{*slugWithLeadingSlash}")
+    public CategoryDTO changeCategorySlug(@PathVariable String slugWithLeadingSlash, @Valid @RequestBody final CategorySlugChangeDTO request) {
+        return categoryService.changeCategorySlug(slugWithLeadingSlash.substring(1), request);
+    }
+
+    @GetMapping()
+    public ResponseEntity<List<CategoryNodeDTO>> findCategoryTree(@RequestParam(required = false) @Min(0) Integer depth, WebRequest webRequest) {
+        if (webRequest.checkNotModified(etag(categoryService.findCategoryTreeVersion()))) {
+            return null;
+        }
+        final var tree = categoryService.findCategoryTree(depth);
+        return ResponseEntity.ok().eTag(etag(tree.version())).body(tree.value());
+    }
+
     @GetMapping("{*slugWithLeadingSlash}")
-    public CategoryDTO findCategoryBySlug(@PathVariable String slugWithLeadingSlash) {
+    public ResponseEntity<?> findCategoryBySlug(@PathVariable String slugWithLeadingSlash,
+                                                @RequestParam(required = false) String expand,
+                                                @RequestParam(required = false) @Min(0) Integer depth,
+                                                @RequestParam(required = false) String after,
+                                                @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit,
+                                                WebRequest webRequest) {
         final var slug = slugWithLeadingSlash.substring(1);
-        return categoryService.findCategoryBySlug(slug);
+        final var action = READ_ACTIONS.contains(action(slug)) ? action(slug) : "";
+        final var currentSlug = slugRedirects.find(SlugType.CATEGORY, action.isEmpty() ? slug : withoutAction(slug));
+        if (currentSlug.isPresent()) {
+            return SlugRedirects.movedPermanently("/api/categories/{slug}" + (action.isEmpty() ? "" : "/" + action), currentSlug.get());
+        }
+        return switch (action) {
+            case DESCENDANTS -> ResponseEntity.ok(categoryService.findDescendantsBySlug(withoutAction(slug)));
+            case ANCESTORS -> ResponseEntity.ok(categoryService.findAncestorsBySlug(withoutAction(slug)));
+            case PRODUCTS -> ResponseEntity.ok(productService.findProductsByCategorySlug(withoutAction(slug), after, limit));
+            default -> {
+                if (!EXPAND_CHILDREN.equals(expand)) {
+                    if (ResourceVersion.isConditional(webRequest) && categoryService.findCategoryVersion(slug).checkNotModified(webRequest)) {
+                        yield null;
+                    }
+                    final var category = categoryService.findTaggedCategoryBySlug(slug);
+                    yield category.version().ok().body(category.value());
+                }
+                if (webRequest.checkNotModified(etag(categoryService.findCategorySubtreeVersion(slug)))) {
+                    yield null;
+                }
+                final var subtree = categoryService.findCategorySubtreeBySlug(slug, depth);
+                yield ResponseEntity.ok().eTag(etag(subtree.version())).body(subtree.value());
+            }
+        };
+    }
+
+    private static String etag(long version) {
+        return "\"" + Long.toHexString(version) + "\"";
+    }
+
+    private static String action(String slug) {
+        final var indexOfLastSlash = slug.lastIndexOf('/');
+        return indexOfLastSlash > 0 ? slug.substring(indexOfLastSlash + 1) : "";
+    }
+
+    private static String withoutAction(String slug) {
+        return slug.substring(0, slug.lastIndexOf('/'));
     }
 }
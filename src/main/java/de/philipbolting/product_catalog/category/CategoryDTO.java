@@ -1,5 +1,7 @@
 package de.philipbolting.product_catalog.category;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -8,19 +10,34 @@ public record CategoryDTO(
         @NotEmpty(message = "Slug must not be empty")
         @Size(max = 100, message = "Slug must not be longer than {max} chars")
         @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        @Pattern(regexp = "^(?!(?:.*/)?(?:ancestors|descendants|merge-into|move|position|products)(?:/.*)?$).*$", message = "Slug must not contain a reserved segment")
         String slug,
         @NotEmpty(message = "Name must not be empty")
         @Size(max = 50, message = "Name must not be longer than {max} chars")
         String name,
         @Size(max = 2000, message = "Description must not be longer than {max} chars")
-        String description) {
+        String description,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+        Long productCount,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+        Long subtreeProductCount) {
+
+    public CategoryDTO(String slug, String name, String description) {
+        this(slug, name, description, null, null);
+    }
 
     static CategoryDTO fromCategory(Category category) {
         return new CategoryDTO(category.getSlug(), category.getName(), category.getDescription());
     }
 
     public CategoryDTO withSlug(String newSlug) {
-        return new CategoryDTO(newSlug, name, description);
+        return new CategoryDTO(newSlug, name, description, productCount, subtreeProductCount);
+    }
+
+    public CategoryDTO withProductCounts(long newProductCount, long newSubtreeProductCount) {
+        return new CategoryDTO(slug, name, description, newProductCount, newSubtreeProductCount);
     }
 
     public Category toCategory() {
@@ -0,0 +1,17 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ResourceVersion;
+
+import java.time.Instant;
+
+public record CategoryDetailRow(long id, Instant lastModified, Instant countLastModified, String name, String description,
+                                long productCount, long subtreeProductCount) {
+
+    CategoryDTO toCategoryDTO(String fullSlug) {
+        return new CategoryDTO(fullSlug, name, description, productCount, subtreeProductCount);
+    }
+
+    ResourceVersion version() {
+        return new ResourceVersion(id, lastModified, countLastModified);
+    }
+}
@@ -0,0 +1,11 @@
+package de.philipbolting.product_catalog.category;
+
+import java.util.List;
+
+public record CategoryImportDTO(
+        String slug,
+        String name,
+        String description,
+        Integer sortOrder,
+        List<CategoryImportDTO> children) {
+}
@@ -0,0 +1,115 @@
+package de.philipbolting.product_catalog.category;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+class CategoryImportRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    record Row(long id, Long parentId, int sortOrder, String slug, String name, String description) {}
+
+    // parentId is 0 for top level categories
+    record ChildName(long parentId, String name) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    CategoryImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList("SELECT nextval('seq_category') FROM generate_series(1, ?)", Long.class, count);
+    }
+
+    Set<String> findExistingSlugs(Collection<String> slugs) {
+        final var existing = new HashSet<String>();
+        jdbcTemplate.query(connection -> {
+            final var ps = connection.prepareStatement("SELECT full_slug FROM category WHERE full_slug = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("varchar", slugs.toArray()));
+            return ps;
+        }, rs -> {
+            existing.add(rs.getString(1));
+        });
+        return existing;
+    }
+
+    Set<ChildName> findExistingNames(Collection<ChildName> names) {
+        final var existing = new HashSet<ChildName>();
+        jdbcTemplate.query(connection -> {
+            final var ps = connection.prepareStatement("""
+                    SELECT coalesce(c.parent_id, 0), c.name
+                    FROM category c
+                        INNER JOIN unnest(?::bigint[], ?::varchar[]) AS n (parent_id, name)
+                        ON coalesce(c.parent_id, 0) = n.parent_id AND c.name = n.name
+                    """);
+            ps.setArray(1, connection.createArrayOf("bigint", names.stream().map(ChildName::parentId).toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar", names.stream().map(ChildName::name).toArray()));
+            return ps;
+        }, rs -> {
+            existing.add(new ChildName(rs.getLong(1), rs.getString(2)));
+        });
+        return existing;
+    }
+
+    Map<Long, Integer> findLastSortOrders(Collection<Long> parentIds) {
+        final var lastSortOrders = new HashMap<Long, Integer>();
+        jdbcTemplate.query(connection -> {
+            final var ps = connection.prepareStatement("""
+                    SELECT coalesce(parent_id, 0), max(sort_order)
+                    FROM category
+                    WHERE coalesce(parent_id, 0) = ANY(?)
+                    GROUP BY 1
+                    """);
+            ps.setArray(1, connection.createArrayOf("bigint", parentIds.toArray()));
+            return ps;
+        }, rs -> {
+            lastSortOrders.put(rs.getLong(1), rs.getInt(2));
+        });
+        return lastSortOrders;
+    }
+
+    void insertAll(List<Row> rows, Instant now) {
+        final var timestamp = Timestamp.from(now);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO category (id, parent_id, sort_order, slug, name, description, created, last_modified)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.id());
+            ps.setObject(2, row.parentId(), Types.BIGINT);
+            ps.setInt(3, row.sortOrder());
+            ps.setString(4, row.slug());
+            ps.setString(5, row.name());
+            ps.setString(6, row.description());
+            ps.setTimestamp(7, timestamp);
+            ps.setTimestamp(8, timestamp);
+        });
+    }
+
+    void insertClosures(Collection<Long> ids) {
+        jdbcTemplate.update(connection -> {
+            final var ps = connection.prepareStatement("""
+                    INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+                    SELECT ancestor.id, descendant.id, descendant.depth - ancestor.depth
+                    FROM category descendant
+                        CROSS JOIN LATERAL generate_series(1, descendant.depth + 1) AS level
+                        INNER JOIN category ancestor
+                        ON ancestor.full_slug = array_to_string((string_to_array(descendant.full_slug, '/'))[1:level], '/')
+                    WHERE descendant.id = ANY(?)
+                    """);
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package de.philipbolting.product_catalog.category;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CategoryImportResultDTO(String slug, Status status, String detail) {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    static CategoryImportResultDTO created(String slug) {
+        return new CategoryImportResultDTO(slug, Status.CREATED, null);
+    }
+
+    static CategoryImportResultDTO failed(String slug, String detail) {
+        return new CategoryImportResultDTO(slug, Status.FAILED, detail);
+    }
+}
@@ -0,0 +1,197 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import jakarta.transaction.Transactional;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+
+@Service
+class CategoryImportService {
+
+    // position counts the siblings given before the entry, itself included
+    private record Entry(int index, String slug, String parentSlug, int depth, CategoryImportDTO dto, int position) {}
+
+    private record Existing(Set<String> slugs, Set<CategoryImportRepository.ChildName> names) {}
+
+    private final CategoryImportRepository categoryImportRepository;
+    private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryLocks categoryLocks;
+    private final SlugRedirects slugRedirects;
+    private final Validator validator;
+    private final SuggestIndex suggestIndex;
+
+    public CategoryImportService(CategoryImportRepository categoryImportRepository, CategoryRepository categoryRepository,
+                                 CategoryTreeCache categoryTreeCache, CategoryLocks categoryLocks, SlugRedirects slugRedirects,
+                                 Validator validator, SuggestIndex suggestIndex) {
+        this.categoryImportRepository = categoryImportRepository;
+        this.categoryRepository = categoryRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.categoryLocks = categoryLocks;
+        this.slugRedirects = slugRedirects;
+        this.validator = validator;
+        this.suggestIndex = suggestIndex;
+    }
+
+    @Transactional
+    public List<CategoryImportResultDTO> importCategories(List<CategoryImportDTO> nodes) {
+        final var entries = new ArrayList<Entry>();
+        flatten(nodes, null, entries, new HashMap<>());
+        entries.sort(Comparator.comparingInt(Entry::depth));
+
+        categoryLocks.lockChildrenOf(existingParentIds(entries, categoryTreeCache.snapshot()));
+        final var trie = categoryTreeCache.snapshot();
+        final var existing = findExisting(entries, trie);
+        final var results = new CategoryImportResultDTO[entries.size()];
+        final var accepted = new LinkedHashMap<String, Entry>();
+        final var names = new HashSet<String>();
+        for (final var entry : entries) {
+            final var error = validate(entry, trie, existing, accepted, names);
+            if (error != null) {
+                results[entry.index()] = CategoryImportResultDTO.failed(entry.slug(), error);
+                continue;
+            }
+            accepted.put(entry.slug(), entry);
+            names.add(nameKey(entry.parentSlug(), entry.dto().name()));
+            results[entry.index()] = CategoryImportResultDTO.created(entry.slug());
+        }
+
+        if (!accepted.isEmpty()) {
+            final var lastSortOrders = findLastSortOrders(accepted.values(), trie);
+            final var ids = categoryImportRepository.nextIds(accepted.size());
+            final var idsBySlug = HashMap.<String, Long>newHashMap(accepted.size());
+            final var rows = new ArrayList<CategoryImportRepository.Row>(accepted.size());
+            var i = 0;
+            for (final var entry : accepted.values()) {
+                final var id = ids.get(i++);
+                idsBySlug.put(entry.slug(), id);
+                final var parentId = parentId(entry.parentSlug(), idsBySlug, trie);
+                final var dto = entry.dto();
+                rows.add(new CategoryImportRepository.Row(id, parentId,
+                        dto.sortOrder() != null ? dto.sortOrder()
+                                : lastSortOrders.getOrDefault(parentId == null ? 0L : parentId, 0) + entry.position() * CategoryService.SORT_ORDER_GAP,
+                        entry.slug().substring(entry.slug().lastIndexOf('/') + 1),
+                        dto.name(), dto.description()));
+            }
+            categoryImportRepository.insertAll(rows, Instant.now());
+            categoryImportRepository.insertClosures(ids);
+            slugRedirects.release(SlugType.CATEGORY, accepted.keySet());
+            categoryTreeCache.refreshAfterCommit();
+            suggestIndex.refreshCategoriesAfterCommit();
+        }
+        return Arrays.asList(results);
+    }
+
+    private String validate(Entry entry, CategorySlugTrie trie, Existing existing, Map<String, Entry> accepted, Set<String> names) {
+        final var violations = validator.validate(new CategoryDTO(entry.slug(), entry.dto().name(), entry.dto().description()));
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        Long existingParentId = null;
+        if (entry.parentSlug() != null && !accepted.containsKey(entry.parentSlug())) {
+            final var parent = trie.findBySlug(entry.parentSlug());
+            if (parent.isEmpty()) {
+                return "Parent slug does not exist";
+            }
+            existingParentId = parent.get().getId();
+        }
+        if (accepted.containsKey(entry.slug()) || existing.slugs().contains(entry.slug())) {
+            return "Slug already exists";
+        }
+        final var existingName = (entry.parentSlug() == null || existingParentId != null) && existing.names().contains(
+                new CategoryImportRepository.ChildName(existingParentId == null ? 0L : existingParentId, entry.dto().name()));
+        if (existingName || names.contains(nameKey(entry.parentSlug(), entry.dto().name()))) {
+            return "Name already exists";
+        }
+        return null;
+    }
+
+    // the cache may lag behind other instances, so clashes are looked up again while the parents are locked
+    private Existing findExisting(List<Entry> entries, CategorySlugTrie trie) {
+        final var slugs = new ArrayList<String>(entries.size());
+        final var names = new ArrayList<CategoryImportRepository.ChildName>(entries.size());
+        for (final var entry : entries) {
+            slugs.add(entry.slug());
+            final var parentId = existingParentId(entry, trie);
+            if (parentId != null && entry.dto().name() != null) {
+                names.add(new CategoryImportRepository.ChildName(parentId, entry.dto().name()));
+            }
+        }
+        return new Existing(categoryImportRepository.findExistingSlugs(slugs), categoryImportRepository.findExistingNames(names));
+    }
+
+    // default sort orders continue after the existing siblings, like appending a single category does
+    private Map<Long, Integer> findLastSortOrders(Collection<Entry> entries, CategorySlugTrie trie) {
+        final var positions = new HashMap<Long, Integer>();
+        for (final var entry : entries) {
+            final var parentId = existingParentId(entry, trie);
+            if (parentId != null && entry.dto().sortOrder() == null) {
+                positions.merge(parentId, entry.position(), Math::max);
+            }
+        }
+        if (positions.isEmpty()) {
+            return Map.of();
+        }
+        final var lastSortOrders = categoryImportRepository.findLastSortOrders(positions.keySet());
+        positions.forEach((parentId, position) -> {
+            final var last = lastSortOrders.get(parentId);
+            if (last != null && last + (long) position * CategoryService.SORT_ORDER_GAP > Integer.MAX_VALUE) {
+                categoryRepository.respaceSortOrders(parentId, CategoryService.SORT_ORDER_GAP, 0L);
+                lastSortOrders.put(parentId, categoryRepository.findLastSortOrder(parentId));
+            }
+        });
+        return lastSortOrders;
+    }
+
+    // 0 for top level entries, null for entries whose parent is new or missing
+    private static Long existingParentId(Entry entry, CategorySlugTrie trie) {
+        if (entry.parentSlug() == null) {
+            return 0L;
+        }
+        return trie.findBySlug(entry.parentSlug()).map(CategoryTree::getId).orElse(null);
+    }
+
+    private static Set<Long> existingParentIds(List<Entry> entries, CategorySlugTrie trie) {
+        final var parentIds = new HashSet<Long>();
+        for (final var entry : entries) {
+            if (entry.parentSlug() == null) {
+                parentIds.add(null);
+            } else {
+                trie.findBySlug(entry.parentSlug()).ifPresent(parent -> parentIds.add(parent.getId()));
+            }
+        }
+        return parentIds;
+    }
+
+    private static Long parentId(String parentSlug, Map<String, Long> idsBySlug, CategorySlugTrie trie) {
+        if (parentSlug == null) {
+            return null;
+        }
+        final var id = idsBySlug.get(parentSlug);
+        return id != null ? id : trie.findBySlug(parentSlug).orElseThrow().getId();
+    }
+
+    private static void flatten(List<CategoryImportDTO> nodes, String parentSlug, List<Entry> entries, Map<String, Integer> positions) {
+        if (nodes == null) {
+            return;
+        }
+        for (final var node : nodes) {
+            final var slug = node.slug() == null ? "" : parentSlug == null ? node.slug() : parentSlug + "/" + node.slug();
+            final var indexOfLastSlash = slug.lastIndexOf('/');
+            final var nodeParentSlug = indexOfLastSlash > 0 ? slug.substring(0, indexOfLastSlash) : null;
+            final var position = positions.merge(Objects.toString(nodeParentSlug, ""), 1, Integer::sum);
+            final var depth = (int) slug.chars().filter(c -> c == '/').count();
+            entries.add(new Entry(entries.size(), slug, nodeParentSlug, depth, node, position));
+            flatten(node.children(), slug, entries, positions);
+        }
+    }
+
+    private static String nameKey(String parentSlug, String name) {
+        return parentSlug + "\u0000" + name;
+    }
+}
@@ -0,0 +1,51 @@
+package de.philipbolting.product_catalog.category;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+class CategoryLocks {
+
+    private static final int STRIPES = 256;
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x63617400;
+
+    private final CategoryRepository categoryRepository;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    CategoryLocks(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+        Arrays.setAll(stripes, i -> new ReentrantLock());
+    }
+
+    // locks the children of the given parents (null for roots) until the current transaction completes;
+    // colliding stripes or advisory keys only serialize unrelated parents, they never weaken the lock
+    void lockChildrenOf(Collection<Long> parentIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Category locks require an active transaction");
+        }
+        final var keys = parentIds.stream().mapToLong(parentId -> parentId == null ? 0L : parentId).distinct().toArray();
+        final var locked = Arrays.stream(keys)
+                .mapToInt(key -> (int) Fingerprints.of(key) & (STRIPES - 1))
+                .distinct()
+                .sorted()
+                .mapToObj(stripe -> stripes[stripe])
+                .toList();
+        locked.forEach(ReentrantLock::lock);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                locked.reversed().forEach(ReentrantLock::unlock);
+            }
+        });
+        Arrays.stream(keys)
+                .mapToInt(Long::hashCode)
+                .distinct()
+                .sorted()
+                .forEach(key -> categoryRepository.lockAdvisory(ADVISORY_LOCK_NAMESPACE, key));
+    }
+}
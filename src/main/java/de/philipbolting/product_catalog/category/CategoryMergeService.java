@@ -0,0 +1,145 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.error.InvalidCategoryMergeException;
+import de.philipbolting.product_catalog.error.NotFoundException;
+import de.philipbolting.product_catalog.product.ProductFacetIndex;
+import de.philipbolting.product_catalog.product.ProductRepository;
+import de.philipbolting.product_catalog.product.ProductSearchIndex;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+class CategoryMergeService {
+
+    private static final int CHILDREN_PER_TRANSACTION = 100;
+
+    private record Collision(long sourceId, long targetId) {}
+
+    private final CategoryTreeRepository categoryTreeRepository;
+    private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final ProductRepository productRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryLocks categoryLocks;
+    private final CategoryService categoryService;
+    private final SlugRedirects slugRedirects;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final SuggestIndex suggestIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int productsPerTransaction;
+
+    public CategoryMergeService(CategoryTreeRepository categoryTreeRepository, CategoryRepository categoryRepository,
+                                CategoryClosureRepository categoryClosureRepository, ProductRepository productRepository,
+                                CategoryTreeCache categoryTreeCache, CategoryLocks categoryLocks, CategoryService categoryService,
+                                SlugRedirects slugRedirects, ProductFacetIndex productFacetIndex,
+                                ProductSearchIndex productSearchIndex, SuggestIndex suggestIndex,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${product-catalog.category-merge.products-per-transaction:5000}") int productsPerTransaction) {
+        this.categoryTreeRepository = categoryTreeRepository;
+        this.categoryRepository = categoryRepository;
+        this.categoryClosureRepository = categoryClosureRepository;
+        this.productRepository = productRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.categoryLocks = categoryLocks;
+        this.categoryService = categoryService;
+        this.slugRedirects = slugRedirects;
+        this.productFacetIndex = productFacetIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.suggestIndex = suggestIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productsPerTransaction = productsPerTransaction;
+    }
+
+    // runs in many short transactions, so a failed merge leaves a consistent but partially merged source behind
+    // that can be merged again
+    public CategoryDTO mergeCategory(String slug, String targetSlug) {
+        final var source = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        final var target = categoryTreeCache.findBySlug(targetSlug).orElseThrow(NotFoundException::new);
+        if (categoryClosureRepository.existsByAncestorIdAndDescendantId(source.getId(), target.getId())) {
+            throw new InvalidCategoryMergeException();
+        }
+        try {
+            merge(source.getId(), target.getId());
+        } finally {
+            categoryTreeCache.refresh();
+            productFacetIndex.refreshInBackground();
+            productSearchIndex.refreshInBackground();
+            suggestIndex.refreshCategoriesAfterCommit();
+        }
+        return categoryService.findCategoryBySlug(targetSlug);
+    }
+
+    private void merge(long sourceId, long targetId) {
+        while (true) {
+            moveProducts(sourceId, targetId);
+            for (final var collision : moveChildren(sourceId, targetId)) {
+                merge(collision.sourceId(), collision.targetId());
+            }
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteIfEmpty(sourceId, targetId)))) {
+                return;
+            }
+        }
+    }
+
+    private void moveProducts(long sourceId, long targetId) {
+        Integer moved;
+        do {
+            moved = transactionTemplate.execute(status -> productRepository.moveToCategory(sourceId, targetId, productsPerTransaction));
+        } while (moved != null && moved == productsPerTransaction);
+    }
+
+    // children whose slug or name already exists below the target are merged into that category instead of being moved
+    private List<Collision> moveChildren(long sourceId, long targetId) {
+        final var collisions = new ArrayList<Collision>();
+        final var afterId = new long[]{0L};
+        Integer count;
+        do {
+            count = transactionTemplate.execute(status -> {
+                categoryLocks.lockChildrenOf(List.of(sourceId, targetId));
+                final var target = categoryTreeRepository.findById(targetId).orElseThrow(NotFoundException::new);
+                final var children = categoryTreeRepository.findByParentIdAndIdGreaterThanOrderById(sourceId, afterId[0],
+                        Limit.of(CHILDREN_PER_TRANSACTION));
+                for (final var child : children) {
+                    final var lastSegment = child.getSlug().substring(child.getSlug().lastIndexOf('/') + 1);
+                    final var newSlug = target.getSlug() + "/" + lastSegment;
+                    final var existing = categoryTreeRepository.findBySlug(newSlug)
+                            .or(() -> categoryTreeRepository.findByParentIdAndName(targetId, child.getName()));
+                    if (existing.isPresent()) {
+                        collisions.add(new Collision(child.getId(), existing.get().getId()));
+                    } else {
+                        categoryClosureRepository.detachSubtree(child.getId());
+                        categoryRepository.updateParent(child.getId(), targetId);
+                        categoryClosureRepository.attachSubtree(child.getId(), targetId);
+                        slugRedirects.recordCategorySubtreeChange(child.getId(), child.getSlug(), newSlug);
+                    }
+                    afterId[0] = child.getId();
+                }
+                return children.size();
+            });
+        } while (count != null && count == CHILDREN_PER_TRANSACTION);
+        return collisions;
+    }
+
+    private boolean deleteIfEmpty(long sourceId, long targetId) {
+        final var source = categoryTreeRepository.findById(sourceId).orElseThrow(NotFoundException::new);
+        categoryLocks.lockChildrenOf(Arrays.asList(source.getParentId(), sourceId, targetId));
+        if (productRepository.existsByCategoryId(sourceId) || categoryTreeRepository.existsByParentId(sourceId)) {
+            return false;
+        }
+        categoryRepository.deleteById(sourceId);
+        final var target = categoryTreeRepository.findById(targetId).orElseThrow(NotFoundException::new);
+        slugRedirects.recordChange(SlugType.CATEGORY, source.getSlug(), target.getSlug());
+        return true;
+    }
+}
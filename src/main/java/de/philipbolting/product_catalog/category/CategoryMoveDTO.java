@@ -0,0 +1,10 @@
+package de.philipbolting.product_catalog.category;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+public record CategoryMoveDTO(
+        @Size(max = 100, message = "Parent slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        String parentSlug) {
+}
@@ -0,0 +1,14 @@
+package de.philipbolting.product_catalog.category;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CategoryNodeDTO(
+        String slug,
+        String name,
+        long productCount,
+        long subtreeProductCount,
+        List<CategoryNodeDTO> children) {
+}
@@ -0,0 +1,13 @@
+package de.philipbolting.product_catalog.category;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+public record CategoryPositionDTO(
+        @Size(max = 100, message = "Before slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        String before,
+        @Size(max = 100, message = "After slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        String after) {
+}
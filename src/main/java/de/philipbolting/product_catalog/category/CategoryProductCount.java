@@ -0,0 +1,66 @@
+package de.philipbolting.product_catalog.category;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+
+@Entity
+@Immutable
+@Table(name = "category_product_count")
+public class CategoryProductCount {
+
+    @Id
+    private long categoryId;
+    private long productCount;
+    private long subtreeProductCount;
+    private Instant lastModified;
+
+    public CategoryProductCount() {
+    }
+
+    public CategoryProductCount(long categoryId, long productCount, long subtreeProductCount) {
+        this.categoryId = categoryId;
+        this.productCount = productCount;
+        this.subtreeProductCount = subtreeProductCount;
+    }
+
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    public long getProductCount() {
+        return productCount;
+    }
+
+    public long getSubtreeProductCount() {
+        return subtreeProductCount;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        CategoryProductCount that = (CategoryProductCount) o;
+        return categoryId == that.categoryId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(categoryId);
+    }
+
+    @Override
+    public String toString() {
+        return "CategoryProductCount{" +
+                "categoryId=" + categoryId +
+                ", productCount=" + productCount +
+                ", subtreeProductCount=" + subtreeProductCount +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package de.philipbolting.product_catalog.category;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class CategoryProductCountCache {
+
+    record Snapshot(Map<Long, CategoryProductCount> counts, long version) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), 0L);
+
+        long productCount(long categoryId) {
+            final var count = counts.get(categoryId);
+            return count != null ? count.getProductCount() : 0L;
+        }
+
+        long subtreeProductCount(long categoryId) {
+            final var count = counts.get(categoryId);
+            return count != null ? count.getSubtreeProductCount() : 0L;
+        }
+    }
+
+    private final CategoryProductCountRepository categoryProductCountRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public CategoryProductCountCache(CategoryProductCountRepository categoryProductCountRepository) {
+        this.categoryProductCountRepository = categoryProductCountRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product-catalog.category-product-count.refresh-interval:PT10S}",
+            initialDelayString = "${product-catalog.category-product-count.refresh-interval:PT10S}")
+    public void refresh() {
+        final var all = categoryProductCountRepository.findAll();
+        final var counts = HashMap.<Long, CategoryProductCount>newHashMap(all.size());
+        var version = 0L;
+        for (final var count : all) {
+            counts.put(count.getCategoryId(), count);
+            version ^= Fingerprints.of(count.getCategoryId(), count.getProductCount(), count.getSubtreeProductCount());
+        }
+        snapshot = new Snapshot(counts, version);
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,52 @@
+package de.philipbolting.product_catalog.category;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// recounts one chunk of categories per short transaction, holding only the count rows of that chunk, so product and
+// category writes elsewhere in the catalog never wait for the whole recount
+@Component
+public class CategoryProductCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryProductCountReconciler.class);
+
+    private final CategoryProductCountRepository categoryProductCountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int categoriesPerTransaction;
+
+    public CategoryProductCountReconciler(CategoryProductCountRepository categoryProductCountRepository,
+                                          PlatformTransactionManager transactionManager,
+                                          @Value("${product-catalog.category-product-count.categories-per-transaction:500}") int categoriesPerTransaction) {
+        this.categoryProductCountRepository = categoryProductCountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categoriesPerTransaction = categoriesPerTransaction;
+    }
+
+    @Scheduled(cron = "${product-catalog.category-product-count.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        final int inserted = transactionTemplate.execute(status -> categoryProductCountRepository.insertMissing());
+        var corrected = 0;
+        var after = 0L;
+        while (true) {
+            final var from = after;
+            final var until = categoryProductCountRepository.findChunkEnd(from, categoriesPerTransaction);
+            if (until == null) {
+                break;
+            }
+            corrected += transactionTemplate.execute(status -> {
+                categoryProductCountRepository.lockChunk(from, until);
+                return categoryProductCountRepository.reconcile(from, until);
+            });
+            after = until;
+        }
+        if (inserted + corrected > 0) {
+            log.warn("Reconciled product counts: {} missing and {} drifted categories", inserted, corrected);
+        }
+        return corrected;
+    }
+}
@@ -0,0 +1,50 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ReadOnlyRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface CategoryProductCountRepository extends ReadOnlyRepository<CategoryProductCount, Long> {
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO category_product_count (category_id)
+            SELECT id FROM category
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertMissing();
+
+    @Query(value = "SELECT max(id) FROM (SELECT id FROM category WHERE id > :after ORDER BY id LIMIT :size) chunk", nativeQuery = true)
+    Long findChunkEnd(long after, int size);
+
+    // locks the count rows of a chunk in the order the triggers lock them; a product change committed before is seen
+    // by the recount that follows, one committed after applies its delta on top of the corrected count
+    @Query(value = """
+            SELECT category_id FROM category_product_count
+            WHERE category_id > :after AND category_id <= :until
+            ORDER BY category_id
+            FOR UPDATE
+            """, nativeQuery = true)
+    List<Long> lockChunk(long after, long until);
+
+    // counts per category through the category and closure indexes, and writes only the rows that drifted
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            UPDATE category_product_count count
+            SET product_count = actual.product_count, subtree_product_count = actual.subtree_product_count
+            FROM (
+                SELECT category.id AS category_id,
+                       (SELECT count(*) FROM product WHERE product.category_id = category.id) AS product_count,
+                       (SELECT count(*)
+                        FROM category_closure closure INNER JOIN product ON product.category_id = closure.descendant_id
+                        WHERE closure.ancestor_id = category.id) AS subtree_product_count
+                FROM category
+                WHERE category.id > :after AND category.id <= :until
+            ) actual
+            WHERE count.category_id = actual.category_id
+              AND (count.product_count, count.subtree_product_count) IS DISTINCT FROM (actual.product_count, actual.subtree_product_count)
+            """, nativeQuery = true)
+    int reconcile(long after, long until);
+}
@@ -1,5 +1,8 @@
 package de.philipbolting.product_catalog.category;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.Optional;
@@ -7,4 +10,72 @@ import java.util.Optional;
 public interface CategoryRepository extends CrudRepository<Category, Long> {
     Optional<Category> findBySlug(String slug);
     Optional<Category> findByName(String slug);
+
+    // the counts are read along in the same round trip, and as a projection nothing is managed or dirty-checked
+    @Query("""
+            SELECT new de.philipbolting.product_catalog.category.CategoryDetailRow(category.id, category.lastModified,
+                count.lastModified, category.name, category.description, coalesce(count.productCount, 0L),
+                coalesce(count.subtreeProductCount, 0L))
+            FROM Category category
+                LEFT JOIN CategoryProductCount count
+                ON count.categoryId = category.id
+            WHERE category.id = :id
+            """)
+    Optional<CategoryDetailRow> findDetailById(long id);
+
+    @Query("""
+            SELECT new de.philipbolting.product_catalog.ResourceVersion(category.id, category.lastModified, count.lastModified)
+            FROM Category category
+                LEFT JOIN CategoryProductCount count
+                ON count.categoryId = category.id
+            WHERE category.id = :id
+            """)
+    Optional<ResourceVersion> findVersionById(long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE category SET parent_id = :parentId, last_modified = now() WHERE id = :id", nativeQuery = true)
+    void updateParent(long id, Long parentId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE category SET slug = :slug, last_modified = now() WHERE id = :id", nativeQuery = true)
+    void updateSlug(long id, String slug);
+
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:namespace, :key)", nativeQuery = true)
+    int lockAdvisory(int namespace, int key);
+
+    @Query(value = "SELECT max(sort_order) FROM category WHERE coalesce(parent_id, 0) = :parentId", nativeQuery = true)
+    Integer findLastSortOrder(long parentId);
+
+    @Query(value = """
+            SELECT sort_order FROM category
+            WHERE coalesce(parent_id, 0) = :parentId AND (sort_order, name) < (:sortOrder, :name) AND id <> :excludedId
+            ORDER BY sort_order DESC, name DESC
+            LIMIT 1
+            """, nativeQuery = true)
+    Integer findPreviousSortOrder(long parentId, int sortOrder, String name, long excludedId);
+
+    @Query(value = """
+            SELECT sort_order FROM category
+            WHERE coalesce(parent_id, 0) = :parentId AND (sort_order, name) > (:sortOrder, :name) AND id <> :excludedId
+            ORDER BY sort_order, name
+            LIMIT 1
+            """, nativeQuery = true)
+    Integer findNextSortOrder(long parentId, int sortOrder, String name, long excludedId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE category SET sort_order = :sortOrder, last_modified = now() WHERE id = :id", nativeQuery = true)
+    void updateSortOrder(long id, int sortOrder);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            UPDATE category c
+            SET sort_order = ranked.position * :gap
+            FROM (
+                SELECT id, row_number() OVER (ORDER BY sort_order, name) AS position
+                FROM category
+                WHERE coalesce(parent_id, 0) = :parentId AND id <> :excludedId
+            ) ranked
+            WHERE c.id = ranked.id AND c.sort_order <> ranked.position * :gap
+            """, nativeQuery = true)
+    int respaceSortOrders(long parentId, int gap, long excludedId);
 }
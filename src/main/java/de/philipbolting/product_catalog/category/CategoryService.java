@@ -1,32 +1,72 @@
 package de.philipbolting.product_catalog.category;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import de.philipbolting.product_catalog.Tagged;
+import de.philipbolting.product_catalog.error.CategoryCycleException;
+import de.philipbolting.product_catalog.error.CategoryNotSiblingException;
+import de.philipbolting.product_catalog.error.InvalidCategoryPositionException;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
 import de.philipbolting.product_catalog.error.NotFoundException;
 import de.philipbolting.product_catalog.error.ParentCategoryNotFoundException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.product.ProductFacetIndex;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
 @Service
 class CategoryService {
 
+    static final int SORT_ORDER_GAP = 1024;
+
     private final CategoryRepository categoryRepository;
     private final CategoryTreeRepository categoryTreeRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final CategoryProductCountCache categoryProductCountCache;
+    private final CategoryLocks categoryLocks;
+    private final SlugRedirects slugRedirects;
+    private final ProductFacetIndex productFacetIndex;
+    private final SuggestIndex suggestIndex;
 
-    public CategoryService(CategoryRepository categoryRepository, CategoryTreeRepository categoryTreeRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryTreeRepository categoryTreeRepository, CategoryTreeCache categoryTreeCache,
+                           CategoryClosureRepository categoryClosureRepository,
+                           CategoryProductCountCache categoryProductCountCache, CategoryLocks categoryLocks, SlugRedirects slugRedirects,
+                           ProductFacetIndex productFacetIndex, SuggestIndex suggestIndex) {
         this.categoryRepository = categoryRepository;
         this.categoryTreeRepository = categoryTreeRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.categoryClosureRepository = categoryClosureRepository;
+        this.categoryProductCountCache = categoryProductCountCache;
+        this.categoryLocks = categoryLocks;
+        this.slugRedirects = slugRedirects;
+        this.productFacetIndex = productFacetIndex;
+        this.suggestIndex = suggestIndex;
     }
 
     @Transactional
     public CategoryDTO createCategory(CategoryDTO dto) {
-        if (categoryTreeRepository.findBySlug(dto.slug()).isPresent()) {
+        if (categoryTreeCache.findBySlug(dto.slug()).isPresent()) {
             throw new SlugAlreadyExistsException();
         }
         final var category = dto.toCategory();
         final var parentSlug = extractParentSlug(dto.slug());
+        CategoryTree parentCategoryTree = null;
         if (parentSlug != null) {
-            final var parentCategoryTree = categoryTreeRepository.findBySlug(parentSlug).orElseThrow(ParentCategoryNotFoundException::new);
+            parentCategoryTree = categoryTreeCache.findBySlug(parentSlug).orElseThrow(ParentCategoryNotFoundException::new);
+        }
+        categoryLocks.lockChildrenOf(Collections.singletonList(parentCategoryTree != null ? parentCategoryTree.getId() : null));
+        if (categoryTreeRepository.findBySlug(dto.slug()).isPresent()) {
+            throw new SlugAlreadyExistsException();
+        }
+        if (parentCategoryTree != null) {
             if (categoryTreeRepository.findByParentIdAndName(parentCategoryTree.getId(), dto.name()).isPresent()) {
                 throw new NameAlreadyExistsException();
             }
@@ -35,16 +75,189 @@ class CategoryService {
             final var slug = dto.slug().substring(parentSlug.length() + 1);
             category.setSlug(slug);
         }
+        category.setSortOrder(appendSortOrder(parentCategoryTree != null ? parentCategoryTree.getId() : 0L));
+        slugRedirects.release(SlugType.CATEGORY, List.of(dto.slug()));
         final var savedCategory = categoryRepository.save(category);
-        final var fullSlug = parentSlug != null ? parentSlug + "/" + savedCategory.getSlug() : savedCategory.getSlug();
-        return CategoryDTO.fromCategory(savedCategory).withSlug(fullSlug);
+        categoryClosureRepository.insertPaths(savedCategory.getId(), parentCategoryTree != null ? parentCategoryTree.getId() : null);
+        final var savedCategoryTree = CategoryTree.of(parentCategoryTree, savedCategory);
+        categoryTreeCache.putAfterCommit(savedCategoryTree);
+        suggestIndex.refreshCategoriesAfterCommit();
+        return CategoryDTO.fromCategory(savedCategory).withSlug(savedCategoryTree.getSlug());
+    }
+
+    @Transactional
+    public CategoryDTO moveCategory(String slug, CategoryMoveDTO dto) {
+        final var categoryTree = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        CategoryTree parentCategoryTree = null;
+        if (dto.parentSlug() != null) {
+            parentCategoryTree = categoryTreeCache.findBySlug(dto.parentSlug()).orElseThrow(ParentCategoryNotFoundException::new);
+            if (categoryClosureRepository.existsByAncestorIdAndDescendantId(categoryTree.getId(), parentCategoryTree.getId())) {
+                throw new CategoryCycleException();
+            }
+        }
+        final var parentId = parentCategoryTree != null ? parentCategoryTree.getId() : null;
+        final var lastSegment = slug.substring(slug.lastIndexOf('/') + 1);
+        final var newSlug = parentCategoryTree != null ? parentCategoryTree.getSlug() + "/" + lastSegment : lastSegment;
+        if (Objects.equals(categoryTree.getParentId(), parentId)) {
+            return findCategoryBySlug(slug);
+        }
+        categoryLocks.lockChildrenOf(Arrays.asList(categoryTree.getParentId(), parentId));
+        if (categoryTreeRepository.findBySlug(newSlug).isPresent()) {
+            throw new SlugAlreadyExistsException();
+        }
+        if (categoryTreeRepository.findByParentIdAndName(parentId, categoryTree.getName()).isPresent()) {
+            throw new NameAlreadyExistsException();
+        }
+        categoryClosureRepository.detachSubtree(categoryTree.getId());
+        categoryRepository.updateParent(categoryTree.getId(), parentId);
+        if (parentId != null) {
+            categoryClosureRepository.attachSubtree(categoryTree.getId(), parentId);
+        }
+        slugRedirects.recordCategorySubtreeChange(categoryTree.getId(), categoryTree.getSlug(), newSlug);
+        categoryTreeCache.refreshAfterCommit();
+        productFacetIndex.refreshAfterCommit();
+        suggestIndex.refreshCategoriesAfterCommit();
+        return categoryRepository.findDetailById(categoryTree.getId()).orElseThrow(NotFoundException::new).toCategoryDTO(newSlug);
+    }
+
+    @Transactional
+    public CategoryDTO changeCategorySlug(String slug, CategorySlugChangeDTO dto) {
+        final var categoryTree = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        final var newSlug = categoryTree.getSlug().substring(0, categoryTree.getSlug().lastIndexOf('/') + 1) + dto.slug();
+        if (newSlug.equals(categoryTree.getSlug())) {
+            return findCategoryBySlug(slug);
+        }
+        categoryLocks.lockChildrenOf(Collections.singletonList(categoryTree.getParentId()));
+        if (categoryTreeRepository.findBySlug(newSlug).isPresent()) {
+            throw new SlugAlreadyExistsException();
+        }
+        categoryRepository.updateSlug(categoryTree.getId(), dto.slug());
+        slugRedirects.recordCategorySubtreeChange(categoryTree.getId(), categoryTree.getSlug(), newSlug);
+        categoryTreeCache.refreshAfterCommit();
+        productFacetIndex.refreshAfterCommit();
+        suggestIndex.refreshCategoriesAfterCommit();
+        return categoryRepository.findDetailById(categoryTree.getId()).orElseThrow(NotFoundException::new).toCategoryDTO(newSlug);
+    }
+
+    @Transactional
+    public CategoryDTO positionCategory(String slug, CategoryPositionDTO dto) {
+        if ((dto.before() == null) == (dto.after() == null)) {
+            throw new InvalidCategoryPositionException();
+        }
+        final var categoryTree = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        categoryLocks.lockChildrenOf(Collections.singletonList(categoryTree.getParentId()));
+        final var before = dto.before() != null;
+        final var referenceSlug = before ? dto.before() : dto.after();
+        final var reference = categoryTreeRepository.findBySlug(referenceSlug)
+                .filter(candidate -> Objects.equals(candidate.getParentId(), categoryTree.getParentId()))
+                .orElseThrow(CategoryNotSiblingException::new);
+        if (reference.getId().equals(categoryTree.getId())) {
+            return findCategoryBySlug(slug);
+        }
+        final var parentId = Objects.requireNonNullElse(categoryTree.getParentId(), 0L);
+        var sortOrder = sortOrderNextTo(reference, before, parentId, categoryTree.getId());
+        if (sortOrder == null) {
+            categoryRepository.respaceSortOrders(parentId, SORT_ORDER_GAP, categoryTree.getId());
+            final var respacedReference = categoryTreeRepository.findById(reference.getId()).orElseThrow(NotFoundException::new);
+            sortOrder = sortOrderNextTo(respacedReference, before, parentId, categoryTree.getId());
+        }
+        categoryRepository.updateSortOrder(categoryTree.getId(), sortOrder);
+        categoryTreeCache.refreshAfterCommit();
+        return findCategoryBySlug(slug);
     }
 
     public CategoryDTO findCategoryBySlug(String slug) {
-        final var categoryTreeInfo = categoryTreeRepository.findBySlug(slug).orElseThrow(NotFoundException::new);
-        final var category = categoryRepository.findById(categoryTreeInfo.getId()).orElseThrow(NotFoundException::new);
-        category.setSlug(categoryTreeInfo.getSlug());
-        return CategoryDTO.fromCategory(category);
+        return findTaggedCategoryBySlug(slug).value();
+    }
+
+    public Tagged<CategoryDTO> findTaggedCategoryBySlug(String slug) {
+        final var categoryTreeInfo = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        final var row = categoryRepository.findDetailById(categoryTreeInfo.getId()).orElseThrow(NotFoundException::new);
+        return new Tagged<>(row.version(), row.toCategoryDTO(categoryTreeInfo.getSlug()));
+    }
+
+    public ResourceVersion findCategoryVersion(String slug) {
+        final var categoryTreeInfo = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        return categoryRepository.findVersionById(categoryTreeInfo.getId()).orElseThrow(NotFoundException::new);
+    }
+
+    public List<CategoryDTO> findDescendantsBySlug(String slug) {
+        final var categoryTree = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        return categoryClosureRepository.findDescendants(categoryTree.getId());
+    }
+
+    public List<CategoryDTO> findAncestorsBySlug(String slug) {
+        final var categoryTree = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        return categoryClosureRepository.findAncestors(categoryTree.getId());
+    }
+
+    public long findCategoryTreeVersion() {
+        return categoryTreeCache.snapshot().version() ^ categoryProductCountCache.snapshot().version();
+    }
+
+    public Versioned<List<CategoryNodeDTO>> findCategoryTree(Integer depth) {
+        final var trie = categoryTreeCache.snapshot();
+        final var counts = categoryProductCountCache.snapshot();
+        return new Versioned<>(trie.version() ^ counts.version(), findChildNodes(trie, counts, null, depth == null ? Integer.MAX_VALUE : depth));
+    }
+
+    // the slug is resolved first, so a tree version held from before never turns an unknown slug into a 304
+    public long findCategorySubtreeVersion(String slug) {
+        categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        return findCategoryTreeVersion();
+    }
+
+    public Versioned<CategoryNodeDTO> findCategorySubtreeBySlug(String slug, Integer depth) {
+        final var categoryTree = categoryTreeCache.findBySlug(slug).orElseThrow(NotFoundException::new);
+        final var trie = categoryTreeCache.snapshot();
+        final var counts = categoryProductCountCache.snapshot();
+        final var children = findChildNodes(trie, counts, categoryTree.getId(), depth == null ? 1 : depth);
+        return new Versioned<>(trie.version() ^ counts.version(), toNode(categoryTree, counts, children));
+    }
+
+    private List<CategoryNodeDTO> findChildNodes(CategorySlugTrie trie, CategoryProductCountCache.Snapshot counts, Long parentId, int depth) {
+        if (depth <= 0) {
+            return null;
+        }
+        return trie.findChildren(parentId).stream()
+                .map(child -> toNode(child, counts, findChildNodes(trie, counts, child.getId(), depth - 1)))
+                .toList();
+    }
+
+    private static CategoryNodeDTO toNode(CategoryTree category, CategoryProductCountCache.Snapshot counts, List<CategoryNodeDTO> children) {
+        return new CategoryNodeDTO(category.getSlug(), category.getName(),
+                counts.productCount(category.getId()), counts.subtreeProductCount(category.getId()), children);
+    }
+
+    private int appendSortOrder(long parentId) {
+        var last = categoryRepository.findLastSortOrder(parentId);
+        if (last == null) {
+            return SORT_ORDER_GAP;
+        }
+        if ((long) last + SORT_ORDER_GAP > Integer.MAX_VALUE) {
+            categoryRepository.respaceSortOrders(parentId, SORT_ORDER_GAP, 0L);
+            last = categoryRepository.findLastSortOrder(parentId);
+        }
+        return last + SORT_ORDER_GAP;
+    }
+
+    private Integer sortOrderNextTo(CategoryTree reference, boolean before, long parentId, long excludedId) {
+        final long lower;
+        final long upper;
+        if (before) {
+            final var previous = categoryRepository.findPreviousSortOrder(parentId, reference.getSortOrder(), reference.getName(), excludedId);
+            upper = reference.getSortOrder();
+            lower = previous != null ? previous : upper - 2L * SORT_ORDER_GAP;
+        } else {
+            final var next = categoryRepository.findNextSortOrder(parentId, reference.getSortOrder(), reference.getName(), excludedId);
+            lower = reference.getSortOrder();
+            upper = next != null ? next : lower + 2L * SORT_ORDER_GAP;
+        }
+        final var sortOrder = lower + (upper - lower) / 2;
+        if (upper - lower < 2 || sortOrder < Integer.MIN_VALUE || sortOrder > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) sortOrder;
     }
 
     private String extractParentSlug(String slug) {
@@ -0,0 +1,13 @@
+package de.philipbolting.product_catalog.category;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+public record CategorySlugChangeDTO(
+        @NotEmpty(message = "Slug must not be empty")
+        @Size(max = 50, message = "Slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$")
+        @Pattern(regexp = "^(?!(?:ancestors|descendants|merge-into|move|position|products)$).*$", message = "Slug must not be a reserved segment")
+        String slug) {
+}
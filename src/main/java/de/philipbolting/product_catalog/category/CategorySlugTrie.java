@@ -0,0 +1,151 @@
+package de.philipbolting.product_catalog.category;
+
+import java.util.*;
+
+final class CategorySlugTrie {
+
+    static final CategorySlugTrie EMPTY = new CategorySlugTrie(Level.EMPTY, PersistentLongMap.empty(), 0L);
+
+    private static final Comparator<CategoryTree> SORT_ORDER = Comparator
+            .comparingInt(CategoryTree::getSortOrder)
+            .thenComparing(CategoryTree::getName);
+
+    private record Node(CategoryTree category, Level children) {}
+
+    // the children of one parent by slug segment and in sort order
+    private record Level(Map<String, Node> bySegment, List<CategoryTree> ordered) {
+        static final Level EMPTY = new Level(Map.of(), List.of());
+    }
+
+    private final Level roots;
+    private final PersistentLongMap<Node> nodesById;
+    private final long version;
+
+    private CategorySlugTrie(Level roots, PersistentLongMap<Node> nodesById, long version) {
+        this.roots = roots;
+        this.nodesById = nodesById;
+        this.version = version;
+    }
+
+    static CategorySlugTrie of(Collection<CategoryTree> categories) {
+        final var roots = new Level(new HashMap<>(), new ArrayList<>());
+        final var levels = new ArrayList<>(List.of(roots));
+        var nodesById = PersistentLongMap.<Node>empty();
+        final var sorted = new ArrayList<>(categories);
+        sorted.sort(Comparator.comparingInt(CategoryTree::getDepth));
+        var version = 0L;
+        for (final var category : sorted) {
+            final var level = category.getParentId() == null ? roots : childrenOf(nodesById.get(category.getParentId()));
+            if (level == null) {
+                continue;
+            }
+            final var node = new Node(category, new Level(new HashMap<>(), new ArrayList<>()));
+            level.bySegment().put(lastSegment(category.getSlug()), node);
+            level.ordered().add(category);
+            levels.add(node.children());
+            nodesById = nodesById.with(category.getId(), node);
+            version ^= fingerprint(category);
+        }
+        levels.forEach(level -> level.ordered().sort(SORT_ORDER));
+        return new CategorySlugTrie(roots, nodesById, version);
+    }
+
+    CategorySlugTrie with(CategoryTree category) {
+        if (category.getParentId() != null && !nodesById.containsKey(category.getParentId())) {
+            throw new IllegalArgumentException("Parent of " + category + " is not part of the trie");
+        }
+        final var existing = nodesById.get(category.getId());
+        final var newVersion = version ^ fingerprint(category) ^ (existing != null ? fingerprint(existing.category()) : 0L);
+        final var path = new ArrayList<Node>();
+        final var newRoots = insert(roots, category.getSlug().split("/"), 0, category, path);
+        var newNodesById = nodesById;
+        for (final var node : path) {
+            newNodesById = newNodesById.with(node.category().getId(), node);
+        }
+        return new CategorySlugTrie(newRoots, newNodesById, newVersion);
+    }
+
+    Optional<CategoryTree> findBySlug(String slug) {
+        var level = roots;
+        Node node = null;
+        for (final var segment : slug.split("/")) {
+            node = level.bySegment().get(segment);
+            if (node == null) {
+                return Optional.empty();
+            }
+            level = node.children();
+        }
+        return Optional.ofNullable(node).map(Node::category);
+    }
+
+    Optional<CategoryTree> findById(long id) {
+        return Optional.ofNullable(nodesById.get(id)).map(Node::category);
+    }
+
+    Optional<CategoryTree> findByParentIdAndName(Long parentId, String name) {
+        final var level = parentId == null ? roots : childrenOf(nodesById.get(parentId));
+        if (level == null) {
+            return Optional.empty();
+        }
+        return level.ordered().stream()
+                .filter(category -> category.getName().equals(name))
+                .findFirst();
+    }
+
+    List<CategoryTree> findChildren(Long parentId) {
+        final var level = parentId == null ? roots : childrenOf(nodesById.get(parentId));
+        if (level == null) {
+            return List.of();
+        }
+        return Collections.unmodifiableList(level.ordered());
+    }
+
+    int size() {
+        return nodesById.size();
+    }
+
+    long version() {
+        return version;
+    }
+
+    // copies the nodes on the path to the category and the sibling maps along it, the subtrees off the path are
+    // shared; only the level of the category itself changes its order
+    private static Level insert(Level level, String[] segments, int index, CategoryTree category, List<Node> path) {
+        final var segment = segments[index];
+        final var existing = level.bySegment().get(segment);
+        final Node node;
+        var ordered = level.ordered();
+        if (index == segments.length - 1) {
+            node = new Node(category, existing != null ? existing.children() : Level.EMPTY);
+            ordered = new ArrayList<>(ordered.size() + 1);
+            for (final var sibling : level.ordered()) {
+                if (!sibling.getId().equals(category.getId()) && (existing == null || !sibling.getId().equals(existing.category().getId()))) {
+                    ordered.add(sibling);
+                }
+            }
+            final var position = Collections.binarySearch(ordered, category, SORT_ORDER);
+            ordered.add(position < 0 ? -position - 1 : position, category);
+        } else if (existing != null) {
+            node = new Node(existing.category(), insert(existing.children(), segments, index + 1, category, path));
+        } else {
+            throw new IllegalArgumentException("Missing ancestor " + segment + " of " + category);
+        }
+        final var bySegment = new HashMap<>(level.bySegment());
+        bySegment.put(segment, node);
+        path.add(node);
+        return new Level(bySegment, ordered);
+    }
+
+    private static Level childrenOf(Node node) {
+        return node == null ? null : node.children();
+    }
+
+    private static long fingerprint(CategoryTree category) {
+        return Fingerprints.of(category.getId(), Objects.hashCode(category.getParentId()), category.getName().hashCode(),
+                category.getSlug().hashCode(), Arrays.hashCode(category.getSortPath()));
+    }
+
+    private static String lastSegment(String slug) {
+        return slug.substring(slug.lastIndexOf('/') + 1);
+    }
+}
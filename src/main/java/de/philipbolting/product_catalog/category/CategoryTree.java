@@ -1,34 +1,54 @@
 package de.philipbolting.product_catalog.category;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
 import org.hibernate.annotations.Immutable;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Objects;
 
 @Entity
 @Immutable
+@Table(name = "category")
 public class CategoryTree {
     @Id
     private Long id;
+    @Column(name = "parent_id")
     private Long parentId;
     private String name;
+    @Column(name = "full_slug")
     private String slug;
-    private String sortOrder;
+    @Column(name = "sort_path")
+    private int[] sortPath;
     private int depth;
+    private Instant lastModified;
 
     public CategoryTree() {
     }
 
-    public CategoryTree(Long id, Long parentId, String name, String slug, String sortOrder, int depth) {
+    public CategoryTree(Long id, Long parentId, String name, String slug, int[] sortPath, int depth) {
         this.id = id;
         this.parentId = parentId;
         this.name = name;
         this.slug = slug;
-        this.sortOrder = sortOrder;
+        this.sortPath = sortPath;
         this.depth = depth;
     }
 
+    static CategoryTree of(CategoryTree parent, Category category) {
+        if (parent == null) {
+            return new CategoryTree(category.getId(), null, category.getName(), category.getSlug(),
+                    new int[]{category.getSortOrder()}, 0);
+        }
+        final var sortPath = Arrays.copyOf(parent.getSortPath(), parent.getSortPath().length + 1);
+        sortPath[sortPath.length - 1] = category.getSortOrder();
+        return new CategoryTree(category.getId(), parent.getId(), category.getName(),
+                parent.getSlug() + "/" + category.getSlug(), sortPath, parent.getDepth() + 1);
+    }
+
     public Long getId() {
         return id;
     }
@@ -45,14 +65,22 @@ public class CategoryTree {
         return slug;
     }
 
-    public String getSortOrder() {
-        return sortOrder;
+    public int[] getSortPath() {
+        return sortPath;
+    }
+
+    public int getSortOrder() {
+        return sortPath[sortPath.length - 1];
     }
 
     public int getDepth() {
         return depth;
     }
 
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
@@ -72,7 +100,7 @@ public class CategoryTree {
                 ", parentId=" + parentId +
                 ", name='" + name + '\'' +
                 ", slug='" + slug + '\'' +
-                ", sortOrder='" + sortOrder + '\'' +
+                ", sortPath=" + Arrays.toString(sortPath) +
                 ", depth=" + depth +
                 '}';
     }
@@ -0,0 +1,80 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.AfterCommit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class CategoryTreeCache {
+
+    private final CategoryTreeRepository categoryTreeRepository;
+
+    private volatile CategorySlugTrie trie = CategorySlugTrie.EMPTY;
+
+    public CategoryTreeCache(CategoryTreeRepository categoryTreeRepository) {
+        this.categoryTreeRepository = categoryTreeRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void refresh() {
+        trie = CategorySlugTrie.of(categoryTreeRepository.findAll());
+    }
+
+    CategorySlugTrie snapshot() {
+        return trie;
+    }
+
+    public Optional<CategoryTree> findBySlug(String slug) {
+        final var cached = trie.findBySlug(slug);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        final var loaded = categoryTreeRepository.findBySlug(slug);
+        loaded.ifPresent(this::putMissing);
+        return loaded;
+    }
+
+    public Optional<CategoryTree> findById(long id) {
+        final var cached = trie.findById(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        final var loaded = categoryTreeRepository.findById(id);
+        loaded.ifPresent(this::putMissing);
+        return loaded;
+    }
+
+    public List<CategoryTree> findChildren(Long parentId) {
+        return trie.findChildren(parentId);
+    }
+
+    void putAfterCommit(CategoryTree category) {
+        AfterCommit.run(() -> put(category));
+    }
+
+    void refreshAfterCommit() {
+        AfterCommit.run(this::refresh);
+    }
+
+    // a category another instance created is added on its own; one the cache knows under another slug has moved, and
+    // its descendants with it, so the whole tree is reloaded
+    private synchronized void putMissing(CategoryTree category) {
+        if (trie.findById(category.getId()).isPresent()) {
+            refresh();
+        } else {
+            put(category);
+        }
+    }
+
+    private synchronized void put(CategoryTree category) {
+        try {
+            trie = trie.with(category);
+        } catch (IllegalArgumentException e) {
+            refresh();
+        }
+    }
+}
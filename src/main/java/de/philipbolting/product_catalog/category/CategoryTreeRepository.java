@@ -1,10 +1,14 @@
 package de.philipbolting.product_catalog.category;
 
 import de.philipbolting.product_catalog.ReadOnlyRepository;
+import org.springframework.data.domain.Limit;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryTreeRepository extends ReadOnlyRepository<CategoryTree, Long> {
     Optional<CategoryTree> findBySlug(String slug);
     Optional<CategoryTree> findByParentIdAndName(Long parentId, String name);
+    List<CategoryTree> findByParentIdAndIdGreaterThanOrderById(long parentId, long afterId, Limit limit);
+    boolean existsByParentId(long parentId);
 }
@@ -0,0 +1,17 @@
+package de.philipbolting.product_catalog.category;
+
+final class Fingerprints {
+
+    private Fingerprints() {
+    }
+
+    static long of(long... values) {
+        var hash = 1125899906842597L;
+        for (final var value : values) {
+            hash = 31 * hash + value;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
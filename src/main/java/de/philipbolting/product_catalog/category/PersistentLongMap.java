@@ -0,0 +1,95 @@
+package de.philipbolting.product_catalog.category;
+
+// hash array mapped trie over the bits of the key: with copies only the nodes on the path to the key and shares the
+// rest with the previous map, so every version stays readable without a lock
+final class PersistentLongMap<V> {
+
+    private static final int BITS = 5;
+
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(new Node(0, new Object[0]), 0);
+
+    // a slot holds either a node or a leaf
+    private record Node(int bitmap, Object[] slots) {}
+
+    private record Leaf(long key, Object value) {}
+
+    private final Node root;
+    private final int size;
+
+    private PersistentLongMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        var node = root;
+        for (var shift = 0; ; shift += BITS) {
+            final var bit = bit(key, shift);
+            if ((node.bitmap() & bit) == 0) {
+                return null;
+            }
+            final var slot = node.slots()[Integer.bitCount(node.bitmap() & (bit - 1))];
+            if (slot instanceof Leaf leaf) {
+                return leaf.key() == key ? (V) leaf.value() : null;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    PersistentLongMap<V> with(long key, V value) {
+        final var added = new boolean[1];
+        final var newRoot = put(root, new Leaf(key, value), 0, added);
+        return new PersistentLongMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static Node put(Node node, Leaf leaf, int shift, boolean[] added) {
+        final var bit = bit(leaf.key(), shift);
+        final var index = Integer.bitCount(node.bitmap() & (bit - 1));
+        if ((node.bitmap() & bit) == 0) {
+            final var slots = new Object[node.slots().length + 1];
+            System.arraycopy(node.slots(), 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(node.slots(), index, slots, index + 1, node.slots().length - index);
+            added[0] = true;
+            return new Node(node.bitmap() | bit, slots);
+        }
+        final var slots = node.slots().clone();
+        if (slots[index] instanceof Node child) {
+            slots[index] = put(child, leaf, shift + BITS, added);
+        } else if (((Leaf) slots[index]).key() == leaf.key()) {
+            slots[index] = leaf;
+        } else {
+            slots[index] = split((Leaf) slots[index], leaf, shift + BITS);
+            added[0] = true;
+        }
+        return new Node(node.bitmap(), slots);
+    }
+
+    // distinct keys differ in one of the 64 bits, so they part at the latest on the level of shift 60
+    private static Node split(Leaf a, Leaf b, int shift) {
+        final var bitA = bit(a.key(), shift);
+        final var bitB = bit(b.key(), shift);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[]{split(a, b, shift + BITS)});
+        }
+        return new Node(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[]{a, b} : new Object[]{b, a});
+    }
+
+    private static int bit(long key, int shift) {
+        return 1 << ((int) (key >>> shift) & 31);
+    }
+}
@@ -0,0 +1,3 @@
+package de.philipbolting.product_catalog.category;
+
+record Versioned<T>(long version, T value) {}
@@ -45,6 +45,34 @@ public class RestExceptionHandlerAdvice extends ResponseEntityExceptionHandler {
         return pd;
     }
 
+    @ExceptionHandler(CategoryCycleException.class)
+    ProblemDetail handleCategoryCycleException(CategoryCycleException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setProperty("errors", List.of(new ErrorDetail("Category cannot be moved below itself", "#/parentSlug")));
+        return pd;
+    }
+
+    @ExceptionHandler(InvalidCategoryPositionException.class)
+    ProblemDetail handleInvalidCategoryPositionException(InvalidCategoryPositionException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setDetail("Exactly one of before and after must be set");
+        return pd;
+    }
+
+    @ExceptionHandler(CategoryNotSiblingException.class)
+    ProblemDetail handleCategoryNotSiblingException(CategoryNotSiblingException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setDetail("Reference category is not a sibling");
+        return pd;
+    }
+
+    @ExceptionHandler(InvalidCategoryMergeException.class)
+    ProblemDetail handleInvalidCategoryMergeException(InvalidCategoryMergeException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setDetail("Category cannot be merged into itself or its descendants");
+        return pd;
+    }
+
     @ExceptionHandler(ProductBrandSlugNotFoundException.class)
     ProblemDetail handleProductBrandSlugNotFoundException(ProductBrandSlugNotFoundException e) {
         var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
@@ -59,6 +87,34 @@ public class RestExceptionHandlerAdvice extends ResponseEntityExceptionHandler {
         return pd;
     }
 
+    @ExceptionHandler(InvalidProductReassignmentException.class)
+    ProblemDetail handleInvalidProductReassignmentException(InvalidProductReassignmentException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setDetail("At least one filter and one target must be set");
+        return pd;
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    ProblemDetail handleInvalidCursorException(InvalidCursorException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setDetail("Invalid cursor");
+        return pd;
+    }
+
+    @ExceptionHandler(InvalidProductCsvException.class)
+    ProblemDetail handleInvalidProductCsvException(InvalidProductCsvException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.BAD_REQUEST);
+        pd.setDetail("CSV must start with the header brand_slug,category_slug,slug,name,description and have these five columns in every row");
+        return pd;
+    }
+
+    @ExceptionHandler(TooManyExportsException.class)
+    ProblemDetail handleTooManyExportsException(TooManyExportsException e) {
+        var pd = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+        pd.setDetail("Too many exports are running, try again later");
+        return pd;
+    }
+
     @Override
     protected @Nullable ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
         super.handleMethodArgumentNotValid(ex, headers, status, request);
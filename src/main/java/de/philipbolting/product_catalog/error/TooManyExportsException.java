@@ -0,0 +1,3 @@
+package de.philipbolting.product_catalog.error;
+
+public class TooManyExportsException extends RuntimeException {}
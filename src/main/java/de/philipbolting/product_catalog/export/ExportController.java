@@ -0,0 +1,81 @@
+package de.philipbolting.product_catalog.export;
+
+import de.philipbolting.product_catalog.error.TooManyExportsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RestController
+@RequestMapping("/api/export")
+class ExportController {
+
+    private static final Object EXPORT_PERMIT = new Object();
+
+    private final ExportService exportService;
+    private final Duration timeout;
+    private final Semaphore exports;
+
+    public ExportController(ExportService exportService,
+                            @Value("${product-catalog.export.timeout:PT30M}") Duration timeout,
+                            @Value("${product-catalog.export.max-concurrent:4}") int maxConcurrent) {
+        this.exportService = exportService;
+        this.timeout = timeout;
+        this.exports = new Semaphore(maxConcurrent);
+    }
+
+    @GetMapping(path = "brands", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBrands(WebRequest request) {
+        return ndjson(request, exportService::exportBrands);
+    }
+
+    @GetMapping(path = "categories", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCategories(WebRequest request) {
+        return ndjson(request, exportService::exportCategories);
+    }
+
+    @GetMapping(path = "products", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts(WebRequest request) {
+        return ndjson(request, exportService::exportProducts);
+    }
+
+    // the permit is returned once, when the stream is written or when the async request ends without it having run
+    private ResponseEntity<StreamingResponseBody> ndjson(WebRequest request, StreamingResponseBody body) {
+        final var asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.getAsyncWebRequest().setTimeout(timeout.toMillis());
+        if (!exports.tryAcquire()) {
+            throw new TooManyExportsException();
+        }
+        final var permit = new AtomicBoolean(true);
+        final Runnable release = () -> {
+            if (permit.getAndSet(false)) {
+                exports.release();
+            }
+        };
+        asyncManager.registerCallableInterceptor(EXPORT_PERMIT, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                release.run();
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                release.run();
+            }
+        });
+    }
+}
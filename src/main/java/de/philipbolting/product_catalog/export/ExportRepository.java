@@ -0,0 +1,54 @@
+package de.philipbolting.product_catalog.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+@Repository
+class ExportRepository {
+
+    // receives the same array for every row, it is only valid until the handler returns
+    interface RowHandler {
+        void handle(String[] columns);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ExportRepository(DataSource dataSource, @Value("${product-catalog.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    void forEachBrand(RowHandler handler) {
+        forEachRow("SELECT slug, name, description FROM brand ORDER BY id", 3, handler);
+    }
+
+    // parents come before their children, so the dump can be read back in one pass
+    void forEachCategory(RowHandler handler) {
+        forEachRow("SELECT full_slug, name, description FROM category ORDER BY sort_path", 3, handler);
+    }
+
+    void forEachProduct(RowHandler handler) {
+        forEachRow("""
+                SELECT b.slug, c.full_slug, p.slug, p.name, p.description
+                FROM product p
+                    INNER JOIN brand b
+                    ON b.id = p.brand_id
+                    INNER JOIN category c
+                    ON c.id = p.category_id
+                ORDER BY p.id
+                """, 5, handler);
+    }
+
+    private void forEachRow(String sql, int columnCount, RowHandler handler) {
+        final var columns = new String[columnCount];
+        jdbcTemplate.query(sql, rs -> {
+            for (var i = 0; i < columnCount; i++) {
+                columns[i] = rs.getString(i + 1);
+            }
+            handler.handle(columns);
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package de.philipbolting.product_catalog.export;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+@Service
+class ExportService {
+
+    private static final String[] BRAND_PROPERTIES = {"slug", "name", "description"};
+    private static final String[] CATEGORY_PROPERTIES = {"slug", "name", "description"};
+    private static final String[] PRODUCT_PROPERTIES = {"brandSlug", "categorySlug", "slug", "name", "description"};
+
+    private final ExportRepository exportRepository;
+    private final ObjectWriter objectWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public ExportService(ExportRepository exportRepository, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.exportRepository = exportRepository;
+        // lines are ended explicitly instead of separated, so the last one ends with a newline as well
+        this.objectWriter = objectMapper.writer().withRootValueSeparator((String) null);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void exportBrands(OutputStream out) {
+        export(out, BRAND_PROPERTIES, exportRepository::forEachBrand);
+    }
+
+    public void exportCategories(OutputStream out) {
+        export(out, CATEGORY_PROPERTIES, exportRepository::forEachCategory);
+    }
+
+    public void exportProducts(OutputStream out) {
+        export(out, PRODUCT_PROPERTIES, exportRepository::forEachProduct);
+    }
+
+    // the cursor only fetches as fast as the client reads
+    private void export(OutputStream out, String[] properties, Consumer<ExportRepository.RowHandler> query) {
+        try (final var generator = objectWriter.createGenerator(out)) {
+            transactionTemplate.executeWithoutResult(status -> query.accept(columns -> {
+                generator.writeStartObject();
+                for (var i = 0; i < properties.length; i++) {
+                    generator.writeStringProperty(properties[i], columns[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }));
+        }
+    }
+}
@@ -15,14 +15,16 @@ import java.util.Objects;
 @EntityListeners(AuditingEntityListener.class)
 public class Product {
 
+    static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_product")
-    @SequenceGenerator(name = "seq_product", allocationSize = 1)
+    @SequenceGenerator(name = "seq_product", allocationSize = ID_ALLOCATION_SIZE)
     private long id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "brand_id")
     private Brand brand;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
     private String slug;
@@ -0,0 +1,239 @@
+package de.philipbolting.product_catalog.product;
+
+import java.util.Arrays;
+
+// roaring-style compressed set: chunks of 65536 ids are kept as a sorted array when sparse and as a bitset when dense
+final class ProductBitmap {
+
+    static final ProductBitmap EMPTY = new ProductBitmap(new char[0], new Chunk[0], 0);
+
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITSET_WORDS = 1024;
+
+    private final char[] keys;
+    private final Chunk[] chunks;
+    private final int cardinality;
+
+    private ProductBitmap(char[] keys, Chunk[] chunks, int cardinality) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.cardinality = cardinality;
+    }
+
+    // expects non-negative ids, sorts and deduplicates the first size values in place
+    static ProductBitmap of(int[] ids, int size) {
+        Arrays.sort(ids, 0, size);
+        final var keys = new char[size == 0 ? 0 : (ids[size - 1] >>> 16) - (ids[0] >>> 16) + 1];
+        final var chunks = new Chunk[keys.length];
+        var chunkCount = 0;
+        var cardinality = 0;
+        var from = 0;
+        while (from < size) {
+            final var key = (char) (ids[from] >>> 16);
+            final var lows = new char[Math.min(size - from, 1 << 16)];
+            var count = 0;
+            var to = from;
+            for (; to < size && ids[to] >>> 16 == key; to++) {
+                if (count == 0 || lows[count - 1] != (char) ids[to]) {
+                    lows[count++] = (char) ids[to];
+                }
+            }
+            keys[chunkCount] = key;
+            chunks[chunkCount++] = count <= MAX_ARRAY_SIZE ? new ArrayChunk(Arrays.copyOf(lows, count)) : BitsetChunk.of(lows, count);
+            cardinality += count;
+            from = to;
+        }
+        return new ProductBitmap(Arrays.copyOf(keys, chunkCount), Arrays.copyOf(chunks, chunkCount), cardinality);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int id) {
+        final var index = Arrays.binarySearch(keys, (char) (id >>> 16));
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    ProductBitmap or(ProductBitmap other) {
+        if (other.cardinality == 0) {
+            return this;
+        }
+        final var newKeys = new char[keys.length + other.keys.length];
+        final var newChunks = new Chunk[chunks.length + other.chunks.length];
+        var count = 0;
+        var cardinality = 0;
+        var i = 0;
+        var j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || i < keys.length && keys[i] < other.keys[j]) {
+                newKeys[count] = keys[i];
+                newChunks[count] = chunks[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                newKeys[count] = other.keys[j];
+                newChunks[count] = other.chunks[j++];
+            } else {
+                newKeys[count] = keys[i];
+                newChunks[count] = chunks[i++].or(other.chunks[j++]);
+            }
+            cardinality += newChunks[count++].cardinality();
+        }
+        return new ProductBitmap(Arrays.copyOf(newKeys, count), Arrays.copyOf(newChunks, count), cardinality);
+    }
+
+    int andCardinality(ProductBitmap other) {
+        var count = 0;
+        var i = 0;
+        var j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += chunks[i++].andCardinality(other.chunks[j++]);
+            }
+        }
+        return count;
+    }
+
+    // shallow estimate for compressed oops: object headers, the key and chunk arrays and the chunks themselves
+    long sizeInBytes() {
+        var bytes = 16L + 16L + 2L * keys.length + 16L + 4L * chunks.length;
+        for (final var chunk : chunks) {
+            bytes += chunk.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private sealed interface Chunk permits ArrayChunk, BitsetChunk {
+        int cardinality();
+        boolean contains(char low);
+        Chunk or(Chunk other);
+        int andCardinality(Chunk other);
+        long sizeInBytes();
+    }
+
+    private record ArrayChunk(char[] lows) implements Chunk {
+
+        @Override
+        public int cardinality() {
+            return lows.length;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(lows, low) >= 0;
+        }
+
+        @Override
+        public Chunk or(Chunk other) {
+            if (!(other instanceof ArrayChunk array)) {
+                return other.or(this);
+            }
+            final var otherLows = array.lows();
+            final var merged = new char[lows.length + otherLows.length];
+            var count = 0;
+            var i = 0;
+            var j = 0;
+            while (i < lows.length || j < otherLows.length) {
+                if (j == otherLows.length || i < lows.length && lows[i] < otherLows[j]) {
+                    merged[count++] = lows[i++];
+                } else if (i == lows.length || lows[i] > otherLows[j]) {
+                    merged[count++] = otherLows[j++];
+                } else {
+                    merged[count++] = lows[i++];
+                    j++;
+                }
+            }
+            return count <= MAX_ARRAY_SIZE ? new ArrayChunk(Arrays.copyOf(merged, count)) : BitsetChunk.of(merged, count);
+        }
+
+        @Override
+        public int andCardinality(Chunk other) {
+            var count = 0;
+            if (other instanceof ArrayChunk array) {
+                final var otherLows = array.lows();
+                var i = 0;
+                var j = 0;
+                while (i < lows.length && j < otherLows.length) {
+                    if (lows[i] < otherLows[j]) {
+                        i++;
+                    } else if (lows[i] > otherLows[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (final var low : lows) {
+                    if (other.contains(low)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 16L + 16L + 2L * lows.length;
+        }
+    }
+
+    private record BitsetChunk(long[] words, int cardinality) implements Chunk {
+
+        static BitsetChunk of(char[] lows, int count) {
+            final var words = new long[BITSET_WORDS];
+            for (var i = 0; i < count; i++) {
+                words[lows[i] >>> 6] |= 1L << lows[i];
+            }
+            return new BitsetChunk(words, count);
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        public Chunk or(Chunk other) {
+            final var newWords = words.clone();
+            if (other instanceof BitsetChunk bitset) {
+                var cardinality = 0;
+                for (var i = 0; i < BITSET_WORDS; i++) {
+                    newWords[i] |= bitset.words()[i];
+                    cardinality += Long.bitCount(newWords[i]);
+                }
+                return new BitsetChunk(newWords, cardinality);
+            }
+            var cardinality = this.cardinality;
+            for (final var low : ((ArrayChunk) other).lows()) {
+                if ((newWords[low >>> 6] & 1L << low) == 0) {
+                    newWords[low >>> 6] |= 1L << low;
+                    cardinality++;
+                }
+            }
+            return new BitsetChunk(newWords, cardinality);
+        }
+
+        @Override
+        public int andCardinality(Chunk other) {
+            if (other instanceof BitsetChunk bitset) {
+                var count = 0;
+                for (var i = 0; i < BITSET_WORDS; i++) {
+                    count += Long.bitCount(words[i] & bitset.words()[i]);
+                }
+                return count;
+            }
+            return other.andCardinality(this);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 16L + 16L + 8L * BITSET_WORDS;
+        }
+    }
+}
@@ -1,18 +1,44 @@
 package de.philipbolting.product_catalog.product;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import de.philipbolting.product_catalog.SliceDTO;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductReassignService productReassignService;
+    private final ProductImportService productImportService;
+    private final ProductCsvImportService productCsvImportService;
+    private final SlugRedirects slugRedirects;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductReassignService productReassignService,
+                             ProductImportService productImportService, ProductCsvImportService productCsvImportService,
+                             SlugRedirects slugRedirects) {
         this.productService = productService;
+        this.productReassignService = productReassignService;
+        this.productImportService = productImportService;
+        this.productCsvImportService = productCsvImportService;
+        this.slugRedirects = slugRedirects;
     }
 
     @PostMapping()
@@ -26,8 +52,68 @@ public class ProductController {
         return ResponseEntity.created(location).build();
     }
 
+    @GetMapping()
+    public SliceDTO<ProductDTO> findProducts(@RequestParam(required = false) String brand,
+                                             @RequestParam(required = false) String category,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        return productService.findProducts(brand, category, after, limit);
+    }
+
+    @PostMapping(path = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importProducts(InputStream request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        productImportService.importProducts(request, response.getOutputStream());
+    }
+
+    @PostMapping(path = "import", consumes = "text/csv")
+    public ProductCsvImportResultDTO importProductCsv(InputStream request) {
+        return productCsvImportService.importProducts(request);
+    }
+
+    @PostMapping("reassign")
+    public ProductReassignResultDTO reassignProducts(@Valid @RequestBody ProductReassignDTO request) {
+        return productReassignService.reassignProducts(request);
+    }
+
+    @GetMapping("search")
+    public SliceDTO<ProductDTO> searchProducts(@RequestParam @NotBlank @Size(max = 100) String q,
+                                               @RequestParam(required = false) String after,
+                                               @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit,
+                                               @RequestParam(defaultValue = "${product-catalog.product-search.engine:sql}")
+                                               @Pattern(regexp = "sql|memory") String engine) {
+        if (engine.equals("memory")) {
+            return productService.searchProductsInMemory(q, after, limit);
+        }
+        return productService.searchProducts(q, after, limit);
+    }
+
+    @GetMapping("facets")
+    public ProductFacetsDTO findFacets(@RequestParam(required = false) String brand,
+                                       @RequestParam(required = false) String category) {
+        return productService.findFacets(brand, category);
+    }
+
+    @GetMapping("facets/stats")
+    public ProductFacetIndexStatsDTO findFacetIndexStats() {
+        return productService.findFacetIndexStats();
+    }
+
+    @PatchMapping("{slug}")
+    public ProductDTO changeProductSlug(@PathVariable String slug, @Valid @RequestBody SlugChangeDTO request) {
+        return productService.changeProductSlug(slug, request);
+    }
+
     @GetMapping("{slug}")
-    public ProductDTO findProductBySlug(@PathVariable String slug) {
-        return productService.findProductBySlug(slug);
+    public ResponseEntity<ProductDTO> findProductBySlug(@PathVariable String slug, WebRequest webRequest) {
+        final var currentSlug = slugRedirects.find(SlugType.PRODUCT, slug);
+        if (currentSlug.isPresent()) {
+            return SlugRedirects.movedPermanently("/api/products/{slug}", currentSlug.get());
+        }
+        if (ResourceVersion.isConditional(webRequest) && productService.findProductVersion(slug).checkNotModified(webRequest)) {
+            return null;
+        }
+        final var product = productService.findTaggedProductBySlug(slug);
+        return product.version().ok().body(product.value());
     }
 }
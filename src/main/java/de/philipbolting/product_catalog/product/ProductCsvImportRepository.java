@@ -0,0 +1,189 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.error.InvalidProductCsvException;
+import de.philipbolting.product_catalog.slug.SlugType;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+class ProductCsvImportRepository {
+
+    // the header counts as the first line of the file; HEADER MATCH needs PostgreSQL 15 or later
+    private static final String COPY = """
+            COPY product_csv_import (brand_slug, category_slug, slug, name, description)
+            FROM STDIN (FORMAT csv, HEADER MATCH)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductCsvImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // also locks the staging table until the end of the transaction, so imports run one after another
+    void clear() {
+        jdbcTemplate.update("TRUNCATE TABLE product_csv_import RESTART IDENTITY");
+    }
+
+    // streams the file on the connection of the current transaction, postgres parses it without a round trip per row
+    long copy(InputStream csv) {
+        final var dataSource = Objects.requireNonNull(jdbcTemplate.getDataSource());
+        final var connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY, csv);
+        } catch (SQLException e) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("22")) {
+                throw new InvalidProductCsvException();
+            }
+            throw Objects.requireNonNull(jdbcTemplate.getExceptionTranslator().translate("COPY", COPY, e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // applies the rules of ProductDTO and the reference and uniqueness checks of the single product endpoints to all
+    // rows at once; a slug or name repeated within the file is rejected from its second valid occurrence on
+    int reject() {
+        return jdbcTemplate.update("""
+                WITH checked AS (
+                    SELECT s.line, s.slug, s.name, CASE
+                        WHEN coalesce(s.brand_slug, '') = '' THEN 'Brand slug must not be empty'
+                        WHEN length(s.brand_slug) > ? THEN ?
+                        WHEN s.brand_slug !~ ? THEN ?
+                        WHEN coalesce(s.category_slug, '') = '' THEN 'Category slug must not be empty'
+                        WHEN length(s.category_slug) > ? THEN ?
+                        WHEN s.category_slug !~ ? THEN ?
+                        WHEN coalesce(s.slug, '') = '' THEN 'Slug must not be empty'
+                        WHEN length(s.slug) > ? THEN ?
+                        WHEN s.slug !~ ? THEN ?
+                        WHEN coalesce(s.name, '') = '' THEN 'Name must not be empty'
+                        WHEN length(s.name) > ? THEN ?
+                        WHEN length(s.description) > ? THEN ?
+                        WHEN b.id IS NULL THEN 'Brand slug does not exist'
+                        WHEN c.id IS NULL THEN 'Category slug does not exist'
+                    END AS error
+                    FROM product_csv_import s
+                        LEFT JOIN brand b
+                        ON b.slug = s.brand_slug
+                        LEFT JOIN category c
+                        ON c.full_slug = s.category_slug
+                ), slug_checked AS (
+                    SELECT checked.line, checked.name, CASE
+                        WHEN checked.error IS NOT NULL THEN checked.error
+                        WHEN p.id IS NOT NULL
+                            OR row_number() OVER (PARTITION BY checked.error IS NULL, checked.slug ORDER BY checked.line) > 1
+                            THEN 'Slug already exists'
+                    END AS error
+                    FROM checked
+                        LEFT JOIN product p
+                        ON p.slug = checked.slug
+                ), name_checked AS (
+                    SELECT slug_checked.line, CASE
+                        WHEN slug_checked.error IS NOT NULL THEN slug_checked.error
+                        WHEN p.id IS NOT NULL
+                            OR row_number() OVER (PARTITION BY slug_checked.error IS NULL, slug_checked.name ORDER BY slug_checked.line) > 1
+                            THEN 'Name already exists'
+                    END AS error
+                    FROM slug_checked
+                        LEFT JOIN product p
+                        ON p.name = slug_checked.name
+                )
+                UPDATE product_csv_import s
+                SET error = name_checked.error
+                FROM name_checked
+                WHERE name_checked.line = s.line
+                  AND name_checked.error IS NOT NULL
+                """,
+                ProductDTO.MAX_SLUG_LENGTH, tooLongMessage("Brand slug", ProductDTO.MAX_SLUG_LENGTH),
+                ProductDTO.SLUG_PATTERN, patternMessage(ProductDTO.SLUG_PATTERN),
+                ProductDTO.MAX_SLUG_LENGTH, tooLongMessage("Category slug", ProductDTO.MAX_SLUG_LENGTH),
+                ProductDTO.CATEGORY_SLUG_PATTERN, patternMessage(ProductDTO.CATEGORY_SLUG_PATTERN),
+                ProductDTO.MAX_SLUG_LENGTH, tooLongMessage("Slug", ProductDTO.MAX_SLUG_LENGTH),
+                ProductDTO.SLUG_PATTERN, patternMessage(ProductDTO.SLUG_PATTERN),
+                ProductDTO.MAX_NAME_LENGTH, tooLongMessage("Name", ProductDTO.MAX_NAME_LENGTH),
+                ProductDTO.MAX_DESCRIPTION_LENGTH, tooLongMessage("Description", ProductDTO.MAX_DESCRIPTION_LENGTH));
+    }
+
+    long countAccepted() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM product_csv_import WHERE error IS NULL", Long.class);
+    }
+
+    // draws the ids block by block from seq_product like ProductImportRepository.nextIds, the spare block covers the
+    // first value of a fresh sequence, which reserves only id 1. a product created concurrently since reject() wins
+    // the conflict, and the rows the insert skipped are reported instead
+    long merge(long accepted, Instant now) {
+        final var timestamp = Timestamp.from(now);
+        return jdbcTemplate.queryForObject("""
+                WITH ids AS MATERIALIZED (
+                    SELECT row_number() OVER (ORDER BY id) AS rn, id
+                    FROM (SELECT nextval('seq_product') AS hi FROM generate_series(1, ?)) blocks,
+                        generate_series(greatest(1, blocks.hi - ? + 1), blocks.hi) id
+                ), accepted AS MATERIALIZED (
+                    SELECT row_number() OVER (ORDER BY line) AS rn, brand_slug, category_slug, slug, name, description
+                    FROM product_csv_import
+                    WHERE error IS NULL
+                ), inserted AS (
+                    INSERT INTO product (id, brand_id, category_id, slug, name, description, created, last_modified)
+                    SELECT ids.id, b.id, c.id, accepted.slug, accepted.name, accepted.description, ?, ?
+                    FROM accepted
+                        INNER JOIN ids
+                        ON ids.rn = accepted.rn
+                        INNER JOIN brand b
+                        ON b.slug = accepted.brand_slug
+                        INNER JOIN category c
+                        ON c.full_slug = accepted.category_slug
+                    ON CONFLICT DO NOTHING
+                    RETURNING slug
+                ), skipped AS (
+                    UPDATE product_csv_import s
+                    SET error = 'Slug or name already exists'
+                    WHERE s.error IS NULL
+                      AND NOT EXISTS (SELECT 1 FROM inserted WHERE inserted.slug = s.slug)
+                )
+                SELECT count(*) FROM inserted
+                """, Long.class,
+                (accepted + Product.ID_ALLOCATION_SIZE - 1) / Product.ID_ALLOCATION_SIZE + 1, Product.ID_ALLOCATION_SIZE,
+                timestamp, timestamp);
+    }
+
+    List<String> findRetiredSlugs() {
+        return jdbcTemplate.queryForList("""
+                SELECT s.slug
+                FROM product_csv_import s
+                    INNER JOIN slug_history h
+                    ON h.slug_type = ? AND h.old_slug = s.slug
+                WHERE s.error IS NULL
+                """, String.class, SlugType.PRODUCT.name());
+    }
+
+    List<ProductImportResultDTO> findRejected(int limit) {
+        return jdbcTemplate.query("""
+                SELECT line + 1, slug, error
+                FROM product_csv_import
+                WHERE error IS NOT NULL
+                ORDER BY line
+                LIMIT ?
+                """, (rs, rowNum) -> ProductImportResultDTO.failed(rs.getInt(1), rs.getString(2), rs.getString(3)), limit);
+    }
+
+    private static String tooLongMessage(String field, int max) {
+        return field + " must not be longer than " + max + " chars";
+    }
+
+    private static String patternMessage(String pattern) {
+        return "must match \"" + pattern + "\"";
+    }
+}
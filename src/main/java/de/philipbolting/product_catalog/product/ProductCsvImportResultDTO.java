@@ -0,0 +1,6 @@
+package de.philipbolting.product_catalog.product;
+
+import java.util.List;
+
+public record ProductCsvImportResultDTO(long imported, long rejected, List<ProductImportResultDTO> rejections) {
+}
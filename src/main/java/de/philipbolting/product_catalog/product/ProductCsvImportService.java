@@ -0,0 +1,54 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Instant;
+
+@Service
+class ProductCsvImportService {
+
+    private final ProductCsvImportRepository productCsvImportRepository;
+    private final SlugRedirects slugRedirects;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final SuggestIndex suggestIndex;
+    private final int reportedRejections;
+
+    public ProductCsvImportService(ProductCsvImportRepository productCsvImportRepository, SlugRedirects slugRedirects,
+                                   ProductFacetIndex productFacetIndex, ProductSearchIndex productSearchIndex, SuggestIndex suggestIndex,
+                                   @Value("${product-catalog.product-csv-import.reported-rejections:1000}") int reportedRejections) {
+        this.productCsvImportRepository = productCsvImportRepository;
+        this.slugRedirects = slugRedirects;
+        this.productFacetIndex = productFacetIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.suggestIndex = suggestIndex;
+        this.reportedRejections = reportedRejections;
+    }
+
+    // the whole file is merged in one transaction: every step is a single statement over the staging table, so the
+    // cost grows with the file size but the number of round trips does not
+    @Transactional
+    public ProductCsvImportResultDTO importProducts(InputStream csv) {
+        productCsvImportRepository.clear();
+        final var rows = productCsvImportRepository.copy(csv);
+        productCsvImportRepository.reject();
+        final var accepted = productCsvImportRepository.countAccepted();
+        var imported = 0L;
+        if (accepted > 0) {
+            imported = productCsvImportRepository.merge(accepted, Instant.now());
+            slugRedirects.release(SlugType.PRODUCT, productCsvImportRepository.findRetiredSlugs());
+            productFacetIndex.refreshAfterCommit();
+            productSearchIndex.refreshAfterCommit();
+            suggestIndex.refreshAfterCommit();
+        }
+        final var rejections = productCsvImportRepository.findRejected(reportedRejections);
+        productCsvImportRepository.clear();
+        return new ProductCsvImportResultDTO(imported, rows - imported, rejections);
+    }
+}
@@ -6,21 +6,28 @@ import jakarta.validation.constraints.Size;
 
 public record ProductDTO(
         @NotEmpty(message = "Brand slug must not be empty")
-        @Size(max = 50, message = "Brand slug must not be longer than {max} chars")
-        @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$")
+        @Size(max = ProductDTO.MAX_SLUG_LENGTH, message = "Brand slug must not be longer than {max} chars")
+        @Pattern(regexp = ProductDTO.SLUG_PATTERN)
         String brandSlug,
         @NotEmpty(message = "Category slug must not be empty")
-        @Size(max = 50, message = "Category slug must not be longer than {max} chars")
-        @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        @Size(max = ProductDTO.MAX_SLUG_LENGTH, message = "Category slug must not be longer than {max} chars")
+        @Pattern(regexp = ProductDTO.CATEGORY_SLUG_PATTERN)
         String categorySlug,
         @NotEmpty(message = "Slug must not be empty")
-        @Size(max = 50, message = "Slug must not be longer than {max} chars")
-        @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$")
+        @Size(max = ProductDTO.MAX_SLUG_LENGTH, message = "Slug must not be longer than {max} chars")
+        @Pattern(regexp = ProductDTO.SLUG_PATTERN)
         String slug,
         @NotEmpty(message = "Name must not be empty")
-        @Size(max = 50, message = "Name must not be longer than {max} chars")
+        @Size(max = ProductDTO.MAX_NAME_LENGTH, message = "Name must not be longer than {max} chars")
         String name,
-        @Size(max = 2000, message = "Description must not be longer than {max} chars")
+        @Size(max = ProductDTO.MAX_DESCRIPTION_LENGTH, message = "Description must not be longer than {max} chars")
         String description
         ) {
+
+    // shared with the checks of the csv import, which run in sql
+    static final String SLUG_PATTERN = "^[a-z0-9]+(?:-[a-z0-9]+)*$";
+    static final String CATEGORY_SLUG_PATTERN = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$";
+    static final int MAX_SLUG_LENGTH = 50;
+    static final int MAX_NAME_LENGTH = 50;
+    static final int MAX_DESCRIPTION_LENGTH = 2000;
 }
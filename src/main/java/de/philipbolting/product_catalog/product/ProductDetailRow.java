@@ -0,0 +1,17 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.ResourceVersion;
+
+import java.time.Instant;
+
+public record ProductDetailRow(long id, Instant lastModified, Instant brandLastModified, Instant categoryLastModified,
+                               String brandSlug, String categorySlug, String slug, String name, String description) {
+
+    ProductDTO toProductDTO() {
+        return new ProductDTO(brandSlug, categorySlug, slug, name, description);
+    }
+
+    ResourceVersion version() {
+        return new ResourceVersion(id, lastModified, brandLastModified, categoryLastModified);
+    }
+}
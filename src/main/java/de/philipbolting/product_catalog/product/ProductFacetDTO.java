@@ -0,0 +1,4 @@
+package de.philipbolting.product_catalog.product;
+
+public record ProductFacetDTO(String slug, String name, long count) {
+}
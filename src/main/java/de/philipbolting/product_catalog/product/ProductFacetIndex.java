@@ -0,0 +1,251 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.AfterCommit;
+import de.philipbolting.product_catalog.SnapshotRebuilder;
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// one bitmap of products per brand and per category subtree, facet counts are intersections of them
+@Component
+public class ProductFacetIndex {
+
+    public record Entry(long productId, long brandId, long categoryId) {}
+
+    record Facets(long total, Map<Long, Long> brandCounts, Map<Long, Long> categoryCounts) {}
+
+    record Stats(long products, int bitmaps, long bytes) {}
+
+    private record Snapshot(Map<Long, ProductBitmap> brands, Map<Long, ProductBitmap> categories, Ordinals ordinals) {}
+
+    private record Placement(long productId, long brandId, List<Long> categoryIds) {}
+
+    private static final class Ids {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static final class SortedProductIds {
+        private long[] values = new long[1024];
+        private int size;
+
+        int add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            return size++;
+        }
+
+        int indexOf(long value) {
+            return Arrays.binarySearch(values, 0, size, value);
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // the bitmaps hold dense int ordinals instead of product ids: products read by a rebuild are numbered by their
+    // position in id order, products added later in the order they arrive
+    private static final class Ordinals {
+        private final long[] loaded;
+        private final Map<Long, Integer> added = new HashMap<>();
+
+        Ordinals(long[] loaded) {
+            this.loaded = loaded;
+        }
+
+        int find(long productId) {
+            final var index = Arrays.binarySearch(loaded, productId);
+            return index >= 0 ? index : added.getOrDefault(productId, -1);
+        }
+
+        // returns -1 for products that have an ordinal already
+        int add(long productId) {
+            if (find(productId) >= 0) {
+                return -1;
+            }
+            final var ordinal = loaded.length + added.size();
+            added.put(productId, ordinal);
+            return ordinal;
+        }
+    }
+
+    private final ProductFacetRepository productFacetRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final TransactionTemplate transactionTemplate;
+    private final SnapshotRebuilder<List<Placement>> rebuilder;
+
+    private volatile Snapshot snapshot = new Snapshot(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new Ordinals(new long[0]));
+
+    public ProductFacetIndex(ProductFacetRepository productFacetRepository, CategoryTreeCache categoryTreeCache,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor) {
+        this.productFacetRepository = productFacetRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.rebuilder = new SnapshotRebuilder<>(taskExecutor);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product-catalog.product-facets.refresh-interval:PT5M}",
+            initialDelayString = "${product-catalog.product-facets.refresh-interval:PT5M}")
+    public void refresh() {
+        rebuilder.rebuild(this::read, (next, pending) -> {
+            pending.forEach(placements -> place(next, placements));
+            snapshot = next;
+        });
+    }
+
+    public void refreshInBackground() {
+        rebuilder.rebuildInBackground(this::refresh);
+    }
+
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::refreshInBackground);
+    }
+
+    public void addAfterCommit(long productId, long brandId, long categoryId) {
+        addAllAfterCommit(List.of(new Entry(productId, brandId, categoryId)));
+    }
+
+    public void addAllAfterCommit(List<Entry> entries) {
+        AfterCommit.run(() -> addAll(entries));
+    }
+
+    // brand facets are counted within the category filter and category facets within the brand filter
+    Facets count(Long brandId, Long categoryId, Collection<Long> facetCategoryIds) {
+        final var current = snapshot;
+        final var brandFilter = brandId == null ? null : current.brands().getOrDefault(brandId, ProductBitmap.EMPTY);
+        final var categoryFilter = categoryId == null ? null : current.categories().getOrDefault(categoryId, ProductBitmap.EMPTY);
+        final var brandCounts = new HashMap<Long, Long>();
+        var total = 0L;
+        for (final var brand : current.brands().entrySet()) {
+            final var count = categoryFilter == null ? brand.getValue().cardinality() : brand.getValue().andCardinality(categoryFilter);
+            if (count > 0) {
+                brandCounts.put(brand.getKey(), (long) count);
+                if (brandId == null || brandId.equals(brand.getKey())) {
+                    total += count;
+                }
+            }
+        }
+        final var categoryCounts = new LinkedHashMap<Long, Long>();
+        for (final var facetCategoryId : facetCategoryIds) {
+            final var category = current.categories().getOrDefault(facetCategoryId, ProductBitmap.EMPTY);
+            final var count = brandFilter == null ? category.cardinality() : category.andCardinality(brandFilter);
+            if (count > 0) {
+                categoryCounts.put(facetCategoryId, (long) count);
+            }
+        }
+        return new Facets(total, brandCounts, categoryCounts);
+    }
+
+    Stats stats() {
+        final var current = snapshot;
+        var products = 0L;
+        var bytes = 0L;
+        for (final var brand : current.brands().values()) {
+            products += brand.cardinality();
+            bytes += brand.sizeInBytes();
+        }
+        for (final var category : current.categories().values()) {
+            bytes += category.sizeInBytes();
+        }
+        return new Stats(products, current.brands().size() + current.categories().size(), bytes);
+    }
+
+    private void addAll(List<Entry> entries) {
+        final var placements = new ArrayList<Placement>(entries.size());
+        final var ancestorIdsByCategoryId = new HashMap<Long, List<Long>>();
+        for (final var entry : entries) {
+            final var ancestorIds = ancestorIdsByCategoryId.computeIfAbsent(entry.categoryId(), this::ancestorIds);
+            if (ancestorIds.isEmpty()) {
+                refreshInBackground();
+                return;
+            }
+            placements.add(new Placement(entry.productId(), entry.brandId(), ancestorIds));
+        }
+        rebuilder.apply(placements, batch -> place(snapshot, batch));
+    }
+
+    // both passes run in one repeatable read transaction, so every category assignment belongs to a product the brand
+    // pass has numbered
+    private Snapshot read() {
+        final var productIds = new SortedProductIds();
+        final var brandIds = new HashMap<Long, Ids>();
+        final var categoryIds = new HashMap<Long, Ids>();
+        transactionTemplate.executeWithoutResult(status -> {
+            productFacetRepository.forEachBrandAssignment((productId, brandId) ->
+                    brandIds.computeIfAbsent(brandId, id -> new Ids()).add(productIds.add(productId)));
+            productFacetRepository.forEachCategoryAssignment((productId, categoryId) -> {
+                final var ordinal = productIds.indexOf(productId);
+                if (ordinal >= 0) {
+                    categoryIds.computeIfAbsent(categoryId, id -> new Ids()).add(ordinal);
+                }
+            });
+        });
+        return new Snapshot(toBitmaps(brandIds), toBitmaps(categoryIds), new Ordinals(productIds.toArray()));
+    }
+
+    // skips products a rebuild has read already
+    private static void place(Snapshot snapshot, List<Placement> placements) {
+        final var brandIds = new HashMap<Long, Ids>();
+        final var categoryIds = new HashMap<Long, Ids>();
+        for (final var placement : placements) {
+            final var ordinal = snapshot.ordinals().add(placement.productId());
+            if (ordinal < 0) {
+                continue;
+            }
+            brandIds.computeIfAbsent(placement.brandId(), id -> new Ids()).add(ordinal);
+            for (final var categoryId : placement.categoryIds()) {
+                categoryIds.computeIfAbsent(categoryId, id -> new Ids()).add(ordinal);
+            }
+        }
+        toBitmaps(brandIds).forEach((id, bitmap) -> snapshot.brands().merge(id, bitmap, ProductBitmap::or));
+        toBitmaps(categoryIds).forEach((id, bitmap) -> snapshot.categories().merge(id, bitmap, ProductBitmap::or));
+    }
+
+    private List<Long> ancestorIds(long categoryId) {
+        final var ancestorIds = new ArrayList<Long>();
+        var category = categoryTreeCache.findById(categoryId);
+        while (category.isPresent()) {
+            ancestorIds.add(category.get().getId());
+            category = category.map(CategoryTree::getParentId).flatMap(categoryTreeCache::findById);
+        }
+        return ancestorIds;
+    }
+
+    private static Map<Long, ProductBitmap> toBitmaps(Map<Long, Ids> ids) {
+        final var bitmaps = new ConcurrentHashMap<Long, ProductBitmap>(ids.size());
+        ids.forEach((id, values) -> bitmaps.put(id, ProductBitmap.of(values.values, values.size)));
+        return bitmaps;
+    }
+}
@@ -0,0 +1,39 @@
+package de.philipbolting.product_catalog.product;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+@Repository
+class ProductFacetRepository {
+
+    interface AssignmentHandler {
+        void handle(long productId, long groupId);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // postgres only honours the fetch size inside a transaction
+    ProductFacetRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(10_000);
+    }
+
+    void forEachBrandAssignment(AssignmentHandler handler) {
+        jdbcTemplate.query("SELECT id, brand_id FROM product ORDER BY id", rs -> {
+            handler.handle(rs.getLong(1), rs.getLong(2));
+        });
+    }
+
+    void forEachCategoryAssignment(AssignmentHandler handler) {
+        jdbcTemplate.query("""
+                SELECT p.id, closure.ancestor_id
+                FROM product p
+                    INNER JOIN category_closure closure
+                    ON closure.descendant_id = p.category_id
+                """, rs -> {
+            handler.handle(rs.getLong(1), rs.getLong(2));
+        });
+    }
+}
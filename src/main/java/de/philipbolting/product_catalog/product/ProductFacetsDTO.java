@@ -0,0 +1,6 @@
+package de.philipbolting.product_catalog.product;
+
+import java.util.List;
+
+public record ProductFacetsDTO(long total, List<ProductFacetDTO> brands, List<ProductFacetDTO> categories) {
+}
@@ -0,0 +1,77 @@
+package de.philipbolting.product_catalog.product;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+class ProductImportRepository {
+
+    record Row(long id, long brandId, long categoryId, String slug, String name, String description) {}
+
+    record Existing(Set<String> slugs, Set<String> names) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // seq_product hands out blocks: a value v reserves the ids v - 49 to v, the same way hibernate's pooled optimizer
+    // reads it, so both can draw from the sequence side by side
+    List<Long> nextIds(int count) {
+        final var ids = new ArrayList<Long>(count + Product.ID_ALLOCATION_SIZE);
+        while (ids.size() < count) {
+            final var blocks = (count - ids.size() + Product.ID_ALLOCATION_SIZE - 1) / Product.ID_ALLOCATION_SIZE;
+            for (final var hi : jdbcTemplate.queryForList("SELECT nextval('seq_product') FROM generate_series(1, ?)", Long.class, blocks)) {
+                for (var id = Math.max(1, hi - Product.ID_ALLOCATION_SIZE + 1); id <= hi; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids.subList(0, count);
+    }
+
+    Existing findExisting(Collection<String> slugs, Collection<String> names) {
+        final var existing = new Existing(new HashSet<>(), new HashSet<>());
+        jdbcTemplate.query("SELECT slug, name FROM product WHERE slug = ANY (?) OR name = ANY (?)", rs -> {
+            existing.slugs().add(rs.getString(1));
+            existing.names().add(rs.getString(2));
+        }, slugs.toArray(String[]::new), names.toArray(String[]::new));
+        return existing;
+    }
+
+    // one statement per batch: the rows travel as column arrays, so the server plans once and the statement level
+    // category count trigger fires once instead of once per rewritten chunk of a jdbc batch
+    void insertAll(List<Row> rows, Instant now) {
+        final var ids = new Long[rows.size()];
+        final var brandIds = new Long[rows.size()];
+        final var categoryIds = new Long[rows.size()];
+        final var slugs = new String[rows.size()];
+        final var names = new String[rows.size()];
+        final var descriptions = new String[rows.size()];
+        for (var i = 0; i < rows.size(); i++) {
+            final var row = rows.get(i);
+            ids[i] = row.id();
+            brandIds[i] = row.brandId();
+            categoryIds[i] = row.categoryId();
+            slugs[i] = row.slug();
+            names[i] = row.name();
+            descriptions[i] = row.description();
+        }
+        final var timestamp = Timestamp.from(now);
+        jdbcTemplate.update("""
+                INSERT INTO product (id, brand_id, category_id, slug, name, description, created, last_modified)
+                SELECT id, brand_id, category_id, slug, name, description, ?, ?
+                FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::text[], ?::text[], ?::text[])
+                    AS row (id, brand_id, category_id, slug, name, description)
+                """, timestamp, timestamp, ids, brandIds, categoryIds, slugs, names, descriptions);
+    }
+}
@@ -0,0 +1,20 @@
+package de.philipbolting.product_catalog.product;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductImportResultDTO(int line, String slug, Status status, String detail) {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    static ProductImportResultDTO created(int line, String slug) {
+        return new ProductImportResultDTO(line, slug, Status.CREATED, null);
+    }
+
+    static ProductImportResultDTO failed(int line, String slug, String detail) {
+        return new ProductImportResultDTO(line, slug, Status.FAILED, detail);
+    }
+}
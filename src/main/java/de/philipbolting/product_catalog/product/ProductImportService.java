@@ -0,0 +1,207 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.brand.Brand;
+import de.philipbolting.product_catalog.brand.BrandRepository;
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import de.philipbolting.product_catalog.suggest.SuggestionDTO;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+class ProductImportService {
+
+    private record Line(int number, ProductDTO dto, String error) {}
+
+    private final ProductImportRepository productImportRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final SlugRedirects slugRedirects;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final SuggestIndex suggestIndex;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int productsPerBatch;
+
+    public ProductImportService(ProductImportRepository productImportRepository, BrandRepository brandRepository,
+                                CategoryTreeCache categoryTreeCache, SlugRedirects slugRedirects, ProductFacetIndex productFacetIndex,
+                                ProductSearchIndex productSearchIndex, SuggestIndex suggestIndex,
+                                Validator validator, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                @Value("${product-catalog.product-import.products-per-batch:1000}") int productsPerBatch) {
+        this.productImportRepository = productImportRepository;
+        this.brandRepository = brandRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.slugRedirects = slugRedirects;
+        this.productFacetIndex = productFacetIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.suggestIndex = suggestIndex;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productsPerBatch = productsPerBatch;
+    }
+
+    // reads one product per line and commits and answers batch by batch, so neither the request nor the response is
+    // ever held in memory as a whole and a broken connection only loses the batch in flight
+    public void importProducts(InputStream in, OutputStream out) throws IOException {
+        final var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        final var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        final var batch = new ArrayList<Line>(productsPerBatch);
+        var number = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (text.isBlank()) {
+                continue;
+            }
+            batch.add(parse(number, text));
+            if (batch.size() == productsPerBatch) {
+                write(importBatch(batch), writer);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(importBatch(batch), writer);
+        }
+    }
+
+    private Line parse(int number, String text) {
+        try {
+            final var dto = objectMapper.readValue(text, ProductDTO.class);
+            return dto != null ? new Line(number, dto, null) : new Line(number, null, "Invalid JSON");
+        } catch (JacksonException e) {
+            return new Line(number, null, "Invalid JSON");
+        }
+    }
+
+    // a concurrent import can take a slug or name between the duplicate check and the insert, the second attempt
+    // then sees it and reports the line instead of failing the batch
+    private List<ProductImportResultDTO> importBatch(List<Line> lines) {
+        try {
+            return transactionTemplate.execute(status -> insertBatch(lines));
+        } catch (DuplicateKeyException e) {
+            return transactionTemplate.execute(status -> insertBatch(lines));
+        }
+    }
+
+    private List<ProductImportResultDTO> insertBatch(List<Line> lines) {
+        final var results = new ProductImportResultDTO[lines.size()];
+        final var slugs = new HashSet<String>();
+        final var names = new HashSet<String>();
+        final var brandSlugs = new HashSet<String>();
+        final var categories = new HashMap<String, Optional<CategoryTree>>();
+        for (var i = 0; i < lines.size(); i++) {
+            final var line = lines.get(i);
+            final var error = line.error() != null ? line.error() : validate(line.dto());
+            if (error != null) {
+                results[i] = ProductImportResultDTO.failed(line.number(), line.dto() != null ? line.dto().slug() : null, error);
+                continue;
+            }
+            slugs.add(line.dto().slug());
+            names.add(line.dto().name());
+            brandSlugs.add(line.dto().brandSlug());
+            categories.computeIfAbsent(line.dto().categorySlug(), categoryTreeCache::findBySlug);
+        }
+        final var brands = new HashMap<String, Brand>();
+        for (final var brand : brandRepository.findBySlugIn(brandSlugs)) {
+            brands.put(brand.getSlug(), brand);
+        }
+        final var existing = productImportRepository.findExisting(slugs, names);
+        final var takenSlugs = new HashSet<>(existing.slugs());
+        final var takenNames = new HashSet<>(existing.names());
+
+        final var accepted = new ArrayList<ProductDTO>();
+        final var acceptedBrands = new ArrayList<Brand>();
+        final var acceptedCategories = new ArrayList<CategoryTree>();
+        for (var i = 0; i < lines.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            final var line = lines.get(i);
+            final var dto = line.dto();
+            final var brand = brands.get(dto.brandSlug());
+            final var category = categories.get(dto.categorySlug());
+            String error = null;
+            if (brand == null) {
+                error = "Brand slug does not exist";
+            } else if (category.isEmpty()) {
+                error = "Category slug does not exist";
+            } else if (!takenSlugs.add(dto.slug())) {
+                error = "Slug already exists";
+            } else if (!takenNames.add(dto.name())) {
+                takenSlugs.remove(dto.slug());
+                error = "Name already exists";
+            }
+            if (error != null) {
+                results[i] = ProductImportResultDTO.failed(line.number(), dto.slug(), error);
+                continue;
+            }
+            accepted.add(dto);
+            acceptedBrands.add(brand);
+            acceptedCategories.add(category.get());
+            results[i] = ProductImportResultDTO.created(line.number(), dto.slug());
+        }
+
+        if (!accepted.isEmpty()) {
+            final var ids = productImportRepository.nextIds(accepted.size());
+            final var rows = new ArrayList<ProductImportRepository.Row>(accepted.size());
+            final var entries = new ArrayList<ProductFacetIndex.Entry>(accepted.size());
+            final var documents = new ArrayList<ProductSearchIndex.Document>(accepted.size());
+            for (var i = 0; i < accepted.size(); i++) {
+                final var dto = accepted.get(i);
+                final var brand = acceptedBrands.get(i);
+                final var category = acceptedCategories.get(i);
+                rows.add(new ProductImportRepository.Row(ids.get(i), brand.getId(), category.getId(),
+                        dto.slug(), dto.name(), dto.description()));
+                entries.add(new ProductFacetIndex.Entry(ids.get(i), brand.getId(), category.getId()));
+                documents.add(new ProductSearchIndex.Document(ids.get(i), dto.name(), dto.description(), brand.getName(), category.getName()));
+            }
+            productImportRepository.insertAll(rows, Instant.now());
+            slugRedirects.release(SlugType.PRODUCT, accepted.stream().map(ProductDTO::slug).toList());
+            productFacetIndex.addAllAfterCommit(entries);
+            productSearchIndex.addAllAfterCommit(documents);
+            suggestIndex.addProductsAfterCommit(accepted.stream().map(dto -> new SuggestionDTO(dto.slug(), dto.name())).toList());
+        }
+        return Arrays.asList(results);
+    }
+
+    private String validate(ProductDTO dto) {
+        final var violations = validator.validate(dto);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+
+    private void write(List<ProductImportResultDTO> results, BufferedWriter writer) throws IOException {
+        for (final var result : results) {
+            writer.write(objectMapper.writeValueAsString(result));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
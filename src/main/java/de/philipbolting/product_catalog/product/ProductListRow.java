@@ -0,0 +1,12 @@
+package de.philipbolting.product_catalog.product;
+
+public interface ProductListRow {
+    long getId();
+    long getCategoryId();
+    String getSortPath();
+    String getBrandSlug();
+    String getCategorySlug();
+    String getSlug();
+    String getName();
+    String getDescription();
+}
@@ -0,0 +1,24 @@
+package de.philipbolting.product_catalog.product;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ProductReassignDTO(
+        @Size(max = 50, message = "Brand slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$")
+        String brandSlug,
+        @Size(max = 100, message = "Category slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        String categorySlug,
+        Boolean includeSubcategories,
+        @Size(max = 1000, message = "Slugs must not contain more than {max} entries")
+        List<@Size(max = 50) @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$") String> slugs,
+        @Size(max = 50, message = "Target brand slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$")
+        String targetBrandSlug,
+        @Size(max = 100, message = "Target category slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:[-/][a-z0-9]+)*$")
+        String targetCategorySlug) {
+}
@@ -0,0 +1,104 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.brand.Brand;
+import de.philipbolting.product_catalog.brand.BrandRepository;
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import de.philipbolting.product_catalog.error.InvalidProductReassignmentException;
+import de.philipbolting.product_catalog.error.ProductBrandSlugNotFoundException;
+import de.philipbolting.product_catalog.error.ProductCategorySlugNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Service
+class ProductReassignService {
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int productsPerTransaction;
+
+    public ProductReassignService(ProductRepository productRepository, BrandRepository brandRepository,
+                                  CategoryTreeCache categoryTreeCache, ProductFacetIndex productFacetIndex,
+                                  ProductSearchIndex productSearchIndex,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${product-catalog.product-reassign.products-per-transaction:5000}") int productsPerTransaction) {
+        this.productRepository = productRepository;
+        this.brandRepository = brandRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.productFacetIndex = productFacetIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productsPerTransaction = productsPerTransaction;
+    }
+
+    // walks the matching products in id order and commits every chunk, so neither locks nor undo grow with the
+    // number of products and an interrupted run can simply be repeated
+    public ProductReassignResultDTO reassignProducts(ProductReassignDTO dto) {
+        if (dto.brandSlug() == null && dto.categorySlug() == null && dto.slugs() == null
+                || dto.targetBrandSlug() == null && dto.targetCategorySlug() == null) {
+            throw new InvalidProductReassignmentException();
+        }
+        final var brandId = dto.brandSlug() == null ? null : findBrandId(dto.brandSlug());
+        final var categoryId = dto.categorySlug() == null ? null : findCategoryId(dto.categorySlug());
+        final var targetBrandId = dto.targetBrandSlug() == null ? null : findBrandId(dto.targetBrandSlug());
+        final var targetCategoryId = dto.targetCategorySlug() == null ? null : findCategoryId(dto.targetCategorySlug());
+        if (dto.slugs() != null && dto.slugs().isEmpty()) {
+            return new ProductReassignResultDTO(0);
+        }
+        final var slugs = dto.slugs() == null ? null : "{" + String.join(",", dto.slugs()) + "}";
+        final var includeSubcategories = Boolean.TRUE.equals(dto.includeSubcategories());
+
+        var reassigned = 0L;
+        var afterId = 0L;
+        while (true) {
+            final var from = afterId;
+            final var chunk = transactionTemplate.execute(status -> {
+                final var ids = findChunk(from, brandId, categoryId, includeSubcategories, slugs);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                final var updated = productRepository.reassign(ids, brandId, categoryId, includeSubcategories, slugs,
+                        targetBrandId, targetCategoryId);
+                return new long[]{ids.getLast(), updated};
+            });
+            if (chunk == null) {
+                if (reassigned > 0) {
+                    productFacetIndex.refreshInBackground();
+                    productSearchIndex.refreshInBackground();
+                }
+                return new ProductReassignResultDTO(reassigned);
+            }
+            afterId = chunk[0];
+            reassigned += chunk[1];
+        }
+    }
+
+    // the most selective filter drives the walk, the others are checked by the update
+    private List<Long> findChunk(long afterId, Long brandId, Long categoryId, boolean includeSubcategories, String slugs) {
+        if (slugs != null) {
+            return productRepository.findReassignChunkBySlugs(slugs, afterId, productsPerTransaction);
+        }
+        if (categoryId != null) {
+            return includeSubcategories
+                    ? productRepository.findReassignChunkByCategorySubtree(categoryId, afterId, productsPerTransaction)
+                    : productRepository.findReassignChunkByCategory(categoryId, afterId, productsPerTransaction);
+        }
+        return productRepository.findReassignChunkByBrand(brandId, afterId, productsPerTransaction);
+    }
+
+    private long findBrandId(String slug) {
+        return brandRepository.findBySlug(slug).map(Brand::getId).orElseThrow(ProductBrandSlugNotFoundException::new);
+    }
+
+    private long findCategoryId(String slug) {
+        return categoryTreeCache.findBySlug(slug).map(CategoryTree::getId).orElseThrow(ProductCategorySlugNotFoundException::new);
+    }
+}
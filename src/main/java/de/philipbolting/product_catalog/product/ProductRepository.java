@@ -1,10 +1,209 @@
 package de.philipbolting.product_catalog.product;
 
+import de.philipbolting.product_catalog.ResourceVersion;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends CrudRepository<Product, Long> {
     Optional<Product> findBySlug(String slug);
     Optional<Product> findByName(String name);
+    boolean existsByCategoryId(long categoryId);
+
+    // one statement for the whole detail view, the brand and category entities are never loaded
+    @Query("""
+            SELECT new de.philipbolting.product_catalog.product.ProductDetailRow(product.id, product.lastModified,
+                brand.lastModified, tree.lastModified, brand.slug, tree.slug, product.slug, product.name, product.description)
+            FROM Product product JOIN product.brand brand, CategoryTree tree
+            WHERE product.slug = :slug AND tree.id = product.category.id
+            """)
+    Optional<ProductDetailRow> findDetailBySlug(String slug);
+
+    // the product side is covered by the slug index, brand and category are primary key lookups
+    @Query("""
+            SELECT new de.philipbolting.product_catalog.ResourceVersion(product.id, product.lastModified, brand.lastModified,
+                tree.lastModified)
+            FROM Product product JOIN product.brand brand, CategoryTree tree
+            WHERE product.slug = :slug AND tree.id = product.category.id
+            """)
+    Optional<ResourceVersion> findVersionBySlug(String slug);
+
+    @Modifying
+    @Query(value = """
+            UPDATE product SET category_id = :targetCategoryId, last_modified = now()
+            WHERE id IN (SELECT id FROM product WHERE category_id = :sourceCategoryId LIMIT :limit)
+            """, nativeQuery = true)
+    int moveToCategory(long sourceCategoryId, long targetCategoryId, int limit);
+
+    // one chunk query per filter shape, so each walks its own index in id order instead of sharing a generic plan
+    @Query(value = """
+            SELECT id FROM product
+            WHERE brand_id = :brandId AND id > :afterId
+            ORDER BY id
+            LIMIT :limit""", nativeQuery = true)
+    List<Long> findReassignChunkByBrand(long brandId, long afterId, int limit);
+
+    @Query(value = """
+            SELECT id FROM product
+            WHERE category_id = :categoryId AND id > :afterId
+            ORDER BY id
+            LIMIT :limit""", nativeQuery = true)
+    List<Long> findReassignChunkByCategory(long categoryId, long afterId, int limit);
+
+    // seeks the next ids of every descendant on its own and merges them
+    @Query(value = """
+            SELECT p.id
+            FROM category_closure closure
+                CROSS JOIN LATERAL (
+                    SELECT product.id FROM product
+                    WHERE product.category_id = closure.descendant_id AND product.id > :afterId
+                    ORDER BY product.id
+                    LIMIT :limit) p
+            WHERE closure.ancestor_id = :categoryId
+            ORDER BY p.id
+            LIMIT :limit""", nativeQuery = true)
+    List<Long> findReassignChunkByCategorySubtree(long categoryId, long afterId, int limit);
+
+    @Query(value = """
+            SELECT id FROM product
+            WHERE slug = ANY (CAST(:slugs AS VARCHAR[])) AND id > :afterId
+            ORDER BY id
+            LIMIT :limit""", nativeQuery = true)
+    List<Long> findReassignChunkBySlugs(String slugs, long afterId, int limit);
+
+    // the rows are found by primary key, the filters are only checked again on them, so a product changed since the
+    // chunk was read is left alone
+    @Modifying
+    @Query(value = """
+            UPDATE product p
+            SET brand_id = coalesce(CAST(:targetBrandId AS BIGINT), p.brand_id),
+                category_id = coalesce(CAST(:targetCategoryId AS BIGINT), p.category_id),
+                last_modified = now()
+            WHERE p.id IN (:ids)
+              AND (CAST(:brandId AS BIGINT) IS NULL OR p.brand_id = :brandId)
+              AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = :categoryId
+                  OR (:includeSubcategories AND p.category_id IN (
+                      SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId)))
+              AND (CAST(:slugs AS VARCHAR[]) IS NULL OR p.slug = ANY (CAST(:slugs AS VARCHAR[])))
+              AND (p.brand_id <> coalesce(CAST(:targetBrandId AS BIGINT), p.brand_id)
+                  OR p.category_id <> coalesce(CAST(:targetCategoryId AS BIGINT), p.category_id))""", nativeQuery = true)
+    int reassign(Collection<Long> ids, Long brandId, Long categoryId, boolean includeSubcategories, String slugs,
+                 Long targetBrandId, Long targetCategoryId);
+
+    @Query(value = """
+            SELECT p.id AS "id", c.id AS "categoryId", CAST(c.sort_path AS VARCHAR) AS "sortPath", c.full_slug AS "categorySlug",
+                b.slug AS "brandSlug", p.slug AS "slug", p.name AS "name", p.description AS "description"
+            FROM category c
+                CROSS JOIN LATERAL (
+                    SELECT * FROM product
+                    WHERE product.category_id = c.id
+                      AND product.name > CASE WHEN c.id = :afterCategoryId THEN :afterName ELSE '' END
+                    ORDER BY product.name
+                    LIMIT :limit) p
+                INNER JOIN brand b
+                ON b.id = p.brand_id
+            WHERE (c.full_slug = :slug OR (c.full_slug > :slug || '/' AND c.full_slug < :slug || '0'))
+              AND (c.sort_path, c.id) >= (CAST(:afterSortPath AS INTEGER[]), :afterCategoryId)
+            ORDER BY c.sort_path, c.id, p.name
+            LIMIT :limit""", nativeQuery = true)
+    List<ProductListRow> findBySubtree(String slug, String afterSortPath, long afterCategoryId, String afterName, int limit);
+
+    @Query(value = """
+            SELECT p.id AS "id", c.id AS "categoryId", CAST(c.sort_path AS VARCHAR) AS "sortPath", c.full_slug AS "categorySlug",
+                b.slug AS "brandSlug", p.slug AS "slug", p.name AS "name", p.description AS "description"
+            FROM product p
+                INNER JOIN brand b
+                ON b.id = p.brand_id
+                INNER JOIN category c
+                ON c.id = p.category_id
+            WHERE (p.name, p.id) > (:afterName, :afterId)
+            ORDER BY p.name, p.id
+            LIMIT :limit""", nativeQuery = true)
+    List<ProductListRow> findPage(String afterName, long afterId, int limit);
+
+    // every descendant contributes at most one page from its (category_id, name, id) index, so a page costs one seek
+    // per descendant instead of a walk over the name index that filters out the other categories
+    @Query(value = """
+            SELECT p.id AS "id", c.id AS "categoryId", CAST(c.sort_path AS VARCHAR) AS "sortPath", c.full_slug AS "categorySlug",
+                b.slug AS "brandSlug", p.slug AS "slug", p.name AS "name", p.description AS "description"
+            FROM category_closure closure
+                CROSS JOIN LATERAL (
+                    SELECT * FROM product
+                    WHERE product.category_id = closure.descendant_id
+                      AND (product.name, product.id) > (:afterName, :afterId)
+                    ORDER BY product.name, product.id
+                    LIMIT :limit) p
+                INNER JOIN brand b
+                ON b.id = p.brand_id
+                INNER JOIN category c
+                ON c.id = p.category_id
+            WHERE closure.ancestor_id = :categoryId
+            ORDER BY p.name, p.id
+            LIMIT :limit""", nativeQuery = true)
+    List<ProductListRow> findPageByCategory(long categoryId, String afterName, long afterId, int limit);
+
+    @Query(value = """
+            SELECT p.id AS "id", c.id AS "categoryId", CAST(c.sort_path AS VARCHAR) AS "sortPath", c.full_slug AS "categorySlug",
+                b.slug AS "brandSlug", p.slug AS "slug", p.name AS "name", p.description AS "description"
+            FROM product p
+                INNER JOIN brand b
+                ON b.id = p.brand_id
+                INNER JOIN category c
+                ON c.id = p.category_id
+            WHERE p.brand_id = :brandId
+              AND (p.name, p.id) > (:afterName, :afterId)
+            ORDER BY p.name, p.id
+            LIMIT :limit""", nativeQuery = true)
+    List<ProductListRow> findPageByBrand(long brandId, String afterName, long afterId, int limit);
+
+    @Query(value = """
+            SELECT p.id AS "id", c.id AS "categoryId", CAST(c.sort_path AS VARCHAR) AS "sortPath", c.full_slug AS "categorySlug",
+                b.slug AS "brandSlug", p.slug AS "slug", p.name AS "name", p.description AS "description"
+            FROM product p
+                INNER JOIN brand b
+                ON b.id = p.brand_id
+                INNER JOIN category c
+                ON c.id = p.category_id
+            WHERE p.brand_id = :brandId
+              AND (p.name, p.id) > (:afterName, :afterId)
+              AND p.category_id IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId)
+            ORDER BY p.name, p.id
+            LIMIT :limit""", nativeQuery = true)
+    List<ProductListRow> findPageByBrandAndCategory(long brandId, long categoryId, String afterName, long afterId, int limit);
+
+    @Query(value = """
+            SELECT p.id AS "id", c.id AS "categoryId", CAST(c.sort_path AS VARCHAR) AS "sortPath", c.full_slug AS "categorySlug",
+                b.slug AS "brandSlug", p.slug AS "slug", p.name AS "name", p.description AS "description"
+            FROM product p
+                INNER JOIN brand b
+                ON b.id = p.brand_id
+                INNER JOIN category c
+                ON c.id = p.category_id
+            WHERE p.id IN (:ids)""", nativeQuery = true)
+    List<ProductListRow> findRowsByIds(Collection<Long> ids);
+
+    // each match condition has its own GIN index, so the planner can combine them in a bitmap or
+    @Query(value = """
+            SELECT m.id AS "id", m.rank AS "rank", b.slug AS "brandSlug", c.full_slug AS "categorySlug",
+                m.slug AS "slug", m.name AS "name", m.description AS "description"
+            FROM (
+                SELECT p.id, p.brand_id, p.category_id, p.slug, p.name, p.description,
+                    CAST(ts_rank(p.search_vector, websearch_to_tsquery('english', :q)) + word_similarity(:q, p.name) AS REAL) AS rank
+                FROM product p
+                WHERE p.search_vector @@ websearch_to_tsquery('english', :q)
+                   OR :q <% p.name
+            ) m
+                INNER JOIN brand b
+                ON b.id = m.brand_id
+                INNER JOIN category c
+                ON c.id = m.category_id
+            WHERE m.rank < :afterRank
+               OR m.rank = :afterRank AND m.id > :afterId
+            ORDER BY m.rank DESC, m.id
+            LIMIT :limit""", nativeQuery = true)
+    List<ProductSearchRow> search(String q, float afterRank, long afterId, int limit);
 }
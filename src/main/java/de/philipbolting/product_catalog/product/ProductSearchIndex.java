@@ -0,0 +1,553 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.AfterCommit;
+import de.philipbolting.product_catalog.SnapshotRebuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// inverted index over name, description, brand name and category name of every product, ranked by BM25
+@Component
+public class ProductSearchIndex {
+
+    public record Document(long productId, String name, String description, String brandName, String categoryName) {}
+
+    record Hit(long productId, float score) {}
+
+    record Stats(int products, int terms, long postings) {}
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // a word counts as often in a document as the weight of the field it appears in
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // a posting packs the ordinal of the product within its segment and the capped term frequency into one int, the
+    // sign bit stays clear so the postings of a term sort by ordinal and can be binary searched
+    private static final int FREQUENCY_BITS = 8;
+    private static final int MAX_FREQUENCY = (1 << FREQUENCY_BITS) - 1;
+    private static final int MAX_SEGMENT_SIZE = 1 << (Integer.SIZE - 1 - FREQUENCY_BITS);
+
+    // a shorter last word is matched exactly, a longer one expands to its most frequent terms only
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_EXPANSIONS = 50;
+
+    // roughly the steps of a binary search in a posting list of a million products
+    private static final int LOOKUP_COST = 20;
+
+    private static final Comparator<Hit> BEST_FIRST = Comparator.comparing(Hit::score).reversed().thenComparing(Hit::productId);
+
+    private static final class Segment {
+        private static final Segment EMPTY = new Segment(new long[0], new int[0], 0, new String[0], new int[0][]);
+
+        private final long[] productIds;
+        private final int[] lengths;
+        private final long totalLength;
+        private final String[] terms;
+        private final int[][] postings;
+        private volatile Norms norms;
+
+        private Segment(long[] productIds, int[] lengths, long totalLength, String[] terms, int[][] postings) {
+            this.productIds = productIds;
+            this.lengths = lengths;
+            this.totalLength = totalLength;
+            this.terms = terms;
+            this.postings = postings;
+        }
+
+        int size() {
+            return productIds.length;
+        }
+
+        // the length part of BM25 per product, computed again only when an add changes the average length
+        float[] norms(float averageLength) {
+            var current = norms;
+            if (current == null || current.averageLength() != averageLength) {
+                final var values = new float[lengths.length];
+                for (var i = 0; i < values.length; i++) {
+                    values[i] = K1 * (1 - B + B * lengths[i] / averageLength);
+                }
+                current = new Norms(averageLength, values);
+                norms = current;
+            }
+            return current.values();
+        }
+
+        boolean contains(long productId) {
+            return Arrays.binarySearch(productIds, productId) >= 0;
+        }
+
+        int[] postings(String term) {
+            final var index = Arrays.binarySearch(terms, term);
+            return index < 0 ? null : postings[index];
+        }
+
+        void addTermsWithPrefix(String prefix, TreeSet<String> matches) {
+            final var index = Arrays.binarySearch(terms, prefix);
+            for (var i = index < 0 ? -index - 1 : index; i < terms.length && terms[i].startsWith(prefix); i++) {
+                matches.add(terms[i]);
+            }
+        }
+    }
+
+    private record Norms(float averageLength, float[] values) {}
+
+    private static final class SegmentBuilder {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private long[] productIds = new long[1024];
+        private int[] lengths = new int[1024];
+        private int size;
+        private long totalLength;
+
+        void add(long productId, String name, String description, String brandName, String categoryName) {
+            if (size == MAX_SEGMENT_SIZE) {
+                throw new IllegalStateException("Search index is limited to " + MAX_SEGMENT_SIZE + " products");
+            }
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            frequencies.clear();
+            final var length = count(name, NAME_WEIGHT) + count(description, DESCRIPTION_WEIGHT)
+                    + count(brandName, BRAND_WEIGHT) + count(categoryName, CATEGORY_WEIGHT);
+            final var ordinal = size;
+            frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new Postings())
+                    .add(ordinal << FREQUENCY_BITS | Math.min(frequency, MAX_FREQUENCY)));
+            productIds[size] = productId;
+            lengths[size] = length;
+            totalLength += length;
+            size++;
+        }
+
+        Segment build() {
+            final var terms = postings.keySet().toArray(String[]::new);
+            Arrays.sort(terms);
+            final var lists = new int[terms.length][];
+            for (var i = 0; i < terms.length; i++) {
+                final var list = postings.get(terms[i]);
+                lists[i] = Arrays.copyOf(list.values, list.size);
+            }
+            return new Segment(Arrays.copyOf(productIds, size), Arrays.copyOf(lengths, size), totalLength, terms, lists);
+        }
+
+        private int count(String text, int weight) {
+            final var tokens = tokenize(text);
+            for (final var token : tokens) {
+                frequencies.merge(token, weight, Integer::sum);
+            }
+            return tokens.size() * weight;
+        }
+    }
+
+    private static final class Postings {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    // the terms of a prefix share one idf, so a rare longer term does not outrank the word that was typed
+    private record Clause(String[] terms, float idf, long postings) {}
+
+    private record Expansion(String term, int postings) {}
+
+    // one slot per product of a segment, only the touched slots are reset after a search
+    private static final class Scratch {
+        private byte[] matched = new byte[0];
+        private float[] scores = new float[0];
+        private float[] best = new float[0];
+        private int[] touched = new int[1024];
+        private int touchedSize;
+
+        void ensureCapacity(int size) {
+            if (matched.length < size) {
+                matched = new byte[size];
+                scores = new float[size];
+                best = new float[size];
+            }
+        }
+
+        void touch(int ordinal) {
+            if (touchedSize == touched.length) {
+                touched = Arrays.copyOf(touched, touchedSize * 2);
+            }
+            touched[touchedSize++] = ordinal;
+        }
+
+        void add(int clause, int ordinal, float score) {
+            final var state = matched[ordinal];
+            if (state == clause) {
+                if (clause == 0) {
+                    touch(ordinal);
+                }
+                matched[ordinal] = (byte) (clause + 1);
+                scores[ordinal] += score;
+                best[ordinal] = score;
+            } else if (state == clause + 1 && score > best[ordinal]) {
+                scores[ordinal] += score - best[ordinal];
+                best[ordinal] = score;
+            }
+        }
+
+        // drops the products that missed a clause, so later clauses and the final ranking only visit the rest
+        void retain(int clauses) {
+            var size = 0;
+            for (var i = 0; i < touchedSize; i++) {
+                final var ordinal = touched[i];
+                if (matched[ordinal] == clauses) {
+                    touched[size++] = ordinal;
+                } else {
+                    matched[ordinal] = 0;
+                    scores[ordinal] = 0;
+                }
+            }
+            touchedSize = size;
+        }
+
+        void reset() {
+            for (var i = 0; i < touchedSize; i++) {
+                matched[touched[i]] = 0;
+                scores[touched[i]] = 0;
+            }
+            touchedSize = 0;
+        }
+    }
+
+    private record Delta(Segment segment, List<Document> documents) {}
+
+    // a new delta swallows the smaller ones before it, so there are only logarithmically many
+    private record Snapshot(Segment main, List<Delta> deltas) {
+
+        List<Segment> segments() {
+            final var segments = new ArrayList<Segment>(deltas.size() + 1);
+            segments.add(main);
+            deltas.forEach(delta -> segments.add(delta.segment()));
+            return segments;
+        }
+
+        int deltaSize() {
+            return deltas.stream().mapToInt(delta -> delta.documents().size()).sum();
+        }
+
+        boolean contains(long productId) {
+            return main.contains(productId) || deltas.stream().anyMatch(delta -> delta.segment().contains(productId));
+        }
+    }
+
+    private final ProductSearchRepository productSearchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxDeltaSize;
+    private final SnapshotRebuilder<List<Document>> rebuilder;
+    private final Queue<Scratch> scratches = new ConcurrentLinkedQueue<>();
+
+    private volatile Snapshot snapshot = new Snapshot(Segment.EMPTY, List.of());
+
+    public ProductSearchIndex(ProductSearchRepository productSearchRepository, PlatformTransactionManager transactionManager,
+                              @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor,
+                              @Value("${product-catalog.product-search.max-delta-size:10000}") int maxDeltaSize) {
+        this.productSearchRepository = productSearchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rebuilder = new SnapshotRebuilder<>(taskExecutor);
+        this.maxDeltaSize = maxDeltaSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product-catalog.product-search.refresh-interval:PT5M}",
+            initialDelayString = "${product-catalog.product-search.refresh-interval:PT5M}")
+    public void refresh() {
+        rebuilder.rebuild(() -> {
+            final var builder = new SegmentBuilder();
+            transactionTemplate.executeWithoutResult(status -> productSearchRepository.forEachDocument(builder::add));
+            return builder.build();
+        }, (main, pending) -> {
+            var next = new Snapshot(main, List.of());
+            for (final var documents : pending) {
+                next = with(next, documents);
+            }
+            snapshot = next;
+        });
+    }
+
+    public void refreshInBackground() {
+        rebuilder.rebuildInBackground(this::refresh);
+    }
+
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::refreshInBackground);
+    }
+
+    public void addAfterCommit(Document document) {
+        addAllAfterCommit(List.of(document));
+    }
+
+    public void addAllAfterCommit(List<Document> documents) {
+        AfterCommit.run(() -> addAll(documents));
+    }
+
+    // every word has to match, the last one also as a prefix
+    List<Hit> search(String query, float afterScore, long afterId, int limit) {
+        final var segments = snapshot.segments();
+        var products = 0;
+        var totalLength = 0L;
+        for (final var segment : segments) {
+            products += segment.size();
+            totalLength += segment.totalLength;
+        }
+        final var words = tokenize(query).stream().distinct().toList();
+        if (products == 0 || words.isEmpty() || words.size() > Byte.MAX_VALUE) {
+            return List.of();
+        }
+        final var averageLength = (float) totalLength / products;
+        final var clauses = new ArrayList<Clause>(words.size());
+        for (var i = 0; i < words.size(); i++) {
+            final var clause = clause(segments, words.get(i), i == words.size() - 1, products);
+            if (clause.terms().length == 0) {
+                return List.of();
+            }
+            clauses.add(clause);
+        }
+        // the rarest word goes first, later words only add to the products that matched all words before them
+        clauses.sort(Comparator.comparingLong(Clause::postings));
+        final var top = new PriorityQueue<>(limit, BEST_FIRST.reversed());
+        final var scratch = scratches.poll();
+        final var borrowed = scratch == null ? new Scratch() : scratch;
+        try {
+            for (final var segment : segments) {
+                collect(segment, clauses, averageLength, afterScore, afterId, limit, top, borrowed);
+            }
+        } finally {
+            borrowed.reset();
+            scratches.offer(borrowed);
+        }
+        final var hits = new ArrayList<>(top);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    Stats stats() {
+        final var terms = new TreeSet<String>();
+        var products = 0;
+        var postings = 0L;
+        for (final var segment : snapshot.segments()) {
+            terms.addAll(Arrays.asList(segment.terms));
+            products += segment.size();
+            for (final var list : segment.postings) {
+                postings += list.length;
+            }
+        }
+        return new Stats(products, terms.size(), postings);
+    }
+
+    static List<String> tokenize(String text) {
+        final var tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+        // decomposed accents are dropped, so "Café" is found as "cafe"
+        final var normalized = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        final var token = new StringBuilder();
+        for (var i = 0; i < normalized.length(); i++) {
+            final var c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && !token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // bounds the biggest merge an add can run
+    private void addAll(List<Document> documents) {
+        rebuilder.apply(documents, batch -> snapshot = with(snapshot, batch));
+        if (snapshot.deltaSize() > maxDeltaSize) {
+            refreshInBackground();
+        }
+    }
+
+    private static Snapshot with(Snapshot snapshot, List<Document> batch) {
+        final var added = new ArrayList<Document>(batch.size());
+        for (final var document : batch) {
+            if (!snapshot.contains(document.productId())) {
+                added.add(document);
+            }
+        }
+        if (added.isEmpty()) {
+            return snapshot;
+        }
+        added.sort(Comparator.comparingLong(Document::productId));
+        final var deltas = new ArrayList<>(snapshot.deltas());
+        List<Document> documents = added;
+        while (!deltas.isEmpty() && deltas.getLast().documents().size() <= documents.size()) {
+            documents = merge(deltas.removeLast().documents(), documents);
+        }
+        final var builder = new SegmentBuilder();
+        for (final var d : documents) {
+            builder.add(d.productId(), d.name(), d.description(), d.brandName(), d.categoryName());
+        }
+        deltas.add(new Delta(builder.build(), documents));
+        return new Snapshot(snapshot.main(), List.copyOf(deltas));
+    }
+
+    // segments look up their products by binary search
+    private static List<Document> merge(List<Document> left, List<Document> right) {
+        final var merged = new ArrayList<Document>(left.size() + right.size());
+        var l = 0;
+        var r = 0;
+        while (l < left.size() || r < right.size()) {
+            if (r == right.size() || l < left.size() && left.get(l).productId() < right.get(r).productId()) {
+                merged.add(left.get(l++));
+            } else {
+                merged.add(right.get(r++));
+            }
+        }
+        return merged;
+    }
+
+    private static Clause clause(List<Segment> segments, String word, boolean last, int products) {
+        final var matches = new TreeSet<String>();
+        for (final var segment : segments) {
+            if (last && word.length() >= MIN_PREFIX_LENGTH) {
+                segment.addTermsWithPrefix(word, matches);
+            } else if (segment.postings(word) != null) {
+                matches.add(word);
+            }
+        }
+        final var expansions = new ArrayList<Expansion>(matches.size());
+        for (final var term : matches) {
+            var postings = 0;
+            for (final var segment : segments) {
+                postings += length(segment.postings(term));
+            }
+            expansions.add(new Expansion(term, postings));
+        }
+        expansions.sort(Comparator.comparingInt(Expansion::postings).reversed());
+        final var terms = new String[Math.min(expansions.size(), MAX_EXPANSIONS)];
+        var postings = 0L;
+        for (var i = 0; i < terms.length; i++) {
+            terms[i] = expansions.get(i).term();
+            postings += expansions.get(i).postings();
+        }
+        // the postings of several terms can name the same product, so their sum only estimates the document frequency
+        final var frequency = Math.min(postings, products);
+        return new Clause(terms, (float) Math.log(1 + (products - frequency + 0.5) / (frequency + 0.5)), postings);
+    }
+
+    // a product takes the best scoring term of every clause, so a prefix matching several of its words counts once
+    private static void collect(Segment segment, List<Clause> clauses, float averageLength, float afterScore, long afterId,
+                                int limit, PriorityQueue<Hit> top, Scratch scratch) {
+        if (segment.size() == 0) {
+            return;
+        }
+        final var norms = segment.norms(averageLength);
+        final var first = clauses.getFirst();
+        if (clauses.size() == 1 && first.terms().length == 1) {
+            final var postings = segment.postings(first.terms()[0]);
+            if (postings != null) {
+                for (final var posting : postings) {
+                    final var ordinal = posting >>> FREQUENCY_BITS;
+                    offer(top, segment.productIds[ordinal], score(first.idf(), posting, norms[ordinal]), afterScore, afterId, limit);
+                }
+            }
+            return;
+        }
+        scratch.ensureCapacity(segment.size());
+        for (var c = 0; c < clauses.size() && (c == 0 || scratch.touchedSize > 0); c++) {
+            final var clause = clauses.get(c);
+            final var lists = new ArrayList<int[]>(clause.terms().length);
+            var postings = 0L;
+            for (final var term : clause.terms()) {
+                final var list = segment.postings(term);
+                if (list != null) {
+                    lists.add(list);
+                    postings += list.length;
+                }
+            }
+            // once few products are left, looking each of them up costs less than scanning the postings of a common word
+            if (c > 0 && (long) scratch.touchedSize * lists.size() * LOOKUP_COST < postings) {
+                for (final var list : lists) {
+                    for (var i = 0; i < scratch.touchedSize; i++) {
+                        final var ordinal = scratch.touched[i];
+                        final var index = -Arrays.binarySearch(list, ordinal << FREQUENCY_BITS) - 1;
+                        if (index < list.length && list[index] >>> FREQUENCY_BITS == ordinal) {
+                            scratch.add(c, ordinal, score(clause.idf(), list[index], norms[ordinal]));
+                        }
+                    }
+                }
+            } else {
+                for (final var list : lists) {
+                    for (final var posting : list) {
+                        final var ordinal = posting >>> FREQUENCY_BITS;
+                        if (scratch.matched[ordinal] >= c) {
+                            scratch.add(c, ordinal, score(clause.idf(), posting, norms[ordinal]));
+                        }
+                    }
+                }
+            }
+            if (c > 0) {
+                scratch.retain(c + 1);
+            }
+        }
+        for (var i = 0; i < scratch.touchedSize; i++) {
+            final var ordinal = scratch.touched[i];
+            offer(top, segment.productIds[ordinal], scratch.scores[ordinal], afterScore, afterId, limit);
+        }
+        scratch.reset();
+    }
+
+    private static float score(float idf, int posting, float norm) {
+        final var frequency = posting & MAX_FREQUENCY;
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private static void offer(PriorityQueue<Hit> top, long productId, float score, float afterScore, long afterId, int limit) {
+        if (score > afterScore || score == afterScore && productId <= afterId) {
+            return;
+        }
+        if (top.size() == limit) {
+            final var worst = top.peek();
+            if (score < worst.score() || score == worst.score() && productId > worst.productId()) {
+                return;
+            }
+            top.poll();
+        }
+        top.add(new Hit(productId, score));
+    }
+
+    private static int length(int[] postings) {
+        return postings == null ? 0 : postings.length;
+    }
+}
@@ -0,0 +1,35 @@
+package de.philipbolting.product_catalog.product;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+@Repository
+class ProductSearchRepository {
+
+    interface DocumentHandler {
+        void handle(long productId, String name, String description, String brandName, String categoryName);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductSearchRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(10_000);
+    }
+
+    void forEachDocument(DocumentHandler handler) {
+        jdbcTemplate.query("""
+                SELECT p.id, p.name, p.description, b.name, c.name
+                FROM product p
+                    INNER JOIN brand b
+                    ON b.id = p.brand_id
+                    INNER JOIN category c
+                    ON c.id = p.category_id
+                ORDER BY p.id
+                """, rs -> {
+            handler.handle(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+        });
+    }
+}
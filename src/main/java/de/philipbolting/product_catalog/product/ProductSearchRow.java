@@ -0,0 +1,11 @@
+package de.philipbolting.product_catalog.product;
+
+public interface ProductSearchRow {
+    long getId();
+    float getRank();
+    String getBrandSlug();
+    String getCategorySlug();
+    String getSlug();
+    String getName();
+    String getDescription();
+}
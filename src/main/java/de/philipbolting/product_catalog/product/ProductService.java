@@ -1,29 +1,65 @@
 package de.philipbolting.product_catalog.product;
 
+import de.philipbolting.product_catalog.KeysetCursor;
+import de.philipbolting.product_catalog.ResourceVersion;
+import de.philipbolting.product_catalog.SliceDTO;
+import de.philipbolting.product_catalog.Tagged;
+import de.philipbolting.product_catalog.brand.Brand;
 import de.philipbolting.product_catalog.brand.BrandRepository;
 import de.philipbolting.product_catalog.category.CategoryRepository;
-import de.philipbolting.product_catalog.category.CategoryTreeRepository;
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
 import de.philipbolting.product_catalog.error.*;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import de.philipbolting.product_catalog.suggest.SuggestionDTO;
+import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
 @Service
 public class ProductService {
 
+    private static final Pattern SORT_PATH = Pattern.compile("^\\{(?:-?\\d+(?:,-?\\d+)*)?}$");
+
     private final ProductRepository productRepository;
 
     private final BrandRepository brandRepository;
 
     private final CategoryRepository categoryRepository;
 
-    private final CategoryTreeRepository categoryTreeRepository;
+    private final CategoryTreeCache categoryTreeCache;
+
+    private final SlugRedirects slugRedirects;
+
+    private final ProductFacetIndex productFacetIndex;
+
+    private final ProductSearchIndex productSearchIndex;
+
+    private final SuggestIndex suggestIndex;
 
-    public ProductService(ProductRepository productRepository, BrandRepository brandRepository, CategoryRepository categoryRepository, CategoryTreeRepository categoryTreeRepository) {
+    public ProductService(ProductRepository productRepository, BrandRepository brandRepository, CategoryRepository categoryRepository,
+                          CategoryTreeCache categoryTreeCache, SlugRedirects slugRedirects, ProductFacetIndex productFacetIndex,
+                          ProductSearchIndex productSearchIndex, SuggestIndex suggestIndex) {
         this.productRepository = productRepository;
         this.brandRepository = brandRepository;
         this.categoryRepository = categoryRepository;
-        this.categoryTreeRepository = categoryTreeRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.slugRedirects = slugRedirects;
+        this.productFacetIndex = productFacetIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.suggestIndex = suggestIndex;
     }
 
+    @Transactional
     public ProductDTO createProduct(ProductDTO dto) {
         if (productRepository.findBySlug(dto.slug()).isPresent()) {
             throw new SlugAlreadyExistsException();
@@ -32,17 +68,202 @@ public class ProductService {
             throw new NameAlreadyExistsException();
         }
         final var brand = brandRepository.findBySlug(dto.brandSlug()).orElseThrow(ProductBrandSlugNotFoundException::new);
-        final var categoryTree = categoryTreeRepository.findBySlug(dto.categorySlug()).orElseThrow(ProductCategorySlugNotFoundException::new);
+        final var categoryTree = categoryTreeCache.findBySlug(dto.categorySlug()).orElseThrow(ProductCategorySlugNotFoundException::new);
         final var category = categoryRepository.findById(categoryTree.getId()).orElseThrow(NotFoundException::new);
         final var product = new Product(brand, category, dto.slug(), dto.name(), dto.description());
+        slugRedirects.release(SlugType.PRODUCT, List.of(dto.slug()));
         final var savedProduct = productRepository.save(product);
+        productFacetIndex.addAfterCommit(savedProduct.getId(), brand.getId(), category.getId());
+        productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(savedProduct.getId(), savedProduct.getName(),
+                savedProduct.getDescription(), brand.getName(), category.getName()));
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO(savedProduct.getSlug(), savedProduct.getName())));
         return new ProductDTO(brand.getSlug(), categoryTree.getSlug(), savedProduct.getSlug(), savedProduct.getName(), savedProduct.getDescription());
     }
 
+    @Transactional
+    public ProductDTO changeProductSlug(String slug, SlugChangeDTO dto) {
+        if (!slug.equals(dto.slug())) {
+            final var product = productRepository.findBySlug(slug).orElseThrow(NotFoundException::new);
+            if (productRepository.findBySlug(dto.slug()).isPresent()) {
+                throw new SlugAlreadyExistsException();
+            }
+            product.setSlug(dto.slug());
+            productRepository.save(product);
+            slugRedirects.recordChange(SlugType.PRODUCT, slug, dto.slug());
+        }
+        return findProductBySlug(dto.slug());
+    }
+
     public ProductDTO findProductBySlug(String slug) {
-        final var product = productRepository.findBySlug(slug).orElseThrow(NotFoundException::new);
-        final var categoryTree = categoryTreeRepository.findById(product.getCategory().getId()).orElseThrow(NotFoundException::new);
-        return new ProductDTO(product.getBrand().getSlug(), categoryTree.getSlug(), product.getSlug(), product.getName(), product.getDescription());
+        return findTaggedProductBySlug(slug).value();
+    }
+
+    public Tagged<ProductDTO> findTaggedProductBySlug(String slug) {
+        final var row = productRepository.findDetailBySlug(slug).orElseThrow(NotFoundException::new);
+        return new Tagged<>(row.version(), row.toProductDTO());
     }
 
+    public ResourceVersion findProductVersion(String slug) {
+        return productRepository.findVersionBySlug(slug).orElseThrow(NotFoundException::new);
+    }
+
+    public SliceDTO<ProductDTO> findProductsByCategorySlug(String categorySlug, String after, int limit) {
+        final var categoryTree = categoryTreeCache.findBySlug(categorySlug).orElseThrow(NotFoundException::new);
+        var afterSortPath = "{}";
+        var afterCategoryId = 0L;
+        var afterName = "";
+        if (after != null) {
+            final var cursor = KeysetCursor.decode(after, 3);
+            if (!SORT_PATH.matcher(cursor[0]).matches()) {
+                throw new InvalidCursorException();
+            }
+            afterSortPath = cursor[0];
+            afterCategoryId = parseCursorId(cursor[1]);
+            afterName = cursor[2];
+        }
+        final var rows = productRepository.findBySubtree(categoryTree.getSlug(), afterSortPath, afterCategoryId, afterName, limit + 1);
+        final var items = rows.stream()
+                .limit(limit)
+                .map(row -> new ProductDTO(row.getBrandSlug(), row.getCategorySlug(), row.getSlug(), row.getName(), row.getDescription()))
+                .toList();
+        String next = null;
+        if (rows.size() > limit) {
+            final var last = rows.get(limit - 1);
+            next = KeysetCursor.encode(last.getSortPath(), Long.toString(last.getCategoryId()), last.getName());
+        }
+        return new SliceDTO<>(items, next);
+    }
+
+    // the brand queries walk (brand_id, name, id), the category query seeks (category_id, name, id) per descendant and
+    // the unfiltered one walks the name index, so every page costs the same
+    public SliceDTO<ProductDTO> findProducts(String brandSlug, String categorySlug, String after, int limit) {
+        final var brandId = brandSlug == null ? null
+                : brandRepository.findBySlug(brandSlug).map(Brand::getId).orElseThrow(NotFoundException::new);
+        final var categoryId = categorySlug == null ? null
+                : categoryTreeCache.findBySlug(categorySlug).map(CategoryTree::getId).orElseThrow(NotFoundException::new);
+        var afterName = "";
+        var afterId = 0L;
+        if (after != null) {
+            final var cursor = KeysetCursor.decode(after, 2);
+            afterName = cursor[0];
+            afterId = parseCursorId(cursor[1]);
+        }
+        final List<ProductListRow> rows;
+        if (brandId == null) {
+            rows = categoryId == null
+                    ? productRepository.findPage(afterName, afterId, limit + 1)
+                    : productRepository.findPageByCategory(categoryId, afterName, afterId, limit + 1);
+        } else {
+            rows = categoryId == null
+                    ? productRepository.findPageByBrand(brandId, afterName, afterId, limit + 1)
+                    : productRepository.findPageByBrandAndCategory(brandId, categoryId, afterName, afterId, limit + 1);
+        }
+        final var items = rows.stream()
+                .limit(limit)
+                .map(row -> new ProductDTO(row.getBrandSlug(), row.getCategorySlug(), row.getSlug(), row.getName(), row.getDescription()))
+                .toList();
+        String next = null;
+        if (rows.size() > limit) {
+            final var last = rows.get(limit - 1);
+            next = KeysetCursor.encode(last.getName(), Long.toString(last.getId()));
+        }
+        return new SliceDTO<>(items, next);
+    }
+
+    public SliceDTO<ProductDTO> searchProducts(String q, String after, int limit) {
+        var afterRank = Float.POSITIVE_INFINITY;
+        var afterId = 0L;
+        if (after != null) {
+            final var cursor = KeysetCursor.decode(after, 2);
+            afterRank = parseCursorRank(cursor[0]);
+            afterId = parseCursorId(cursor[1]);
+        }
+        final var rows = productRepository.search(q, afterRank, afterId, limit + 1);
+        final var items = rows.stream()
+                .limit(limit)
+                .map(row -> new ProductDTO(row.getBrandSlug(), row.getCategorySlug(), row.getSlug(), row.getName(), row.getDescription()))
+                .toList();
+        String next = null;
+        if (rows.size() > limit) {
+            final var last = rows.get(limit - 1);
+            next = KeysetCursor.encode(Float.toString(last.getRank()), Long.toString(last.getId()));
+        }
+        return new SliceDTO<>(items, next);
+    }
+
+    // a product deleted since the last refresh is left out of its page
+    public SliceDTO<ProductDTO> searchProductsInMemory(String q, String after, int limit) {
+        var afterScore = Float.POSITIVE_INFINITY;
+        var afterId = 0L;
+        if (after != null) {
+            final var cursor = KeysetCursor.decode(after, 2);
+            afterScore = parseCursorRank(cursor[0]);
+            afterId = parseCursorId(cursor[1]);
+        }
+        final var hits = productSearchIndex.search(q, afterScore, afterId, limit + 1);
+        final var page = hits.stream().limit(limit).toList();
+        final var rowsById = new HashMap<Long, ProductListRow>();
+        if (!page.isEmpty()) {
+            for (final var row : productRepository.findRowsByIds(page.stream().map(ProductSearchIndex.Hit::productId).toList())) {
+                rowsById.put(row.getId(), row);
+            }
+        }
+        final var items = page.stream()
+                .map(hit -> rowsById.get(hit.productId()))
+                .filter(Objects::nonNull)
+                .map(row -> new ProductDTO(row.getBrandSlug(), row.getCategorySlug(), row.getSlug(), row.getName(), row.getDescription()))
+                .toList();
+        String next = null;
+        if (hits.size() > limit) {
+            final var last = hits.get(limit - 1);
+            next = KeysetCursor.encode(Float.toString(last.score()), Long.toString(last.productId()));
+        }
+        return new SliceDTO<>(items, next);
+    }
+
+    public ProductFacetsDTO findFacets(String brandSlug, String categorySlug) {
+        final var brandId = brandSlug == null ? null
+                : brandRepository.findBySlug(brandSlug).map(Brand::getId).orElseThrow(NotFoundException::new);
+        final var categoryId = categorySlug == null ? null
+                : categoryTreeCache.findBySlug(categorySlug).map(CategoryTree::getId).orElseThrow(NotFoundException::new);
+        final var topLevelCategories = categoryTreeCache.findChildren(null);
+        final var facets = productFacetIndex.count(brandId, categoryId, topLevelCategories.stream().map(CategoryTree::getId).toList());
+        final var brands = new ArrayList<ProductFacetDTO>();
+        for (final var brand : brandRepository.findAllById(facets.brandCounts().keySet())) {
+            brands.add(new ProductFacetDTO(brand.getSlug(), brand.getName(), facets.brandCounts().get(brand.getId())));
+        }
+        brands.sort(Comparator.comparingLong(ProductFacetDTO::count).reversed().thenComparing(ProductFacetDTO::name));
+        final var categories = topLevelCategories.stream()
+                .filter(category -> facets.categoryCounts().containsKey(category.getId()))
+                .map(category -> new ProductFacetDTO(category.getSlug(), category.getName(), facets.categoryCounts().get(category.getId())))
+                .toList();
+        return new ProductFacetsDTO(facets.total(), brands, categories);
+    }
+
+    public ProductFacetIndexStatsDTO findFacetIndexStats() {
+        final var stats = productFacetIndex.stats();
+        final var bytesPerMillionProducts = stats.products() == 0 ? 0 : stats.bytes() * 1_000_000 / stats.products();
+        return new ProductFacetIndexStatsDTO(stats.products(), stats.bitmaps(), stats.bytes(), bytesPerMillionProducts);
+    }
+
+    // Float.toString round-trips exactly, so the rank of the last row compares equal to itself in the next query
+    private static float parseCursorRank(String rank) {
+        try {
+            final var value = Float.parseFloat(rank);
+            if (Float.isNaN(value)) {
+                throw new InvalidCursorException();
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException();
+        }
+    }
+
+    private static long parseCursorId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException();
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package de.philipbolting.product_catalog.slug;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+public record SlugChangeDTO(
+        @NotEmpty(message = "Slug must not be empty")
+        @Size(max = 50, message = "Slug must not be longer than {max} chars")
+        @Pattern(regexp = "^[a-z0-9]+(?:-[a-z0-9]+)*$")
+        String slug) {
+}
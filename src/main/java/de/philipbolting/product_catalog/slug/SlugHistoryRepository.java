@@ -0,0 +1,62 @@
+package de.philipbolting.product_catalog.slug;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+class SlugHistoryRepository {
+
+    record Row(SlugType type, String oldSlug, String newSlug) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    SlugHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    List<Row> findAll() {
+        return jdbcTemplate.query("SELECT slug_type, old_slug, new_slug FROM slug_history", (rs, rowNum) ->
+                new Row(SlugType.valueOf(rs.getString(1)), rs.getString(2), rs.getString(3)));
+    }
+
+    void record(SlugType type, String oldSlug, String newSlug) {
+        jdbcTemplate.update("""
+                INSERT INTO slug_history (slug_type, old_slug, new_slug)
+                VALUES (?, ?, ?)
+                ON CONFLICT (slug_type, old_slug) DO UPDATE SET new_slug = EXCLUDED.new_slug, changed = EXCLUDED.changed
+                """, type.name(), oldSlug, newSlug);
+    }
+
+    // expects the new full slugs to be written already and derives the old ones by swapping the prefix back
+    void recordCategorySubtree(long categoryId, String oldSlug, String newSlug) {
+        jdbcTemplate.update("""
+                INSERT INTO slug_history (slug_type, old_slug, new_slug)
+                SELECT ?, ? || substr(c.full_slug, length(?) + 1), c.full_slug
+                FROM category_closure cc
+                    INNER JOIN category c
+                    ON c.id = cc.descendant_id
+                WHERE cc.ancestor_id = ?
+                ON CONFLICT (slug_type, old_slug) DO UPDATE SET new_slug = EXCLUDED.new_slug, changed = EXCLUDED.changed
+                """, SlugType.CATEGORY.name(), oldSlug, newSlug, categoryId);
+    }
+
+    int release(SlugType type, Collection<String> slugs) {
+        return jdbcTemplate.update("DELETE FROM slug_history WHERE slug_type = ? AND old_slug = ANY (?)",
+                type.name(), slugs.toArray(String[]::new));
+    }
+
+    int releaseCategorySubtree(long categoryId) {
+        return jdbcTemplate.update("""
+                DELETE FROM slug_history
+                WHERE slug_type = ? AND old_slug IN (
+                    SELECT c.full_slug
+                    FROM category_closure cc
+                        INNER JOIN category c
+                        ON c.id = cc.descendant_id
+                    WHERE cc.ancestor_id = ?)
+                """, SlugType.CATEGORY.name(), categoryId);
+    }
+}
@@ -0,0 +1,91 @@
+package de.philipbolting.product_catalog.slug;
+
+import de.philipbolting.product_catalog.AfterCommit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class SlugRedirects {
+
+    private final SlugHistoryRepository slugHistoryRepository;
+
+    private volatile Map<SlugType, Map<String, String>> redirects = Map.of();
+
+    public SlugRedirects(SlugHistoryRepository slugHistoryRepository) {
+        this.slugHistoryRepository = slugHistoryRepository;
+    }
+
+    // changes on this instance are loaded right after their commit, the schedule picks up those of other instances
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product-catalog.slug-redirects.refresh-interval:PT10S}",
+            initialDelayString = "${product-catalog.slug-redirects.refresh-interval:PT10S}")
+    public synchronized void refresh() {
+        redirects = collapse(slugHistoryRepository.findAll());
+    }
+
+    public Optional<String> find(SlugType type, String slug) {
+        return Optional.ofNullable(redirects.getOrDefault(type, Map.of()).get(slug));
+    }
+
+    public void recordChange(SlugType type, String oldSlug, String newSlug) {
+        slugHistoryRepository.release(type, List.of(newSlug));
+        slugHistoryRepository.record(type, oldSlug, newSlug);
+        AfterCommit.run(this::refresh);
+    }
+
+    public void recordCategorySubtreeChange(long categoryId, String oldSlug, String newSlug) {
+        slugHistoryRepository.releaseCategorySubtree(categoryId);
+        slugHistoryRepository.recordCategorySubtree(categoryId, oldSlug, newSlug);
+        AfterCommit.run(this::refresh);
+    }
+
+    // a retired slug that is taken again by a new brand, category or product must stop redirecting
+    public void release(SlugType type, Collection<String> slugs) {
+        if (!slugs.isEmpty() && slugHistoryRepository.release(type, slugs) > 0) {
+            AfterCommit.run(this::refresh);
+        }
+    }
+
+    public static <T> ResponseEntity<T> movedPermanently(String path, Object... uriVariables) {
+        final var location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .replacePath(path)
+                .buildAndExpand(uriVariables)
+                .toUri();
+        return ResponseEntity.status(HttpStatus.MOVED_PERMANENTLY).location(location).build();
+    }
+
+    static Map<SlugType, Map<String, String>> collapse(List<SlugHistoryRepository.Row> rows) {
+        final var direct = new EnumMap<SlugType, Map<String, String>>(SlugType.class);
+        for (final var row : rows) {
+            direct.computeIfAbsent(row.type(), type -> new HashMap<>()).put(row.oldSlug(), row.newSlug());
+        }
+        final var collapsed = new EnumMap<SlugType, Map<String, String>>(SlugType.class);
+        direct.forEach((type, slugs) -> {
+            final var targets = new HashMap<String, String>(slugs.size());
+            slugs.forEach((oldSlug, newSlug) -> {
+                var target = newSlug;
+                for (var hops = 0; slugs.containsKey(target) && hops < slugs.size(); hops++) {
+                    target = slugs.get(target);
+                }
+                if (!slugs.containsKey(target)) {
+                    targets.put(oldSlug, target);
+                }
+            });
+            collapsed.put(type, Map.copyOf(targets));
+        });
+        return collapsed;
+    }
+}
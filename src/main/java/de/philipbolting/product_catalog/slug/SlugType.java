@@ -0,0 +1,7 @@
+package de.philipbolting.product_catalog.slug;
+
+public enum SlugType {
+    BRAND,
+    CATEGORY,
+    PRODUCT
+}
@@ -0,0 +1,27 @@
+package de.philipbolting.product_catalog.suggest;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/suggest")
+class SuggestController {
+
+    private final SuggestService suggestService;
+
+    public SuggestController(SuggestService suggestService) {
+        this.suggestService = suggestService;
+    }
+
+    @GetMapping()
+    public SuggestionsDTO suggest(@RequestParam @NotBlank @Size(max = 100) String q,
+                                  @RequestParam(defaultValue = "5") @Min(1) @Max(20) int limit) {
+        return suggestService.suggest(q, limit);
+    }
+}
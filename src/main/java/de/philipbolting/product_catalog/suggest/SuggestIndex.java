@@ -0,0 +1,191 @@
+package de.philipbolting.product_catalog.suggest;
+
+import de.philipbolting.product_catalog.AfterCommit;
+import de.philipbolting.product_catalog.SnapshotRebuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// renamed products keep being suggested under their old slug, which redirects, until the next refresh
+@Component
+public class SuggestIndex {
+
+    record Stats(int brands, int categories, int products, long bytes) {}
+
+    private record Delta(SuggestionTable table, List<SuggestionTable.Entry> entries) {}
+
+    private record Snapshot(SuggestionTable brands, SuggestionTable categories, SuggestionTable products, List<Delta> deltas) {
+
+        int deltaSize() {
+            return deltas.stream().mapToInt(delta -> delta.entries().size()).sum();
+        }
+
+        boolean containsProduct(String name) {
+            return products.containsName(name) || deltas.stream().anyMatch(delta -> delta.table().containsName(name));
+        }
+    }
+
+    private final SuggestRepository suggestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SnapshotRebuilder<UnaryOperator<Snapshot>> rebuilder;
+    private final int maxDeltaSize;
+
+    private volatile Snapshot snapshot = new Snapshot(SuggestionTable.EMPTY, SuggestionTable.EMPTY, SuggestionTable.EMPTY, List.of());
+
+    public SuggestIndex(SuggestRepository suggestRepository, PlatformTransactionManager transactionManager,
+                        @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor,
+                        @Value("${product-catalog.suggest.max-delta-size:10000}") int maxDeltaSize) {
+        this.suggestRepository = suggestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.rebuilder = new SnapshotRebuilder<>(taskExecutor);
+        this.maxDeltaSize = maxDeltaSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${product-catalog.suggest.refresh-interval:PT5M}",
+            initialDelayString = "${product-catalog.suggest.refresh-interval:PT5M}")
+    public void refresh() {
+        rebuilder.rebuild(() -> {
+            final var brands = new ArrayList<SuggestionTable.Entry>();
+            final var categories = new ArrayList<SuggestionTable.Entry>();
+            final var products = new ArrayList<SuggestionTable.Entry>();
+            transactionTemplate.executeWithoutResult(status -> {
+                suggestRepository.forEachBrand((slug, name, weight) -> brands.add(entry(slug, name, weight)));
+                suggestRepository.forEachCategory((slug, name, weight) -> categories.add(entry(slug, name, weight)));
+                suggestRepository.forEachProduct((slug, name, weight) -> products.add(entry(slug, name, weight)));
+            });
+            return new Snapshot(SuggestionTable.of(brands), SuggestionTable.of(categories), SuggestionTable.of(products), List.of());
+        }, (next, pending) -> {
+            var current = next;
+            for (final var change : pending) {
+                current = change.apply(current);
+            }
+            snapshot = current;
+        });
+    }
+
+    void refreshInBackground() {
+        rebuilder.rebuildInBackground(this::refresh);
+    }
+
+    public void refreshBrandsAfterCommit() {
+        AfterCommit.run(this::refreshBrands);
+    }
+
+    public void refreshCategoriesAfterCommit() {
+        AfterCommit.run(this::refreshCategories);
+    }
+
+    public void refreshAfterCommit() {
+        AfterCommit.run(this::refreshInBackground);
+    }
+
+    public void addProductsAfterCommit(List<SuggestionDTO> products) {
+        AfterCommit.run(() -> addProducts(products));
+    }
+
+    List<SuggestionDTO> suggestBrands(String prefix, int limit) {
+        return toDTOs(snapshot.brands().top(SuggestionTable.key(prefix), limit));
+    }
+
+    List<SuggestionDTO> suggestCategories(String prefix, int limit) {
+        return toDTOs(snapshot.categories().top(SuggestionTable.key(prefix), limit));
+    }
+
+    List<SuggestionDTO> suggestProducts(String prefix, int limit) {
+        final var current = snapshot;
+        final var key = SuggestionTable.key(prefix);
+        final var products = current.products().top(key, limit);
+        if (current.deltas().isEmpty()) {
+            return toDTOs(products);
+        }
+        final var merged = new ArrayList<>(products);
+        for (final var delta : current.deltas()) {
+            merged.addAll(delta.table().top(key, limit));
+        }
+        merged.sort(Comparator.comparingInt(SuggestionTable.Entry::weight).reversed()
+                .thenComparing(entry -> SuggestionTable.key(entry.name()), Arrays::compareUnsigned)
+                .thenComparing(SuggestionTable.Entry::name));
+        return toDTOs(merged.subList(0, Math.min(limit, merged.size())));
+    }
+
+    Stats stats() {
+        final var current = snapshot;
+        var bytes = current.brands().bytes() + current.categories().bytes() + current.products().bytes();
+        for (final var delta : current.deltas()) {
+            bytes += delta.table().bytes();
+        }
+        return new Stats(current.brands().size(), current.categories().size(), current.products().size() + current.deltaSize(), bytes);
+    }
+
+    private void refreshBrands() {
+        final var brands = new ArrayList<SuggestionTable.Entry>();
+        transactionTemplate.executeWithoutResult(status ->
+                suggestRepository.forEachBrand((slug, name, weight) -> brands.add(entry(slug, name, weight))));
+        final var table = SuggestionTable.of(brands);
+        apply(current -> new Snapshot(table, current.categories(), current.products(), current.deltas()));
+    }
+
+    private void refreshCategories() {
+        final var categories = new ArrayList<SuggestionTable.Entry>();
+        transactionTemplate.executeWithoutResult(status ->
+                suggestRepository.forEachCategory((slug, name, weight) -> categories.add(entry(slug, name, weight))));
+        final var table = SuggestionTable.of(categories);
+        apply(current -> new Snapshot(current.brands(), table, current.products(), current.deltas()));
+    }
+
+    private void addProducts(List<SuggestionDTO> products) {
+        final var entries = products.stream().map(product -> new SuggestionTable.Entry(product.slug(), product.name(), 0)).toList();
+        apply(current -> with(current, entries));
+        if (snapshot.deltaSize() > maxDeltaSize) {
+            refreshInBackground();
+        }
+    }
+
+    private void apply(UnaryOperator<Snapshot> change) {
+        rebuilder.apply(change, c -> snapshot = c.apply(snapshot));
+    }
+
+    // a product committed while refresh was reading may already be in the main table
+    private static Snapshot with(Snapshot current, List<SuggestionTable.Entry> entries) {
+        var merged = new ArrayList<SuggestionTable.Entry>();
+        for (final var entry : entries) {
+            if (!current.containsProduct(entry.name())) {
+                merged.add(entry);
+            }
+        }
+        if (merged.isEmpty()) {
+            return current;
+        }
+        final var deltas = new ArrayList<>(current.deltas());
+        while (!deltas.isEmpty() && deltas.getLast().entries().size() <= merged.size()) {
+            final var left = new ArrayList<>(deltas.removeLast().entries());
+            left.addAll(merged);
+            merged = left;
+        }
+        deltas.add(new Delta(SuggestionTable.of(merged), List.copyOf(merged)));
+        return new Snapshot(current.brands(), current.categories(), current.products(), List.copyOf(deltas));
+    }
+
+    private static SuggestionTable.Entry entry(String slug, String name, long weight) {
+        return new SuggestionTable.Entry(slug, name, (int) Math.min(weight, Integer.MAX_VALUE));
+    }
+
+    private static List<SuggestionDTO> toDTOs(List<SuggestionTable.Entry> entries) {
+        return entries.stream().map(entry -> new SuggestionDTO(entry.slug(), entry.name())).toList();
+    }
+}
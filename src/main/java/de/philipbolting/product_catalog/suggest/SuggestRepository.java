@@ -0,0 +1,52 @@
+package de.philipbolting.product_catalog.suggest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+@Repository
+class SuggestRepository {
+
+    interface SuggestionHandler {
+        void handle(String slug, String name, long weight);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    SuggestRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(10_000);
+    }
+
+    // a brand weighs as much as it has products, counted by triggers
+    void forEachBrand(SuggestionHandler handler) {
+        jdbcTemplate.query("""
+                SELECT b.slug, b.name, coalesce(count.product_count, 0)
+                FROM brand b
+                    LEFT JOIN brand_product_count count
+                    ON count.brand_id = b.id
+                """, rs -> {
+            handler.handle(rs.getString(1), rs.getString(2), rs.getLong(3));
+        });
+    }
+
+    // a category weighs as much as it has products in its subtree
+    void forEachCategory(SuggestionHandler handler) {
+        jdbcTemplate.query("""
+                SELECT c.full_slug, c.name, coalesce(count.subtree_product_count, 0)
+                FROM category c
+                    LEFT JOIN category_product_count count
+                    ON count.category_id = c.id
+                """, rs -> {
+            handler.handle(rs.getString(1), rs.getString(2), rs.getLong(3));
+        });
+    }
+
+    // products carry no popularity signal yet, they all weigh the same and are suggested in name order
+    void forEachProduct(SuggestionHandler handler) {
+        jdbcTemplate.query("SELECT slug, name FROM product", rs -> {
+            handler.handle(rs.getString(1), rs.getString(2), 0);
+        });
+    }
+}
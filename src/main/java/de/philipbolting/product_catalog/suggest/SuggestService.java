@@ -0,0 +1,18 @@
+package de.philipbolting.product_catalog.suggest;
+
+import org.springframework.stereotype.Service;
+
+@Service
+class SuggestService {
+
+    private final SuggestIndex suggestIndex;
+
+    public SuggestService(SuggestIndex suggestIndex) {
+        this.suggestIndex = suggestIndex;
+    }
+
+    public SuggestionsDTO suggest(String q, int limit) {
+        return new SuggestionsDTO(suggestIndex.suggestBrands(q, limit), suggestIndex.suggestCategories(q, limit),
+                suggestIndex.suggestProducts(q, limit));
+    }
+}
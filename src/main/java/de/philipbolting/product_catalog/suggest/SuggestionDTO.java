@@ -0,0 +1,4 @@
+package de.philipbolting.product_catalog.suggest;
+
+public record SuggestionDTO(String slug, String name) {
+}
@@ -0,0 +1,191 @@
+package de.philipbolting.product_catalog.suggest;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+// sorted by normalized name, so a prefix is one range; a segment tree over the weights finds its heaviest entries
+final class SuggestionTable {
+
+    record Entry(String slug, String name, int weight) {}
+
+    private record Range(int from, int to, int best) {}
+
+    private static final class Packed {
+        private final byte[] data;
+        private final int[] offsets;
+
+        private Packed(byte[][] values) {
+            offsets = new int[values.length + 1];
+            for (var i = 0; i < values.length; i++) {
+                offsets[i + 1] = offsets[i] + values[i].length;
+            }
+            data = new byte[offsets[values.length]];
+            for (var i = 0; i < values.length; i++) {
+                System.arraycopy(values[i], 0, data, offsets[i], values[i].length);
+            }
+        }
+
+        String get(int index) {
+            return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+        }
+
+        // compares only as many bytes as the prefix has, so every value starting with the prefix compares equal
+        int comparePrefix(int index, byte[] prefix) {
+            final var length = offsets[index + 1] - offsets[index];
+            final var common = Math.min(length, prefix.length);
+            final var compared = Arrays.compareUnsigned(data, offsets[index], offsets[index] + common, prefix, 0, common);
+            if (compared != 0) {
+                return compared;
+            }
+            return length < prefix.length ? -1 : 0;
+        }
+
+        long bytes() {
+            return data.length + (long) offsets.length * Integer.BYTES;
+        }
+    }
+
+    static final SuggestionTable EMPTY = of(List.of());
+
+    private final Packed keys;
+    private final Packed names;
+    private final Packed slugs;
+    private final int[] weights;
+    private final int[] tree;
+
+    private SuggestionTable(Packed keys, Packed names, Packed slugs, int[] weights) {
+        this.keys = keys;
+        this.names = names;
+        this.slugs = slugs;
+        this.weights = weights;
+        final var size = weights.length;
+        this.tree = new int[2 * size];
+        for (var i = 0; i < size; i++) {
+            tree[size + i] = i;
+        }
+        for (var i = size - 1; i > 0; i--) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    static SuggestionTable of(List<Entry> entries) {
+        final var keys = new byte[entries.size()][];
+        final var order = new Integer[entries.size()];
+        for (var i = 0; i < keys.length; i++) {
+            keys[i] = key(entries.get(i).name());
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, byte[]>comparing(i -> keys[i], Arrays::compareUnsigned)
+                .thenComparing(i -> entries.get(i).name()));
+        final var sortedKeys = new byte[keys.length][];
+        final var names = new byte[keys.length][];
+        final var slugs = new byte[keys.length][];
+        final var weights = new int[keys.length];
+        for (var i = 0; i < order.length; i++) {
+            final var entry = entries.get(order[i]);
+            sortedKeys[i] = keys[order[i]];
+            names[i] = entry.name().getBytes(StandardCharsets.UTF_8);
+            slugs[i] = entry.slug().getBytes(StandardCharsets.UTF_8);
+            weights[i] = entry.weight();
+        }
+        return new SuggestionTable(new Packed(sortedKeys), new Packed(names), new Packed(slugs), weights);
+    }
+
+    // case and accents are ignored, so "cafe" suggests "Café"
+    static byte[] key(String name) {
+        final var key = new StringBuilder(name.length());
+        final var normalized = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        for (var i = 0; i < normalized.length(); i++) {
+            final var c = normalized.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                key.append(c);
+            }
+        }
+        return key.toString().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return weights.length;
+    }
+
+    long bytes() {
+        return keys.bytes() + names.bytes() + slugs.bytes() + (long) (weights.length + tree.length) * Integer.BYTES;
+    }
+
+    boolean containsName(String name) {
+        final var key = key(name);
+        for (var i = bound(key, false); i < size() && keys.comparePrefix(i, key) == 0; i++) {
+            if (names.get(i).equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the heaviest entries first, entries of the same weight in name order
+    List<Entry> top(byte[] prefix, int limit) {
+        final var result = new ArrayList<Entry>(limit);
+        final var ranges = new PriorityQueue<Range>((a, b) -> a.best() == better(a.best(), b.best()) ? -1 : 1);
+        final var from = bound(prefix, false);
+        final var to = bound(prefix, true);
+        if (from < to) {
+            ranges.add(new Range(from, to, best(from, to)));
+        }
+        while (!ranges.isEmpty() && result.size() < limit) {
+            final var range = ranges.poll();
+            result.add(new Entry(slugs.get(range.best()), names.get(range.best()), weights[range.best()]));
+            if (range.from() < range.best()) {
+                ranges.add(new Range(range.from(), range.best(), best(range.from(), range.best())));
+            }
+            if (range.best() + 1 < range.to()) {
+                ranges.add(new Range(range.best() + 1, range.to(), best(range.best() + 1, range.to())));
+            }
+        }
+        return result;
+    }
+
+    private int bound(byte[] prefix, boolean upper) {
+        var low = 0;
+        var high = size();
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            final var compared = keys.comparePrefix(middle, prefix);
+            if (compared < 0 || upper && compared == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int best(int from, int to) {
+        var best = -1;
+        var high = to + size();
+        for (var low = from + size(); low < high; low >>>= 1, high >>>= 1) {
+            if ((low & 1) == 1) {
+                best = better(best, tree[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = better(best, tree[--high]);
+            }
+        }
+        return best;
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return weights[a] > weights[b] || weights[a] == weights[b] && a < b ? a : b;
+    }
+}
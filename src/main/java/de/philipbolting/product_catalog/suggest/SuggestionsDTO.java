@@ -0,0 +1,6 @@
+package de.philipbolting.product_catalog.suggest;
+
+import java.util.List;
+
+public record SuggestionsDTO(List<SuggestionDTO> brands, List<SuggestionDTO> categories, List<SuggestionDTO> products) {
+}
@@ -0,0 +1,71 @@
+ALTER TABLE category
+    ADD full_slug VARCHAR COLLATE "C",
+    ADD sort_path INTEGER[],
+    ADD depth INT;
+
+WITH RECURSIVE tree (id, full_slug, sort_path, depth) AS (
+    SELECT id, CAST(slug AS VARCHAR), ARRAY[sort_order], 0
+    FROM category
+    WHERE parent_id IS NULL
+    UNION ALL
+    SELECT child.id, parent.full_slug || '/' || child.slug, parent.sort_path || child.sort_order, parent.depth + 1
+    FROM category child
+        INNER JOIN tree parent
+        ON parent.id = child.parent_id
+)
+UPDATE category c
+SET full_slug = tree.full_slug, sort_path = tree.sort_path, depth = tree.depth
+FROM tree
+WHERE c.id = tree.id;
+
+ALTER TABLE category
+    ALTER full_slug SET NOT NULL,
+    ALTER sort_path SET NOT NULL,
+    ALTER depth SET NOT NULL;
+
+CREATE UNIQUE INDEX category_full_slug_key ON category (full_slug);
+CREATE INDEX category_sort_path_idx ON category (sort_path);
+
+-- derives the materialized path of a single row from its parent
+CREATE FUNCTION category_set_path() RETURNS TRIGGER AS $$
+DECLARE
+    parent category%ROWTYPE;
+BEGIN
+    IF NEW.parent_id IS NULL THEN
+        NEW.full_slug := NEW.slug;
+        NEW.sort_path := ARRAY[NEW.sort_order];
+        NEW.depth := 0;
+    ELSE
+        SELECT * INTO STRICT parent FROM category WHERE id = NEW.parent_id;
+        NEW.full_slug := parent.full_slug || '/' || NEW.slug;
+        NEW.sort_path := parent.sort_path || NEW.sort_order;
+        NEW.depth := parent.depth + 1;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_set_path
+    BEFORE INSERT OR UPDATE OF parent_id, slug, sort_order ON category
+    FOR EACH ROW EXECUTE FUNCTION category_set_path();
+
+-- rewrites the paths of all descendants in one statement, using the full_slug range of the old path
+CREATE FUNCTION category_update_descendant_paths() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE category
+    SET full_slug = NEW.full_slug || substr(full_slug, length(OLD.full_slug) + 1),
+        sort_path = NEW.sort_path || sort_path[OLD.depth + 2:],
+        depth = depth - OLD.depth + NEW.depth
+    WHERE full_slug > OLD.full_slug || '/'
+      AND full_slug < OLD.full_slug || '0';
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_update_descendant_paths
+    AFTER UPDATE OF parent_id, slug, sort_order ON category
+    FOR EACH ROW
+    WHEN (OLD.full_slug IS DISTINCT FROM NEW.full_slug OR OLD.sort_path IS DISTINCT FROM NEW.sort_path)
+    EXECUTE FUNCTION category_update_descendant_paths();
+
+DROP VIEW category_tree;
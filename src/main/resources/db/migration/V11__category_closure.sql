@@ -0,0 +1,15 @@
+CREATE TABLE category_closure (
+    ancestor_id BIGINT NOT NULL REFERENCES category(id) ON DELETE CASCADE,
+    descendant_id BIGINT NOT NULL REFERENCES category(id) ON DELETE CASCADE,
+    depth INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id)
+);
+
+CREATE INDEX category_closure_descendant_id_idx ON category_closure (descendant_id, ancestor_id, depth);
+
+INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+SELECT ancestor.id, descendant.id, descendant.depth - ancestor.depth
+FROM category ancestor
+    INNER JOIN category descendant
+    ON descendant.full_slug = ancestor.full_slug
+        OR (descendant.full_slug > ancestor.full_slug || '/' AND descendant.full_slug < ancestor.full_slug || '0');
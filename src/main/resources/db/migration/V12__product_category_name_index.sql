@@ -0,0 +1 @@
+CREATE INDEX product_category_id_name_idx ON product (category_id, name);
@@ -0,0 +1,143 @@
+CREATE TABLE category_product_count (
+    category_id BIGINT NOT NULL REFERENCES category(id) ON DELETE CASCADE,
+    product_count BIGINT NOT NULL DEFAULT 0,
+    subtree_product_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (category_id)
+);
+
+INSERT INTO category_product_count (category_id, product_count, subtree_product_count)
+SELECT category.id,
+       (SELECT count(*) FROM product WHERE product.category_id = category.id),
+       (SELECT count(*) FROM product INNER JOIN category_closure closure ON closure.descendant_id = product.category_id
+        WHERE closure.ancestor_id = category.id)
+FROM category;
+
+-- adds product count deltas to the direct count of each category and the subtree count of all its ancestors (including itself)
+CREATE FUNCTION category_product_count_add(category_ids BIGINT[], deltas BIGINT[]) RETURNS VOID AS $$
+BEGIN
+    WITH delta AS (
+        SELECT closure.ancestor_id AS category_id,
+               coalesce(sum(d.delta) FILTER (WHERE closure.depth = 0), 0) AS direct,
+               sum(d.delta) AS subtree
+        FROM unnest(category_ids, deltas) AS d(category_id, delta)
+            INNER JOIN category_closure closure
+            ON closure.descendant_id = d.category_id
+        GROUP BY closure.ancestor_id
+    ), locked AS (
+        SELECT count.category_id
+        FROM category_product_count count
+        WHERE count.category_id IN (SELECT category_id FROM delta WHERE direct <> 0 OR subtree <> 0)
+        ORDER BY count.category_id
+        FOR UPDATE
+    )
+    UPDATE category_product_count count
+    SET product_count = count.product_count + delta.direct,
+        subtree_product_count = count.subtree_product_count + delta.subtree
+    FROM delta
+    WHERE count.category_id = delta.category_id
+      AND count.category_id IN (SELECT category_id FROM locked);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION product_update_category_product_count() RETURNS TRIGGER AS $$
+DECLARE
+    category_ids BIGINT[];
+    deltas BIGINT[];
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        SELECT array_agg(category_id), array_agg(delta) INTO category_ids, deltas
+        FROM (SELECT category_id, count(*) AS delta FROM new_product GROUP BY category_id) d;
+    ELSIF TG_OP = 'DELETE' THEN
+        SELECT array_agg(category_id), array_agg(delta) INTO category_ids, deltas
+        FROM (SELECT category_id, -count(*) AS delta FROM old_product GROUP BY category_id) d;
+    ELSE
+        SELECT array_agg(category_id), array_agg(delta) INTO category_ids, deltas
+        FROM (
+            SELECT category_id, sum(delta) AS delta
+            FROM (
+                SELECT new_product.category_id, 1 AS delta
+                FROM new_product INNER JOIN old_product ON old_product.id = new_product.id
+                WHERE old_product.category_id <> new_product.category_id
+                UNION ALL
+                SELECT old_product.category_id, -1
+                FROM new_product INNER JOIN old_product ON old_product.id = new_product.id
+                WHERE old_product.category_id <> new_product.category_id
+            ) changed
+            GROUP BY category_id
+        ) d;
+    END IF;
+    IF category_ids IS NOT NULL THEN
+        PERFORM category_product_count_add(category_ids, deltas);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER product_insert_category_product_count
+    AFTER INSERT ON product
+    REFERENCING NEW TABLE AS new_product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_update_category_product_count();
+
+CREATE TRIGGER product_update_category_product_count
+    AFTER UPDATE ON product
+    REFERENCING OLD TABLE AS old_product NEW TABLE AS new_product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_update_category_product_count();
+
+CREATE TRIGGER product_delete_category_product_count
+    AFTER DELETE ON product
+    REFERENCING OLD TABLE AS old_product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_update_category_product_count();
+
+-- a moved subtree takes its products along: closure rows carry the direct count of their descendant
+CREATE FUNCTION category_closure_update_product_count() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        WITH delta AS (
+            SELECT new_closure.ancestor_id AS category_id, sum(count.product_count) AS subtree
+            FROM new_closure INNER JOIN category_product_count count ON count.category_id = new_closure.descendant_id
+            WHERE new_closure.depth > 0
+            GROUP BY new_closure.ancestor_id
+            HAVING sum(count.product_count) <> 0
+        )
+        UPDATE category_product_count count
+        SET subtree_product_count = count.subtree_product_count + delta.subtree
+        FROM delta
+        WHERE count.category_id = delta.category_id;
+    ELSE
+        WITH delta AS (
+            SELECT old_closure.ancestor_id AS category_id, sum(count.product_count) AS subtree
+            FROM old_closure INNER JOIN category_product_count count ON count.category_id = old_closure.descendant_id
+            WHERE old_closure.depth > 0
+            GROUP BY old_closure.ancestor_id
+            HAVING sum(count.product_count) <> 0
+        )
+        UPDATE category_product_count count
+        SET subtree_product_count = count.subtree_product_count - delta.subtree
+        FROM delta
+        WHERE count.category_id = delta.category_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_closure_insert_product_count
+    AFTER INSERT ON category_closure
+    REFERENCING NEW TABLE AS new_closure
+    FOR EACH STATEMENT EXECUTE FUNCTION category_closure_update_product_count();
+
+CREATE TRIGGER category_closure_delete_product_count
+    AFTER DELETE ON category_closure
+    REFERENCING OLD TABLE AS old_closure
+    FOR EACH STATEMENT EXECUTE FUNCTION category_closure_update_product_count();
+
+CREATE FUNCTION category_insert_product_count() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO category_product_count (category_id) SELECT id FROM new_category;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_insert_product_count
+    AFTER INSERT ON category
+    REFERENCING NEW TABLE AS new_category
+    FOR EACH STATEMENT EXECUTE FUNCTION category_insert_product_count();
@@ -0,0 +1,32 @@
+ALTER TABLE category DISABLE TRIGGER category_set_path;
+ALTER TABLE category DISABLE TRIGGER category_update_descendant_paths;
+
+-- spreads the sort keys of siblings so a category can usually be repositioned by only changing its own key
+UPDATE category c
+SET sort_order = ranked.position * 1024
+FROM (
+    SELECT id, row_number() OVER (PARTITION BY parent_id ORDER BY sort_order, name) AS position
+    FROM category
+) ranked
+WHERE c.id = ranked.id;
+
+WITH RECURSIVE tree (id, sort_path) AS (
+    SELECT id, ARRAY[sort_order]
+    FROM category
+    WHERE parent_id IS NULL
+    UNION ALL
+    SELECT child.id, parent.sort_path || child.sort_order
+    FROM category child
+        INNER JOIN tree parent
+        ON parent.id = child.parent_id
+)
+UPDATE category c
+SET sort_path = tree.sort_path
+FROM tree
+WHERE c.id = tree.id;
+
+ALTER TABLE category ENABLE TRIGGER category_set_path;
+ALTER TABLE category ENABLE TRIGGER category_update_descendant_paths;
+
+-- roots share the sibling key 0, so root and child listings are served by the same index
+CREATE INDEX category_sibling_sort_order_idx ON category ((coalesce(parent_id, 0)), sort_order, name);
@@ -0,0 +1,3 @@
+-- lets bulk reassignment walk the products of a brand or category in id order
+CREATE INDEX product_brand_id_id_idx ON product (brand_id, id);
+CREATE INDEX product_category_id_id_idx ON product (category_id, id);
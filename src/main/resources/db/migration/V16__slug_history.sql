@@ -0,0 +1,9 @@
+-- retired slugs of brands, categories and products; new_slug is the slug that replaced old_slug, redirect
+-- chains are collapsed when the history is loaded into memory
+CREATE TABLE slug_history (
+    slug_type VARCHAR(20) NOT NULL,
+    old_slug VARCHAR COLLATE "C" NOT NULL,
+    new_slug VARCHAR COLLATE "C" NOT NULL,
+    changed TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (slug_type, old_slug)
+);
@@ -0,0 +1,77 @@
+-- letter bucket of the A-Z directory, accents are stripped so "Öko" is listed under O
+ALTER TABLE brand ADD initial VARCHAR(1) GENERATED ALWAYS AS (
+    CASE WHEN left(normalize(upper(left(name, 1)), NFD), 1) ~ '^[A-Z]$'
+         THEN left(normalize(upper(left(name, 1)), NFD), 1)
+         ELSE '#'
+    END) STORED;
+
+-- the directory is ordered like a human reads it, not by byte value as the database collation would
+CREATE INDEX brand_name_directory_idx ON brand ((name COLLATE "und-x-icu"), id);
+CREATE INDEX brand_initial_name_directory_idx ON brand (initial, (name COLLATE "und-x-icu"), id);
+
+CREATE TABLE brand_initial_count (
+    initial VARCHAR(1) NOT NULL,
+    brand_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (initial)
+);
+
+INSERT INTO brand_initial_count (initial, brand_count)
+SELECT initial, count(*) FROM brand GROUP BY initial;
+
+-- upserts are applied in initial order, so concurrent statements lock the count rows in the same order
+CREATE FUNCTION brand_update_initial_count() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO brand_initial_count AS count (initial, brand_count)
+        SELECT initial, count(*) FROM new_brand GROUP BY initial ORDER BY initial
+        ON CONFLICT (initial) DO UPDATE SET brand_count = count.brand_count + EXCLUDED.brand_count;
+    ELSIF TG_OP = 'DELETE' THEN
+        UPDATE brand_initial_count count
+        SET brand_count = count.brand_count - delta.brand_count
+        FROM (SELECT initial, count(*) AS brand_count FROM old_brand GROUP BY initial) delta
+        WHERE count.initial = delta.initial;
+    ELSE
+        INSERT INTO brand_initial_count AS count (initial, brand_count)
+        SELECT initial, sum(delta)
+        FROM (
+            SELECT new_brand.initial, 1 AS delta
+            FROM new_brand INNER JOIN old_brand ON old_brand.id = new_brand.id
+            WHERE old_brand.initial <> new_brand.initial
+            UNION ALL
+            SELECT old_brand.initial, -1
+            FROM new_brand INNER JOIN old_brand ON old_brand.id = new_brand.id
+            WHERE old_brand.initial <> new_brand.initial
+        ) changed
+        GROUP BY initial
+        ORDER BY initial
+        ON CONFLICT (initial) DO UPDATE SET brand_count = count.brand_count + EXCLUDED.brand_count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER brand_insert_initial_count
+    AFTER INSERT ON brand
+    REFERENCING NEW TABLE AS new_brand
+    FOR EACH STATEMENT EXECUTE FUNCTION brand_update_initial_count();
+
+CREATE TRIGGER brand_update_initial_count
+    AFTER UPDATE ON brand
+    REFERENCING OLD TABLE AS old_brand NEW TABLE AS new_brand
+    FOR EACH STATEMENT EXECUTE FUNCTION brand_update_initial_count();
+
+CREATE TRIGGER brand_delete_initial_count
+    AFTER DELETE ON brand
+    REFERENCING OLD TABLE AS old_brand
+    FOR EACH STATEMENT EXECUTE FUNCTION brand_update_initial_count();
+
+CREATE FUNCTION brand_truncate_initial_count() RETURNS TRIGGER AS $$
+BEGIN
+    TRUNCATE TABLE brand_initial_count;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER brand_truncate_initial_count
+    AFTER TRUNCATE ON brand
+    FOR EACH STATEMENT EXECUTE FUNCTION brand_truncate_initial_count();
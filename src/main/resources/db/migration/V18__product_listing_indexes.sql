@@ -0,0 +1,2 @@
+-- the product listing is ordered by (name, id): unfiltered it walks the unique name index, filtered by brand this one
+CREATE INDEX product_brand_id_name_id_idx ON product (brand_id, name, id);
@@ -0,0 +1,2 @@
+-- every nextval reserves a block of 50 ids, ending at the returned value, for hibernate and bulk imports alike
+ALTER SEQUENCE seq_product INCREMENT BY 50;
@@ -0,0 +1,11 @@
+-- staging area of the csv import: the file is copied in as raw text, checked set-based and merged into product.
+-- unlogged because the rows only live for the duration of one import and need not survive a crash
+CREATE UNLOGGED TABLE product_csv_import (
+    line BIGINT GENERATED ALWAYS AS IDENTITY,
+    brand_slug TEXT,
+    category_slug TEXT,
+    slug TEXT,
+    name TEXT,
+    description TEXT,
+    error TEXT
+);
\ No newline at end of file
@@ -0,0 +1,11 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- stemmed words of name and description, names weigh more in ts_rank
+ALTER TABLE product ADD search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'B')) STORED;
+
+CREATE INDEX product_search_vector_idx ON product USING GIN (search_vector);
+
+-- serves the typo tolerant word_similarity match on names
+CREATE INDEX product_name_trgm_idx ON product USING GIN (name gin_trgm_ops);
\ No newline at end of file
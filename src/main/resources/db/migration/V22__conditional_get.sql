@@ -0,0 +1,39 @@
+-- conditional GETs look up the validator of a resource by slug, these answer that from the index alone
+ALTER TABLE brand
+    DROP CONSTRAINT brand_slug_key,
+    ADD CONSTRAINT brand_slug_key UNIQUE (slug) INCLUDE (id, last_modified);
+ALTER TABLE product
+    DROP CONSTRAINT product_slug_key,
+    ADD CONSTRAINT product_slug_key UNIQUE (slug) INCLUDE (id, brand_id, category_id, last_modified);
+
+-- product counts are part of a category's representation but are maintained by triggers, so they carry their own
+-- modification time
+ALTER TABLE category_product_count ADD last_modified TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now();
+
+CREATE FUNCTION category_product_count_touch() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.last_modified := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_product_count_touch
+    BEFORE UPDATE ON category_product_count
+    FOR EACH ROW
+    WHEN (OLD.product_count IS DISTINCT FROM NEW.product_count OR OLD.subtree_product_count IS DISTINCT FROM NEW.subtree_product_count)
+    EXECUTE FUNCTION category_product_count_touch();
+
+-- a renamed or moved category rewrites the full slugs of its descendants, which changes their representation too;
+-- fires after category_set_path, which derives the full slug of the updated row itself
+CREATE FUNCTION category_touch_path() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.last_modified := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_touch_path
+    BEFORE UPDATE ON category
+    FOR EACH ROW
+    WHEN (OLD.full_slug IS DISTINCT FROM NEW.full_slug)
+    EXECUTE FUNCTION category_touch_path();
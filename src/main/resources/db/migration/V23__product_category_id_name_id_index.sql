@@ -0,0 +1,3 @@
+-- the category listing seeks (category_id, name, id) per descendant, the subtree listing still uses its name prefix
+CREATE INDEX product_category_id_name_id_idx ON product (category_id, name, id);
+DROP INDEX product_category_id_name_idx;
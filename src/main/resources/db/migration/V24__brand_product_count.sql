@@ -0,0 +1,69 @@
+-- the product count of every brand is the weight of its suggestion, kept here so reloading the brands does not count
+-- all products
+CREATE TABLE brand_product_count (
+    brand_id BIGINT NOT NULL REFERENCES brand(id) ON DELETE CASCADE,
+    product_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (brand_id)
+);
+
+INSERT INTO brand_product_count (brand_id, product_count)
+SELECT brand.id, (SELECT count(*) FROM product WHERE product.brand_id = brand.id)
+FROM brand;
+
+-- upserts are applied in brand order, so concurrent statements lock the count rows in the same order
+CREATE FUNCTION product_update_brand_product_count() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO brand_product_count AS count (brand_id, product_count)
+        SELECT brand_id, count(*) FROM new_product GROUP BY brand_id ORDER BY brand_id
+        ON CONFLICT (brand_id) DO UPDATE SET product_count = count.product_count + EXCLUDED.product_count;
+    ELSIF TG_OP = 'DELETE' THEN
+        UPDATE brand_product_count count
+        SET product_count = count.product_count - delta.product_count
+        FROM (SELECT brand_id, count(*) AS product_count FROM old_product GROUP BY brand_id) delta
+        WHERE count.brand_id = delta.brand_id;
+    ELSE
+        INSERT INTO brand_product_count AS count (brand_id, product_count)
+        SELECT brand_id, sum(delta)
+        FROM (
+            SELECT new_product.brand_id, 1 AS delta
+            FROM new_product INNER JOIN old_product ON old_product.id = new_product.id
+            WHERE old_product.brand_id <> new_product.brand_id
+            UNION ALL
+            SELECT old_product.brand_id, -1
+            FROM new_product INNER JOIN old_product ON old_product.id = new_product.id
+            WHERE old_product.brand_id <> new_product.brand_id
+        ) changed
+        GROUP BY brand_id
+        ORDER BY brand_id
+        ON CONFLICT (brand_id) DO UPDATE SET product_count = count.product_count + EXCLUDED.product_count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER product_insert_brand_product_count
+    AFTER INSERT ON product
+    REFERENCING NEW TABLE AS new_product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_update_brand_product_count();
+
+CREATE TRIGGER product_update_brand_product_count
+    AFTER UPDATE ON product
+    REFERENCING OLD TABLE AS old_product NEW TABLE AS new_product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_update_brand_product_count();
+
+CREATE TRIGGER product_delete_brand_product_count
+    AFTER DELETE ON product
+    REFERENCING OLD TABLE AS old_product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_update_brand_product_count();
+
+CREATE FUNCTION product_truncate_brand_product_count() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE brand_product_count SET product_count = 0 WHERE product_count <> 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER product_truncate_brand_product_count
+    AFTER TRUNCATE ON product
+    FOR EACH STATEMENT EXECUTE FUNCTION product_truncate_brand_product_count();
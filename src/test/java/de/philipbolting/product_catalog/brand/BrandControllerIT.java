@@ -1,7 +1,10 @@
 package de.philipbolting.product_catalog.brand;
 
 import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.ResourceVersion;
 import de.philipbolting.product_catalog.error.NotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
@@ -19,7 +22,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 @AutoConfigureRestTestClient
 @Import(ContainersConfig.class)
 @Testcontainers
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class BrandControllerIT {
 
     @Autowired
@@ -28,6 +32,9 @@ public class BrandControllerIT {
     @Autowired
     private BrandRepository brandRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     void createBrand() {
         final String uuid = UUID.randomUUID().toString();
@@ -47,4 +54,34 @@ public class BrandControllerIT {
         assertThat(brand.getCreated()).isBetween(requestSentAt, Instant.now());
         assertThat(brand.getLastModified()).isEqualTo(brand.getCreated());
     }
+
+    @Test
+    void findBrandBySlug_withMatchingETag_shouldRunOneStatementAndReturnNotModified() {
+        final String uuid = UUID.randomUUID().toString();
+        restTestClient.post().uri("/api/brands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new BrandDTO(uuid, "Brand Name " + uuid, ""))
+                .exchange()
+                .expectStatus().isCreated();
+        final var brand = brandRepository.findBySlug(uuid).orElseThrow(NotFoundException::new);
+        final var etag = restTestClient.get().uri("/api/brands/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult()
+                .getResponseHeaders().getETag();
+        assertThat(etag).isEqualTo(new ResourceVersion(brand.getId(), brand.getLastModified()).etag());
+
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        restTestClient.get().uri("/api/brands/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
 }
@@ -1,34 +1,50 @@
 package de.philipbolting.product_catalog.brand;
 
+import de.philipbolting.product_catalog.ResourceVersion;
 import de.philipbolting.product_catalog.SecurityConfig;
+import de.philipbolting.product_catalog.Tagged;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.client.RestTestClient;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @WebMvcTest(controllers = BrandController.class)
 @AutoConfigureRestTestClient
 @Import(SecurityConfig.class)
 class BrandControllerTest {
 
+    private static final ResourceVersion VERSION = new ResourceVersion(42L, Instant.parse("2026-01-02T03:04:05Z"));
+
     @Autowired
     private RestTestClient restTestClient;
 
     @MockitoBean
     private BrandService brandService;
 
+    @MockitoBean
+    private SlugRedirects slugRedirects;
+
     static Stream<String> validSlugs() {
         return Stream.of(
                 "some-slug",
@@ -326,14 +342,108 @@ class BrandControllerTest {
     void findBrandBySlug_withExistingSlug_shouldReturnBrand() {
         final var dto = new BrandDTO("some-slug", "Some Name", "Some Description");
         final var createBrandResult = new BrandDTO("some-slug", "Some Name", "Some Description");
-        when(brandService.findBrandBySlug("some-slug")).thenReturn(createBrandResult);
+        when(brandService.findTaggedBrandBySlug("some-slug")).thenReturn(new Tagged<>(VERSION, createBrandResult));
         restTestClient.get().uri("/api/brands/some-slug")
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", VERSION.etag())
+                .expectHeader().valueEquals("Last-Modified", "Fri, 02 Jan 2026 03:04:05 GMT")
                 .expectBody()
                 .jsonPath("$.slug").isEqualTo(dto.slug())
                 .jsonPath("$.name").isEqualTo(dto.name())
                 .jsonPath("$.description").isEqualTo(dto.description());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findBrandBySlug_withMatchingETag_shouldReturnNotModified() {
+        when(brandService.findBrandVersion("some-slug")).thenReturn(VERSION);
+        restTestClient.get().uri("/api/brands/some-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", VERSION.etag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        verify(brandService, never()).findTaggedBrandBySlug(any());
+    }
+
+    @Test
+    void findBrandBySlug_withStaleETag_shouldReturnBrand() {
+        when(brandService.findBrandVersion("some-slug")).thenReturn(VERSION);
+        when(brandService.findTaggedBrandBySlug("some-slug"))
+                .thenReturn(new Tagged<>(VERSION, new BrandDTO("some-slug", "Some Name", "Some Description")));
+        restTestClient.get().uri("/api/brands/some-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", "\"2a-0\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", VERSION.etag())
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("some-slug");
+    }
+
+    @Test
+    void findBrandBySlug_withRetiredSlug_shouldRedirectPermanently() {
+        when(slugRedirects.find(SlugType.BRAND, "old-slug")).thenReturn(Optional.of("new-slug"));
+        restTestClient.get().uri("/api/brands/old-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MOVED_PERMANENTLY)
+                .expectHeader().location("http://localhost/api/brands/new-slug");
+        verify(brandService, never()).findTaggedBrandBySlug(any());
+    }
+
+    @Test
+    void changeBrandSlug_shouldReturnBrand() {
+        when(brandService.changeBrandSlug("old-slug", new SlugChangeDTO("new-slug")))
+                .thenReturn(new BrandDTO("new-slug", "Some Name", "Some Description"));
+        restTestClient.patch().uri("/api/brands/old-slug")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new SlugChangeDTO("new-slug"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("new-slug");
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidSlugs")
+    void changeBrandSlug_withInvalidSlug_shouldReturnBadRequest(String slug) {
+        restTestClient.patch().uri("/api/brands/old-slug")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new SlugChangeDTO(slug))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].pointer").isEqualTo("#/slug");
+    }
+
+    @Test
+    void findBrands_shouldReturnDirectory() {
+        when(brandService.findBrands("A", null, 20)).thenReturn(new BrandDirectoryDTO(
+                List.of(new BrandInitialDTO("A", 1), new BrandInitialDTO("B", 3)),
+                List.of(new BrandDTO("apple", "Apple", "")),
+                null));
+        restTestClient.get().uri("/api/brands?startsWith=A")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.initials[1].initial").isEqualTo("B")
+                .jsonPath("$.initials[1].count").isEqualTo(3)
+                .jsonPath("$.items[0].slug").isEqualTo("apple")
+                .jsonPath("$.next").doesNotExist();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/api/brands?startsWith=AB", "/api/brands?startsWith=1", "/api/brands?limit=0", "/api/brands?limit=101"})
+    void findBrands_withInvalidParameters_shouldReturnBadRequest(String uri) {
+        restTestClient.get().uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(brandService);
+    }
+}
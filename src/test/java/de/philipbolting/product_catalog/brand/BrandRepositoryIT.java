@@ -16,11 +16,16 @@ import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.jdbc.Sql;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,6 +40,9 @@ class BrandRepositoryIT {
     @Autowired
     BrandRepository brandRepository;
 
+    @Autowired
+    BrandInitialCountRepository brandInitialCountRepository;
+
     @MockitoBean
     private DateTimeProvider dateTimeProvider;
 
@@ -120,4 +128,50 @@ class BrandRepositoryIT {
             entityManager.flush();
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    void scroll_shouldOrderNamesLikeADirectory() {
+        final var brands = saveBrands("adidas", "Apple", "Öko", "zara", "Zebra", "3M", "Éclair");
+
+        assertEquals(List.of("3M", "adidas", "Apple", "Brand 1", "Brand 2", "Brand 3", "Éclair", "Öko", "zara", "Zebra"),
+                names(brandRepository.scrollByName("", 0L, 100)));
+        assertEquals(List.of("Brand 1", "Brand 2"), names(brandRepository.scrollByName(brands.get(1).getName(), brands.get(1).getId(), 2)));
+        assertEquals(List.of("adidas", "Apple"), names(brandRepository.scrollByInitialAndName("A", "", 0L, 100)));
+        assertEquals(List.of("Apple"), names(brandRepository.scrollByInitialAndName("A", "adidas", brands.get(0).getId(), 100)));
+        assertEquals(List.of("Öko"), names(brandRepository.scrollByInitialAndName("O", "", 0L, 100)));
+        assertEquals(List.of("3M"), names(brandRepository.scrollByInitialAndName("#", "", 0L, 100)));
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    void initialCounts_shouldFollowInsertsUpdatesAndDeletes() {
+        final var brands = saveBrands("adidas", "Apple", "Éclair", "Zebra", "3M");
+        assertEquals(Map.of("#", 1L, "A", 2L, "B", 3L, "E", 1L, "Z", 1L), initialCounts());
+
+        brands.get(3).setName("Yak");
+        brandRepository.delete(brands.get(4));
+        brands.get(0).setName("Asics");
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(Map.of("#", 0L, "A", 2L, "B", 3L, "E", 1L, "Y", 1L, "Z", 0L), initialCounts());
+    }
+
+    private List<Brand> saveBrands(String... names) {
+        final var brands = new ArrayList<Brand>();
+        for (final var name : names) {
+            brands.add(brandRepository.save(new Brand("slug-" + UUID.randomUUID(), name, "")));
+        }
+        entityManager.flush();
+        return brands;
+    }
+
+    private static List<String> names(List<Brand> brands) {
+        return brands.stream().map(Brand::getName).toList();
+    }
+
+    private Map<String, Long> initialCounts() {
+        return brandInitialCountRepository.findAll().stream()
+                .collect(Collectors.toMap(BrandInitialCount::getInitial, BrandInitialCount::getBrandCount));
+    }
+}
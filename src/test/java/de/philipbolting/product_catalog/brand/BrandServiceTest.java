@@ -1,18 +1,25 @@
 package de.philipbolting.product_catalog.brand;
 
+import de.philipbolting.product_catalog.KeysetCursor;
+import de.philipbolting.product_catalog.error.InvalidCursorException;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
 import de.philipbolting.product_catalog.error.NotFoundException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class BrandServiceTest {
@@ -21,6 +28,12 @@ class BrandServiceTest {
     private BrandService brandService;
     @Mock
     private BrandRepository brandRepository;
+    @Mock
+    private BrandInitialCountRepository brandInitialCountRepository;
+    @Mock
+    private SlugRedirects slugRedirects;
+    @Mock
+    private SuggestIndex suggestIndex;
 
     @Test
     void createBrand_withDuplicateSlug_shouldThrowException() {
@@ -65,4 +78,56 @@ class BrandServiceTest {
         when(brandRepository.findBySlug("some-slug")).thenThrow(new NotFoundException());
         assertThrows(NotFoundException.class, () -> brandService.findBrandBySlug("some-slug"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void changeBrandSlug_withDuplicateSlug_shouldThrowException() {
+        final var brand = new Brand("old-slug", "Some Brand", "");
+        when(brandRepository.findBySlug("old-slug")).thenReturn(Optional.of(brand));
+        when(brandRepository.findBySlug("new-slug")).thenReturn(Optional.of(new Brand("new-slug", "Other Brand", "")));
+        assertThrows(SlugAlreadyExistsException.class, () -> brandService.changeBrandSlug("old-slug", new SlugChangeDTO("new-slug")));
+        verifyNoInteractions(slugRedirects);
+    }
+
+    @Test
+    void changeBrandSlug_shouldRecordOldSlug() {
+        final var brand = new Brand("old-slug", "Some Brand", "");
+        when(brandRepository.findBySlug("old-slug")).thenReturn(Optional.of(brand));
+        when(brandRepository.findBySlug("new-slug")).thenReturn(Optional.empty());
+        when(brandRepository.save(brand)).thenReturn(brand);
+        final var result = brandService.changeBrandSlug("old-slug", new SlugChangeDTO("new-slug"));
+        assertEquals("new-slug", result.slug());
+        verify(slugRedirects).recordChange(SlugType.BRAND, "old-slug", "new-slug");
+        verify(suggestIndex).refreshBrandsAfterCommit();
+    }
+
+    @Test
+    void findBrands_withMoreBrandsThanLimit_shouldReturnCursorAndInitials() {
+        when(brandRepository.scrollByName("", 0L, 3)).thenReturn(List.of(brand(1L, "Adidas"), brand(2L, "Apple"), brand(3L, "Bosch")));
+        when(brandInitialCountRepository.findByBrandCountGreaterThanOrderByInitial(0))
+                .thenReturn(List.of(new BrandInitialCount("A", 2), new BrandInitialCount("B", 1)));
+        final var directory = brandService.findBrands(null, null, 2);
+        assertEquals(List.of("Adidas", "Apple"), directory.items().stream().map(BrandDTO::name).toList());
+        assertEquals(List.of(new BrandInitialDTO("A", 2), new BrandInitialDTO("B", 1)), directory.initials());
+        assertEquals(KeysetCursor.encode("Apple", "2"), directory.next());
+    }
+
+    @Test
+    void findBrands_withCursorAndInitial_shouldContinueInBucket() {
+        when(brandRepository.scrollByInitialAndName("A", "Adidas", 1L, 3)).thenReturn(List.of(brand(2L, "Apple")));
+        final var directory = brandService.findBrands("a", KeysetCursor.encode("Adidas", "1"), 2);
+        assertEquals(List.of("Apple"), directory.items().stream().map(BrandDTO::name).toList());
+        assertNull(directory.next());
+    }
+
+    @Test
+    void findBrands_withInvalidCursor_shouldThrowException() {
+        assertThrows(InvalidCursorException.class, () -> brandService.findBrands(null, "not-a-cursor", 2));
+        assertThrows(InvalidCursorException.class, () -> brandService.findBrands(null, KeysetCursor.encode("Apple", "x"), 2));
+    }
+
+    private static Brand brand(long id, String name) {
+        final var brand = new Brand(name.toLowerCase(), name, "");
+        brand.setId(id);
+        return brand;
+    }
+}
@@ -0,0 +1,152 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(ContainersConfig.class)
+@Testcontainers
+class CategoryClosureRepositoryIT {
+
+    @Autowired
+    CategoryClosureRepository categoryClosureRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired
+    CategoryTreeRepository categoryTreeRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void shouldFindDescendantsInSortOrder() {
+        final var descendants = categoryClosureRepository.findDescendants(2L);
+        assertEquals(3, descendants.size());
+        assertEquals("category-2/category-2-1", descendants.get(0).slug());
+        assertEquals("Category 2.1", descendants.get(0).name());
+        assertEquals("category-2/category-2-1/category-2-1-1", descendants.get(1).slug());
+        assertEquals("category-2/category-2-1/category-2-1-2", descendants.get(2).slug());
+        assertTrue(categoryClosureRepository.findDescendants(7L).isEmpty());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void shouldFindAncestorsFromRoot() {
+        final var ancestors = categoryClosureRepository.findAncestors(7L);
+        assertEquals(2, ancestors.size());
+        assertEquals("category-2", ancestors.get(0).slug());
+        assertEquals("category-2/category-2-1", ancestors.get(1).slug());
+        assertTrue(categoryClosureRepository.findAncestors(1L).isEmpty());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void findDescendantsAndAncestors_withoutProductCountRow_shouldCountZero() {
+        entityManager.createNativeQuery("DELETE FROM category_product_count WHERE category_id IN (2, 5)").executeUpdate();
+
+        final var descendants = categoryClosureRepository.findDescendants(2L);
+        assertEquals(3, descendants.size());
+        assertEquals(0L, descendants.get(0).productCount());
+        assertEquals(0L, descendants.get(0).subtreeProductCount());
+        final var ancestors = categoryClosureRepository.findAncestors(7L);
+        assertEquals(List.of("category-2", "category-2/category-2-1"), ancestors.stream().map(CategoryDTO::slug).toList());
+        assertEquals(0L, ancestors.get(0).productCount());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void insertPaths_shouldLinkNewCategoryToAllAncestors() {
+        final var parent = categoryRepository.findById(6L).orElseThrow();
+        final var category = categoryRepository.save(new Category(parent, 1, "category-2-1-1-1", "Category 2.1.1.1", ""));
+        categoryClosureRepository.insertPaths(category.getId(), parent.getId());
+
+        final var ancestors = categoryClosureRepository.findAncestors(category.getId());
+        assertEquals(3, ancestors.size());
+        assertEquals("category-2", ancestors.get(0).slug());
+        assertEquals("category-2/category-2-1", ancestors.get(1).slug());
+        assertEquals("category-2/category-2-1/category-2-1-1", ancestors.get(2).slug());
+        assertEquals("category-2/category-2-1/category-2-1-1/category-2-1-1-1", categoryClosureRepository.findDescendants(5L).get(1).slug());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void insertPaths_withRootCategory_shouldOnlyLinkItself() {
+        final var category = categoryRepository.save(new Category(3, "category-3", "Category 3", ""));
+        categoryClosureRepository.insertPaths(category.getId(), null);
+
+        assertTrue(categoryClosureRepository.findAncestors(category.getId()).isEmpty());
+        assertTrue(categoryClosureRepository.findDescendants(category.getId()).isEmpty());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void detachAndAttachSubtree_shouldRewirePathsOfMovedSubtree() {
+        categoryClosureRepository.detachSubtree(5L);
+        categoryRepository.updateParent(5L, 1L);
+        categoryClosureRepository.attachSubtree(5L, 1L);
+
+        final var ancestors = categoryClosureRepository.findAncestors(6L);
+        assertEquals(List.of("category-1", "category-1/category-2-1"), ancestors.stream().map(CategoryDTO::slug).toList());
+        assertTrue(categoryClosureRepository.existsByAncestorIdAndDescendantId(1L, 7L));
+        assertFalse(categoryClosureRepository.existsByAncestorIdAndDescendantId(2L, 7L));
+        assertEquals(List.of("category-1/category-2-1/category-2-1-1", "category-1/category-2-1/category-2-1-2"),
+                categoryClosureRepository.findDescendants(5L).stream().map(CategoryDTO::slug).toList());
+        final var grandchild = categoryTreeRepository.findById(7L).orElseThrow();
+        assertEquals(2, grandchild.getDepth());
+        assertArrayEquals(new int[]{1, 1, 2}, grandchild.getSortPath());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void detachAndAttachSubtree_withLargeSubtree_shouldFinishInSeconds() {
+        entityManager.createNativeQuery("""
+                INSERT INTO category (id, parent_id, sort_order, slug, name)
+                SELECT 1000 + g, 5, g, 'bulk-' || g, 'Bulk ' || g FROM generate_series(1, 500) g
+                """).executeUpdate();
+        entityManager.createNativeQuery("""
+                INSERT INTO category (id, parent_id, sort_order, slug, name)
+                SELECT 10000 + g, 1001 + g / 100, g, 'bulk-' || g, 'Bulk ' || g FROM generate_series(0, 49999) g
+                """).executeUpdate();
+        entityManager.createNativeQuery("""
+                INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+                SELECT closure.ancestor_id, category.id, closure.depth + 1
+                FROM category INNER JOIN category_closure closure ON closure.descendant_id = category.parent_id
+                WHERE category.id BETWEEN 1001 AND 1500
+                UNION ALL
+                SELECT id, id, 0 FROM category WHERE id > 1000
+                """).executeUpdate();
+        entityManager.createNativeQuery("""
+                INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+                SELECT closure.ancestor_id, category.id, closure.depth + 1
+                FROM category INNER JOIN category_closure closure ON closure.descendant_id = category.parent_id
+                WHERE category.id >= 10000
+                """).executeUpdate();
+
+        assertTimeout(Duration.ofSeconds(10), () -> {
+            categoryClosureRepository.detachSubtree(5L);
+            categoryRepository.updateParent(5L, 1L);
+            categoryClosureRepository.attachSubtree(5L, 1L);
+        });
+
+        final var leaf = categoryTreeRepository.findById(59999L).orElseThrow();
+        assertEquals("category-1/category-2-1/bulk-500/bulk-49999", leaf.getSlug());
+        assertEquals(3, leaf.getDepth());
+        assertEquals(List.of("category-1", "category-1/category-2-1", "category-1/category-2-1/bulk-500"),
+                categoryClosureRepository.findAncestors(59999L).stream().map(CategoryDTO::slug).toList());
+    }
+}
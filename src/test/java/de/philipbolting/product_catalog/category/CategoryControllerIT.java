@@ -1,7 +1,11 @@
 package de.philipbolting.product_catalog.category;
 
 import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.brand.BrandDTO;
 import de.philipbolting.product_catalog.error.NotFoundException;
+import de.philipbolting.product_catalog.product.ProductDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
@@ -12,6 +16,8 @@ import org.springframework.test.web.servlet.client.RestTestClient;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -19,7 +25,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 @AutoConfigureRestTestClient
 @Import(ContainersConfig.class)
 @Testcontainers
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class CategoryControllerIT {
 
     @Autowired
@@ -28,6 +35,12 @@ public class CategoryControllerIT {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryProductCountCache categoryProductCountCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     void createCategory() {
         final String uuid = UUID.randomUUID().toString();
@@ -47,4 +60,350 @@ public class CategoryControllerIT {
         assertThat(category.getCreated()).isBetween(requestSentAt, Instant.now());
         assertThat(category.getLastModified()).isEqualTo(category.getCreated());
     }
+
+    @Test
+    void findDescendantsAndAncestors() {
+        final String uuid = UUID.randomUUID().toString();
+        final var parent = new CategoryDTO(uuid, "Parent " + uuid, "");
+        final var child = new CategoryDTO(uuid + "/child", "Child " + uuid, "");
+        final var grandchild = new CategoryDTO(uuid + "/child/grandchild", "Grandchild " + uuid, "");
+        for (final var dto : new CategoryDTO[]{parent, child, grandchild}) {
+            restTestClient.post().uri("/api/categories")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(dto)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        restTestClient.get().uri("/api/categories/" + uuid + "/descendants")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].slug").isEqualTo(child.slug())
+                .jsonPath("$[1].slug").isEqualTo(grandchild.slug());
+
+        restTestClient.get().uri("/api/categories/" + uuid + "/child/grandchild/ancestors")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].slug").isEqualTo(parent.slug())
+                .jsonPath("$[1].slug").isEqualTo(child.slug());
+    }
+
+    @Test
+    void findCategoryBySlug_shouldRunOneStatementAtAnyDepth() {
+        final String uuid = UUID.randomUUID().toString();
+        var slug = uuid;
+        final var slugs = new ArrayList<String>();
+        for (var depth = 0; depth < 8; depth++) {
+            restTestClient.post().uri("/api/categories")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(new CategoryDTO(slug, "Level " + depth + " " + uuid, ""))
+                    .exchange()
+                    .expectStatus().isCreated();
+            slugs.add(slug);
+            slug += "/level-" + (depth + 1);
+        }
+
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (var depth = 0; depth < slugs.size(); depth++) {
+            statistics.clear();
+            restTestClient.get().uri("/api/categories/" + slugs.get(depth))
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.slug").isEqualTo(slugs.get(depth))
+                    .jsonPath("$.name").isEqualTo("Level " + depth + " " + uuid)
+                    .jsonPath("$.subtreeProductCount").isEqualTo(0);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+        }
+    }
+
+    @Test
+    void findCategoryBySlug_withMatchingETag_shouldRunOneStatementUntilProductCountChanges() {
+        final String uuid = UUID.randomUUID().toString();
+        restTestClient.post().uri("/api/categories")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryDTO(uuid, "Category " + uuid, ""))
+                .exchange()
+                .expectStatus().isCreated();
+        final var etag = restTestClient.get().uri("/api/categories/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult()
+                .getResponseHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        restTestClient.get().uri("/api/categories/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        restTestClient.post().uri("/api/brands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new BrandDTO(uuid, "Brand " + uuid, ""))
+                .exchange()
+                .expectStatus().isCreated();
+        restTestClient.post().uri("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new ProductDTO(uuid, uuid, uuid, "Product " + uuid, null))
+                .exchange()
+                .expectStatus().isCreated();
+        final var result = restTestClient.get().uri("/api/categories/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.productCount").isEqualTo(1)
+                .returnResult();
+        assertThat(result.getResponseHeaders().getETag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void findCategorySubtreeWithETag() {
+        final String uuid = UUID.randomUUID().toString();
+        for (final var dto : new CategoryDTO[]{
+                new CategoryDTO(uuid, "Parent " + uuid, ""),
+                new CategoryDTO(uuid + "/child", "Child " + uuid, ""),
+                new CategoryDTO(uuid + "/child/grandchild", "Grandchild " + uuid, "")}) {
+            restTestClient.post().uri("/api/categories")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(dto)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        final var etag = restTestClient.get().uri("/api/categories/" + uuid + "?expand=children&depth=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo(uuid)
+                .jsonPath("$.children.length()").isEqualTo(1)
+                .jsonPath("$.children[0].slug").isEqualTo(uuid + "/child")
+                .jsonPath("$.children[0].children").doesNotExist()
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        restTestClient.get().uri("/api/categories/" + uuid + "?expand=children&depth=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        restTestClient.get().uri("/api/categories")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody()
+                .jsonPath("$[?(@.slug == '" + uuid + "')].children[0].children[0].slug").isEqualTo(uuid + "/child/grandchild");
+    }
+
+    @Test
+    void findProductCounts() {
+        final String uuid = UUID.randomUUID().toString();
+        for (final var dto : new CategoryDTO[]{
+                new CategoryDTO(uuid, "Parent " + uuid, ""),
+                new CategoryDTO(uuid + "/child", "Child " + uuid, "")}) {
+            restTestClient.post().uri("/api/categories")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(dto)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        restTestClient.post().uri("/api/brands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new BrandDTO(uuid, "Brand " + uuid, ""))
+                .exchange()
+                .expectStatus().isCreated();
+        restTestClient.post().uri("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        {"slug": "%s", "brandSlug": "%s", "categorySlug": "%s/child", "name": "Product", "description": ""}
+                        """.formatted(uuid, uuid, uuid))
+                .exchange()
+                .expectStatus().isCreated();
+
+        restTestClient.get().uri("/api/categories/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.productCount").isEqualTo(0)
+                .jsonPath("$.subtreeProductCount").isEqualTo(1);
+
+        categoryProductCountCache.refresh();
+        restTestClient.get().uri("/api/categories/" + uuid + "?expand=children")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.subtreeProductCount").isEqualTo(1)
+                .jsonPath("$.children[0].productCount").isEqualTo(1)
+                .jsonPath("$.children[0].subtreeProductCount").isEqualTo(1);
+    }
+
+    @Test
+    void positionCategory() {
+        final String uuid = UUID.randomUUID().toString();
+        for (final var dto : new CategoryDTO[]{
+                new CategoryDTO(uuid, "Parent " + uuid, ""),
+                new CategoryDTO(uuid + "/a", "A", ""),
+                new CategoryDTO(uuid + "/b", "B", ""),
+                new CategoryDTO(uuid + "/c", "C", "")}) {
+            restTestClient.post().uri("/api/categories")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(dto)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        restTestClient.put().uri("/api/categories/" + uuid + "/c/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryPositionDTO(uuid + "/a", null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo(uuid + "/c");
+        restTestClient.put().uri("/api/categories/" + uuid + "/a/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryPositionDTO(null, uuid + "/b"))
+                .exchange()
+                .expectStatus().isOk();
+
+        restTestClient.get().uri("/api/categories/" + uuid + "?expand=children")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.children[0].slug").isEqualTo(uuid + "/c")
+                .jsonPath("$.children[1].slug").isEqualTo(uuid + "/b")
+                .jsonPath("$.children[2].slug").isEqualTo(uuid + "/a");
+
+        restTestClient.put().uri("/api/categories/" + uuid + "/a/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryPositionDTO(uuid, null))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void moveCategory() {
+        final String uuid = UUID.randomUUID().toString();
+        for (final var dto : new CategoryDTO[]{
+                new CategoryDTO(uuid, "Source " + uuid, ""),
+                new CategoryDTO(uuid + "/child", "Child " + uuid, ""),
+                new CategoryDTO(uuid + "/child/grandchild", "Grandchild " + uuid, ""),
+                new CategoryDTO(uuid + "-target", "Target " + uuid, "")}) {
+            restTestClient.post().uri("/api/categories")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(dto)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        restTestClient.post().uri("/api/categories/" + uuid + "/child/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryMoveDTO(uuid + "-target"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo(uuid + "-target/child");
+
+        restTestClient.get().uri("/api/categories/" + uuid + "-target/child/grandchild/ancestors")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].slug").isEqualTo(uuid + "-target")
+                .jsonPath("$[1].slug").isEqualTo(uuid + "-target/child");
+
+        restTestClient.get().uri("/api/categories/" + uuid + "/descendants")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(0);
+
+        restTestClient.post().uri("/api/categories/" + uuid + "-target/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryMoveDTO(uuid + "-target/child/grandchild"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void importCategories() {
+        final String uuid = UUID.randomUUID().toString();
+        final var request = List.of(
+                new CategoryImportDTO(uuid, "Root " + uuid, "", null, List.of(
+                        new CategoryImportDTO("b", "B " + uuid, "", null, null),
+                        new CategoryImportDTO("a", "A " + uuid, "", null, List.of(
+                                new CategoryImportDTO("leaf", "Leaf " + uuid, "", null, null))))),
+                new CategoryImportDTO(uuid + "/b/flat", "Flat " + uuid, "", null, null),
+                new CategoryImportDTO(uuid + "/b", "Duplicate " + uuid, "", null, null));
+
+        restTestClient.post().uri("/api/categories/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(6)
+                .jsonPath("$[0].status").isEqualTo("CREATED")
+                .jsonPath("$[3].slug").isEqualTo(uuid + "/a/leaf")
+                .jsonPath("$[4].status").isEqualTo("CREATED")
+                .jsonPath("$[5].status").isEqualTo("FAILED")
+                .jsonPath("$[5].detail").isEqualTo("Slug already exists");
+
+        restTestClient.get().uri("/api/categories/" + uuid + "?expand=children&depth=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.children[0].slug").isEqualTo(uuid + "/b")
+                .jsonPath("$.children[0].children[0].slug").isEqualTo(uuid + "/b/flat")
+                .jsonPath("$.children[1].slug").isEqualTo(uuid + "/a")
+                .jsonPath("$.children[1].children[0].slug").isEqualTo(uuid + "/a/leaf");
+
+        restTestClient.get().uri("/api/categories/" + uuid + "/a/leaf/ancestors")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
 }
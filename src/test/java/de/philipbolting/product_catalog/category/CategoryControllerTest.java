@@ -1,9 +1,22 @@
 package de.philipbolting.product_catalog.category;
 
+import de.philipbolting.product_catalog.ResourceVersion;
 import de.philipbolting.product_catalog.SecurityConfig;
+import de.philipbolting.product_catalog.SliceDTO;
+import de.philipbolting.product_catalog.Tagged;
+import de.philipbolting.product_catalog.error.CategoryCycleException;
+import de.philipbolting.product_catalog.error.CategoryNotSiblingException;
+import de.philipbolting.product_catalog.error.InvalidCategoryMergeException;
+import de.philipbolting.product_catalog.error.InvalidCategoryPositionException;
+import de.philipbolting.product_catalog.error.InvalidCursorException;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
+import de.philipbolting.product_catalog.error.NotFoundException;
 import de.philipbolting.product_catalog.error.ParentCategoryNotFoundException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.product.ProductDTO;
+import de.philipbolting.product_catalog.product.ProductService;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -11,25 +24,44 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.client.RestTestClient;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @WebMvcTest(controllers = CategoryController.class)
 @AutoConfigureRestTestClient
 @Import(SecurityConfig.class)
 class CategoryControllerTest {
 
+    private static final ResourceVersion VERSION = new ResourceVersion(42L, Instant.parse("2026-01-02T03:04:05Z"));
+
     @Autowired
     private RestTestClient restTestClient;
 
     @MockitoBean
     private CategoryService categoryService;
 
+    @MockitoBean
+    private CategoryImportService categoryImportService;
+
+    @MockitoBean
+    private CategoryMergeService categoryMergeService;
+
+    @MockitoBean
+    private SlugRedirects slugRedirects;
+
+    @MockitoBean
+    private ProductService productService;
+
     static Stream<String> validSlugs() {
         return Stream.of(
                 "some-slug",
@@ -60,7 +92,14 @@ class CategoryControllerTest {
                 "/some-slug/",
                 "/some-slug//",
                 "some-/slug",
-                "some/-slug"
+                "some/-slug",
+                "descendants",
+                "some-slug/ancestors",
+                "some-slug/products",
+                "some-slug/move",
+                "position/some-child-slug",
+                "some-slug/merge-into",
+                "some-slug/descendants/some-child-slug"
 
         );
     }
@@ -132,6 +171,27 @@ class CategoryControllerTest {
                 .expectHeader().location("http://localhost/api/categories/" + slug);
     }
 
+    @Test
+    void createCategory_withProductCounts_shouldIgnoreThem() {
+        final var dto = new CategoryDTO("some-slug", "Some Name", "Some Description");
+        when(categoryService.createCategory(dto)).thenReturn(dto);
+        restTestClient.post().uri("/api/categories")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        {
+                            "slug": "some-slug",
+                            "name": "Some Name",
+                            "description": "Some Description",
+                            "productCount": 42,
+                            "subtreeProductCount": 42
+                        }
+                        """)
+                .exchange()
+                .expectStatus().isCreated();
+        verify(categoryService).createCategory(dto);
+    }
+
     @ParameterizedTest
     @MethodSource("invalidSlugs")
     void createCategory_withInvalidSlug_shouldReturnBadRequest(String slug) {
@@ -358,16 +418,19 @@ class CategoryControllerTest {
         final String expectedSlug = "some-slug";
         final String expectedName = "Some Name";
         final String expectedDescription = "Some Description";
-        final var dto = new CategoryDTO(expectedSlug, expectedName, expectedDescription);
-        when(categoryService.findCategoryBySlug(expectedSlug)).thenReturn(dto);
+        final var dto = new CategoryDTO(expectedSlug, expectedName, expectedDescription, 3L, 5L);
+        when(categoryService.findTaggedCategoryBySlug(expectedSlug)).thenReturn(new Tagged<>(VERSION, dto));
         restTestClient.get().uri("/api/categories/" + expectedSlug)
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", VERSION.etag())
                 .expectBody()
                 .jsonPath("$.slug").isEqualTo(expectedSlug)
                 .jsonPath("$.name").isEqualTo(expectedName)
-                .jsonPath("$.description").isEqualTo(expectedDescription);
+                .jsonPath("$.description").isEqualTo(expectedDescription)
+                .jsonPath("$.productCount").isEqualTo(3)
+                .jsonPath("$.subtreeProductCount").isEqualTo(5);
     }
 
     @Test
@@ -376,14 +439,437 @@ class CategoryControllerTest {
         final String expectedName = "Some Name";
         final String expectedDescription = "Some Description";
         final var dto = new CategoryDTO(expectedSlug, expectedName, expectedDescription);
-        when(categoryService.findCategoryBySlug(expectedSlug)).thenReturn(dto);
+        when(categoryService.findTaggedCategoryBySlug(expectedSlug)).thenReturn(new Tagged<>(VERSION, dto));
         restTestClient.get().uri("/api/categories/" + expectedSlug)
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", VERSION.etag())
                 .expectBody()
                 .jsonPath("$.slug").isEqualTo(expectedSlug)
                 .jsonPath("$.name").isEqualTo(expectedName)
                 .jsonPath("$.description").isEqualTo(expectedDescription);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findCategoryBySlug_withMatchingETag_shouldReturnNotModified() {
+        when(categoryService.findCategoryVersion("some-parent-slug/some-child-slug")).thenReturn(VERSION);
+        restTestClient.get().uri("/api/categories/some-parent-slug/some-child-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", VERSION.etag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        verify(categoryService, never()).findTaggedCategoryBySlug(any());
+    }
+
+    @Test
+    void findCategoryBySlug_withDescendantsSuffix_shouldReturnDescendants() {
+        final var descendants = List.of(
+                new CategoryDTO("some-parent-slug/some-child-slug", "Some Child", "Some child description"),
+                new CategoryDTO("some-parent-slug/some-child-slug/some-grandchild-slug", "Some Grandchild", "Some grandchild description"));
+        when(categoryService.findDescendantsBySlug("some-parent-slug")).thenReturn(descendants);
+        restTestClient.get().uri("/api/categories/some-parent-slug/descendants")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].slug").isEqualTo("some-parent-slug/some-child-slug")
+                .jsonPath("$[1].slug").isEqualTo("some-parent-slug/some-child-slug/some-grandchild-slug");
+    }
+
+    @Test
+    void findCategoryBySlug_withAncestorsSuffix_shouldReturnAncestors() {
+        final var ancestors = List.of(new CategoryDTO("some-parent-slug", "Some Parent", "Some parent description"));
+        when(categoryService.findAncestorsBySlug("some-parent-slug/some-child-slug")).thenReturn(ancestors);
+        restTestClient.get().uri("/api/categories/some-parent-slug/some-child-slug/ancestors")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].slug").isEqualTo("some-parent-slug")
+                .jsonPath("$[0].name").isEqualTo("Some Parent");
+    }
+
+    @Test
+    void findCategoryBySlug_withUnknownSlugAndDescendantsSuffix_shouldReturnNotFound() {
+        when(categoryService.findDescendantsBySlug("some-unknown-slug")).thenThrow(new NotFoundException());
+        restTestClient.get().uri("/api/categories/some-unknown-slug/descendants")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findCategoryTree_shouldReturnNestedTreeWithETag() {
+        final var tree = List.of(new CategoryNodeDTO("some-parent-slug", "Some Parent", 1, 3,
+                List.of(new CategoryNodeDTO("some-parent-slug/some-child-slug", "Some Child", 2, 2, null))));
+        when(categoryService.findCategoryTreeVersion()).thenReturn(42L);
+        when(categoryService.findCategoryTree(2)).thenReturn(new Versioned<>(42L, tree));
+        restTestClient.get().uri("/api/categories?depth=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"2a\"")
+                .expectBody()
+                .jsonPath("$[0].slug").isEqualTo("some-parent-slug")
+                .jsonPath("$[0].productCount").isEqualTo(1)
+                .jsonPath("$[0].subtreeProductCount").isEqualTo(3)
+                .jsonPath("$[0].children[0].slug").isEqualTo("some-parent-slug/some-child-slug")
+                .jsonPath("$[0].children[0].children").doesNotExist();
+    }
+
+    @Test
+    void findCategoryTree_withMatchingETag_shouldReturnNotModified() {
+        when(categoryService.findCategoryTreeVersion()).thenReturn(42L);
+        restTestClient.get().uri("/api/categories")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", "\"2a\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        verify(categoryService, never()).findCategoryTree(any());
+    }
+
+    @Test
+    void findCategoryTree_withNegativeDepth_shouldReturnBadRequest() {
+        restTestClient.get().uri("/api/categories?depth=-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void findCategoryBySlug_withExpandChildren_shouldReturnSubtree() {
+        final var subtree = new CategoryNodeDTO("some-parent-slug", "Some Parent", 0, 0,
+                List.of(new CategoryNodeDTO("some-parent-slug/some-child-slug", "Some Child", 0, 0, List.of())));
+        when(categoryService.findCategorySubtreeVersion("some-parent-slug")).thenReturn(42L);
+        when(categoryService.findCategorySubtreeBySlug("some-parent-slug", 2)).thenReturn(new Versioned<>(42L, subtree));
+        restTestClient.get().uri("/api/categories/some-parent-slug?expand=children&depth=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"2a\"")
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("some-parent-slug")
+                .jsonPath("$.children[0].slug").isEqualTo("some-parent-slug/some-child-slug")
+                .jsonPath("$.children[0].children.length()").isEqualTo(0);
+    }
+
+    @Test
+    void findCategoryBySlug_withExpandChildrenAndMatchingETag_shouldReturnNotModified() {
+        when(categoryService.findCategorySubtreeVersion("some-parent-slug")).thenReturn(42L);
+        restTestClient.get().uri("/api/categories/some-parent-slug?expand=children")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", "\"2a\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        verify(categoryService, never()).findCategorySubtreeBySlug(any(), any());
+    }
+
+    @Test
+    void findCategoryBySlug_withExpandChildrenAndUnknownSlug_shouldReturnNotFoundDespiteMatchingETag() {
+        when(categoryService.findCategorySubtreeVersion("some-unknown-slug")).thenThrow(new NotFoundException());
+        restTestClient.get().uri("/api/categories/some-unknown-slug?expand=children")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", "\"2a\"")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void findCategoryBySlug_withProductsSuffix_shouldReturnSliceOfProducts() {
+        final var slice = new SliceDTO<>(List.of(new ProductDTO("some-brand", "some-parent-slug/some-child-slug", "some-product", "Some Product", "")), "some-cursor");
+        when(productService.findProductsByCategorySlug("some-parent-slug", "some-previous-cursor", 1)).thenReturn(slice);
+        restTestClient.get().uri("/api/categories/some-parent-slug/products?after=some-previous-cursor&limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(1)
+                .jsonPath("$.items[0].slug").isEqualTo("some-product")
+                .jsonPath("$.items[0].categorySlug").isEqualTo("some-parent-slug/some-child-slug")
+                .jsonPath("$.next").isEqualTo("some-cursor");
+    }
+
+    @Test
+    void findCategoryBySlug_withProductsSuffixAndInvalidLimit_shouldReturnBadRequest() {
+        restTestClient.get().uri("/api/categories/some-parent-slug/products?limit=101")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void findCategoryBySlug_withProductsSuffixAndInvalidCursor_shouldReturnBadRequest() {
+        when(productService.findProductsByCategorySlug("some-parent-slug", "invalid", 20)).thenThrow(new InvalidCursorException());
+        restTestClient.get().uri("/api/categories/some-parent-slug/products?after=invalid")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Invalid cursor");
+    }
+
+    @Test
+    void moveCategory_withValidParentSlug_shouldReturnMovedCategory() {
+        final var request = new CategoryMoveDTO("other-parent-slug");
+        when(categoryService.moveCategory("some-parent-slug/some-child-slug", request))
+                .thenReturn(new CategoryDTO("other-parent-slug/some-child-slug", "Some Child", "Some child description"));
+        restTestClient.post().uri("/api/categories/some-parent-slug/some-child-slug/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("other-parent-slug/some-child-slug");
+    }
+
+    @Test
+    void moveCategory_withInvalidParentSlug_shouldReturnBadRequest() {
+        restTestClient.post().uri("/api/categories/some-slug/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryMoveDTO("Not A Slug"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].pointer").isEqualTo("#/parentSlug");
+    }
+
+    @Test
+    void moveCategory_belowItself_shouldReturnBadRequest() {
+        final var request = new CategoryMoveDTO("some-slug/some-child-slug");
+        when(categoryService.moveCategory("some-slug", request)).thenThrow(new CategoryCycleException());
+        restTestClient.post().uri("/api/categories/some-slug/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].detail").isEqualTo("Category cannot be moved below itself")
+                .jsonPath("$.errors[0].pointer").isEqualTo("#/parentSlug");
+    }
+
+    @Test
+    void positionCategory_withBefore_shouldReturnCategory() {
+        final var request = new CategoryPositionDTO("some-parent-slug/other-child-slug", null);
+        when(categoryService.positionCategory("some-parent-slug/some-child-slug", request))
+                .thenReturn(new CategoryDTO("some-parent-slug/some-child-slug", "Some Child", "Some child description"));
+        restTestClient.put().uri("/api/categories/some-parent-slug/some-child-slug/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("some-parent-slug/some-child-slug");
+    }
+
+    @Test
+    void positionCategory_withBeforeAndAfter_shouldReturnBadRequest() {
+        final var request = new CategoryPositionDTO("some-slug-a", "some-slug-b");
+        when(categoryService.positionCategory("some-slug", request)).thenThrow(new InvalidCategoryPositionException());
+        restTestClient.put().uri("/api/categories/some-slug/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Exactly one of before and after must be set");
+    }
+
+    @Test
+    void positionCategory_withReferenceInOtherParent_shouldReturnBadRequest() {
+        final var request = new CategoryPositionDTO(null, "other-slug/child");
+        when(categoryService.positionCategory("some-slug", request)).thenThrow(new CategoryNotSiblingException());
+        restTestClient.put().uri("/api/categories/some-slug/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Reference category is not a sibling");
+    }
+
+    @Test
+    void positionCategory_withInvalidReferenceSlug_shouldReturnBadRequest() {
+        restTestClient.put().uri("/api/categories/some-slug/position")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryPositionDTO("Not A Slug", null))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].pointer").isEqualTo("#/before");
+    }
+
+    @Test
+    void putCategoryAction_withUnknownAction_shouldReturnNotFound() {
+        restTestClient.put().uri("/api/categories/some-slug/unknown")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryPositionDTO("other-slug", null))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void moveCategory_withoutBody_shouldReturnBadRequest() {
+        restTestClient.post().uri("/api/categories/some-slug/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(categoryService, never()).moveCategory(any(), any());
+    }
+
+    @Test
+    void moveCategory_withTextBody_shouldReturnUnsupportedMediaType() {
+        restTestClient.post().uri("/api/categories/some-slug/move")
+                .contentType(MediaType.TEXT_PLAIN)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("other-slug")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        verify(categoryService, never()).moveCategory(any(), any());
+        verify(categoryMergeService, never()).mergeCategory(any(), any());
+    }
+
+    @Test
+    void postCategory_withUnknownActionAndNoBody_shouldReturnBadRequest() {
+        restTestClient.post().uri("/api/categories/some-slug/unknown")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(categoryMergeService, never()).mergeCategory(any(), any());
+    }
+
+    @Test
+    void mergeCategory_withNestedSlugs_shouldReturnTarget() {
+        when(categoryMergeService.mergeCategory("some-parent-slug/some-child-slug", "other-parent-slug/other-child-slug"))
+                .thenReturn(new CategoryDTO("other-parent-slug/other-child-slug", "Other Child", "", 3L, 5L));
+        restTestClient.post().uri("/api/categories/some-parent-slug/some-child-slug?merge-into=other-parent-slug/other-child-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("other-parent-slug/other-child-slug")
+                .jsonPath("$.subtreeProductCount").isEqualTo(5);
+    }
+
+    @Test
+    void mergeCategory_withBody_shouldStillMerge() {
+        when(categoryMergeService.mergeCategory("some-slug", "other-slug")).thenReturn(new CategoryDTO("other-slug", "Other", "", 0L, 0L));
+        restTestClient.post().uri("/api/categories/some-slug?merge-into=other-slug")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryMoveDTO(null))
+                .exchange()
+                .expectStatus().isOk();
+        verify(categoryService, never()).moveCategory(any(), any());
+    }
+
+    @Test
+    void mergeCategory_intoDescendant_shouldReturnBadRequest() {
+        when(categoryMergeService.mergeCategory("some-slug", "some-slug/some-child-slug")).thenThrow(new InvalidCategoryMergeException());
+        restTestClient.post().uri("/api/categories/some-slug?merge-into=some-slug/some-child-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Category cannot be merged into itself or its descendants");
+    }
+
+    @Test
+    void mergeCategory_withUnknownTarget_shouldReturnNotFound() {
+        when(categoryMergeService.mergeCategory("some-slug", "some-unknown-slug")).thenThrow(new NotFoundException());
+        restTestClient.post().uri("/api/categories/some-slug?merge-into=some-unknown-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void postCategoryAction_withUnknownAction_shouldReturnNotFound() {
+        restTestClient.post().uri("/api/categories/some-slug/unknown")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategoryMoveDTO(null))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void importCategories_shouldReturnResultPerNode() {
+        final var request = List.of(new CategoryImportDTO("some-slug", "Some Category", "", null,
+                List.of(new CategoryImportDTO("some-child-slug", "Some Child", "", 1, null))));
+        when(categoryImportService.importCategories(request)).thenReturn(List.of(
+                CategoryImportResultDTO.created("some-slug"),
+                CategoryImportResultDTO.failed("some-slug/some-child-slug", "Name already exists")));
+        restTestClient.post().uri("/api/categories/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].slug").isEqualTo("some-slug")
+                .jsonPath("$[0].status").isEqualTo("CREATED")
+                .jsonPath("$[0].detail").doesNotExist()
+                .jsonPath("$[1].status").isEqualTo("FAILED")
+                .jsonPath("$[1].detail").isEqualTo("Name already exists");
+    }
+
+    @Test
+    void findCategoryBySlug_withRetiredSlug_shouldRedirectPermanently() {
+        when(slugRedirects.find(SlugType.CATEGORY, "old-parent/child")).thenReturn(Optional.of("new-parent/child"));
+        restTestClient.get().uri("/api/categories/old-parent/child?expand=children&depth=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MOVED_PERMANENTLY)
+                .expectHeader().location("http://localhost/api/categories/new-parent/child?expand=children&depth=1");
+        verify(categoryService, never()).findCategorySubtreeBySlug(any(), any());
+    }
+
+    @Test
+    void findProductsByCategorySlug_withRetiredSlug_shouldRedirectPermanently() {
+        when(slugRedirects.find(SlugType.CATEGORY, "old-parent/child")).thenReturn(Optional.of("new-parent/child"));
+        restTestClient.get().uri("/api/categories/old-parent/child/products?limit=5")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MOVED_PERMANENTLY)
+                .expectHeader().location("http://localhost/api/categories/new-parent/child/products?limit=5");
+    }
+
+    @Test
+    void changeCategorySlug_shouldReturnCategory() {
+        when(categoryService.changeCategorySlug("some-parent/old-child", new CategorySlugChangeDTO("new-child")))
+                .thenReturn(new CategoryDTO("some-parent/new-child", "Child", ""));
+        restTestClient.patch().uri("/api/categories/some-parent/old-child")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategorySlugChangeDTO("new-child"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("some-parent/new-child");
+    }
+
+    @Test
+    void changeCategorySlug_withReservedSegment_shouldReturnBadRequest() {
+        restTestClient.patch().uri("/api/categories/some-parent/old-child")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new CategorySlugChangeDTO("products"))
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(categoryService, never()).changeCategorySlug(any(), any());
+    }
+}
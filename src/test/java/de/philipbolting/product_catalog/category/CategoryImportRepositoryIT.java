@@ -0,0 +1,82 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({ContainersConfig.class, CategoryImportRepository.class})
+@Testcontainers
+class CategoryImportRepositoryIT {
+
+    @Autowired
+    CategoryImportRepository categoryImportRepository;
+
+    @Autowired
+    CategoryTreeRepository categoryTreeRepository;
+
+    @Autowired
+    CategoryClosureRepository categoryClosureRepository;
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void insertAll_shouldDerivePathsAndClosures() {
+        final var ids = categoryImportRepository.nextIds(2);
+        categoryImportRepository.insertAll(List.of(
+                new CategoryImportRepository.Row(ids.get(0), 5L, 3, "category-2-1-3", "Category 2.1.3", ""),
+                new CategoryImportRepository.Row(ids.get(1), ids.get(0), 1, "category-2-1-3-1", "Category 2.1.3.1", "")), Instant.now());
+        categoryImportRepository.insertClosures(ids);
+
+        final var leaf = categoryTreeRepository.findById(ids.get(1)).orElseThrow();
+        assertEquals("category-2/category-2-1/category-2-1-3/category-2-1-3-1", leaf.getSlug());
+        assertArrayEquals(new int[]{2, 1, 3, 1}, leaf.getSortPath());
+        assertEquals(List.of("category-2", "category-2/category-2-1", "category-2/category-2-1/category-2-1-3"),
+                categoryClosureRepository.findAncestors(ids.get(1)).stream().map(CategoryDTO::slug).toList());
+        assertEquals(5, categoryClosureRepository.findDescendants(2L).size());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void insertAll_withLargeTaxonomy_shouldFinishInSeconds() {
+        final var ids = categoryImportRepository.nextIds(100_000);
+        final var rows = new ArrayList<CategoryImportRepository.Row>(ids.size());
+        for (var i = 0; i < ids.size(); i++) {
+            final Long parentId = i < 100 ? null : i < 10_000 ? ids.get(i / 100 - 1) : ids.get(i / 10 + 99 - 1000);
+            rows.add(new CategoryImportRepository.Row(ids.get(i), parentId, i % 100, "bulk-" + i, "Bulk " + i, ""));
+        }
+
+        assertTimeout(Duration.ofSeconds(30), () -> {
+            categoryImportRepository.insertAll(rows, Instant.now());
+            categoryImportRepository.insertClosures(ids);
+        });
+
+        assertEquals(2, categoryTreeRepository.findById(ids.getLast()).orElseThrow().getDepth());
+        assertEquals(2, categoryClosureRepository.findAncestors(ids.getLast()).size());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void findExisting_shouldOnlyReturnCategoriesThatExist() {
+        assertEquals(Set.of("category-2/category-2-1"),
+                categoryImportRepository.findExistingSlugs(List.of("category-2/category-2-1", "category-2/missing")));
+        assertEquals(Set.of(new CategoryImportRepository.ChildName(0L, "Category 1"), new CategoryImportRepository.ChildName(5L, "Category 2.1.2")),
+                categoryImportRepository.findExistingNames(List.of(
+                        new CategoryImportRepository.ChildName(0L, "Category 1"),
+                        new CategoryImportRepository.ChildName(0L, "Category 2.1"),
+                        new CategoryImportRepository.ChildName(5L, "Category 2.1.2"))));
+        assertEquals(Map.of(0L, 2, 5L, 2), categoryImportRepository.findLastSortOrders(List.of(0L, 5L, 7L)));
+    }
+}
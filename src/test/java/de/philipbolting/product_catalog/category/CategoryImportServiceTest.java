@@ -0,0 +1,186 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryImportServiceTest {
+
+    private CategoryImportService categoryImportService;
+    @Mock
+    private CategoryImportRepository categoryImportRepository;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+    @Mock
+    private CategoryLocks categoryLocks;
+    @Mock
+    private SlugRedirects slugRedirects;
+    @Mock
+    private SuggestIndex suggestIndex;
+
+    private final CategoryTree existing = new CategoryTree(1L, null, "Existing", "existing", new int[]{1}, 0);
+    private final CategoryTree existingChild = new CategoryTree(2L, 1L, "Existing Child", "existing/child", new int[]{1, 1}, 1);
+
+    @BeforeEach
+    void setUp() {
+        categoryImportService = new CategoryImportService(categoryImportRepository, categoryRepository, categoryTreeCache, categoryLocks, slugRedirects,
+                Validation.buildDefaultValidatorFactory().getValidator(), suggestIndex);
+        when(categoryTreeCache.snapshot()).thenReturn(CategorySlugTrie.of(List.of(existing, existingChild)));
+    }
+
+    private static CategoryImportDTO node(String slug, String name, CategoryImportDTO... children) {
+        return new CategoryImportDTO(slug, name, "", null, List.of(children));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CategoryImportRepository.Row> insertedRows() {
+        final ArgumentCaptor<List<CategoryImportRepository.Row>> captor = ArgumentCaptor.forClass(List.class);
+        verify(categoryImportRepository).insertAll(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    @Test
+    void importCategories_withNestedTree_shouldInsertParentsBeforeChildren() {
+        when(categoryImportRepository.nextIds(3)).thenReturn(List.of(10L, 11L, 12L));
+        final var results = categoryImportService.importCategories(List.of(
+                node("root", "Root",
+                        node("child", "Child",
+                                node("grandchild", "Grandchild")))));
+
+        assertEquals(List.of(
+                CategoryImportResultDTO.created("root"),
+                CategoryImportResultDTO.created("root/child"),
+                CategoryImportResultDTO.created("root/child/grandchild")), results);
+        assertEquals(List.of(
+                new CategoryImportRepository.Row(10L, null, 1024, "root", "Root", ""),
+                new CategoryImportRepository.Row(11L, 10L, 1024, "child", "Child", ""),
+                new CategoryImportRepository.Row(12L, 11L, 1024, "grandchild", "Grandchild", "")), insertedRows());
+        verify(categoryImportRepository).insertClosures(List.of(10L, 11L, 12L));
+        verify(categoryTreeCache).refreshAfterCommit();
+    }
+
+    @Test
+    void importCategories_withFlatListInAnyOrder_shouldResolveParentsFromBatchAndCache() {
+        when(categoryImportRepository.nextIds(3)).thenReturn(List.of(10L, 11L, 12L));
+        final var results = categoryImportService.importCategories(List.of(
+                node("new/child", "New Child"),
+                node("existing/other", "Other"),
+                node("new", "New")));
+
+        assertEquals(List.of(
+                CategoryImportResultDTO.created("new/child"),
+                CategoryImportResultDTO.created("existing/other"),
+                CategoryImportResultDTO.created("new")), results);
+        assertEquals(List.of(
+                new CategoryImportRepository.Row(10L, null, 1024, "new", "New", ""),
+                new CategoryImportRepository.Row(11L, 10L, 1024, "child", "New Child", ""),
+                new CategoryImportRepository.Row(12L, 1L, 1024, "other", "Other", "")), insertedRows());
+    }
+
+    @Test
+    void importCategories_withConflicts_shouldReportFailuresPerNode() {
+        when(categoryImportRepository.findExistingSlugs(any())).thenReturn(Set.of("existing/child"));
+        when(categoryImportRepository.findExistingNames(any())).thenReturn(Set.of(new CategoryImportRepository.ChildName(1L, "Existing Child")));
+        when(categoryImportRepository.nextIds(1)).thenReturn(List.of(10L));
+        final var results = categoryImportService.importCategories(List.of(
+                node("existing/child", "Duplicate Slug"),
+                node("existing/other", "Existing Child"),
+                node("missing/child", "Missing Parent"),
+                node("Invalid Slug", "Invalid"),
+                node("fresh", "Fresh"),
+                node("fresh", "Fresh Again")));
+
+        assertEquals(List.of(
+                CategoryImportResultDTO.failed("existing/child", "Slug already exists"),
+                CategoryImportResultDTO.failed("existing/other", "Name already exists"),
+                CategoryImportResultDTO.failed("missing/child", "Parent slug does not exist"),
+                results.get(3),
+                CategoryImportResultDTO.created("fresh"),
+                CategoryImportResultDTO.failed("fresh", "Slug already exists")), results);
+        assertEquals(CategoryImportResultDTO.Status.FAILED, results.get(3).status());
+        assertEquals(1, insertedRows().size());
+    }
+
+    @Test
+    void importCategories_withFailedParent_shouldFailChildren() {
+        final var results = categoryImportService.importCategories(List.of(
+                node("broken", "",
+                        node("child", "Child"))));
+        assertEquals(CategoryImportResultDTO.Status.FAILED, results.get(0).status());
+        assertEquals(CategoryImportResultDTO.failed("broken/child", "Parent slug does not exist"), results.get(1));
+        verify(categoryImportRepository, never()).insertAll(any(), any());
+    }
+
+    @Test
+    void importCategories_withDuplicateNamesInBatch_shouldOnlyCreateFirst() {
+        when(categoryImportRepository.nextIds(3)).thenReturn(List.of(10L, 11L, 12L));
+        final var results = categoryImportService.importCategories(List.of(
+                node("parent", "Parent",
+                        node("a", "Same"),
+                        node("b", "Same"),
+                        node("c", "Other"))));
+        assertEquals(CategoryImportResultDTO.failed("parent/b", "Name already exists"), results.get(2));
+        assertEquals(List.of(
+                new CategoryImportRepository.Row(10L, null, 1024, "parent", "Parent", ""),
+                new CategoryImportRepository.Row(11L, 10L, 1024, "a", "Same", ""),
+                new CategoryImportRepository.Row(12L, 10L, 3072, "c", "Other", "")), insertedRows());
+    }
+
+    @Test
+    void importCategories_withClashOnlyInDatabase_shouldReportFailure() {
+        when(categoryImportRepository.findExistingSlugs(List.of("existing/new", "existing/other")))
+                .thenReturn(Set.of("existing/new"));
+        when(categoryImportRepository.findExistingNames(List.of(
+                new CategoryImportRepository.ChildName(1L, "New"), new CategoryImportRepository.ChildName(1L, "Other"))))
+                .thenReturn(Set.of(new CategoryImportRepository.ChildName(1L, "Other")));
+        final var results = categoryImportService.importCategories(List.of(
+                node("existing/new", "New"),
+                node("existing/other", "Other")));
+        assertEquals(List.of(
+                CategoryImportResultDTO.failed("existing/new", "Slug already exists"),
+                CategoryImportResultDTO.failed("existing/other", "Name already exists")), results);
+        verify(categoryImportRepository, never()).insertAll(any(), any());
+    }
+
+    @Test
+    void importCategories_withExistingSiblings_shouldAppendAfterThem() {
+        when(categoryImportRepository.nextIds(3)).thenReturn(List.of(10L, 11L, 12L));
+        when(categoryImportRepository.findLastSortOrders(Set.of(0L, 1L))).thenReturn(new HashMap<>(Map.of(0L, 1024, 1L, 5000)));
+        categoryImportService.importCategories(List.of(
+                node("existing/a", "A"),
+                node("existing/b", "B"),
+                node("root", "Root")));
+        assertEquals(List.of(
+                new CategoryImportRepository.Row(10L, null, 2048, "root", "Root", ""),
+                new CategoryImportRepository.Row(11L, 1L, 6024, "a", "A", ""),
+                new CategoryImportRepository.Row(12L, 1L, 7048, "b", "B", "")), insertedRows());
+    }
+
+    @Test
+    void importCategories_withFullSortOrderRange_shouldRespaceSiblingsFirst() {
+        when(categoryImportRepository.nextIds(1)).thenReturn(List.of(10L));
+        when(categoryImportRepository.findLastSortOrders(Set.of(1L))).thenReturn(new HashMap<>(Map.of(1L, Integer.MAX_VALUE - 10)));
+        when(categoryRepository.findLastSortOrder(1L)).thenReturn(2048);
+        categoryImportService.importCategories(List.of(node("existing/a", "A")));
+        verify(categoryRepository).respaceSortOrders(1L, 1024, 0L);
+        assertEquals(3072, insertedRows().getFirst().sortOrder());
+    }
+}
@@ -0,0 +1,92 @@
+package de.philipbolting.product_catalog.category;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryLocksTest {
+
+    @InjectMocks
+    private CategoryLocks categoryLocks;
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void lockChildrenOf_withoutTransaction_shouldThrowException() {
+        assertThrows(IllegalStateException.class, () -> categoryLocks.lockChildrenOf(List.of(1L)));
+        verifyNoInteractions(categoryRepository);
+    }
+
+    @Test
+    void lockChildrenOf_shouldTakeOneAdvisoryLockPerParentInOrder() {
+        TransactionSynchronizationManager.initSynchronization();
+        categoryLocks.lockChildrenOf(Arrays.asList(7L, null, 3L, 7L));
+        final var inOrder = inOrder(categoryRepository);
+        inOrder.verify(categoryRepository).lockAdvisory(anyInt(), eq(0));
+        inOrder.verify(categoryRepository).lockAdvisory(anyInt(), eq(3));
+        inOrder.verify(categoryRepository).lockAdvisory(anyInt(), eq(7));
+        verifyNoMoreInteractions(categoryRepository);
+        completeTransaction();
+    }
+
+    @Test
+    void lockChildrenOf_shouldBlockSameParentUntilTransactionCompletes() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        categoryLocks.lockChildrenOf(List.of(1L));
+
+        final var sameParent = CompletableFuture.runAsync(() -> lockInOwnTransaction(1L));
+        final var otherParent = CompletableFuture.runAsync(() -> lockInOwnTransaction(findParentInOtherStripe()));
+        otherParent.get(5, TimeUnit.SECONDS);
+        assertThrows(TimeoutException.class, () -> sameParent.get(200, TimeUnit.MILLISECONDS));
+
+        completeTransaction();
+        sameParent.get(5, TimeUnit.SECONDS);
+    }
+
+    private void lockInOwnTransaction(long parentId) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            categoryLocks.lockChildrenOf(List.of(parentId));
+            completeTransaction();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void completeTransaction() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private static long findParentInOtherStripe() {
+        final var stripe = Fingerprints.of(1L) & 255;
+        var parentId = 2L;
+        while ((Fingerprints.of(parentId) & 255) == stripe) {
+            parentId++;
+        }
+        return parentId;
+    }
+}
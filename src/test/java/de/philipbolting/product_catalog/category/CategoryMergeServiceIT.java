@@ -0,0 +1,127 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.error.InvalidCategoryMergeException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(properties = "product-catalog.category-merge.products-per-transaction=1000")
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class CategoryMergeServiceIT {
+
+    @Autowired
+    private CategoryMergeService categoryMergeService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private CategoryProductCountCache categoryProductCountCache;
+
+    @Autowired
+    private CategoryTreeRepository categoryTreeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void mergeCategory_withoutCollisions_shouldMoveProductsAndChildren() {
+        categoryTreeCache.refresh();
+        categoryMergeService.mergeCategory("category-2/category-2-1", "category-1");
+
+        assertTrue(categoryTreeRepository.findBySlug("category-2/category-2-1").isEmpty());
+        assertEquals(List.of(2L, 7L), productIdsIn(1L));
+        assertEquals(1L, categoryTreeRepository.findBySlug("category-1/category-2-1-1").orElseThrow().getParentId());
+        assertEquals(1L, categoryTreeRepository.findBySlug("category-1/category-2-1-2").orElseThrow().getParentId());
+        categoryProductCountCache.refresh();
+        assertEquals(6L, categoryService.findCategoryBySlug("category-1").subtreeProductCount());
+        assertEquals(1L, categoryService.findCategoryBySlug("category-2").subtreeProductCount());
+        assertEquals(List.of(1L, 3L, 4L, 6L, 7L), descendantIdsOf(1L));
+    }
+
+    @Test
+    void mergeCategory_withSlugCollision_shouldMergeChildrenRecursively() {
+        categoryTreeCache.refresh();
+        final var existing = categoryService.createCategory(new CategoryDTO("category-1/category-2-1", "Existing", ""));
+        final var existingId = categoryTreeRepository.findBySlug(existing.slug()).orElseThrow().getId();
+
+        categoryMergeService.mergeCategory("category-2", "category-1");
+
+        assertTrue(categoryTreeRepository.findBySlug("category-2").isEmpty());
+        assertTrue(categoryTreeRepository.findById(5L).isEmpty());
+        assertEquals(List.of(2L, 7L), productIdsIn(existingId));
+        assertEquals(existingId, categoryTreeRepository.findBySlug("category-1/category-2-1/category-2-1-1").orElseThrow().getParentId());
+        assertEquals(existingId, categoryTreeRepository.findBySlug("category-1/category-2-1/category-2-1-2").orElseThrow().getParentId());
+        categoryProductCountCache.refresh();
+        assertEquals(7L, categoryService.findCategoryBySlug("category-1").subtreeProductCount());
+    }
+
+    @Test
+    void mergeCategory_withNameCollision_shouldMergeIntoSameNamedChild() {
+        categoryTreeCache.refresh();
+        categoryService.createCategory(new CategoryDTO("category-1/other", "Category 2.1", ""));
+        final var otherId = categoryTreeRepository.findBySlug("category-1/other").orElseThrow().getId();
+
+        categoryMergeService.mergeCategory("category-2", "category-1");
+
+        assertTrue(categoryTreeRepository.findById(5L).isEmpty());
+        assertEquals(List.of(2L, 7L), productIdsIn(otherId));
+        assertEquals(otherId, categoryTreeRepository.findBySlug("category-1/other/category-2-1-1").orElseThrow().getParentId());
+    }
+
+    @Test
+    void mergeCategory_intoDescendant_shouldThrow() {
+        categoryTreeCache.refresh();
+        assertThrows(InvalidCategoryMergeException.class, () -> categoryMergeService.mergeCategory("category-2", "category-2/category-2-1"));
+        assertThrows(InvalidCategoryMergeException.class, () -> categoryMergeService.mergeCategory("category-2", "category-2"));
+        assertTrue(categoryTreeRepository.findById(2L).isPresent());
+    }
+
+    @Test
+    void mergeCategory_withManyProducts_shouldMoveAllInChunks() {
+        jdbcTemplate.update("""
+                INSERT INTO product (id, brand_id, category_id, slug, name)
+                SELECT nextval('seq_product'), 1, 6, 'bulk-' || i, 'Bulk ' || i
+                FROM generate_series(1, 20000) i
+                """);
+        categoryTreeCache.refresh();
+
+        categoryMergeService.mergeCategory("category-2/category-2-1/category-2-1-1", "category-1/category-1-1");
+
+        assertTrue(categoryTreeRepository.findById(6L).isEmpty());
+        assertEquals(20003, countProductsIn(3L));
+        categoryProductCountCache.refresh();
+        assertEquals(20003L, categoryService.findCategoryBySlug("category-1").subtreeProductCount());
+        assertEquals(4L, categoryService.findCategoryBySlug("category-2").subtreeProductCount());
+    }
+
+    private List<Long> productIdsIn(long categoryId) {
+        return jdbcTemplate.queryForList("SELECT id FROM product WHERE category_id = ? ORDER BY id", Long.class, categoryId);
+    }
+
+    private int countProductsIn(long categoryId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM product WHERE category_id = ?", Integer.class, categoryId);
+    }
+
+    private List<Long> descendantIdsOf(long categoryId) {
+        return jdbcTemplate.queryForList("SELECT descendant_id FROM category_closure WHERE ancestor_id = ? ORDER BY descendant_id",
+                Long.class, categoryId);
+    }
+}
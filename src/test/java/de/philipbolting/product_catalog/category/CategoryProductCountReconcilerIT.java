@@ -0,0 +1,79 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(properties = "product-catalog.category-product-count.categories-per-transaction=2")
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class CategoryProductCountReconcilerIT {
+
+    @Autowired
+    private CategoryProductCountReconciler categoryProductCountReconciler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void reconcile_shouldCorrectDriftInEveryChunk() {
+        jdbcTemplate.update("UPDATE category_product_count SET subtree_product_count = 0 WHERE category_id = 2");
+        jdbcTemplate.update("UPDATE category_product_count SET product_count = 42 WHERE category_id = 6");
+        jdbcTemplate.update("DELETE FROM category_product_count WHERE category_id = 7");
+        assertEquals(3, categoryProductCountReconciler.reconcile());
+        assertCounts(2L, 1, 6);
+        assertCounts(6L, 2, 2);
+        assertCounts(7L, 1, 1);
+        assertEquals(0, categoryProductCountReconciler.reconcile());
+    }
+
+    @Test
+    void reconcile_withConcurrentProductInsert_shouldKeepItsDelta() throws Exception {
+        final var inserted = new CountDownLatch(1);
+        final var commit = new CountDownLatch(1);
+        final var insert = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO product (id, brand_id, category_id, slug, name) VALUES (nextval('seq_product'), 1, 7, 'product-h', 'Product H')");
+            inserted.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(inserted.await(10, TimeUnit.SECONDS));
+        final var reconcile = CompletableFuture.supplyAsync(categoryProductCountReconciler::reconcile);
+        Thread.sleep(200);
+        commit.countDown();
+        insert.get(10, TimeUnit.SECONDS);
+        assertEquals(0, reconcile.get(10, TimeUnit.SECONDS));
+        assertCounts(7L, 2, 2);
+        assertCounts(5L, 2, 6);
+        assertCounts(2L, 1, 7);
+    }
+
+    private void assertCounts(long categoryId, long productCount, long subtreeProductCount) {
+        final var counts = jdbcTemplate.queryForMap("SELECT product_count, subtree_product_count FROM category_product_count WHERE category_id = ?", categoryId);
+        assertEquals(productCount, counts.get("product_count"), "product count of " + categoryId);
+        assertEquals(subtreeProductCount, counts.get("subtree_product_count"), "subtree product count of " + categoryId);
+    }
+}
@@ -0,0 +1,133 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(ContainersConfig.class)
+@Testcontainers
+class CategoryProductCountRepositoryIT {
+
+    @Autowired
+    CategoryProductCountRepository categoryProductCountRepository;
+
+    @Autowired
+    CategoryClosureRepository categoryClosureRepository;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void fixture_shouldMaintainDirectAndSubtreeCounts() {
+        assertCounts(1L, 0, 1);
+        assertCounts(2L, 1, 6);
+        assertCounts(3L, 1, 1);
+        assertCounts(4L, 0, 0);
+        assertCounts(5L, 2, 5);
+        assertCounts(6L, 2, 2);
+        assertCounts(7L, 1, 1);
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void productChanges_shouldAdjustCountsOfAllAncestors() {
+        execute("INSERT INTO product (id, brand_id, category_id, slug, name) VALUES (nextval('seq_product'), 1, 7, 'product-h', 'Product H'), (nextval('seq_product'), 1, 4, 'product-i', 'Product I')");
+        assertCounts(7L, 2, 2);
+        assertCounts(5L, 2, 6);
+        assertCounts(2L, 1, 7);
+        assertCounts(1L, 0, 2);
+
+        execute("UPDATE product SET category_id = 3 WHERE category_id = 6");
+        assertCounts(6L, 0, 0);
+        assertCounts(5L, 2, 4);
+        assertCounts(2L, 1, 5);
+        assertCounts(3L, 3, 3);
+        assertCounts(1L, 0, 4);
+
+        execute("DELETE FROM product WHERE category_id = 3");
+        assertCounts(3L, 0, 0);
+        assertCounts(1L, 0, 1);
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void moveSubtree_shouldCarryProductsToNewAncestors() {
+        categoryClosureRepository.detachSubtree(5L);
+        categoryRepository.updateParent(5L, 1L);
+        categoryClosureRepository.attachSubtree(5L, 1L);
+        assertCounts(2L, 1, 1);
+        assertCounts(1L, 0, 6);
+        assertCounts(5L, 2, 5);
+        assertCounts(6L, 2, 2);
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void reconcile_shouldOnlyCorrectDriftedCounts() {
+        execute("UPDATE category_product_count SET product_count = 42 WHERE category_id = 6");
+        execute("UPDATE category_product_count SET subtree_product_count = 0 WHERE category_id = 2");
+        execute("DELETE FROM category_product_count WHERE category_id = 4");
+        assertEquals(1, categoryProductCountRepository.insertMissing());
+        assertEquals(List.of(1L, 2L, 3L), categoryProductCountRepository.lockChunk(0, 3));
+        assertEquals(1, categoryProductCountRepository.reconcile(0, 3));
+        assertCounts(2L, 1, 6);
+        assertCounts(6L, 42, 2);
+        assertEquals(1, categoryProductCountRepository.reconcile(3, Long.MAX_VALUE));
+        assertCounts(6L, 2, 2);
+        assertCounts(4L, 0, 0);
+        assertEquals(0, categoryProductCountRepository.reconcile(0, Long.MAX_VALUE));
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void findChunkEnd_shouldStepThroughCategoryIds() {
+        assertEquals(3L, categoryProductCountRepository.findChunkEnd(0, 3));
+        assertEquals(6L, categoryProductCountRepository.findChunkEnd(3, 3));
+        assertEquals(7L, categoryProductCountRepository.findChunkEnd(6, 3));
+        assertNull(categoryProductCountRepository.findChunkEnd(7, 3));
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void insertCategory_shouldCreateEmptyCount() {
+        final var parent = categoryRepository.findById(7L).orElseThrow();
+        final var category = categoryRepository.save(new Category(parent, 1, "category-2-1-2-1", "Category 2.1.2.1", ""));
+        entityManager.flush();
+        categoryClosureRepository.insertPaths(category.getId(), parent.getId());
+        assertCounts(category.getId(), 0, 0);
+    }
+
+    private void execute(String sql) {
+        entityManager.createNativeQuery(sql).executeUpdate();
+    }
+
+    private void assertCounts(long categoryId, long productCount, long subtreeProductCount) {
+        entityManager.clear();
+        final var count = categoryProductCountRepository.findById(categoryId).orElseThrow();
+        assertEquals(productCount, count.getProductCount(), "product count of " + categoryId);
+        assertEquals(subtreeProductCount, count.getSubtreeProductCount(), "subtree product count of " + categoryId);
+    }
+}
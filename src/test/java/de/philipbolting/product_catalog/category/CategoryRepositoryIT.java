@@ -16,6 +16,7 @@ import org.springframework.data.auditing.AuditingHandler;
 import org.springframework.data.auditing.DateTimeProvider;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.jdbc.Sql;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.Instant;
@@ -134,4 +135,36 @@ class CategoryRepositoryIT {
             entityManager.flush();
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void findNeighbourSortOrders_shouldSkipExcludedCategoryAndUseSiblingKey() {
+        assertEquals(2, categoryRepository.findLastSortOrder(0L));
+        assertEquals(2, categoryRepository.findLastSortOrder(5L));
+        assertNull(categoryRepository.findLastSortOrder(7L));
+        assertNull(categoryRepository.findPreviousSortOrder(5L, 1, "Category 2.1.1", 7L));
+        assertEquals(1, categoryRepository.findPreviousSortOrder(5L, 2, "Category 2.1.2", 0L));
+        assertNull(categoryRepository.findNextSortOrder(5L, 1, "Category 2.1.1", 7L));
+        assertEquals(2, categoryRepository.findNextSortOrder(0L, 1, "Category 1", 0L));
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void updateSortOrder_shouldRewriteSortPathOfSubtree() {
+        categoryRepository.updateSortOrder(2L, 0);
+        final var categoryTree = entityManager.find(CategoryTree.class, 6L);
+        assertArrayEquals(new int[]{0, 1, 1}, categoryTree.getSortPath());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void respaceSortOrders_shouldSpreadSiblingsInOrder() {
+        assertEquals(2, categoryRepository.respaceSortOrders(5L, 1024, 0L));
+        assertEquals(1024, entityManager.find(CategoryTree.class, 6L).getSortOrder());
+        assertEquals(2048, entityManager.find(CategoryTree.class, 7L).getSortOrder());
+        assertEquals(0, categoryRepository.respaceSortOrders(5L, 1024, 0L));
+        assertEquals(1, categoryRepository.respaceSortOrders(0L, 1024, 2L));
+        assertEquals(1024, entityManager.find(CategoryTree.class, 1L).getSortOrder());
+        assertEquals(2, entityManager.find(CategoryTree.class, 2L).getSortOrder());
+    }
+}
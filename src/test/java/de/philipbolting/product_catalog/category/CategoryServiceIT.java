@@ -0,0 +1,152 @@
+package de.philipbolting.product_catalog.category;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
+import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest
+class CategoryServiceIT {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createCategory_inDifferentBranchesConcurrently_shouldCreateAll() throws Exception {
+        createInDifferentBranchesConcurrently(100);
+    }
+
+    // run with -Dbenchmark=true to print the throughput of concurrent creates, and with
+    // -Dbenchmark.min-creates-per-second=<n> to fail below that floor
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void createCategory_inDifferentBranchesConcurrently_shouldKeepThroughput() throws Exception {
+        final var perThread = 250;
+        final var elapsed = createInDifferentBranchesConcurrently(perThread);
+        final var perSecond = THREADS * perThread * 1e9 / elapsed.toNanos();
+        System.out.printf("created %d categories on %d threads in %d ms, %.0f per second%n",
+                THREADS * perThread, THREADS, elapsed.toMillis(), perSecond);
+        final var floor = Double.parseDouble(System.getProperty("benchmark.min-creates-per-second", "0"));
+        assertTrue(perSecond >= floor, "%.0f creates per second, expected at least %.0f".formatted(perSecond, floor));
+    }
+
+    @Test
+    void createCategory_withSameSlugConcurrently_shouldCreateExactlyOne() throws Exception {
+        final var uuid = UUID.randomUUID().toString();
+        categoryService.createCategory(new CategoryDTO(uuid, "Parent " + uuid, ""));
+        final var results = runConcurrently(thread -> () ->
+                categoryService.createCategory(new CategoryDTO(uuid + "/child", "Child " + thread, "")));
+        assertEquals(1, countSuccesses(results, SlugAlreadyExistsException.class));
+    }
+
+    @Test
+    void createCategory_withSameNameConcurrently_shouldCreateExactlyOne() throws Exception {
+        final var uuid = UUID.randomUUID().toString();
+        categoryService.createCategory(new CategoryDTO(uuid, "Parent " + uuid, ""));
+        final var results = runConcurrently(thread -> () ->
+                categoryService.createCategory(new CategoryDTO(uuid + "/child-" + thread, "Child", "")));
+        assertEquals(1, countSuccesses(results, NameAlreadyExistsException.class));
+    }
+
+    @Test
+    void createCategory_withSameRootSlugConcurrently_shouldCreateExactlyOne() throws Exception {
+        final var uuid = UUID.randomUUID().toString();
+        final var results = runConcurrently(thread -> () ->
+                categoryService.createCategory(new CategoryDTO(uuid, "Root " + uuid + " " + thread, "")));
+        assertEquals(1, countSuccesses(results, SlugAlreadyExistsException.class));
+    }
+
+    private Duration createInDifferentBranchesConcurrently(int perThread) throws Exception {
+        final var uuid = UUID.randomUUID().toString();
+        final var roots = new ArrayList<CategoryDTO>();
+        for (var i = 0; i < THREADS; i++) {
+            roots.add(categoryService.createCategory(new CategoryDTO(uuid + "-" + i, "Branch " + uuid + " " + i, "")));
+        }
+
+        final var started = System.nanoTime();
+        final var results = runConcurrently(thread -> () -> {
+            for (var i = 0; i < perThread; i++) {
+                categoryService.createCategory(new CategoryDTO(roots.get(thread).slug() + "/child-" + i, "Child " + i, ""));
+            }
+            return null;
+        });
+        for (final var result : results) {
+            result.get();
+        }
+        final var elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        // every thread ran to completion without a deadlock, and no sort order was lost or handed out twice
+        for (final var root : roots) {
+            assertEquals(perThread, categoryService.findCategorySubtreeBySlug(root.slug(), 1).value().children().size());
+            final var sortOrders = jdbcTemplate.queryForList("""
+                    SELECT child.sort_order FROM category child INNER JOIN category parent ON parent.id = child.parent_id
+                    WHERE parent.full_slug = ?
+                    """, Integer.class, root.slug());
+            assertEquals(perThread, sortOrders.size());
+            assertEquals(perThread, new HashSet<>(sortOrders).size(), "sort orders of " + root.slug());
+        }
+        return elapsed;
+    }
+
+    private interface Task {
+        Callable<Object> forThread(int thread);
+    }
+
+    private static List<Future<Object>> runConcurrently(Task task) throws InterruptedException {
+        final var start = new CountDownLatch(1);
+        try (final var executor = Executors.newFixedThreadPool(THREADS)) {
+            final var futures = new ArrayList<Future<Object>>();
+            for (var i = 0; i < THREADS; i++) {
+                final var callable = task.forThread(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return callable.call();
+                }));
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+            return futures;
+        }
+    }
+
+    private static long countSuccesses(List<Future<Object>> results, Class<? extends Exception> expectedFailure) throws InterruptedException {
+        var successes = 0L;
+        for (final var result : results) {
+            try {
+                result.get();
+                successes++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(expectedFailure, e.getCause());
+            }
+        }
+        return successes;
+    }
+}
@@ -1,19 +1,29 @@
 package de.philipbolting.product_catalog.category;
 
+import de.philipbolting.product_catalog.error.CategoryCycleException;
+import de.philipbolting.product_catalog.error.CategoryNotSiblingException;
+import de.philipbolting.product_catalog.error.InvalidCategoryPositionException;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
 import de.philipbolting.product_catalog.error.NotFoundException;
 import de.philipbolting.product_catalog.error.ParentCategoryNotFoundException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.product.ProductFacetIndex;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CategoryServiceTest {
@@ -23,25 +33,39 @@ class CategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
     @Mock
+    private SlugRedirects slugRedirects;
+    @Mock
     private CategoryTreeRepository categoryTreeRepository;
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+    @Mock
+    private CategoryClosureRepository categoryClosureRepository;
+    @Mock
+    private CategoryProductCountCache categoryProductCountCache;
+    @Mock
+    private CategoryLocks categoryLocks;
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+    @Mock
+    private SuggestIndex suggestIndex;
 
     @Test
     void createCategory_withDuplicateSlug_shouldThrowException() {
         final var duplicateSlug = "some-parent-slug/some-child-slug";
-        final var duplicateCategory = new CategoryTree(2L, 1L, "Existing Child Category", duplicateSlug, "001001", 1);
+        final var duplicateCategory = new CategoryTree(2L, 1L, "Existing Child Category", duplicateSlug, new int[]{1, 1}, 1);
         final var dto = new CategoryDTO(duplicateSlug, "New Child Category", "Some description");
-        when(categoryTreeRepository.findBySlug(duplicateSlug)).thenReturn(Optional.of(duplicateCategory));
+        when(categoryTreeCache.findBySlug(duplicateSlug)).thenReturn(Optional.of(duplicateCategory));
         assertThrows(SlugAlreadyExistsException.class, () -> categoryService.createCategory(dto));
     }
 
     @Test
     void createCategory_withDuplicateName_shouldThrowException() {
         final var duplicateName = "Some Child Category";
-        final var parentCategory = new CategoryTree(1L, null, "Some Parent Category", "some-parent-slug", "001", 0);
-        final var duplicateCategory = new CategoryTree(2L, 1L, duplicateName, parentCategory.getSlug() + "/existing-child-slug", "001001", 1);
+        final var parentCategory = new CategoryTree(1L, null, "Some Parent Category", "some-parent-slug", new int[]{1}, 0);
+        final var duplicateCategory = new CategoryTree(2L, 1L, duplicateName, parentCategory.getSlug() + "/existing-child-slug", new int[]{1, 1}, 1);
         final var dto = new CategoryDTO(parentCategory.getSlug()  + "/new-child-slug", duplicateName, "Some description");
-        when(categoryTreeRepository.findBySlug(dto.slug())).thenReturn(Optional.empty());
-        when(categoryTreeRepository.findBySlug(parentCategory.getSlug() )).thenReturn(Optional.of(parentCategory));
+        when(categoryTreeCache.findBySlug(dto.slug())).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug(parentCategory.getSlug() )).thenReturn(Optional.of(parentCategory));
         when(categoryTreeRepository.findByParentIdAndName(parentCategory.getId(), dto.name())).thenReturn(Optional.of(duplicateCategory));
         assertThrows(NameAlreadyExistsException.class, () -> categoryService.createCategory(dto));
     }
@@ -50,15 +74,15 @@ class CategoryServiceTest {
     void createCategory_withUnknownParentSlug_shouldThrowException() {
         final var duplicateName = "Some Child Category";
         final var dto = new CategoryDTO("some-parent-slug/new-child-slug", duplicateName, "Some description");
-        when(categoryTreeRepository.findBySlug(dto.slug())).thenReturn(Optional.empty());
-        when(categoryTreeRepository.findBySlug("some-parent-slug")).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug(dto.slug())).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug("some-parent-slug")).thenReturn(Optional.empty());
         assertThrows(ParentCategoryNotFoundException.class, () -> categoryService.createCategory(dto));
     }
 
     @Test
     void createCategory_withUniqueSlugAndName_shouldReturnCategory() {
         final var dto = new CategoryDTO("some-slug", "Some Category", "Some description");
-        when(categoryTreeRepository.findBySlug("some-slug")).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug("some-slug")).thenReturn(Optional.empty());
         when(categoryRepository.save(dto.toCategory())).thenReturn(dto.toCategory());
         var category = categoryService.createCategory(dto);
         assertNotNull(category);
@@ -70,13 +94,13 @@ class CategoryServiceTest {
     @Test
     void createCategory_withParentAndUniqueSlugAndName_shouldReturnCategory() {
         final var parentCategoryId = 123L;
-        final var parentCategoryTree = new CategoryTree(parentCategoryId, null, "Some Parent Category", "some-parent-slug", "001", 0);
+        final var parentCategoryTree = new CategoryTree(parentCategoryId, null, "Some Parent Category", "some-parent-slug", new int[]{1}, 0);
         final var parentCategory = new Category("some-parent-slug", "Some Parent Category", "Some parent description");
         parentCategory.setId(parentCategoryId);
         final var childCategory = new Category(parentCategory, 1,"some-child-slug", "Some Child Category", "Some child description");
         final var dto = new CategoryDTO("some-parent-slug/some-child-slug", "Some Child Category", "Some child description");
-        when(categoryTreeRepository.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.empty());
-        when(categoryTreeRepository.findBySlug("some-parent-slug")).thenReturn(Optional.of(parentCategoryTree));
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug("some-parent-slug")).thenReturn(Optional.of(parentCategoryTree));
         when(categoryTreeRepository.findByParentIdAndName(parentCategoryId, "Some Child Category")).thenReturn(Optional.empty());
         when(categoryRepository.findById(parentCategoryId)).thenReturn(Optional.of(parentCategory));
         when(categoryRepository.save(childCategory)).thenReturn(childCategory);
@@ -85,25 +109,268 @@ class CategoryServiceTest {
         assertEquals("some-parent-slug/some-child-slug", category.slug());
         assertEquals("Some Child Category", category.name());
         assertEquals("Some child description", category.description());
+        verify(categoryClosureRepository).insertPaths(0L, parentCategoryId);
+        verify(categoryTreeCache).putAfterCommit(new CategoryTree(0L, parentCategoryId, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1));
     }
 
     @Test
     void findCategoryBySlug_withExistingSlug_shouldReturnCategory() {
-        final var parentCategory = new Category(null, 1, "some-parent-slug", "Some Parent Category", "Some parent description");
-        final var childCategory = new Category(parentCategory, 1, "some-child-slug", "Some Child Category", "Some child description");
-        final var categoryTreeInfo = new CategoryTree(2L, parentCategory.getId(), "Some Parent Category", "some-parent-slug/some-child-slug", "001", 0);
-        when(categoryTreeRepository.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTreeInfo));
-        when(categoryRepository.findById(categoryTreeInfo.getId())).thenReturn(Optional.of(childCategory));
+        final var categoryTreeInfo = new CategoryTree(2L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1}, 0);
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTreeInfo));
+        when(categoryRepository.findDetailById(2L)).thenReturn(Optional.of(
+                new CategoryDetailRow(2L, null, null, "Some Child Category", "Some child description", 3L, 5L)));
         var category = categoryService.findCategoryBySlug("some-parent-slug/some-child-slug");
         assertNotNull(category);
         assertEquals("some-parent-slug/some-child-slug", category.slug());
         assertEquals("Some Child Category", category.name());
+        assertEquals(3L, category.productCount());
+        assertEquals(5L, category.subtreeProductCount());
         assertEquals("Some child description", category.description());
     }
 
     @Test
     void findCategoryBySlug_withUnknownSlug_shouldThrowCategoryNotFoundException() {
-        when(categoryTreeRepository.findBySlug("some-unknown-slug")).thenThrow(new NotFoundException());
+        when(categoryTreeCache.findBySlug("some-unknown-slug")).thenThrow(new NotFoundException());
         assertThrows(NotFoundException.class, () -> categoryService.findCategoryBySlug("some-unknown-slug"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void findDescendantsBySlug_withExistingSlug_shouldReturnDescendants() {
+        final var categoryTree = new CategoryTree(1L, null, "Some Parent Category", "some-parent-slug", new int[]{1}, 0);
+        final var descendants = List.of(new CategoryDTO("some-parent-slug/some-child-slug", "Some Child Category", "Some child description"));
+        when(categoryTreeCache.findBySlug("some-parent-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryClosureRepository.findDescendants(1L)).thenReturn(descendants);
+        assertEquals(descendants, categoryService.findDescendantsBySlug("some-parent-slug"));
+    }
+
+    @Test
+    void findAncestorsBySlug_withExistingSlug_shouldReturnAncestors() {
+        final var categoryTree = new CategoryTree(2L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        final var ancestors = List.of(new CategoryDTO("some-parent-slug", "Some Parent Category", "Some parent description"));
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryClosureRepository.findAncestors(2L)).thenReturn(ancestors);
+        assertEquals(ancestors, categoryService.findAncestorsBySlug("some-parent-slug/some-child-slug"));
+    }
+
+    @Test
+    void findDescendantsBySlug_withUnknownSlug_shouldThrowNotFoundException() {
+        when(categoryTreeCache.findBySlug("some-unknown-slug")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> categoryService.findDescendantsBySlug("some-unknown-slug"));
+    }
+
+    @Test
+    void findCategoryTree_withDepth_shouldReturnNestedTreeUpToDepth() {
+        final var trie = CategorySlugTrie.of(List.of(
+                new CategoryTree(1L, null, "Category 1", "category-1", new int[]{2}, 0),
+                new CategoryTree(2L, null, "Category 2", "category-2", new int[]{1}, 0),
+                new CategoryTree(3L, 2L, "Category 2.1", "category-2/category-2-1", new int[]{1, 1}, 1),
+                new CategoryTree(4L, 3L, "Category 2.1.1", "category-2/category-2-1/category-2-1-1", new int[]{1, 1, 1}, 2)));
+        final var counts = new CategoryProductCountCache.Snapshot(Map.of(
+                2L, new CategoryProductCount(2L, 1, 4),
+                3L, new CategoryProductCount(3L, 3, 3)), 7L);
+        when(categoryTreeCache.snapshot()).thenReturn(trie);
+        when(categoryProductCountCache.snapshot()).thenReturn(counts);
+
+        final var tree = categoryService.findCategoryTree(2);
+        assertEquals(trie.version() ^ 7L, tree.version());
+        assertEquals(List.of(
+                new CategoryNodeDTO("category-2", "Category 2", 1, 4, List.of(new CategoryNodeDTO("category-2/category-2-1", "Category 2.1", 3, 3, null))),
+                new CategoryNodeDTO("category-1", "Category 1", 0, 0, List.of())), tree.value());
+        assertEquals("category-2/category-2-1/category-2-1-1",
+                categoryService.findCategoryTree(null).value().get(0).children().get(0).children().get(0).slug());
+    }
+
+    @Test
+    void findCategorySubtreeBySlug_withoutDepth_shouldReturnDirectChildren() {
+        final var parent = new CategoryTree(2L, null, "Category 2", "category-2", new int[]{1}, 0);
+        final var trie = CategorySlugTrie.of(List.of(
+                parent,
+                new CategoryTree(3L, 2L, "Category 2.1", "category-2/category-2-1", new int[]{1, 1}, 1),
+                new CategoryTree(4L, 3L, "Category 2.1.1", "category-2/category-2-1/category-2-1-1", new int[]{1, 1, 1}, 2)));
+        when(categoryTreeCache.findBySlug("category-2")).thenReturn(Optional.of(parent));
+        when(categoryTreeCache.snapshot()).thenReturn(trie);
+        when(categoryProductCountCache.snapshot()).thenReturn(CategoryProductCountCache.Snapshot.EMPTY);
+
+        final var subtree = categoryService.findCategorySubtreeBySlug("category-2", null);
+        assertEquals(new CategoryNodeDTO("category-2", "Category 2", 0, 0,
+                List.of(new CategoryNodeDTO("category-2/category-2-1", "Category 2.1", 0, 0, null))), subtree.value());
+        assertEquals(trie.version(), subtree.version());
+    }
+
+    @Test
+    void findCategorySubtreeVersion_withUnknownSlug_shouldThrowNotFoundException() {
+        when(categoryTreeCache.findBySlug("some-unknown-slug")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> categoryService.findCategorySubtreeVersion("some-unknown-slug"));
+        verify(categoryTreeCache, never()).snapshot();
+    }
+
+    @Test
+    void findCategorySubtreeBySlug_withUnknownSlug_shouldThrowNotFoundException() {
+        when(categoryTreeCache.findBySlug("some-unknown-slug")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> categoryService.findCategorySubtreeBySlug("some-unknown-slug", 2));
+    }
+
+    @Test
+    void createCategory_withSlugCreatedConcurrently_shouldCheckDatabaseAfterLockingParent() {
+        final var parentCategory = new CategoryTree(1L, null, "Some Parent Category", "some-parent-slug", new int[]{1024}, 0);
+        final var concurrentCategory = new CategoryTree(2L, 1L, "Other Child Category", "some-parent-slug/some-child-slug", new int[]{1024, 1024}, 1);
+        final var dto = new CategoryDTO("some-parent-slug/some-child-slug", "Some Child Category", "Some description");
+        when(categoryTreeCache.findBySlug(dto.slug())).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug("some-parent-slug")).thenReturn(Optional.of(parentCategory));
+        when(categoryTreeRepository.findBySlug(dto.slug())).thenReturn(Optional.of(concurrentCategory));
+        assertThrows(SlugAlreadyExistsException.class, () -> categoryService.createCategory(dto));
+        final var inOrder = inOrder(categoryLocks, categoryTreeRepository);
+        inOrder.verify(categoryLocks).lockChildrenOf(List.of(1L));
+        inOrder.verify(categoryTreeRepository).findBySlug(dto.slug());
+        verify(categoryRepository, never()).save(any());
+    }
+
+    @Test
+    void createCategory_withExistingSiblings_shouldAppendWithGap() {
+        final var dto = new CategoryDTO("some-slug", "Some Category", "Some description");
+        when(categoryTreeCache.findBySlug("some-slug")).thenReturn(Optional.empty());
+        when(categoryRepository.findLastSortOrder(0L)).thenReturn(3072);
+        when(categoryRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        categoryService.createCategory(dto);
+        verify(categoryRepository).save(argThat(category -> category.getSortOrder() == 3072 + CategoryService.SORT_ORDER_GAP));
+    }
+
+    @Test
+    void positionCategory_beforeSibling_shouldUpdateOnlyOwnSortOrder() {
+        final var categoryTree = new CategoryTree(3L, 1L, "C", "parent/c", new int[]{1024, 3072}, 1);
+        final var reference = new CategoryTree(4L, 1L, "B", "parent/b", new int[]{1024, 2048}, 1);
+        when(categoryTreeCache.findBySlug("parent/c")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeRepository.findBySlug("parent/b")).thenReturn(Optional.of(reference));
+        when(categoryRepository.findPreviousSortOrder(1L, 2048, "B", 3L)).thenReturn(1024);
+        when(categoryRepository.findDetailById(3L)).thenReturn(Optional.of(new CategoryDetailRow(3L, null, null, "C", "", 0L, 0L)));
+
+        categoryService.positionCategory("parent/c", new CategoryPositionDTO("parent/b", null));
+        verify(categoryRepository).updateSortOrder(3L, 1536);
+        verify(categoryRepository, never()).respaceSortOrders(anyLong(), anyInt(), anyLong());
+        verify(categoryTreeCache).refreshAfterCommit();
+    }
+
+    @Test
+    void positionCategory_afterLastSibling_shouldAppendWithGap() {
+        final var categoryTree = new CategoryTree(3L, null, "A", "a", new int[]{1024}, 0);
+        final var reference = new CategoryTree(4L, null, "B", "b", new int[]{2048}, 0);
+        when(categoryTreeCache.findBySlug("a")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeRepository.findBySlug("b")).thenReturn(Optional.of(reference));
+        when(categoryRepository.findNextSortOrder(0L, 2048, "B", 3L)).thenReturn(null);
+        when(categoryRepository.findDetailById(3L)).thenReturn(Optional.of(new CategoryDetailRow(3L, null, null, "A", "", 0L, 0L)));
+
+        categoryService.positionCategory("a", new CategoryPositionDTO(null, "b"));
+        verify(categoryRepository).updateSortOrder(3L, 2048 + CategoryService.SORT_ORDER_GAP);
+    }
+
+    @Test
+    void positionCategory_withoutGap_shouldRespaceSiblingsFirst() {
+        final var categoryTree = new CategoryTree(3L, 1L, "C", "parent/c", new int[]{1024, 3}, 1);
+        final var reference = new CategoryTree(4L, 1L, "B", "parent/b", new int[]{1024, 2}, 1);
+        final var respacedReference = new CategoryTree(4L, 1L, "B", "parent/b", new int[]{1024, 2048}, 1);
+        when(categoryTreeCache.findBySlug("parent/c")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeRepository.findBySlug("parent/b")).thenReturn(Optional.of(reference));
+        when(categoryRepository.findNextSortOrder(1L, 2, "B", 3L)).thenReturn(3);
+        when(categoryTreeRepository.findById(4L)).thenReturn(Optional.of(respacedReference));
+        when(categoryRepository.findNextSortOrder(1L, 2048, "B", 3L)).thenReturn(3072);
+        when(categoryRepository.findDetailById(3L)).thenReturn(Optional.of(new CategoryDetailRow(3L, null, null, "C", "", 0L, 0L)));
+
+        categoryService.positionCategory("parent/c", new CategoryPositionDTO(null, "parent/b"));
+        verify(categoryRepository).respaceSortOrders(1L, CategoryService.SORT_ORDER_GAP, 3L);
+        verify(categoryRepository).updateSortOrder(3L, 2560);
+    }
+
+    @Test
+    void positionCategory_withReferenceInOtherParent_shouldThrowCategoryNotSiblingException() {
+        final var categoryTree = new CategoryTree(3L, 1L, "C", "parent/c", new int[]{1024, 3072}, 1);
+        final var reference = new CategoryTree(5L, 2L, "B", "other/b", new int[]{2048, 1024}, 1);
+        when(categoryTreeCache.findBySlug("parent/c")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeRepository.findBySlug("other/b")).thenReturn(Optional.of(reference));
+        assertThrows(CategoryNotSiblingException.class, () -> categoryService.positionCategory("parent/c", new CategoryPositionDTO("other/b", null)));
+        verify(categoryRepository, never()).updateSortOrder(anyLong(), anyInt());
+    }
+
+    @Test
+    void positionCategory_withBeforeAndAfter_shouldThrowInvalidCategoryPositionException() {
+        assertThrows(InvalidCategoryPositionException.class, () -> categoryService.positionCategory("parent/c", new CategoryPositionDTO("parent/a", "parent/b")));
+        assertThrows(InvalidCategoryPositionException.class, () -> categoryService.positionCategory("parent/c", new CategoryPositionDTO(null, null)));
+    }
+
+    @Test
+    void moveCategory_toOtherParent_shouldRewireSubtree() {
+        final var categoryTree = new CategoryTree(3L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        final var newParentTree = new CategoryTree(2L, null, "Other Parent Category", "other-parent-slug", new int[]{2}, 0);
+        final var category = new CategoryDetailRow(3L, null, null, "Some Child Category", "Some child description", 0L, 0L);
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeCache.findBySlug("other-parent-slug")).thenReturn(Optional.of(newParentTree));
+        when(categoryClosureRepository.existsByAncestorIdAndDescendantId(3L, 2L)).thenReturn(false);
+        when(categoryTreeRepository.findBySlug("other-parent-slug/some-child-slug")).thenReturn(Optional.empty());
+        when(categoryTreeRepository.findByParentIdAndName(2L, "Some Child Category")).thenReturn(Optional.empty());
+        when(categoryRepository.findDetailById(3L)).thenReturn(Optional.of(category));
+
+        final var moved = categoryService.moveCategory("some-parent-slug/some-child-slug", new CategoryMoveDTO("other-parent-slug"));
+        assertEquals("other-parent-slug/some-child-slug", moved.slug());
+        verify(categoryClosureRepository).detachSubtree(3L);
+        verify(categoryRepository).updateParent(3L, 2L);
+        verify(categoryClosureRepository).attachSubtree(3L, 2L);
+        verify(categoryTreeCache).refreshAfterCommit();
+    }
+
+    @Test
+    void moveCategory_toRoot_shouldNotAttachSubtree() {
+        final var categoryTree = new CategoryTree(3L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        final var category = new CategoryDetailRow(3L, null, null, "Some Child Category", "Some child description", 0L, 0L);
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeRepository.findBySlug("some-child-slug")).thenReturn(Optional.empty());
+        when(categoryTreeRepository.findByParentIdAndName(null, "Some Child Category")).thenReturn(Optional.empty());
+        when(categoryRepository.findDetailById(3L)).thenReturn(Optional.of(category));
+
+        final var moved = categoryService.moveCategory("some-parent-slug/some-child-slug", new CategoryMoveDTO(null));
+        assertEquals("some-child-slug", moved.slug());
+        verify(categoryClosureRepository).detachSubtree(3L);
+        verify(categoryRepository).updateParent(3L, null);
+        verify(categoryClosureRepository, never()).attachSubtree(anyLong(), anyLong());
+    }
+
+    @Test
+    void moveCategory_belowItself_shouldThrowCategoryCycleException() {
+        final var categoryTree = new CategoryTree(1L, null, "Some Parent Category", "some-parent-slug", new int[]{1}, 0);
+        final var descendantTree = new CategoryTree(3L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        when(categoryTreeCache.findBySlug("some-parent-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(descendantTree));
+        when(categoryClosureRepository.existsByAncestorIdAndDescendantId(1L, 3L)).thenReturn(true);
+        assertThrows(CategoryCycleException.class, () -> categoryService.moveCategory("some-parent-slug", new CategoryMoveDTO("some-parent-slug/some-child-slug")));
+        verify(categoryRepository, never()).updateParent(anyLong(), any());
+    }
+
+    @Test
+    void moveCategory_withDuplicateSlugInNewParent_shouldThrowException() {
+        final var categoryTree = new CategoryTree(3L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        final var newParentTree = new CategoryTree(2L, null, "Other Parent Category", "other-parent-slug", new int[]{2}, 0);
+        final var existing = new CategoryTree(4L, 2L, "Other Child Category", "other-parent-slug/some-child-slug", new int[]{2, 1}, 1);
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeCache.findBySlug("other-parent-slug")).thenReturn(Optional.of(newParentTree));
+        when(categoryTreeRepository.findBySlug("other-parent-slug/some-child-slug")).thenReturn(Optional.of(existing));
+        assertThrows(SlugAlreadyExistsException.class, () -> categoryService.moveCategory("some-parent-slug/some-child-slug", new CategoryMoveDTO("other-parent-slug")));
+    }
+
+    @Test
+    void moveCategory_withDuplicateNameInNewParent_shouldThrowException() {
+        final var categoryTree = new CategoryTree(3L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        final var newParentTree = new CategoryTree(2L, null, "Other Parent Category", "other-parent-slug", new int[]{2}, 0);
+        final var existing = new CategoryTree(4L, 2L, "Some Child Category", "other-parent-slug/other-child-slug", new int[]{2, 1}, 1);
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeCache.findBySlug("other-parent-slug")).thenReturn(Optional.of(newParentTree));
+        when(categoryTreeRepository.findBySlug("other-parent-slug/some-child-slug")).thenReturn(Optional.empty());
+        when(categoryTreeRepository.findByParentIdAndName(2L, "Some Child Category")).thenReturn(Optional.of(existing));
+        assertThrows(NameAlreadyExistsException.class, () -> categoryService.moveCategory("some-parent-slug/some-child-slug", new CategoryMoveDTO("other-parent-slug")));
+    }
+
+    @Test
+    void moveCategory_withUnknownParentSlug_shouldThrowException() {
+        final var categoryTree = new CategoryTree(3L, 1L, "Some Child Category", "some-parent-slug/some-child-slug", new int[]{1, 1}, 1);
+        when(categoryTreeCache.findBySlug("some-parent-slug/some-child-slug")).thenReturn(Optional.of(categoryTree));
+        when(categoryTreeCache.findBySlug("unknown-slug")).thenReturn(Optional.empty());
+        assertThrows(ParentCategoryNotFoundException.class, () -> categoryService.moveCategory("some-parent-slug/some-child-slug", new CategoryMoveDTO("unknown-slug")));
+    }
+}
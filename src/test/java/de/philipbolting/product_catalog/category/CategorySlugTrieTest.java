@@ -0,0 +1,115 @@
+package de.philipbolting.product_catalog.category;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategorySlugTrieTest {
+
+    private final CategoryTree category1 = new CategoryTree(1L, null, "Category 1", "category-1", new int[]{1}, 0);
+    private final CategoryTree category2 = new CategoryTree(2L, null, "Category 2", "category-2", new int[]{2}, 0);
+    private final CategoryTree category21 = new CategoryTree(5L, 2L, "Category 2.1", "category-2/category-2-1", new int[]{2, 1}, 1);
+    private final CategoryTree category211 = new CategoryTree(6L, 5L, "Category 2.1.1", "category-2/category-2-1/category-2-1-1", new int[]{2, 1, 1}, 2);
+
+    @Test
+    void of_withUnsortedCategories_shouldFindAllBySlug() {
+        final var trie = CategorySlugTrie.of(List.of(category211, category21, category2, category1));
+        assertEquals(4, trie.size());
+        assertEquals(Optional.of(category1), trie.findBySlug("category-1"));
+        assertEquals(Optional.of(category2), trie.findBySlug("category-2"));
+        assertEquals(Optional.of(category21), trie.findBySlug("category-2/category-2-1"));
+        assertEquals(Optional.of(category211), trie.findBySlug("category-2/category-2-1/category-2-1-1"));
+    }
+
+    @Test
+    void findBySlug_withUnknownOrPartialSlug_shouldReturnEmpty() {
+        final var trie = CategorySlugTrie.of(List.of(category1, category2, category21));
+        assertTrue(trie.findBySlug("category-2-1").isEmpty());
+        assertTrue(trie.findBySlug("category-1/category-2-1").isEmpty());
+        assertTrue(trie.findBySlug("category-2/category-2-1/unknown").isEmpty());
+    }
+
+    @Test
+    void findById_shouldReturnCategoryWithFullSlug() {
+        final var trie = CategorySlugTrie.of(List.of(category2, category21, category211));
+        assertEquals("category-2/category-2-1/category-2-1-1", trie.findById(6L).orElseThrow().getSlug());
+        assertTrue(trie.findById(1L).isEmpty());
+    }
+
+    @Test
+    void findByParentIdAndName_shouldOnlyFindDirectChildren() {
+        final var trie = CategorySlugTrie.of(List.of(category1, category2, category21, category211));
+        assertEquals(Optional.of(category21), trie.findByParentIdAndName(2L, "Category 2.1"));
+        assertEquals(Optional.of(category1), trie.findByParentIdAndName(null, "Category 1"));
+        assertTrue(trie.findByParentIdAndName(2L, "Category 2.1.1").isEmpty());
+        assertTrue(trie.findByParentIdAndName(1L, "Category 2.1").isEmpty());
+    }
+
+    @Test
+    void with_shouldReturnNewTrieAndLeaveOriginalUnchanged() {
+        final var trie = CategorySlugTrie.of(List.of(category2, category21));
+        final var extended = trie.with(category211);
+        assertTrue(trie.findBySlug(category211.getSlug()).isEmpty());
+        assertTrue(trie.findById(6L).isEmpty());
+        assertEquals(Optional.of(category211), extended.findBySlug(category211.getSlug()));
+        assertEquals(Optional.of(category211), extended.findById(6L));
+        assertEquals(Optional.of(category21), extended.findBySlug(category21.getSlug()));
+        assertEquals(3, extended.size());
+    }
+
+    @Test
+    void with_withRootCategory_shouldAddRoot() {
+        final var extended = CategorySlugTrie.EMPTY.with(category1);
+        assertEquals(Optional.of(category1), extended.findBySlug("category-1"));
+        assertEquals(0, CategorySlugTrie.EMPTY.size());
+    }
+
+    @Test
+    void with_withUnknownParent_shouldThrowException() {
+        final var trie = CategorySlugTrie.of(List.of(category1));
+        assertThrows(IllegalArgumentException.class, () -> trie.with(category211));
+    }
+
+    @Test
+    void findChildren_shouldReturnChildrenInSortOrder() {
+        final var category22 = new CategoryTree(8L, 2L, "Category 2.2", "category-2/category-2-2", new int[]{2, 0}, 1);
+        final var trie = CategorySlugTrie.of(List.of(category1, category2, category21, category22, category211));
+        assertEquals(List.of(category1, category2), trie.findChildren(null));
+        assertEquals(List.of(category22, category21), trie.findChildren(2L));
+        assertEquals(List.of(), trie.findChildren(6L));
+        assertEquals(List.of(), trie.findChildren(42L));
+    }
+
+    @Test
+    void with_shouldKeepChildrenInSortOrder() {
+        final var category22 = new CategoryTree(8L, 2L, "Category 2.2", "category-2/category-2-2", new int[]{2, 0}, 1);
+        final var reordered = new CategoryTree(5L, 2L, "Category 2.1", "category-2/category-2-1", new int[]{2, -1}, 1);
+        final var trie = CategorySlugTrie.of(List.of(category2, category21));
+        final var extended = trie.with(category22);
+        assertEquals(List.of(category22, category21), extended.findChildren(2L));
+        assertEquals(List.of(reordered, category22), extended.with(reordered).findChildren(2L));
+        assertEquals(List.of(category21), trie.findChildren(2L));
+        assertEquals(List.of(category1, category2), trie.with(category1).findChildren(null));
+    }
+
+    @Test
+    void version_shouldOnlyDependOnContent() {
+        final var trie = CategorySlugTrie.of(List.of(category1, category2, category21));
+        assertEquals(trie.version(), CategorySlugTrie.of(List.of(category21, category2, category1)).version());
+        assertEquals(trie.version(), CategorySlugTrie.of(List.of(category1, category2)).with(category21).version());
+        assertEquals(0L, CategorySlugTrie.EMPTY.version());
+    }
+
+    @Test
+    void version_shouldChangeWhenCategoryIsAddedOrReplaced() {
+        final var trie = CategorySlugTrie.of(List.of(category2, category21));
+        final var extended = trie.with(category211);
+        assertNotEquals(trie.version(), extended.version());
+        final var renamed = new CategoryTree(6L, 5L, "Renamed", "category-2/category-2-1/category-2-1-1", new int[]{2, 1, 1}, 2);
+        assertNotEquals(extended.version(), extended.with(renamed).version());
+        assertEquals(extended.version(), extended.with(renamed).with(category211).version());
+    }
+}
@@ -0,0 +1,90 @@
+package de.philipbolting.product_catalog.category;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CategoryTreeCacheTest {
+
+    @InjectMocks
+    private CategoryTreeCache categoryTreeCache;
+    @Mock
+    private CategoryTreeRepository categoryTreeRepository;
+
+    private final CategoryTree parent = new CategoryTree(1L, null, "Parent", "parent", new int[]{1}, 0);
+    private final CategoryTree child = new CategoryTree(2L, 1L, "Child", "parent/child", new int[]{1, 1}, 1);
+
+    @Test
+    void findBySlug_afterRefresh_shouldNotQueryRepository() {
+        when(categoryTreeRepository.findAll()).thenReturn(List.of(parent, child));
+        categoryTreeCache.refresh();
+        assertEquals(Optional.of(child), categoryTreeCache.findBySlug("parent/child"));
+        assertEquals(Optional.of(child), categoryTreeCache.findById(2L));
+        verify(categoryTreeRepository, never()).findBySlug(any());
+        verify(categoryTreeRepository, never()).findById(any());
+    }
+
+    @Test
+    void findBySlug_withStaleCache_shouldFallBackToRepositoryAndRefresh() {
+        when(categoryTreeRepository.findBySlug("parent/child")).thenReturn(Optional.of(child));
+        when(categoryTreeRepository.findAll()).thenReturn(List.of(parent, child));
+        assertEquals(Optional.of(child), categoryTreeCache.findBySlug("parent/child"));
+        assertEquals(Optional.of(parent), categoryTreeCache.findBySlug("parent"));
+        verify(categoryTreeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void findById_withMissingCategoryOfKnownParent_shouldOnlyAddIt() {
+        when(categoryTreeRepository.findAll()).thenReturn(List.of(parent));
+        when(categoryTreeRepository.findById(2L)).thenReturn(Optional.of(child));
+        categoryTreeCache.refresh();
+        assertEquals(Optional.of(child), categoryTreeCache.findById(2L));
+        assertEquals(Optional.of(child), categoryTreeCache.findBySlug("parent/child"));
+        verify(categoryTreeRepository, times(1)).findAll();
+        verify(categoryTreeRepository, times(1)).findById(2L);
+    }
+
+    @Test
+    void findBySlug_withMovedCategory_shouldRefresh() {
+        final var moved = new CategoryTree(2L, null, "Child", "child", new int[]{2}, 0);
+        when(categoryTreeRepository.findAll()).thenReturn(List.of(parent, child), List.of(parent, moved));
+        when(categoryTreeRepository.findBySlug("child")).thenReturn(Optional.of(moved));
+        categoryTreeCache.refresh();
+        assertEquals(Optional.of(moved), categoryTreeCache.findBySlug("child"));
+        assertTrue(categoryTreeCache.snapshot().findBySlug("parent/child").isEmpty());
+        verify(categoryTreeRepository, times(2)).findAll();
+    }
+
+    @Test
+    void findBySlug_withUnknownSlug_shouldNotRefresh() {
+        when(categoryTreeRepository.findBySlug("unknown")).thenReturn(Optional.empty());
+        assertTrue(categoryTreeCache.findBySlug("unknown").isEmpty());
+        verify(categoryTreeRepository, never()).findAll();
+    }
+
+    @Test
+    void putAfterCommit_withoutTransaction_shouldAddCategoryImmediately() {
+        when(categoryTreeRepository.findAll()).thenReturn(List.of(parent));
+        categoryTreeCache.refresh();
+        categoryTreeCache.putAfterCommit(child);
+        assertEquals(Optional.of(child), categoryTreeCache.findBySlug("parent/child"));
+        verify(categoryTreeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void putAfterCommit_withUnknownParent_shouldRefresh() {
+        when(categoryTreeRepository.findAll()).thenReturn(List.of(parent, child));
+        categoryTreeCache.putAfterCommit(child);
+        assertEquals(Optional.of(child), categoryTreeCache.findBySlug("parent/child"));
+        verify(categoryTreeRepository, times(1)).findAll();
+    }
+}
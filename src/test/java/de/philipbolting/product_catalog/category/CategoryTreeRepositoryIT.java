@@ -1,6 +1,8 @@
 package de.philipbolting.product_catalog.category;
 
 import de.philipbolting.product_catalog.ContainersConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
@@ -9,8 +11,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.test.context.jdbc.Sql;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
 @Import(ContainersConfig.class)
@@ -20,10 +21,16 @@ class CategoryTreeRepositoryIT {
     @Autowired
     CategoryTreeRepository categoryTreeRepository;
 
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Test
     @Sql("/db/init_categories.sql")
     void shouldFindAll() {
-        final var tree = categoryTreeRepository.findAll(Sort.by(Sort.Direction.ASC, "sortOrder"));
+        final var tree = categoryTreeRepository.findAll(Sort.by(Sort.Direction.ASC, "sortPath"));
 
         assertEquals(7, tree.size());
 
@@ -31,50 +38,99 @@ class CategoryTreeRepositoryIT {
         assertNull(actual.getParentId());
         assertEquals("category-1", actual.getSlug());
         assertEquals("Category 1", actual.getName());
-        assertEquals("001", actual.getSortOrder());
+        assertArrayEquals(new int[]{1}, actual.getSortPath());
         assertEquals(0, actual.getDepth());
 
         actual = tree.get(1);
         assertEquals(1, actual.getParentId());
         assertEquals("category-1/category-1-1", actual.getSlug());
         assertEquals("Category 1.1", actual.getName());
-        assertEquals("001001", actual.getSortOrder());
+        assertArrayEquals(new int[]{1, 1}, actual.getSortPath());
         assertEquals(1, actual.getDepth());
 
         actual = tree.get(2);
         assertEquals(1, actual.getParentId());
         assertEquals("category-1/category-1-2", actual.getSlug());
         assertEquals("Category 1.2", actual.getName());
-        assertEquals("001002", actual.getSortOrder());
+        assertArrayEquals(new int[]{1, 2}, actual.getSortPath());
         assertEquals(1, actual.getDepth());
 
         actual = tree.get(3);
         assertNull(actual.getParentId());
         assertEquals("category-2", actual.getSlug());
         assertEquals("Category 2", actual.getName());
-        assertEquals("002", actual.getSortOrder());
+        assertArrayEquals(new int[]{2}, actual.getSortPath());
         assertEquals(0, actual.getDepth());
 
         actual = tree.get(4);
         assertEquals(2, actual.getParentId());
         assertEquals("category-2/category-2-1", actual.getSlug());
         assertEquals("Category 2.1", actual.getName());
-        assertEquals("002001", actual.getSortOrder());
+        assertArrayEquals(new int[]{2, 1}, actual.getSortPath());
         assertEquals(1, actual.getDepth());
 
         actual = tree.get(5);
         assertEquals(5, actual.getParentId());
         assertEquals("category-2/category-2-1/category-2-1-1", actual.getSlug());
         assertEquals("Category 2.1.1", actual.getName());
-        assertEquals("002001001", actual.getSortOrder());
+        assertArrayEquals(new int[]{2, 1, 1}, actual.getSortPath());
         assertEquals(2, actual.getDepth());
 
         actual = tree.get(6);
         assertEquals(5, actual.getParentId());
         assertEquals("category-2/category-2-1/category-2-1-2", actual.getSlug());
         assertEquals("Category 2.1.2", actual.getName());
-        assertEquals("002001002", actual.getSortOrder());
+        assertArrayEquals(new int[]{2, 1, 2}, actual.getSortPath());
+        assertEquals(2, actual.getDepth());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void shouldFindBySlug() {
+        final var actual = categoryTreeRepository.findBySlug("category-2/category-2-1/category-2-1-2").orElseThrow();
+        assertEquals(7, actual.getId());
+        assertEquals(5, actual.getParentId());
+        assertArrayEquals(new int[]{2, 1, 2}, actual.getSortPath());
+        assertEquals(2, actual.getDepth());
+        assertTrue(categoryTreeRepository.findBySlug("category-2-1/category-2-1-2").isEmpty());
+    }
+
+    @Test
+    @Sql("/db/init_categories.sql")
+    void shouldDerivePathOnInsert() {
+        final var parent = categoryRepository.findById(5L).orElseThrow();
+        final var child = categoryRepository.save(new Category(parent, 3, "category-2-1-3", "Category 2.1.3", ""));
+        entityManager.flush();
+        entityManager.clear();
+
+        final var actual = categoryTreeRepository.findById(child.getId()).orElseThrow();
+        assertEquals("category-2/category-2-1/category-2-1-3", actual.getSlug());
+        assertArrayEquals(new int[]{2, 1, 3}, actual.getSortPath());
         assertEquals(2, actual.getDepth());
     }
 
-}
\ No newline at end of file
+    @Test
+    @Sql("/db/init_categories.sql")
+    void shouldRecomputeDescendantPathsOnReparent() {
+        final var category = categoryRepository.findById(5L).orElseThrow();
+        category.setParent(categoryRepository.findById(1L).orElseThrow());
+        category.setSortOrder(3);
+        categoryRepository.save(category);
+        entityManager.flush();
+        entityManager.clear();
+
+        var actual = categoryTreeRepository.findById(5L).orElseThrow();
+        assertEquals("category-1/category-2-1", actual.getSlug());
+        assertArrayEquals(new int[]{1, 3}, actual.getSortPath());
+        assertEquals(1, actual.getDepth());
+
+        actual = categoryTreeRepository.findById(7L).orElseThrow();
+        assertEquals("category-1/category-2-1/category-2-1-2", actual.getSlug());
+        assertArrayEquals(new int[]{1, 3, 2}, actual.getSortPath());
+        assertEquals(2, actual.getDepth());
+
+        actual = categoryTreeRepository.findById(2L).orElseThrow();
+        assertEquals("category-2", actual.getSlug());
+        assertArrayEquals(new int[]{2}, actual.getSortPath());
+    }
+}
@@ -0,0 +1,53 @@
+package de.philipbolting.product_catalog.category;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentLongMapTest {
+
+    @Test
+    void with_shouldReturnNewMapAndLeaveOriginalUnchanged() {
+        final var map = PersistentLongMap.<String>empty().with(1L, "one");
+        final var extended = map.with(2L, "two").with(1L, "uno");
+        assertEquals("one", map.get(1L));
+        assertNull(map.get(2L));
+        assertEquals(1, map.size());
+        assertEquals("uno", extended.get(1L));
+        assertEquals("two", extended.get(2L));
+        assertEquals(2, extended.size());
+    }
+
+    @Test
+    void with_withKeysSharingLowBits_shouldKeepThemApart() {
+        final var map = PersistentLongMap.<String>empty()
+                .with(1L, "low")
+                .with(1L | 1L << 62, "high")
+                .with(-1L, "negative");
+        assertEquals("low", map.get(1L));
+        assertEquals("high", map.get(1L | 1L << 62));
+        assertEquals("negative", map.get(-1L));
+        assertNull(map.get(1L | 1L << 61));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void with_withRandomKeys_shouldMatchHashMap() {
+        final var random = new Random(1);
+        final var expected = new HashMap<Long, Long>();
+        var map = PersistentLongMap.<Long>empty();
+        for (var i = 0; i < 100_000; i++) {
+            final var key = random.nextInt(3) == 0 ? random.nextLong() : random.nextInt(50_000);
+            expected.put(key, (long) i);
+            map = map.with(key, (long) i);
+        }
+        assertEquals(expected.size(), map.size());
+        for (final var entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertFalse(map.containsKey(50_000L));
+    }
+}
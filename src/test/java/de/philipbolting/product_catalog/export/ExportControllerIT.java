@@ -0,0 +1,91 @@
+package de.philipbolting.product_catalog.export;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.client.RestTestClient;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@AutoConfigureRestTestClient
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ExportControllerIT {
+
+    @Autowired
+    private RestTestClient restTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportBrands_shouldWriteOneLinePerBrand() {
+        assertEquals("""
+                {"slug":"brand-1","name":"Brand 1","description":null}
+                {"slug":"brand-2","name":"Brand 2","description":null}
+                {"slug":"brand-3","name":"Brand 3","description":null}
+                """, export("brands"));
+    }
+
+    @Test
+    void exportCategories_shouldWriteParentsBeforeChildren() {
+        assertEquals("""
+                {"slug":"category-1","name":"Category 1","description":null}
+                {"slug":"category-1/category-1-1","name":"Category 1.1","description":null}
+                {"slug":"category-1/category-1-2","name":"Category 1.2","description":null}
+                {"slug":"category-2","name":"Category 2","description":null}
+                {"slug":"category-2/category-2-1","name":"Category 2.1","description":null}
+                {"slug":"category-2/category-2-1/category-2-1-1","name":"Category 2.1.1","description":null}
+                {"slug":"category-2/category-2-1/category-2-1-2","name":"Category 2.1.2","description":null}
+                """, export("categories"));
+    }
+
+    @Test
+    void exportProducts_shouldWriteOneLinePerProduct() {
+        final var lines = export("products").lines().toList();
+        assertEquals(7, lines.size());
+        assertEquals("""
+                {"brandSlug":"brand-1","categorySlug":"category-2","slug":"product-a","name":"Product A","description":null}""", lines.get(0));
+        assertEquals("""
+                {"brandSlug":"brand-1","categorySlug":"category-2/category-2-1","slug":"product-g","name":"Product G","description":null}""", lines.get(6));
+    }
+
+    @Test
+    void exportProducts_withManyProducts_shouldStreamAllRows() {
+        jdbcTemplate.update("""
+                INSERT INTO product (id, brand_id, category_id, slug, name, description)
+                SELECT nextval('seq_product'), 1 + i % 3, 6, 'export-' || i, 'Export ' || i, 'Description "' || i || '"'
+                FROM generate_series(1, 100000) i
+                """);
+
+        final var body = export("products");
+
+        assertEquals(100_007, body.lines().count());
+        assertTrue(body.contains("""
+                {"brandSlug":"brand-2","categorySlug":"category-2/category-2-1/category-2-1-1","slug":"export-1","name":"Export 1","description":"Description \\"1\\""}
+                """));
+    }
+
+    private String export(String type) {
+        return restTestClient.get().uri("/api/export/" + type)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,90 @@
+package de.philipbolting.product_catalog.export;
+
+import de.philipbolting.product_catalog.SecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.client.RestTestClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(controllers = ExportController.class, properties = "product-catalog.export.max-concurrent=1")
+@AutoConfigureRestTestClient
+@Import(SecurityConfig.class)
+class ExportControllerTest {
+
+    @Autowired
+    private RestTestClient restTestClient;
+
+    @MockitoBean
+    private ExportService exportService;
+
+    @Test
+    void exportBrands_shouldStreamNdjson() {
+        restTestClient.get().uri("/api/export/brands")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON);
+        verify(exportService, timeout(1000)).exportBrands(any());
+    }
+
+    @Test
+    void exportCategories_shouldStreamNdjson() {
+        restTestClient.get().uri("/api/export/categories")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON);
+        verify(exportService, timeout(1000)).exportCategories(any());
+    }
+
+    @Test
+    void exportProducts_shouldStreamNdjson() {
+        restTestClient.get().uri("/api/export/products")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON);
+        verify(exportService, timeout(1000)).exportProducts(any());
+    }
+
+    @Test
+    void exportProducts_withTooManyExportsRunning_shouldReturnServiceUnavailable() throws Exception {
+        final var finish = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            finish.await();
+            return null;
+        }).when(exportService).exportProducts(any());
+        final var running = CompletableFuture.runAsync(() -> restTestClient.get().uri("/api/export/products")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk());
+        verify(exportService, timeout(1000)).exportProducts(any());
+        restTestClient.get().uri("/api/export/brands")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(503);
+        verify(exportService, never()).exportBrands(any());
+        finish.countDown();
+        running.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void exportProducts_withJsonAccept_shouldReturnNotAcceptable() {
+        restTestClient.get().uri("/api/export/products")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(406);
+        verifyNoInteractions(exportService);
+    }
+}
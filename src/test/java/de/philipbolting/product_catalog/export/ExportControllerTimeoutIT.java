@@ -0,0 +1,75 @@
+package de.philipbolting.product_catalog.export;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.client.RestTestClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@AutoConfigureRestTestClient
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"product-catalog.export.timeout=PT1S", "product-catalog.export.max-concurrent=1"})
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ExportControllerTimeoutIT {
+
+    @Autowired
+    private RestTestClient restTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void exportProducts_withTimedOutExport_shouldFreeItsPermit() throws Exception {
+        final var locked = new CountDownLatch(1);
+        final var unlock = new CountDownLatch(1);
+        final var lock = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE product IN ACCESS EXCLUSIVE MODE");
+            locked.countDown();
+            try {
+                unlock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            final var body = restTestClient.get().uri("/api/export/products")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isEqualTo(503)
+                    .expectBody(String.class)
+                    .returnResult()
+                    .getResponseBody();
+            assertFalse(body.contains("Too many exports"), body);
+            restTestClient.get().uri("/api/export/brands")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk();
+        } finally {
+            unlock.countDown();
+            lock.get(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.philipbolting.product_catalog.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductBitmapTest {
+
+    @Test
+    void of_shouldSortAndDeduplicate() {
+        final var bitmap = ProductBitmap.of(new int[]{70000, 3, 1, 3, 65536, 1}, 6);
+        assertEquals(4, bitmap.cardinality());
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(65536));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(65537));
+    }
+
+    @Test
+    void andCardinality_shouldCountSharedIds() {
+        final var random = new Random(7);
+        final var sparse = new int[1000];
+        final var dense = new int[100_000];
+        final var expectedSparse = new BitSet();
+        final var expectedDense = new BitSet();
+        for (var i = 0; i < sparse.length; i++) {
+            sparse[i] = random.nextInt(4 * 65536);
+            expectedSparse.set(sparse[i]);
+        }
+        for (var i = 0; i < dense.length; i++) {
+            dense[i] = random.nextInt(4 * 65536);
+            expectedDense.set(dense[i]);
+        }
+        final var sparseBitmap = ProductBitmap.of(sparse, sparse.length);
+        final var denseBitmap = ProductBitmap.of(dense, dense.length);
+        final var shared = (BitSet) expectedSparse.clone();
+        shared.and(expectedDense);
+
+        assertEquals(shared.cardinality(), sparseBitmap.andCardinality(denseBitmap));
+        assertEquals(shared.cardinality(), denseBitmap.andCardinality(sparseBitmap));
+        assertEquals(expectedSparse.cardinality(), sparseBitmap.andCardinality(sparseBitmap));
+        assertEquals(expectedDense.cardinality(), denseBitmap.andCardinality(denseBitmap));
+        assertEquals(0, sparseBitmap.andCardinality(ProductBitmap.EMPTY));
+    }
+
+    @Test
+    void or_acrossSparseAndDenseChunks_shouldMatchBitSet() {
+        final var random = new Random(11);
+        for (final var sizes : new int[][]{{100, 100}, {3000, 3000}, {100, 100_000}, {100_000, 100_000}}) {
+            final var left = new int[sizes[0]];
+            final var right = new int[sizes[1]];
+            final var expected = new BitSet();
+            for (var i = 0; i < left.length; i++) {
+                left[i] = random.nextInt(3 * 65536);
+                expected.set(left[i]);
+            }
+            for (var i = 0; i < right.length; i++) {
+                right[i] = 65536 + random.nextInt(3 * 65536);
+                expected.set(right[i]);
+            }
+            final var leftBitmap = ProductBitmap.of(left, left.length);
+            final var rightBitmap = ProductBitmap.of(right, right.length);
+            final var union = leftBitmap.or(rightBitmap);
+
+            assertEquals(expected.cardinality(), union.cardinality());
+            assertEquals(expected.cardinality(), rightBitmap.or(leftBitmap).cardinality());
+            for (var id = 0; id < 4 * 65536; id++) {
+                assertEquals(expected.get(id), union.contains(id));
+            }
+        }
+        final var bitmap = ProductBitmap.of(new int[]{1, 2}, 2);
+        assertSame(bitmap, bitmap.or(ProductBitmap.EMPTY));
+        assertEquals(2, ProductBitmap.EMPTY.or(bitmap).cardinality());
+    }
+
+    @Test
+    void sizeInBytes_shouldCompressDenseChunks() {
+        final var ids = new int[65536];
+        for (var i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        final var bitmap = ProductBitmap.of(ids, ids.length);
+        assertEquals(65536, bitmap.cardinality());
+        assertTrue(bitmap.sizeInBytes() < 8300);
+    }
+}
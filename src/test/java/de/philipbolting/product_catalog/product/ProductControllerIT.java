@@ -1,23 +1,32 @@
 package de.philipbolting.product_catalog.product;
 
 import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.SliceDTO;
+import de.philipbolting.product_catalog.brand.BrandDTO;
 import de.philipbolting.product_catalog.error.NotFoundException;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.client.RestTestClient;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.UUID;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @AutoConfigureRestTestClient
 @Import(ContainersConfig.class)
 @Testcontainers
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class ProductControllerIT {
 
     @Autowired
@@ -26,6 +35,9 @@ public class ProductControllerIT {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     @Sql("/db/init_brands.sql")
     @Sql("/db/init_categories.sql")
@@ -48,9 +60,151 @@ public class ProductControllerIT {
         final var product = productRepository.findBySlug("some-product").orElseThrow(NotFoundException::new);
         assertThat(product.getId()).isGreaterThan(0);
         assertThat(product.getSlug()).isEqualTo("some-product");
-        assertThat(product.getBrand().getSlug()).isEqualTo("brand-1");
-        assertThat(product.getCategory().getSlug()).isEqualTo("category-2-1");
         assertThat(product.getName()).isEqualTo("Some Product");
         assertThat(product.getDescription()).isEqualTo("Some product description");
+        final var detail = productRepository.findDetailBySlug("some-product").orElseThrow(NotFoundException::new);
+        assertThat(detail.brandSlug()).isEqualTo("brand-1");
+        assertThat(detail.categorySlug()).isEqualTo("category-2/category-2-1");
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void findProductBySlug_shouldRunOneStatement() {
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        final var product = restTestClient.get().uri("/api/products/product-d")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductDTO.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(product).isEqualTo(new ProductDTO("brand-3", "category-2/category-2-1/category-2-1-1", "product-d", "Product D", null));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void findProductBySlug_withMatchingETag_shouldRunOneStatementAndReturnNotModified() {
+        final var etag = restTestClient.get().uri("/api/products/product-d")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult()
+                .getResponseHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        final var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        restTestClient.get().uri("/api/products/product-d")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    void findProductBySlug_afterBrandSlugChange_shouldReturnNewETag() {
+        final var uuid = UUID.randomUUID().toString();
+        restTestClient.post().uri("/api/brands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new BrandDTO(uuid, "Brand " + uuid, ""))
+                .exchange()
+                .expectStatus().isCreated();
+        restTestClient.post().uri("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new ProductDTO(uuid, "category-1", uuid, "Product " + uuid, null))
+                .exchange()
+                .expectStatus().isCreated();
+        final var etag = restTestClient.get().uri("/api/products/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult()
+                .getResponseHeaders().getETag();
+
+        final var newBrandSlug = UUID.randomUUID().toString();
+        restTestClient.patch().uri("/api/brands/" + uuid)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new SlugChangeDTO(newBrandSlug))
+                .exchange()
+                .expectStatus().isOk();
+        final var result = restTestClient.get().uri("/api/products/" + uuid)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductDTO.class)
+                .returnResult();
+        assertThat(result.getResponseHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(result.getResponseBody().brandSlug()).isEqualTo(newBrandSlug);
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void findProductsByCategorySubtree() {
+        final var next = restTestClient.get().uri("/api/categories/category-2/products?limit=4")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<SliceDTO<ProductDTO>>() {})
+                .returnResult()
+                .getResponseBody();
+        assertThat(next.items()).extracting(ProductDTO::slug).containsExactly("product-a", "product-b", "product-g", "product-c");
+        assertThat(next.next()).isNotNull();
+
+        final var last = restTestClient.get().uri("/api/categories/category-2/products?limit=4&after=" + next.next())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<SliceDTO<ProductDTO>>() {})
+                .returnResult()
+                .getResponseBody();
+        assertThat(last.items()).extracting(ProductDTO::slug).containsExactly("product-d", "product-e");
+        assertThat(last.items()).extracting(ProductDTO::categorySlug).containsExactly("category-2/category-2-1/category-2-1-1", "category-2/category-2-1/category-2-1-2");
+        assertThat(last.next()).isNull();
+    }
+
+    @Test
+    @Sql("/db/init_brands.sql")
+    @Sql("/db/init_categories.sql")
+    @Sql("/db/init_products.sql")
+    void findProductsByBrandAndCategory() {
+        final var next = restTestClient.get().uri("/api/products?brand=brand-1&category=category-2&limit=2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<SliceDTO<ProductDTO>>() {})
+                .returnResult()
+                .getResponseBody();
+        assertThat(next.items()).extracting(ProductDTO::slug).containsExactly("product-a", "product-c");
+        assertThat(next.next()).isNotNull();
+
+        final var last = restTestClient.get().uri("/api/products?brand=brand-1&category=category-2&limit=2&after=" + next.next())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<SliceDTO<ProductDTO>>() {})
+                .returnResult()
+                .getResponseBody();
+        assertThat(last.items()).extracting(ProductDTO::slug).containsExactly("product-g");
+        assertThat(last.items()).extracting(ProductDTO::categorySlug).containsExactly("category-2/category-2-1");
+        assertThat(last.next()).isNull();
     }
 }
@@ -1,10 +1,18 @@
 package de.philipbolting.product_catalog.product;
 
+import de.philipbolting.product_catalog.ResourceVersion;
 import de.philipbolting.product_catalog.SecurityConfig;
+import de.philipbolting.product_catalog.SliceDTO;
+import de.philipbolting.product_catalog.Tagged;
+import de.philipbolting.product_catalog.error.InvalidProductCsvException;
+import de.philipbolting.product_catalog.error.InvalidProductReassignmentException;
 import de.philipbolting.product_catalog.error.NameAlreadyExistsException;
 import de.philipbolting.product_catalog.error.ProductBrandSlugNotFoundException;
 import de.philipbolting.product_catalog.error.ProductCategorySlugNotFoundException;
 import de.philipbolting.product_catalog.error.SlugAlreadyExistsException;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -12,25 +20,49 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.client.RestTestClient;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
 
 @WebMvcTest(ProductController.class)
 @AutoConfigureRestTestClient
 @Import(SecurityConfig.class)
 public class ProductControllerTest {
 
+    private static final ResourceVersion VERSION = new ResourceVersion(42L, Instant.parse("2026-01-02T03:04:05Z"));
+
     @Autowired
     private RestTestClient restTestClient;
 
     @MockitoBean
     private ProductService productService;
 
+    @MockitoBean
+    private ProductReassignService productReassignService;
+
+    @MockitoBean
+    private ProductImportService productImportService;
+
+    @MockitoBean
+    private ProductCsvImportService productCsvImportService;
+
+    @MockitoBean
+    private SlugRedirects slugRedirects;
+
     static Stream<String> validSlugs() {
         return Stream.of(
                 "some-slug",
@@ -455,14 +487,294 @@ public class ProductControllerTest {
         final String expectedName = "Some Name";
         final String expectedDescription = "Some Description";
         final var product = new ProductDTO("some-brand", "some-category", "some-slug", "Some Name", "Some Description");
-        when(productService.findProductBySlug(expectedSlug)).thenReturn(product);
+        when(productService.findTaggedProductBySlug(expectedSlug)).thenReturn(new Tagged<>(VERSION, product));
         restTestClient.get().uri("/api/products/" + expectedSlug)
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", VERSION.etag())
+                .expectHeader().valueEquals("Last-Modified", "Fri, 02 Jan 2026 03:04:05 GMT")
                 .expectBody()
                 .jsonPath("$.slug").isEqualTo(expectedSlug)
                 .jsonPath("$.name").isEqualTo(expectedName)
                 .jsonPath("$.description").isEqualTo(expectedDescription);
     }
+
+    @Test
+    void findProductBySlug_withMatchingETag_shouldReturnNotModified() {
+        when(productService.findProductVersion("some-slug")).thenReturn(VERSION);
+        restTestClient.get().uri("/api/products/some-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-None-Match", VERSION.etag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        verify(productService, never()).findTaggedProductBySlug(any());
+    }
+
+    @Test
+    void findProductBySlug_withUnchangedSinceIfModifiedSince_shouldReturnNotModified() {
+        when(productService.findProductVersion("some-slug")).thenReturn(VERSION);
+        restTestClient.get().uri("/api/products/some-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("If-Modified-Since", "Fri, 02 Jan 2026 03:04:05 GMT")
+                .exchange()
+                .expectStatus().isNotModified();
+        verify(productService, never()).findTaggedProductBySlug(any());
+    }
+
+    @Test
+    void importProducts_shouldStreamResultPerLine() throws Exception {
+        doAnswer(invocation -> {
+            final var in = invocation.getArgument(0, InputStream.class);
+            final var out = invocation.getArgument(1, OutputStream.class);
+            final var lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            out.write(("{\"line\":1,\"slug\":\"some-slug\",\"status\":\"CREATED\"}\n"
+                    + "{\"line\":" + lines.length + ",\"status\":\"FAILED\",\"detail\":\"Invalid JSON\"}\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(productImportService).importProducts(any(), any());
+        final var body = restTestClient.post().uri("/api/products/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body("""
+                        {"brandSlug":"some-brand","categorySlug":"some-category","slug":"some-slug","name":"Some Name","description":""}
+                        not json
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals("""
+                {"line":1,"slug":"some-slug","status":"CREATED"}
+                {"line":2,"status":"FAILED","detail":"Invalid JSON"}
+                """, body);
+    }
+
+    @Test
+    void importProducts_withJsonContentType_shouldReturnUnsupportedMediaType() throws Exception {
+        restTestClient.post().uri("/api/products/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+        verify(productImportService, never()).importProducts(any(), any());
+    }
+
+    @Test
+    void importProductCsv_shouldReturnImportedAndRejectedRows() {
+        when(productCsvImportService.importProducts(any())).thenReturn(new ProductCsvImportResultDTO(1, 1,
+                List.of(ProductImportResultDTO.failed(3, "some-other-slug", "Brand slug does not exist"))));
+        restTestClient.post().uri("/api/products/import")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        brand_slug,category_slug,slug,name,description
+                        some-brand,some-category,some-slug,Some Name,
+                        unknown,some-category,some-other-slug,Some Other Name,
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.imported").isEqualTo(1)
+                .jsonPath("$.rejected").isEqualTo(1)
+                .jsonPath("$.rejections[0].line").isEqualTo(3)
+                .jsonPath("$.rejections[0].slug").isEqualTo("some-other-slug")
+                .jsonPath("$.rejections[0].status").isEqualTo("FAILED")
+                .jsonPath("$.rejections[0].detail").isEqualTo("Brand slug does not exist");
+    }
+
+    @Test
+    void importProductCsv_withInvalidCsv_shouldReturnBadRequest() {
+        when(productCsvImportService.importProducts(any())).thenThrow(InvalidProductCsvException.class);
+        restTestClient.post().uri("/api/products/import")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .accept(MediaType.APPLICATION_JSON)
+                .body("slug\nsome-slug\n")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("CSV must start with the header brand_slug,category_slug,slug,name,description and have these five columns in every row");
+    }
+
+    @Test
+    void searchProducts_shouldReturnSlice() {
+        when(productService.searchProducts("drill", null, 20)).thenReturn(new SliceDTO<>(List.of(
+                new ProductDTO("some-brand", "some-category", "some-drill", "Some Drill", "")), "some-cursor"));
+        restTestClient.get().uri("/api/products/search?q=drill")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].slug").isEqualTo("some-drill")
+                .jsonPath("$.next").isEqualTo("some-cursor");
+    }
+
+    @Test
+    void searchProducts_withMemoryEngine_shouldSearchInMemory() {
+        when(productService.searchProductsInMemory("drill", "some-cursor", 10)).thenReturn(new SliceDTO<>(List.of(
+                new ProductDTO("some-brand", "some-category", "some-drill", "Some Drill", "")), null));
+        restTestClient.get().uri("/api/products/search?q=drill&after=some-cursor&limit=10&engine=memory")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].slug").isEqualTo("some-drill");
+        verify(productService, never()).searchProducts(any(), any(), anyInt());
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidSearchQueries")
+    void searchProducts_withInvalidQuery_shouldReturnBadRequest(String uri) {
+        restTestClient.get().uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(productService, never()).searchProducts(any(), any(), anyInt());
+    }
+
+    @Test
+    void searchProducts_withBlankQuery_shouldReturnBadRequest() {
+        restTestClient.get().uri(builder -> builder.path("/api/products/search").queryParam("q", "  ").build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(productService, never()).searchProducts(any(), any(), anyInt());
+    }
+
+    static Stream<String> invalidSearchQueries() {
+        return Stream.of(
+                "/api/products/search",
+                "/api/products/search?q=",
+                "/api/products/search?q=" + "q".repeat(101),
+                "/api/products/search?q=drill&limit=0",
+                "/api/products/search?q=drill&limit=101",
+                "/api/products/search?q=drill&engine=lucene");
+    }
+
+    @Test
+    void reassignProducts_shouldReturnReassignedCount() {
+        final var dto = new ProductReassignDTO(null, "some-parent/some-child", true, null, null, "some-category");
+        when(productReassignService.reassignProducts(dto)).thenReturn(new ProductReassignResultDTO(42));
+        restTestClient.post().uri("/api/products/reassign")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        {
+                            "categorySlug": "some-parent/some-child",
+                            "includeSubcategories": true,
+                            "targetCategorySlug": "some-category"
+                        }
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.reassigned").isEqualTo(42);
+    }
+
+    @Test
+    void reassignProducts_withoutTarget_shouldReturnBadRequest() {
+        final var dto = new ProductReassignDTO("some-brand", null, null, null, null, null);
+        when(productReassignService.reassignProducts(dto)).thenThrow(InvalidProductReassignmentException.class);
+        restTestClient.post().uri("/api/products/reassign")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        {
+                            "brandSlug": "some-brand"
+                        }
+                        """)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("At least one filter and one target must be set");
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidSlugs")
+    void reassignProducts_withInvalidSlug_shouldReturnBadRequest(String slug) {
+        restTestClient.post().uri("/api/products/reassign")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new ProductReassignDTO(null, null, false, List.of("some-slug", slug), "some-brand", null))
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(productReassignService, never()).reassignProducts(any());
+    }
+
+    @Test
+    void findProductBySlug_withRetiredSlug_shouldRedirectPermanently() {
+        when(slugRedirects.find(SlugType.PRODUCT, "old-slug")).thenReturn(Optional.of("new-slug"));
+        restTestClient.get().uri("/api/products/old-slug")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MOVED_PERMANENTLY)
+                .expectHeader().location("http://localhost/api/products/new-slug");
+        verify(productService, never()).findTaggedProductBySlug(any());
+    }
+
+    @Test
+    void changeProductSlug_shouldReturnProduct() {
+        when(productService.changeProductSlug("old-slug", new SlugChangeDTO("new-slug")))
+                .thenReturn(new ProductDTO("some-brand", "some-category", "new-slug", "Some Name", ""));
+        restTestClient.patch().uri("/api/products/old-slug")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new SlugChangeDTO("new-slug"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("new-slug");
+    }
+
+    @Test
+    void findProducts_shouldReturnSlice() {
+        when(productService.findProducts("some-brand", null, "some-cursor", 20)).thenReturn(new SliceDTO<>(
+                List.of(new ProductDTO("some-brand", "some-category", "some-product", "Some Product", "")), "next-cursor"));
+        restTestClient.get().uri("/api/products?brand=some-brand&after=some-cursor")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].slug").isEqualTo("some-product")
+                .jsonPath("$.next").isEqualTo("next-cursor");
+    }
+
+    @Test
+    void findProducts_withInvalidLimit_shouldReturnBadRequest() {
+        restTestClient.get().uri("/api/products?limit=101")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void findFacets_shouldReturnFacets() {
+        when(productService.findFacets("some-brand", "some-category")).thenReturn(new ProductFacetsDTO(2,
+                List.of(new ProductFacetDTO("some-brand", "Some Brand", 2)),
+                List.of(new ProductFacetDTO("some-category", "Some Category", 2))));
+        restTestClient.get().uri("/api/products/facets?brand=some-brand&category=some-category")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(2)
+                .jsonPath("$.brands[0].slug").isEqualTo("some-brand")
+                .jsonPath("$.brands[0].count").isEqualTo(2)
+                .jsonPath("$.categories[0].name").isEqualTo("Some Category");
+    }
+
+    @Test
+    void findFacetIndexStats_shouldReturnStats() {
+        when(productService.findFacetIndexStats()).thenReturn(new ProductFacetIndexStatsDTO(500_000, 42, 2_000_000, 4_000_000));
+        restTestClient.get().uri("/api/products/facets/stats")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.products").isEqualTo(500_000)
+                .jsonPath("$.bytesPerMillionProducts").isEqualTo(4_000_000);
+    }
 }
@@ -0,0 +1,190 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import de.philipbolting.product_catalog.error.InvalidProductCsvException;
+import de.philipbolting.product_catalog.slug.SlugChangeDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ProductCsvImportServiceIT {
+
+    @Autowired
+    private ProductCsvImportService productCsvImportService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private ProductCsvImportRepository productCsvImportRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        categoryTreeCache.refresh();
+        productFacetIndex.refresh();
+        productSearchIndex.refresh();
+    }
+
+    // the indexes are rebuilt in the background once the import has committed
+    private static void eventually(Runnable assertion) throws InterruptedException {
+        final var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private List<String> search(String q) {
+        return productService.searchProductsInMemory(q, null, 20).items().stream().map(ProductDTO::slug).toList();
+    }
+
+    @Test
+    void importProducts_shouldMergeValidRowsAndReportTheRest() throws InterruptedException {
+        final var result = importProducts("""
+                brand_slug,category_slug,slug,name,description
+                brand-1,category-2/category-2-1,imported-1,Imported 1,"First, with comma"
+                brand-1,category-2,product-a,Imported 2,
+                unknown,category-2,imported-3,Imported 3,
+                brand-2,category-2,imported-4,Product A,
+                brand-2,category-2,Imported-5,Imported 5,
+                brand-2,unknown,imported-6,Imported 6,
+                brand-3,category-1,imported-1,Imported 7,
+                brand-3,category-1,imported-8,Imported 1,
+                brand-3,category-1,imported-9,,
+                brand-3,category-1,imported-10,Imported 10,
+                """);
+
+        assertEquals(2, result.imported());
+        assertEquals(8, result.rejected());
+        assertEquals(List.of(
+                ProductImportResultDTO.failed(3, "product-a", "Slug already exists"),
+                ProductImportResultDTO.failed(4, "imported-3", "Brand slug does not exist"),
+                ProductImportResultDTO.failed(5, "imported-4", "Name already exists"),
+                ProductImportResultDTO.failed(6, "Imported-5", "must match \"^[a-z0-9]+(?:-[a-z0-9]+)*$\""),
+                ProductImportResultDTO.failed(7, "imported-6", "Category slug does not exist"),
+                ProductImportResultDTO.failed(8, "imported-1", "Slug already exists"),
+                ProductImportResultDTO.failed(9, "imported-8", "Name already exists"),
+                ProductImportResultDTO.failed(10, "imported-9", "Name must not be empty")), result.rejections());
+        assertEquals(new ProductDTO("brand-1", "category-2/category-2-1", "imported-1", "Imported 1", "First, with comma"),
+                productService.findProductBySlug("imported-1"));
+        assertEquals(new ProductDTO("brand-3", "category-1", "imported-10", "Imported 10", null),
+                productService.findProductBySlug("imported-10"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM product_csv_import", Integer.class));
+        eventually(() -> assertEquals(5, productService.findFacets("brand-1", null).total()));
+        eventually(() -> assertEquals(List.of("imported-1"), search("imported comma")));
+    }
+
+    @Test
+    void importProducts_withRetiredSlug_shouldStopRedirecting() {
+        productService.changeProductSlug("product-g", new SlugChangeDTO("product-g-renamed"));
+
+        importProducts("""
+                brand_slug,category_slug,slug,name,description
+                brand-1,category-1,product-g,Reused Slug,
+                """);
+
+        assertEquals("Reused Slug", productService.findProductBySlug("product-g").name());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM slug_history WHERE old_slug = 'product-g'", Integer.class));
+    }
+
+    @Test
+    void merge_withProductCreatedSinceReject_shouldReportTheSkippedRow() {
+        final var rejections = new TransactionTemplate(transactionManager).execute(status -> {
+            productCsvImportRepository.clear();
+            productCsvImportRepository.copy(new ByteArrayInputStream("""
+                    brand_slug,category_slug,slug,name,description
+                    brand-1,category-1,concurrent-1,Concurrent 1,
+                    brand-1,category-1,concurrent-2,Concurrent 2,
+                    """.getBytes(StandardCharsets.UTF_8)));
+            productCsvImportRepository.reject();
+            jdbcTemplate.update("INSERT INTO product (id, brand_id, category_id, slug, name) VALUES (900, 1, 1, 'other', 'Concurrent 2')");
+            assertEquals(1, productCsvImportRepository.merge(2, Instant.now()));
+            status.setRollbackOnly();
+            return productCsvImportRepository.findRejected(10);
+        });
+        assertEquals(List.of(ProductImportResultDTO.failed(3, "concurrent-2", "Slug or name already exists")), rejections);
+    }
+
+    @Test
+    void importProducts_withWrongHeader_shouldThrow() {
+        assertThrows(InvalidProductCsvException.class, () -> importProducts("""
+                brand,category,slug,name,description
+                brand-1,category-1,wrong-header,Wrong Header,
+                """));
+        assertThrows(InvalidProductCsvException.class, () -> importProducts("""
+                brand_slug,category_slug,slug,name,description
+                brand-1,category-1,missing-column
+                """));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM product WHERE slug IN ('wrong-header', 'missing-column')", Integer.class));
+    }
+
+    @Test
+    void importProducts_withManyRows_shouldShareTheSequenceWithHibernate() {
+        final var count = 200_000;
+        final var csv = new StringBuilder("brand_slug,category_slug,slug,name,description\n");
+        for (var i = 0; i < count; i++) {
+            csv.append("brand-").append(i % 3 + 1).append(",category-2/category-2-1,csv-").append(i)
+                    .append(",Csv ").append(i).append(",Description ").append(i).append('\n');
+        }
+
+        final var start = System.nanoTime();
+        final var result = importProducts(csv.toString());
+        final var millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("imported %d products from csv in %d ms (%d products/s)%n", count, millis, count * 1000L / Math.max(millis, 1));
+
+        assertEquals(count, result.imported());
+        assertEquals(0, result.rejected());
+        assertEquals(count, jdbcTemplate.queryForObject("SELECT count(DISTINCT id) FROM product WHERE slug LIKE 'csv-%'", Integer.class));
+        productService.createProduct(new ProductDTO("brand-1", "category-1", "after-csv", "After Csv", ""));
+        assertEquals("After Csv", productService.findProductBySlug("after-csv").name());
+    }
+
+    private ProductCsvImportResultDTO importProducts(String csv) {
+        return productCsvImportService.importProducts(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
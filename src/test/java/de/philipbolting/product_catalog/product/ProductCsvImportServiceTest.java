@@ -0,0 +1,88 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCsvImportServiceTest {
+
+    private ProductCsvImportService productCsvImportService;
+    @Mock
+    private ProductCsvImportRepository productCsvImportRepository;
+    @Mock
+    private SlugRedirects slugRedirects;
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private SuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        productCsvImportService = new ProductCsvImportService(productCsvImportRepository, slugRedirects, productFacetIndex, productSearchIndex, suggestIndex, 10);
+    }
+
+    @Test
+    void importProducts_shouldMergeAcceptedRowsAndClearStagingTable() {
+        final var rejected = List.of(ProductImportResultDTO.failed(3, "some-slug", "Slug already exists"));
+        when(productCsvImportRepository.copy(any())).thenReturn(5L);
+        when(productCsvImportRepository.countAccepted()).thenReturn(4L);
+        when(productCsvImportRepository.merge(eq(4L), any())).thenReturn(4L);
+        when(productCsvImportRepository.findRetiredSlugs()).thenReturn(List.of("some-retired-slug"));
+        when(productCsvImportRepository.findRejected(10)).thenReturn(rejected);
+
+        final var result = productCsvImportService.importProducts(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(new ProductCsvImportResultDTO(4, 1, rejected), result);
+        final var inOrder = inOrder(productCsvImportRepository);
+        inOrder.verify(productCsvImportRepository).clear();
+        inOrder.verify(productCsvImportRepository).copy(any());
+        inOrder.verify(productCsvImportRepository).reject();
+        inOrder.verify(productCsvImportRepository).merge(eq(4L), any());
+        inOrder.verify(productCsvImportRepository).findRejected(10);
+        inOrder.verify(productCsvImportRepository).clear();
+        verify(slugRedirects).release(SlugType.PRODUCT, List.of("some-retired-slug"));
+        verify(productFacetIndex).refreshAfterCommit();
+        verify(productSearchIndex).refreshAfterCommit();
+    }
+
+    @Test
+    void importProducts_withConcurrentConflicts_shouldReportSkippedRows() {
+        when(productCsvImportRepository.copy(any())).thenReturn(4L);
+        when(productCsvImportRepository.countAccepted()).thenReturn(4L);
+        when(productCsvImportRepository.merge(eq(4L), any())).thenReturn(3L);
+
+        final var result = productCsvImportService.importProducts(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(3, result.imported());
+        assertEquals(1, result.rejected());
+    }
+
+    @Test
+    void importProducts_withoutAcceptedRows_shouldNotMerge() {
+        when(productCsvImportRepository.copy(any())).thenReturn(2L);
+        when(productCsvImportRepository.countAccepted()).thenReturn(0L);
+
+        final var result = productCsvImportService.importProducts(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(0, result.imported());
+        assertEquals(2, result.rejected());
+        verify(productCsvImportRepository, never()).merge(anyLong(), any());
+        verifyNoInteractions(slugRedirects, productFacetIndex);
+    }
+}
@@ -0,0 +1,77 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ProductFacetIndexIT {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @BeforeEach
+    void setUp() {
+        categoryTreeCache.refresh();
+        productFacetIndex.refresh();
+    }
+
+    @Test
+    void findFacets_withoutFilters_shouldCountAllProducts() {
+        final var facets = productService.findFacets(null, null);
+        assertEquals(7, facets.total());
+        assertEquals(List.of(
+                new ProductFacetDTO("brand-1", "Brand 1", 4),
+                new ProductFacetDTO("brand-2", "Brand 2", 2),
+                new ProductFacetDTO("brand-3", "Brand 3", 1)), facets.brands());
+        assertEquals(List.of(
+                new ProductFacetDTO("category-1", "Category 1", 1),
+                new ProductFacetDTO("category-2", "Category 2", 6)), facets.categories());
+    }
+
+    @Test
+    void findFacets_withFilters_shouldCountWithinTheOtherFilter() {
+        final var facets = productService.findFacets("brand-1", "category-2/category-2-1");
+        assertEquals(2, facets.total());
+        assertEquals(List.of(
+                new ProductFacetDTO("brand-1", "Brand 1", 2),
+                new ProductFacetDTO("brand-2", "Brand 2", 2),
+                new ProductFacetDTO("brand-3", "Brand 3", 1)), facets.brands());
+        assertEquals(List.of(
+                new ProductFacetDTO("category-1", "Category 1", 1),
+                new ProductFacetDTO("category-2", "Category 2", 3)), facets.categories());
+    }
+
+    @Test
+    void createProduct_shouldBeCountedWithoutRefresh() {
+        productService.createProduct(new ProductDTO("brand-3", "category-1/category-1-2", "product-facet", "Product Facet", ""));
+        final var facets = productService.findFacets("brand-3", "category-1");
+        assertEquals(1, facets.total());
+        assertEquals(List.of(
+                new ProductFacetDTO("category-1", "Category 1", 1),
+                new ProductFacetDTO("category-2", "Category 2", 1)), facets.categories());
+        assertEquals(8, productService.findFacetIndexStats().products());
+    }
+}
@@ -0,0 +1,187 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex productFacetIndex;
+    @Mock
+    private ProductFacetRepository productFacetRepository;
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        productFacetIndex = new ProductFacetIndex(productFacetRepository, categoryTreeCache, transactionManager, new SimpleAsyncTaskExecutor());
+    }
+
+    // products 1-4, brands 10 and 11, category 2 is a child of category 1 and category 3 a second top level category
+    private void givenProducts() {
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            handler.handle(1, 10L);
+            handler.handle(2, 10L);
+            handler.handle(3, 11L);
+            handler.handle(4, 11L);
+            return null;
+        }).when(productFacetRepository).forEachBrandAssignment(any());
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            handler.handle(1, 1L);
+            handler.handle(2, 1L);
+            handler.handle(2, 2L);
+            handler.handle(3, 1L);
+            handler.handle(3, 2L);
+            handler.handle(4, 3L);
+            return null;
+        }).when(productFacetRepository).forEachCategoryAssignment(any());
+    }
+
+    @Test
+    void count_withoutFilters_shouldCountAllProducts() {
+        givenProducts();
+        productFacetIndex.refresh();
+        final var facets = productFacetIndex.count(null, null, List.of(1L, 3L));
+        assertEquals(4, facets.total());
+        assertEquals(Map.of(10L, 2L, 11L, 2L), facets.brandCounts());
+        assertEquals(Map.of(1L, 3L, 3L, 1L), facets.categoryCounts());
+    }
+
+    @Test
+    void count_withFilters_shouldCountEachFacetWithinTheOtherFilter() {
+        givenProducts();
+        productFacetIndex.refresh();
+        final var facets = productFacetIndex.count(11L, 2L, List.of(1L, 3L));
+        assertEquals(1, facets.total());
+        assertEquals(Map.of(10L, 1L, 11L, 1L), facets.brandCounts());
+        assertEquals(Map.of(1L, 1L, 3L, 1L), facets.categoryCounts());
+    }
+
+    @Test
+    void count_withUnknownFilter_shouldCountNothing() {
+        givenProducts();
+        productFacetIndex.refresh();
+        final var facets = productFacetIndex.count(null, 99L, List.of(1L, 3L));
+        assertEquals(0, facets.total());
+        assertEquals(Map.of(), facets.brandCounts());
+    }
+
+    @Test
+    void addAfterCommit_shouldAddProductToBrandAndCategoryAncestors() {
+        when(categoryTreeCache.findById(2L)).thenReturn(Optional.of(new CategoryTree(2L, 1L, "Child", "parent/child", new int[]{1, 1}, 1)));
+        when(categoryTreeCache.findById(1L)).thenReturn(Optional.of(new CategoryTree(1L, null, "Parent", "parent", new int[]{1}, 0)));
+        productFacetIndex.addAfterCommit(5L, 10L, 2L);
+        final var facets = productFacetIndex.count(10L, null, List.of(1L));
+        assertEquals(1, facets.total());
+        assertEquals(Map.of(1L, 1L), facets.categoryCounts());
+        assertEquals(1, productFacetIndex.count(null, 2L, List.of()).total());
+    }
+
+    @Test
+    void refresh_withProductAddedDuringRebuild_shouldKeepIt() {
+        when(categoryTreeCache.findById(3L)).thenReturn(Optional.of(new CategoryTree(3L, null, "Other", "other", new int[]{2}, 0)));
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            handler.handle(1, 10L);
+            productFacetIndex.addAfterCommit(5L, 11L, 3L);
+            return null;
+        }).when(productFacetRepository).forEachBrandAssignment(any());
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            handler.handle(1, 3L);
+            return null;
+        }).when(productFacetRepository).forEachCategoryAssignment(any());
+        productFacetIndex.refresh();
+        final var facets = productFacetIndex.count(null, 3L, List.of(3L));
+        assertEquals(2, facets.total());
+        assertEquals(Map.of(10L, 1L, 11L, 1L), facets.brandCounts());
+    }
+
+    @Test
+    void addAfterCommit_withProductIdsBeyondIntRange_shouldCountThem() {
+        when(categoryTreeCache.findById(3L)).thenReturn(Optional.of(new CategoryTree(3L, null, "Other", "other", new int[]{2}, 0)));
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            handler.handle(1, 10L);
+            handler.handle(5_000_000_000L, 10L);
+            return null;
+        }).when(productFacetRepository).forEachBrandAssignment(any());
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            handler.handle(1, 3L);
+            handler.handle(5_000_000_000L, 3L);
+            return null;
+        }).when(productFacetRepository).forEachCategoryAssignment(any());
+        productFacetIndex.refresh();
+        productFacetIndex.addAfterCommit(5_000_000_000L, 10L, 3L);
+        productFacetIndex.addAfterCommit(9_000_000_000L, 11L, 3L);
+        final var facets = productFacetIndex.count(null, 3L, List.of(3L));
+        assertEquals(3, facets.total());
+        assertEquals(Map.of(10L, 2L, 11L, 1L), facets.brandCounts());
+    }
+
+    @Test
+    void refreshInBackground_shouldRebuildOffTheCallingThread() {
+        givenProducts();
+        productFacetIndex.refreshInBackground();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (productFacetIndex.stats().products() != 4) {
+                Thread.sleep(10);
+            }
+        });
+    }
+
+    @Test
+    void stats_withMillionProducts_shouldStayCompact() {
+        final var random = new Random(1);
+        final var brandIds = new long[1_000_000];
+        final var leafIds = new long[1_000_000];
+        for (var i = 0; i < brandIds.length; i++) {
+            brandIds[i] = random.nextInt(1000);
+            leafIds[i] = 100 + random.nextInt(100);
+        }
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            for (var i = 0; i < brandIds.length; i++) {
+                handler.handle(i + 1, brandIds[i]);
+            }
+            return null;
+        }).when(productFacetRepository).forEachBrandAssignment(any());
+        doAnswer(invocation -> {
+            final ProductFacetRepository.AssignmentHandler handler = invocation.getArgument(0);
+            for (var i = 0; i < leafIds.length; i++) {
+                handler.handle(i + 1, leafIds[i] / 10);
+                handler.handle(i + 1, leafIds[i]);
+            }
+            return null;
+        }).when(productFacetRepository).forEachCategoryAssignment(any());
+        productFacetIndex.refresh();
+
+        final var stats = productFacetIndex.stats();
+        assertEquals(1_000_000, stats.products());
+        assertEquals(1000 + 10 + 100, stats.bitmaps());
+        assertTrue(stats.bytes() < 8_000_000, "index takes " + stats.bytes() + " bytes per million products");
+        assertEquals(1_000_000, productFacetIndex.count(null, null, List.of(10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L)).total());
+    }
+}
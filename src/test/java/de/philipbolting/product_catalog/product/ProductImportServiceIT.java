@@ -0,0 +1,115 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ProductImportServiceIT {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        categoryTreeCache.refresh();
+        productFacetIndex.refresh();
+        productSearchIndex.refresh();
+    }
+
+    private List<String> search(String q) {
+        return productService.searchProductsInMemory(q, null, 20).items().stream().map(ProductDTO::slug).toList();
+    }
+
+    @Test
+    void importProducts_shouldInsertValidLinesAndReportTheRest() throws IOException {
+        final var results = importProducts("""
+                {"brandSlug":"brand-1","categorySlug":"category-2/category-2-1","slug":"imported-1","name":"Imported 1","description":"First"}
+                {"brandSlug":"brand-1","categorySlug":"category-2","slug":"product-a","name":"Imported 2"}
+                {"brandSlug":"unknown","categorySlug":"category-2","slug":"imported-3","name":"Imported 3"}
+
+                {"brandSlug":"brand-3","categorySlug":"category-1","slug":"imported-4","name":"Imported 4"}
+                """);
+
+        assertEquals("""
+                {"line":1,"slug":"imported-1","status":"CREATED"}
+                {"line":2,"slug":"product-a","status":"FAILED","detail":"Slug already exists"}
+                {"line":3,"slug":"imported-3","status":"FAILED","detail":"Brand slug does not exist"}
+                {"line":5,"slug":"imported-4","status":"CREATED"}
+                """, results);
+        assertEquals(new ProductDTO("brand-1", "category-2/category-2-1", "imported-1", "Imported 1", "First"),
+                productService.findProductBySlug("imported-1"));
+        assertEquals(new ProductDTO("brand-3", "category-1", "imported-4", "Imported 4", null),
+                productService.findProductBySlug("imported-4"));
+        final var facets = productService.findFacets("brand-1", null);
+        assertEquals(5, facets.total());
+        assertEquals(List.of("imported-1"), search("imported first"));
+        assertEquals(List.of("imported-4"), search("brand 3 imported"));
+    }
+
+    @Test
+    void importProducts_withManyLines_shouldShareTheSequenceWithHibernate() throws IOException {
+        final var count = 50_000;
+        final var request = new StringBuilder();
+        for (var i = 0; i < count; i++) {
+            request.append("{\"brandSlug\":\"brand-").append(i % 3 + 1)
+                    .append("\",\"categorySlug\":\"category-2/category-2-1\",\"slug\":\"bulk-").append(i)
+                    .append("\",\"name\":\"Bulk ").append(i).append("\"}\n");
+        }
+
+        final var start = System.nanoTime();
+        final var results = importProducts(request.toString());
+        final var millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("imported %d products in %d ms (%d products/s)%n", count, millis, count * 1000L / Math.max(millis, 1));
+
+        assertEquals(count, results.lines().filter(line -> line.contains("\"CREATED\"")).count());
+        assertEquals(count, jdbcTemplate.queryForObject("SELECT count(*) FROM product WHERE slug LIKE 'bulk-%'", Integer.class));
+        assertEquals(jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM product p JOIN category_closure c ON c.descendant_id = p.category_id WHERE c.ancestor_id = 5
+                """, Long.class), productService.findFacets(null, "category-2/category-2-1").total());
+        productService.createProduct(new ProductDTO("brand-1", "category-1", "after-bulk", "After Bulk", ""));
+        assertEquals("After Bulk", productService.findProductBySlug("after-bulk").name());
+    }
+
+    private String importProducts(String request) throws IOException {
+        final var out = new ByteArrayOutputStream();
+        productImportService.importProducts(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.brand.Brand;
+import de.philipbolting.product_catalog.brand.BrandRepository;
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.slug.SlugType;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    private ProductImportService productImportService;
+    @Mock
+    private ProductImportRepository productImportRepository;
+    @Mock
+    private BrandRepository brandRepository;
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+    @Mock
+    private SlugRedirects slugRedirects;
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private SuggestIndex suggestIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @BeforeEach
+    void setUp() {
+        productImportService = new ProductImportService(productImportRepository, brandRepository, categoryTreeCache, slugRedirects,
+                productFacetIndex, productSearchIndex, suggestIndex, Validation.buildDefaultValidatorFactory().getValidator(), jsonMapper, transactionManager, 2);
+    }
+
+    private static Brand brand(long id, String slug) {
+        final var brand = new Brand(slug, slug, "");
+        brand.setId(id);
+        return brand;
+    }
+
+    private static String line(String brandSlug, String categorySlug, String slug, String name) {
+        return """
+                {"brandSlug":"%s","categorySlug":"%s","slug":"%s","name":"%s","description":""}
+                """.formatted(brandSlug, categorySlug, slug, name);
+    }
+
+    private List<ProductImportResultDTO> importProducts(String ndjson) throws IOException {
+        final var out = new ByteArrayOutputStream();
+        productImportService.importProducts(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toString(StandardCharsets.UTF_8).lines()
+                .map(result -> jsonMapper.readValue(result, ProductImportResultDTO.class))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<ProductImportRepository.Row>> insertedRows(int batches) {
+        final ArgumentCaptor<List<ProductImportRepository.Row>> captor = ArgumentCaptor.forClass(List.class);
+        verify(productImportRepository, times(batches)).insertAll(captor.capture(), any());
+        return captor.getAllValues();
+    }
+
+    @Test
+    void importProducts_shouldInsertInBatchesWithOneLookupPerBatch() throws IOException {
+        when(brandRepository.findBySlugIn(any())).thenReturn(List.of(brand(1L, "brand-1")));
+        when(categoryTreeCache.findBySlug("category-1")).thenReturn(Optional.of(new CategoryTree(5L, null, "Category 1", "category-1", new int[]{1}, 0)));
+        when(productImportRepository.findExisting(any(), any())).thenReturn(new ProductImportRepository.Existing(Set.of(), Set.of()));
+        when(productImportRepository.nextIds(2)).thenReturn(List.of(51L, 52L));
+        when(productImportRepository.nextIds(1)).thenReturn(List.of(53L));
+
+        final var results = importProducts(line("brand-1", "category-1", "product-a", "Product A")
+                + line("brand-1", "category-1", "product-b", "Product B")
+                + "\n"
+                + line("brand-1", "category-1", "product-c", "Product C"));
+
+        assertEquals(List.of(
+                ProductImportResultDTO.created(1, "product-a"),
+                ProductImportResultDTO.created(2, "product-b"),
+                ProductImportResultDTO.created(4, "product-c")), results);
+        final var rows = insertedRows(2);
+        assertEquals(List.of(new ProductImportRepository.Row(51L, 1L, 5L, "product-a", "Product A", ""),
+                new ProductImportRepository.Row(52L, 1L, 5L, "product-b", "Product B", "")), rows.get(0));
+        assertEquals(List.of(new ProductImportRepository.Row(53L, 1L, 5L, "product-c", "Product C", "")), rows.get(1));
+        verify(brandRepository, times(2)).findBySlugIn(any());
+        verify(categoryTreeCache, times(2)).findBySlug("category-1");
+        verify(slugRedirects).release(SlugType.PRODUCT, List.of("product-a", "product-b"));
+        verify(productFacetIndex).addAllAfterCommit(List.of(new ProductFacetIndex.Entry(51L, 1L, 5L), new ProductFacetIndex.Entry(52L, 1L, 5L)));
+        verify(productSearchIndex).addAllAfterCommit(List.of(
+                new ProductSearchIndex.Document(51L, "Product A", "", "brand-1", "Category 1"),
+                new ProductSearchIndex.Document(52L, "Product B", "", "brand-1", "Category 1")));
+    }
+
+    @Test
+    void importProducts_withInvalidLines_shouldReportEachLine() throws IOException {
+        when(brandRepository.findBySlugIn(any())).thenReturn(List.of(brand(1L, "brand-1")));
+        when(categoryTreeCache.findBySlug("category-1")).thenReturn(Optional.of(new CategoryTree(5L, null, "Category 1", "category-1", new int[]{1}, 0)));
+        when(categoryTreeCache.findBySlug("unknown")).thenReturn(Optional.empty());
+        when(productImportRepository.findExisting(any(), any()))
+                .thenReturn(new ProductImportRepository.Existing(Set.of("taken"), Set.of("Taken Name")));
+
+        final var results = importProducts("{not json\n"
+                + line("brand-1", "category-1", "Invalid Slug", "Product A")
+                + line("unknown", "category-1", "product-b", "Product B")
+                + line("brand-1", "unknown", "product-c", "Product C")
+                + line("brand-1", "category-1", "taken", "Product D")
+                + line("brand-1", "category-1", "product-e", "Taken Name"));
+
+        assertEquals(List.of(
+                ProductImportResultDTO.failed(1, null, "Invalid JSON"),
+                ProductImportResultDTO.failed(2, "Invalid Slug", "must match \"^[a-z0-9]+(?:-[a-z0-9]+)*$\""),
+                ProductImportResultDTO.failed(3, "product-b", "Brand slug does not exist"),
+                ProductImportResultDTO.failed(4, "product-c", "Category slug does not exist"),
+                ProductImportResultDTO.failed(5, "taken", "Slug already exists"),
+                ProductImportResultDTO.failed(6, "product-e", "Name already exists")), results);
+        verify(productImportRepository, never()).insertAll(any(), any());
+        verifyNoInteractions(slugRedirects, productFacetIndex, productSearchIndex);
+    }
+
+    @Test
+    void importProducts_withDuplicatesInBatch_shouldOnlyInsertFirst() throws IOException {
+        when(brandRepository.findBySlugIn(any())).thenReturn(List.of(brand(1L, "brand-1")));
+        when(categoryTreeCache.findBySlug("category-1")).thenReturn(Optional.of(new CategoryTree(5L, null, "Category 1", "category-1", new int[]{1}, 0)));
+        when(productImportRepository.findExisting(any(), any())).thenReturn(new ProductImportRepository.Existing(Set.of(), Set.of()));
+        when(productImportRepository.nextIds(1)).thenReturn(List.of(51L));
+
+        final var results = importProducts(line("brand-1", "category-1", "product-a", "Product A")
+                + line("brand-1", "category-1", "product-a", "Product B"));
+
+        assertEquals(List.of(
+                ProductImportResultDTO.created(1, "product-a"),
+                ProductImportResultDTO.failed(2, "product-a", "Slug already exists")), results);
+        assertEquals(1, insertedRows(1).getFirst().size());
+    }
+}
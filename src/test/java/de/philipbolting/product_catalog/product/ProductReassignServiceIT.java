@@ -0,0 +1,102 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(properties = "product-catalog.product-reassign.products-per-transaction=1000")
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ProductReassignServiceIT {
+
+    @Autowired
+    private ProductReassignService productReassignService;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        categoryTreeCache.refresh();
+    }
+
+    @Test
+    void reassignProducts_ofCategorySubtree_shouldMoveAllMatchingProducts() {
+        final var result = productReassignService.reassignProducts(
+                new ProductReassignDTO(null, "category-2/category-2-1", true, null, null, "category-1/category-1-2"));
+
+        assertEquals(new ProductReassignResultDTO(5), result);
+        assertEquals(List.of(2L, 3L, 4L, 5L, 7L), productIdsWhere("category_id = 4"));
+        assertEquals(5, count("category_id = 4 AND last_modified IS NOT NULL"));
+        assertEquals(List.of(1L), productIdsWhere("category_id = 2"));
+    }
+
+    @Test
+    void reassignProducts_ofCategoryWithoutSubcategories_shouldOnlyMoveDirectProducts() {
+        final var result = productReassignService.reassignProducts(
+                new ProductReassignDTO(null, "category-2/category-2-1", false, null, null, "category-1"));
+        assertEquals(new ProductReassignResultDTO(2), result);
+        assertEquals(List.of(2L, 7L), productIdsWhere("category_id = 1"));
+    }
+
+    @Test
+    void reassignProducts_withCombinedFilters_shouldOnlyMoveProductsMatchingAll() {
+        final var result = productReassignService.reassignProducts(
+                new ProductReassignDTO("brand-1", "category-2", true, List.of("product-a", "product-b", "product-c"), "brand-3", "category-1"));
+        assertEquals(new ProductReassignResultDTO(2), result);
+        assertEquals(List.of(1L, 3L), productIdsWhere("brand_id = 3 AND category_id = 1"));
+    }
+
+    @Test
+    void reassignProducts_withProductsAlreadyAtTarget_shouldSkipThem() {
+        final var result = productReassignService.reassignProducts(new ProductReassignDTO("brand-2", null, false, null, "brand-2", null));
+        assertEquals(new ProductReassignResultDTO(0), result);
+        assertEquals(0, count("last_modified IS NOT NULL"));
+    }
+
+    @Test
+    void reassignProducts_withManyProducts_shouldUpdateAllInChunks() {
+        jdbcTemplate.update("""
+                INSERT INTO product (id, brand_id, category_id, slug, name)
+                SELECT nextval('seq_product'), 1 + i % 3, 6, 'bulk-' || i, 'Bulk ' || i
+                FROM generate_series(1, 100000) i
+                """);
+
+        final var started = System.nanoTime();
+        final var result = productReassignService.reassignProducts(
+                new ProductReassignDTO("brand-1", "category-2", true, null, "brand-2", "category-1/category-1-1"));
+        final var elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertEquals(new ProductReassignResultDTO(33333 + 3), result);
+        assertEquals(33333 + 3 + 1, count("category_id = 3"));
+        assertEquals(33333 + 3, count("brand_id = 2 AND category_id = 3"));
+        assertTrue(elapsed.toSeconds() < 60, "reassigned 100k products in " + elapsed);
+    }
+
+    private List<Long> productIdsWhere(String condition) {
+        return jdbcTemplate.queryForList("SELECT id FROM product WHERE " + condition + " ORDER BY id", Long.class);
+    }
+
+    private int count(String condition) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM product WHERE " + condition, Integer.class);
+    }
+}
@@ -0,0 +1,137 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.brand.Brand;
+import de.philipbolting.product_catalog.brand.BrandRepository;
+import de.philipbolting.product_catalog.category.CategoryTree;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import de.philipbolting.product_catalog.error.InvalidProductReassignmentException;
+import de.philipbolting.product_catalog.error.ProductBrandSlugNotFoundException;
+import de.philipbolting.product_catalog.error.ProductCategorySlugNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductReassignServiceTest {
+
+    private ProductReassignService productReassignService;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private BrandRepository brandRepository;
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        productReassignService = new ProductReassignService(productRepository, brandRepository, categoryTreeCache, productFacetIndex, productSearchIndex, transactionManager, 2);
+    }
+
+    private static Brand brand(long id) {
+        final var brand = new Brand("brand-" + id, "Brand " + id, "");
+        brand.setId(id);
+        return brand;
+    }
+
+    @Test
+    void reassignProducts_shouldUpdateInChunksUntilNoProductsAreLeft() {
+        when(brandRepository.findBySlug("brand-1")).thenReturn(Optional.of(brand(1L)));
+        when(categoryTreeCache.findBySlug("target")).thenReturn(Optional.of(new CategoryTree(9L, null, "Target", "target", new int[]{1}, 0)));
+        when(productRepository.findReassignChunkByBrand(1L, 0L, 2)).thenReturn(List.of(3L, 5L));
+        when(productRepository.findReassignChunkByBrand(1L, 5L, 2)).thenReturn(List.of(8L));
+        when(productRepository.findReassignChunkByBrand(1L, 8L, 2)).thenReturn(List.of());
+        when(productRepository.reassign(List.of(3L, 5L), 1L, null, false, null, null, 9L)).thenReturn(2);
+        when(productRepository.reassign(List.of(8L), 1L, null, false, null, null, 9L)).thenReturn(1);
+
+        final var result = productReassignService.reassignProducts(new ProductReassignDTO("brand-1", null, false, null, null, "target"));
+
+        assertEquals(new ProductReassignResultDTO(3), result);
+        verify(productFacetIndex).refreshInBackground();
+        verify(productSearchIndex).refreshInBackground();
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void reassignProducts_withCategory_shouldWalkCategoryAndCheckBrand() {
+        when(brandRepository.findBySlug("brand-1")).thenReturn(Optional.of(brand(1L)));
+        when(brandRepository.findBySlug("brand-2")).thenReturn(Optional.of(brand(2L)));
+        when(categoryTreeCache.findBySlug("source")).thenReturn(Optional.of(new CategoryTree(4L, null, "Source", "source", new int[]{1}, 0)));
+        when(productRepository.findReassignChunkByCategory(4L, 0L, 2)).thenReturn(List.of(7L));
+        when(productRepository.findReassignChunkByCategory(4L, 7L, 2)).thenReturn(List.of());
+        when(productRepository.reassign(List.of(7L), 1L, 4L, false, null, 2L, null)).thenReturn(1);
+
+        final var result = productReassignService.reassignProducts(new ProductReassignDTO("brand-1", "source", false, null, "brand-2", null));
+
+        assertEquals(new ProductReassignResultDTO(1), result);
+        verify(productRepository, never()).findReassignChunkByBrand(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void reassignProducts_withCategorySubtree_shouldWalkDescendants() {
+        when(brandRepository.findBySlug("brand-2")).thenReturn(Optional.of(brand(2L)));
+        when(categoryTreeCache.findBySlug("source")).thenReturn(Optional.of(new CategoryTree(4L, null, "Source", "source", new int[]{1}, 0)));
+        when(productRepository.findReassignChunkByCategorySubtree(4L, 0L, 2)).thenReturn(List.of());
+
+        final var result = productReassignService.reassignProducts(new ProductReassignDTO(null, "source", true, null, "brand-2", null));
+
+        assertEquals(new ProductReassignResultDTO(0), result);
+        verify(productRepository, never()).findReassignChunkByCategory(anyLong(), anyLong(), anyInt());
+        verifyNoInteractions(productFacetIndex, productSearchIndex);
+    }
+
+    @Test
+    void reassignProducts_withSlugs_shouldPassThemAsArray() {
+        when(brandRepository.findBySlug("brand-2")).thenReturn(Optional.of(brand(2L)));
+        when(productRepository.findReassignChunkBySlugs("{product-a,product-b}", 0L, 2)).thenReturn(List.of());
+
+        final var result = productReassignService.reassignProducts(
+                new ProductReassignDTO(null, null, false, List.of("product-a", "product-b"), "brand-2", null));
+
+        assertEquals(new ProductReassignResultDTO(0), result);
+        verify(productRepository, never()).reassign(any(), any(), any(), anyBoolean(), any(), any(), any());
+    }
+
+    @Test
+    void reassignProducts_withEmptySlugs_shouldNotTouchProducts() {
+        when(brandRepository.findBySlug("brand-2")).thenReturn(Optional.of(brand(2L)));
+        final var result = productReassignService.reassignProducts(new ProductReassignDTO(null, null, false, List.of(), "brand-2", null));
+        assertEquals(new ProductReassignResultDTO(0), result);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void reassignProducts_withoutFilterOrTarget_shouldThrowException() {
+        assertThrows(InvalidProductReassignmentException.class, () ->
+                productReassignService.reassignProducts(new ProductReassignDTO(null, null, true, null, "brand-1", "target")));
+        assertThrows(InvalidProductReassignmentException.class, () ->
+                productReassignService.reassignProducts(new ProductReassignDTO("brand-1", "source", false, null, null, null)));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void reassignProducts_withUnknownSlugs_shouldThrowException() {
+        when(brandRepository.findBySlug("unknown")).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug("unknown")).thenReturn(Optional.empty());
+        assertThrows(ProductBrandSlugNotFoundException.class, () ->
+                productReassignService.reassignProducts(new ProductReassignDTO("unknown", null, false, null, null, "target")));
+        assertThrows(ProductCategorySlugNotFoundException.class, () ->
+                productReassignService.reassignProducts(new ProductReassignDTO(null, "unknown", false, null, "brand-1", null)));
+        verifyNoInteractions(productRepository);
+    }
+}
@@ -0,0 +1,122 @@
+package de.philipbolting.product_catalog.product;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class ProductSearchIndexIT {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        categoryTreeCache.refresh();
+        productSearchIndex.refresh();
+    }
+
+    private List<String> search(String q) {
+        return productService.searchProductsInMemory(q, null, 20).items().stream().map(ProductDTO::slug).toList();
+    }
+
+    @Test
+    void searchProductsInMemory_shouldMatchNameBrandAndCategory() {
+        assertEquals(List.of("product-a"), search("product a"));
+        assertEquals(List.of("product-g"), search("Brand G PRODUCT"));
+        assertEquals(7, search("product brand categ").size());
+        assertEquals(List.of(), search("product h"));
+    }
+
+    @Test
+    void searchProductsInMemory_withCursor_shouldPageThroughAllMatches() {
+        final var first = productService.searchProductsInMemory("categ", null, 4);
+        final var second = productService.searchProductsInMemory("categ", first.next(), 4);
+        assertEquals(4, first.items().size());
+        assertEquals(3, second.items().size());
+        assertNull(second.next());
+        final var slugs = new HashSet<String>();
+        first.items().forEach(item -> slugs.add(item.slug()));
+        second.items().forEach(item -> slugs.add(item.slug()));
+        assertEquals(7, slugs.size());
+    }
+
+    @Test
+    void createProduct_shouldBeSearchableAfterCommit() {
+        productService.createProduct(new ProductDTO("brand-3", "category-1", "cordless-drill", "Cordless Drill", "Compact drill driver"));
+        assertEquals(List.of("cordless-drill"), search("cordl"));
+        assertEquals(List.of("cordless-drill"), search("brand 3 compact dri"));
+    }
+
+    // run with -Dbenchmark=true, loading a million products takes a few minutes
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void searchProducts_withMillionProducts_shouldCompareEngines() {
+        final var start = System.nanoTime();
+        jdbcTemplate.update("""
+                INSERT INTO product (id, brand_id, category_id, slug, name, description)
+                SELECT nextval('seq_product'), i % 3 + 1, (ARRAY[2, 3, 4, 5, 6, 7])[i % 6 + 1], 'bench-' || i,
+                    (ARRAY['Cordless', 'Compact', 'Heavy', 'Brushless', 'Angle', 'Hammer', 'Garden', 'Impact'])[i % 8 + 1] || ' '
+                        || (ARRAY['Drill', 'Grinder', 'Saw', 'Hose', 'Sander', 'Driver', 'Wrench', 'Router', 'Planer', 'Trimmer'])[i / 8 % 10 + 1]
+                        || ' ' || i,
+                    'Works with ' || (ARRAY['wood', 'steel', 'concrete', 'tiles', 'plastic', 'glass', 'stone'])[i / 3 % 7 + 1]
+                        || ' and ' || (ARRAY['batteries', 'cables', 'adapters', 'blades', 'bits'])[i / 7 % 5 + 1]
+                        || ', model ' || 'm' || i % 5000
+                FROM generate_series(1, 1000000) i
+                """);
+        System.out.printf("inserted a million products in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        final var refreshStart = System.nanoTime();
+        productSearchIndex.refresh();
+        final var stats = productSearchIndex.stats();
+        System.out.printf("indexed %d products with %d terms and %d postings in %d ms%n",
+                stats.products(), stats.terms(), stats.postings(), (System.nanoTime() - refreshStart) / 1_000_000);
+
+        for (final var q : List.of("m4711", "cordless drill", "hammer dri", "brushless router steel", "drill", "concrete")) {
+            final var sql = time(() -> productService.searchProducts(q, null, 20));
+            final var memory = time(() -> productService.searchProductsInMemory(q, null, 20));
+            System.out.printf("searched \"%s\": sql %.2f ms, memory %.2f ms%n", q, sql, memory);
+            assertFalse(productService.searchProductsInMemory(q, null, 20).items().isEmpty());
+        }
+    }
+
+    private static double time(Supplier<?> search) {
+        for (var i = 0; i < 3; i++) {
+            search.get();
+        }
+        final var runs = 10;
+        final var start = System.nanoTime();
+        for (var i = 0; i < runs; i++) {
+            search.get();
+        }
+        return (System.nanoTime() - start) / 1e6 / runs;
+    }
+}
@@ -0,0 +1,215 @@
+package de.philipbolting.product_catalog.product;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private ProductSearchRepository productSearchRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        productSearchIndex = new ProductSearchIndex(productSearchRepository, transactionManager, new SimpleAsyncTaskExecutor(), 100);
+    }
+
+    private void givenProducts() {
+        doAnswer(invocation -> {
+            final ProductSearchRepository.DocumentHandler handler = invocation.getArgument(0);
+            handler.handle(1, "Cordless Drill", "Compact drill driver with two batteries", "Bosch", "Power Tools");
+            handler.handle(2, "Hammer Drill", "Drills into concrete", "Makita", "Power Tools");
+            handler.handle(3, "Angle Grinder", "Cuts metal, but is no drill", "Bosch", "Power Tools");
+            handler.handle(4, "Garden Hose", "Twenty metres", "Gardena", "Garden");
+            handler.handle(5, "Café Table", null, "Ikea", "Furniture");
+            return null;
+        }).when(productSearchRepository).forEachDocument(any());
+        productSearchIndex.refresh();
+    }
+
+    private List<Long> search(String query) {
+        return productSearchIndex.search(query, Float.POSITIVE_INFINITY, 0, 10).stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+
+    @Test
+    void tokenize_shouldSplitLowercaseAndDropAccents() {
+        assertEquals(List.of("cafe", "creme", "2", "go", "ikea"), ProductSearchIndex.tokenize("Café Crème 2-go (IKEA)"));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(" - "));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(null));
+    }
+
+    @Test
+    void search_shouldRankNameMatchesAboveDescriptionMatches() {
+        givenProducts();
+        assertEquals(List.of(1L, 2L, 3L), search("drill"));
+        final var hits = productSearchIndex.search("drill", Float.POSITIVE_INFINITY, 0, 10);
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertTrue(hits.get(1).score() > hits.get(2).score());
+    }
+
+    @Test
+    void search_shouldRequireEveryWord() {
+        givenProducts();
+        assertEquals(List.of(1L, 3L), search("bosch drill"));
+        assertEquals(List.of(), search("bosch garden"));
+        assertEquals(List.of(), search("unknown drill"));
+    }
+
+    @Test
+    void search_withLastWordPrefix_shouldMatchLongerTerms() {
+        givenProducts();
+        assertEquals(List.of(), search("gard hose"));
+        assertEquals(List.of(4L), search("hose gard"));
+        assertEquals(List.of(1L, 3L), search("bosch dr"));
+        assertEquals(List.of(), search("g"));
+        assertEquals(List.of(5L), search("CAFÉ"));
+    }
+
+    @Test
+    void search_withCursor_shouldContinueAfterLastHit() {
+        givenProducts();
+        final var first = productSearchIndex.search("power tools", Float.POSITIVE_INFINITY, 0, 2);
+        assertEquals(2, first.size());
+        final var last = first.get(1);
+        final var second = productSearchIndex.search("power tools", last.score(), last.productId(), 2);
+        assertEquals(1, second.size());
+        final var all = new ArrayList<>(first);
+        all.addAll(second);
+        assertEquals(productSearchIndex.search("power tools", Float.POSITIVE_INFINITY, 0, 10), all);
+    }
+
+    @Test
+    void addAfterCommit_withoutTransaction_shouldAddImmediately() {
+        givenProducts();
+        productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(6, "Impact Drill", null, "Makita", "Power Tools"));
+        assertEquals(List.of(6L, 2L), search("makita drill"));
+        assertEquals(6, productSearchIndex.stats().products());
+    }
+
+    @Test
+    void addAfterCommit_withIndexedProduct_shouldNotAddItTwice() {
+        givenProducts();
+        productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(4, "Garden Hose", "Twenty metres", "Gardena", "Garden"));
+        assertEquals(List.of(4L), search("hose"));
+        assertEquals(5, productSearchIndex.stats().products());
+    }
+
+    @Test
+    void addAllAfterCommit_withBatch_shouldAddTheNewProductsInOneSegment() {
+        givenProducts();
+        productSearchIndex.addAllAfterCommit(List.of(
+                new ProductSearchIndex.Document(7, "Jigsaw", null, "Bosch", "Power Tools"),
+                new ProductSearchIndex.Document(4, "Garden Hose", "Twenty metres", "Gardena", "Garden"),
+                new ProductSearchIndex.Document(6, "Impact Drill", null, "Makita", "Power Tools")));
+        assertEquals(List.of(6L, 2L), search("makita drill"));
+        assertEquals(List.of(7L), search("jigsaw"));
+        assertEquals(List.of(4L), search("hose"));
+        assertEquals(7, productSearchIndex.stats().products());
+    }
+
+    @Test
+    void refresh_shouldDropAddedProductsLoadedAgain() {
+        givenProducts();
+        productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(6, "Impact Drill", null, "Makita", "Power Tools"));
+        productSearchIndex.refresh();
+        assertEquals(List.of(), search("impact"));
+        assertEquals(5, productSearchIndex.stats().products());
+    }
+
+    @Test
+    void addAfterCommit_withManyProducts_shouldFindThemAcrossDeltaSegments() {
+        givenProducts();
+        for (var i = 0; i < 20; i++) {
+            final var id = 100 + (i * 7) % 20;
+            productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(id, "Widget " + id, null, "Acme", "Parts"));
+        }
+        assertEquals(20, productSearchIndex.search("widget", Float.POSITIVE_INFINITY, 0, 50).size());
+        assertEquals(List.of(113L), search("widget 113"));
+        assertEquals(25, productSearchIndex.stats().products());
+    }
+
+    @Test
+    void refresh_withProductAddedDuringRebuild_shouldKeepIt() {
+        doAnswer(invocation -> {
+            final ProductSearchRepository.DocumentHandler handler = invocation.getArgument(0);
+            handler.handle(1, "Cordless Drill", "Compact drill driver with two batteries", "Bosch", "Power Tools");
+            productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(6, "Impact Drill", null, "Makita", "Power Tools"));
+            return null;
+        }).when(productSearchRepository).forEachDocument(any());
+        productSearchIndex.refresh();
+        assertEquals(List.of(6L), search("impact"));
+        assertEquals(2, productSearchIndex.stats().products());
+    }
+
+    @Test
+    void addAfterCommit_withFullDelta_shouldRebuildInBackground() {
+        productSearchIndex = new ProductSearchIndex(productSearchRepository, transactionManager, new SimpleAsyncTaskExecutor(), 1);
+        givenProducts();
+        productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(6, "Impact Drill", null, "Makita", "Power Tools"));
+        productSearchIndex.addAfterCommit(new ProductSearchIndex.Document(7, "Jigsaw", null, "Bosch", "Power Tools"));
+        verify(productSearchRepository, timeout(5000).times(2)).forEachDocument(any());
+    }
+
+    // run with -Dbenchmark=true to print indexing and search times for 100,000 products
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void search_withManyProducts_shouldAnswerWithinMilliseconds() {
+        final var random = new Random(1);
+        final var words = new String[10_000];
+        for (var i = 0; i < words.length; i++) {
+            words[i] = "word" + i;
+        }
+        doAnswer(invocation -> {
+            final ProductSearchRepository.DocumentHandler handler = invocation.getArgument(0);
+            final var description = new StringBuilder();
+            for (var i = 1; i <= 100_000; i++) {
+                description.setLength(0);
+                for (var w = 0; w < 10; w++) {
+                    description.append(words[(int) Math.abs(random.nextGaussian() * 2000) % words.length]).append(' ');
+                }
+                handler.handle(i, "Product " + i + " " + words[random.nextInt(words.length)], description.toString(),
+                        "Brand " + random.nextInt(1000), "Category " + random.nextInt(200));
+            }
+            return null;
+        }).when(productSearchRepository).forEachDocument(any());
+        final var start = System.nanoTime();
+        productSearchIndex.refresh();
+        final var stats = productSearchIndex.stats();
+        System.out.printf("indexed %d products with %d terms and %d postings in %d ms%n",
+                stats.products(), stats.terms(), stats.postings(), (System.nanoTime() - start) / 1_000_000);
+
+        final var queries = List.of("word1", "word5 word7", "product word12", "brand 12 word", "word99", "categ", "word1234");
+        for (final var query : queries) {
+            productSearchIndex.search(query, Float.POSITIVE_INFINITY, 0, 21);
+        }
+        for (final var query : queries) {
+            final var queryStart = System.nanoTime();
+            final var runs = 20;
+            var hits = 0;
+            for (var i = 0; i < runs; i++) {
+                hits = productSearchIndex.search(query, Float.POSITIVE_INFINITY, 0, 21).size();
+            }
+            System.out.printf("searched \"%s\" in %.2f ms, %d hits on the first page%n", query,
+                    (System.nanoTime() - queryStart) / 1e6 / runs, hits);
+            assertEquals(21, hits);
+        }
+        assertEquals(100_000, stats.products());
+    }
+}
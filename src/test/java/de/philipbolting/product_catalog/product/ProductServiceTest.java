@@ -1,21 +1,31 @@
 package de.philipbolting.product_catalog.product;
 
+import de.philipbolting.product_catalog.KeysetCursor;
 import de.philipbolting.product_catalog.brand.Brand;
 import de.philipbolting.product_catalog.brand.BrandRepository;
 import de.philipbolting.product_catalog.category.Category;
 import de.philipbolting.product_catalog.category.CategoryRepository;
 import de.philipbolting.product_catalog.category.CategoryTree;
-import de.philipbolting.product_catalog.category.CategoryTreeRepository;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
 import de.philipbolting.product_catalog.error.*;
+import de.philipbolting.product_catalog.slug.SlugRedirects;
+import de.philipbolting.product_catalog.suggest.SuggestIndex;
+import de.philipbolting.product_catalog.suggest.SuggestionDTO;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,9 +38,17 @@ public class ProductServiceTest {
     @Mock
     private BrandRepository brandRepository;
     @Mock
-    private CategoryTreeRepository categoryTreeRepository;
+    private CategoryTreeCache categoryTreeCache;
     @Mock
     private CategoryRepository categoryRepository;
+    @Mock
+    private SlugRedirects slugRedirects;
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private SuggestIndex suggestIndex;
 
     @Test
     void createProduct_withDuplicteSlug_shouldThrowException() {
@@ -72,7 +90,7 @@ public class ProductServiceTest {
         when(productRepository.findBySlug("some-product")).thenReturn(Optional.empty());
         when(productRepository.findByName("Some Product")).thenReturn(Optional.empty());
         when(brandRepository.findBySlug("some-brand")).thenReturn(Optional.of(someBrand));
-        when(categoryTreeRepository.findBySlug(categorySlug)).thenReturn(Optional.empty());
+        when(categoryTreeCache.findBySlug(categorySlug)).thenReturn(Optional.empty());
         assertThrows(ProductCategorySlugNotFoundException.class, () -> productService.createProduct(dto));
     }
 
@@ -80,37 +98,246 @@ public class ProductServiceTest {
     void createProduct_withValidParams_shouldReturnProduct() {
         final var someBrand = new Brand("some-brand", "Some Brand", "Some brand description");
         final var someCategory = new Category("some-category", "Some Category", "Some category description");
-        final var someCategoryTree = new CategoryTree(456L, 123L, "Some Category", "some-category", "001001", 1);
+        final var someCategoryTree = new CategoryTree(456L, 123L, "Some Category", "some-category", new int[]{1, 1}, 1);
         final var someProduct = new Product(someBrand, someCategory, "some-product", "Some Product", "Some product description");
         final var productDto = new ProductDTO("some-brand", "some-parent-category/some-category", "some-product", "Some Product", "Some product description");
         when(productRepository.findBySlug("some-product")).thenReturn(Optional.empty());
         when(productRepository.findByName("Some Product")).thenReturn(Optional.empty());
         when(brandRepository.findBySlug("some-brand")).thenReturn(Optional.of(someBrand));
-        when(categoryTreeRepository.findBySlug("some-parent-category/some-category")).thenReturn(Optional.of(someCategoryTree));
+        when(categoryTreeCache.findBySlug("some-parent-category/some-category")).thenReturn(Optional.of(someCategoryTree));
         when(categoryRepository.findById(456L)).thenReturn(Optional.of(someCategory));
         when(productRepository.save(someProduct)).thenReturn(someProduct);
         final var savedProduct = productService.createProduct(productDto);
         assertNotNull(savedProduct);
         assertEquals("some-brand", savedProduct.brandSlug());
         assertEquals("some-category", savedProduct.categorySlug());
+        verify(productFacetIndex).addAfterCommit(someProduct.getId(), someBrand.getId(), someCategory.getId());
+        verify(productSearchIndex).addAfterCommit(new ProductSearchIndex.Document(someProduct.getId(), "Some Product",
+                "Some product description", "Some Brand", "Some Category"));
+        verify(suggestIndex).addProductsAfterCommit(List.of(new SuggestionDTO("some-product", "Some Product")));
     }
 
     @Test
     void findProductBySlug_withExistingSlug_shouldReturnProduct() {
-        final var someBrand = new Brand("some-brand", "Some Brand", "Some brand description");
-        final var someCategory = new Category("some-category", "Some Category", "Some category description");
-        someCategory.setId(456L);
-        final var someCategoryTree = new CategoryTree(456L, 123L, "Some Category", "some-category", "000", 0);
-        final var someProduct = new Product(someBrand, someCategory, "some-product", "Some Product", "Some product description");
-        when(productRepository.findBySlug("some-product")).thenReturn(Optional.of(someProduct));
-        when(categoryTreeRepository.findById(456L)).thenReturn(Optional.of(someCategoryTree));
+        when(productRepository.findDetailBySlug("some-product")).thenReturn(Optional.of(new ProductDetailRow(1L, null, null, null,
+                "some-brand", "some-parent/some-category", "some-product", "Some Product", "Some product description")));
         final var product = productService.findProductBySlug("some-product");
         assertNotNull(product);
         assertEquals("some-brand", product.brandSlug());
-        assertEquals("some-category", product.categorySlug());
+        assertEquals("some-parent/some-category", product.categorySlug());
         assertEquals("some-product", product.slug());
         assertEquals("Some Product", product.name());
         assertEquals("Some product description", product.description());
     }
 
+    @Test
+    void findProductBySlug_withUnknownSlug_shouldThrowException() {
+        when(productRepository.findDetailBySlug("unknown")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> productService.findProductBySlug("unknown"));
+    }
+
+    private static ProductListRow row(long categoryId, String sortPath, String categorySlug, String slug, String name) {
+        return new ProductListRow() {
+            public long getId() { return slug.hashCode(); }
+            public long getCategoryId() { return categoryId; }
+            public String getSortPath() { return sortPath; }
+            public String getBrandSlug() { return "some-brand"; }
+            public String getCategorySlug() { return categorySlug; }
+            public String getSlug() { return slug; }
+            public String getName() { return name; }
+            public String getDescription() { return ""; }
+        };
+    }
+
+    @Test
+    void findProductsByCategorySlug_withMoreRows_shouldReturnCursorOfLastItem() {
+        final var categoryTree = new CategoryTree(2L, null, "Some Category", "some-category", new int[]{1}, 0);
+        when(categoryTreeCache.findBySlug("some-category")).thenReturn(Optional.of(categoryTree));
+        when(productRepository.findBySubtree("some-category", "{}", 0L, "", 3)).thenReturn(List.of(
+                row(2L, "{1}", "some-category", "product-a", "Product A"),
+                row(3L, "{1,1}", "some-category/some-child", "product-b", "Product B"),
+                row(3L, "{1,1}", "some-category/some-child", "product-c", "Product C")));
+
+        final var slice = productService.findProductsByCategorySlug("some-category", null, 2);
+        assertEquals(List.of("product-a", "product-b"), slice.items().stream().map(ProductDTO::slug).toList());
+        assertEquals("some-category/some-child", slice.items().get(1).categorySlug());
+        assertEquals(KeysetCursor.encode("{1,1}", "3", "Product B"), slice.next());
+
+        when(productRepository.findBySubtree("some-category", "{1,1}", 3L, "Product B", 3)).thenReturn(List.of(
+                row(3L, "{1,1}", "some-category/some-child", "product-c", "Product C")));
+        final var nextSlice = productService.findProductsByCategorySlug("some-category", slice.next(), 2);
+        assertEquals(List.of("product-c"), nextSlice.items().stream().map(ProductDTO::slug).toList());
+        assertNull(nextSlice.next());
+    }
+
+    @Test
+    void findProductsByCategorySlug_withInvalidCursor_shouldThrowException() {
+        final var categoryTree = new CategoryTree(2L, null, "Some Category", "some-category", new int[]{1}, 0);
+        when(categoryTreeCache.findBySlug("some-category")).thenReturn(Optional.of(categoryTree));
+        assertThrows(InvalidCursorException.class, () -> productService.findProductsByCategorySlug("some-category", "not a cursor", 2));
+        assertThrows(InvalidCursorException.class, () -> productService.findProductsByCategorySlug("some-category", KeysetCursor.encode("{1}", "x", "Product"), 2));
+        assertThrows(InvalidCursorException.class, () -> productService.findProductsByCategorySlug("some-category", KeysetCursor.encode("1); DROP", "1", "Product"), 2));
+    }
+
+    @Test
+    void findProductsByCategorySlug_withUnknownCategory_shouldThrowNotFoundException() {
+        when(categoryTreeCache.findBySlug("unknown")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> productService.findProductsByCategorySlug("unknown", null, 2));
+    }
+
+    @Test
+    void findProducts_withMoreRows_shouldReturnNameAndIdCursor() {
+        final var brand = new Brand("some-brand", "Some Brand", "");
+        brand.setId(1L);
+        final var categoryTree = new CategoryTree(2L, null, "Some Category", "some-category", new int[]{1}, 0);
+        when(brandRepository.findBySlug("some-brand")).thenReturn(Optional.of(brand));
+        when(categoryTreeCache.findBySlug("some-category")).thenReturn(Optional.of(categoryTree));
+        final var productB = row(2L, "{1}", "some-category", "product-b", "Product B");
+        when(productRepository.findPageByBrandAndCategory(1L, 2L, "Product A", 7L, 2)).thenReturn(List.of(
+                productB,
+                row(2L, "{1}", "some-category", "product-c", "Product C")));
+        final var slice = productService.findProducts("some-brand", "some-category", KeysetCursor.encode("Product A", "7"), 1);
+        assertEquals(List.of("product-b"), slice.items().stream().map(ProductDTO::slug).toList());
+        assertEquals(KeysetCursor.encode("Product B", Long.toString(productB.getId())), slice.next());
+    }
+
+    @Test
+    void findProducts_withoutFilters_shouldReturnLastPageWithoutCursor() {
+        when(productRepository.findPage("", 0L, 3)).thenReturn(List.of(row(2L, "{1}", "some-category", "product-a", "Product A")));
+        final var slice = productService.findProducts(null, null, null, 2);
+        assertEquals(1, slice.items().size());
+        assertNull(slice.next());
+    }
+
+    @Test
+    void findProducts_withCategory_shouldSeekTheSubtree() {
+        final var categoryTree = new CategoryTree(2L, null, "Some Category", "some-category", new int[]{1}, 0);
+        when(categoryTreeCache.findBySlug("some-category")).thenReturn(Optional.of(categoryTree));
+        when(productRepository.findPageByCategory(2L, "", 0L, 3)).thenReturn(List.of(row(2L, "{1}", "some-category", "product-a", "Product A")));
+        final var slice = productService.findProducts(null, "some-category", null, 2);
+        assertEquals(List.of("product-a"), slice.items().stream().map(ProductDTO::slug).toList());
+        assertNull(slice.next());
+    }
+
+    @Test
+    void findProducts_withInvalidCursor_shouldThrowException() {
+        assertThrows(InvalidCursorException.class, () -> productService.findProducts(null, null, KeysetCursor.encode("Product A", "x"), 2));
+    }
+
+    @Test
+    void findFacets_shouldResolveSlugsAndOrderBrandsByCount() {
+        final var brandA = new Brand("brand-a", "Brand A", "");
+        brandA.setId(1L);
+        final var brandB = new Brand("brand-b", "Brand B", "");
+        brandB.setId(2L);
+        final var first = new CategoryTree(10L, null, "First", "first", new int[]{1}, 0);
+        final var second = new CategoryTree(20L, null, "Second", "second", new int[]{2}, 0);
+        when(brandRepository.findBySlug("brand-b")).thenReturn(Optional.of(brandB));
+        when(categoryTreeCache.findChildren(null)).thenReturn(List.of(first, second));
+        when(productFacetIndex.count(2L, null, List.of(10L, 20L)))
+                .thenReturn(new ProductFacetIndex.Facets(3, Map.of(1L, 2L, 2L, 3L), Map.of(20L, 3L)));
+        when(brandRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(brandA, brandB));
+
+        final var facets = productService.findFacets("brand-b", null);
+
+        assertEquals(3, facets.total());
+        assertEquals(List.of(new ProductFacetDTO("brand-b", "Brand B", 3), new ProductFacetDTO("brand-a", "Brand A", 2)), facets.brands());
+        assertEquals(List.of(new ProductFacetDTO("second", "Second", 3)), facets.categories());
+    }
+
+    @Test
+    void findFacets_withUnknownBrand_shouldThrowNotFoundException() {
+        when(brandRepository.findBySlug("unknown")).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> productService.findFacets("unknown", null));
+    }
+
+    @Test
+    void findFacetIndexStats_shouldExtrapolateToMillionProducts() {
+        when(productFacetIndex.stats()).thenReturn(new ProductFacetIndex.Stats(250_000, 12, 1_000_000));
+        assertEquals(new ProductFacetIndexStatsDTO(250_000, 12, 1_000_000, 4_000_000), productService.findFacetIndexStats());
+    }
+
+    private static ProductSearchRow searchRow(long id, float rank, String slug) {
+        return new ProductSearchRow() {
+            public long getId() { return id; }
+            public float getRank() { return rank; }
+            public String getBrandSlug() { return "some-brand"; }
+            public String getCategorySlug() { return "some-category"; }
+            public String getSlug() { return slug; }
+            public String getName() { return slug; }
+            public String getDescription() { return ""; }
+        };
+    }
+
+    @Test
+    void searchProducts_withMoreRows_shouldReturnRankAndIdCursor() {
+        when(productRepository.search("drill", Float.POSITIVE_INFINITY, 0L, 3)).thenReturn(List.of(
+                searchRow(4L, 0.9f, "product-a"),
+                searchRow(2L, 0.1f / 3, "product-b"),
+                searchRow(3L, 0.1f / 3, "product-c")));
+
+        final var slice = productService.searchProducts("drill", null, 2);
+        assertEquals(List.of("product-a", "product-b"), slice.items().stream().map(ProductDTO::slug).toList());
+        assertEquals(KeysetCursor.encode(Float.toString(0.1f / 3), "2"), slice.next());
+
+        when(productRepository.search("drill", 0.1f / 3, 2L, 3)).thenReturn(List.of(searchRow(3L, 0.1f / 3, "product-c")));
+        final var nextSlice = productService.searchProducts("drill", slice.next(), 2);
+        assertEquals(List.of("product-c"), nextSlice.items().stream().map(ProductDTO::slug).toList());
+        assertNull(nextSlice.next());
+    }
+
+    @Test
+    void searchProducts_withInvalidCursor_shouldThrowException() {
+        assertThrows(InvalidCursorException.class, () -> productService.searchProducts("drill", "not a cursor", 2));
+        assertThrows(InvalidCursorException.class, () -> productService.searchProducts("drill", KeysetCursor.encode("high", "1"), 2));
+        assertThrows(InvalidCursorException.class, () -> productService.searchProducts("drill", KeysetCursor.encode("NaN", "1"), 2));
+        assertThrows(InvalidCursorException.class, () -> productService.searchProducts("drill", KeysetCursor.encode("0.5", "x"), 2));
+    }
+
+    private static ProductListRow listRow(long id, String slug) {
+        return new ProductListRow() {
+            public long getId() { return id; }
+            public long getCategoryId() { return 1L; }
+            public String getSortPath() { return "{1}"; }
+            public String getBrandSlug() { return "some-brand"; }
+            public String getCategorySlug() { return "some-category"; }
+            public String getSlug() { return slug; }
+            public String getName() { return slug; }
+            public String getDescription() { return ""; }
+        };
+    }
+
+    @Test
+    void searchProductsInMemory_withMoreHits_shouldLoadPageInHitOrder() {
+        when(productSearchIndex.search("drill", Float.POSITIVE_INFINITY, 0L, 3)).thenReturn(List.of(
+                new ProductSearchIndex.Hit(4L, 2.5f),
+                new ProductSearchIndex.Hit(2L, 1.5f),
+                new ProductSearchIndex.Hit(3L, 1.5f)));
+        when(productRepository.findRowsByIds(List.of(4L, 2L))).thenReturn(List.of(listRow(2L, "product-b"), listRow(4L, "product-a")));
+
+        final var slice = productService.searchProductsInMemory("drill", null, 2);
+
+        assertEquals(List.of("product-a", "product-b"), slice.items().stream().map(ProductDTO::slug).toList());
+        assertEquals(KeysetCursor.encode("1.5", "2"), slice.next());
+    }
+
+    @Test
+    void searchProductsInMemory_withDeletedProduct_shouldSkipIt() {
+        when(productSearchIndex.search("drill", 1.5f, 2L, 3)).thenReturn(List.of(
+                new ProductSearchIndex.Hit(3L, 1.5f),
+                new ProductSearchIndex.Hit(5L, 0.5f)));
+        when(productRepository.findRowsByIds(List.of(3L, 5L))).thenReturn(List.of(listRow(5L, "product-e")));
+
+        final var slice = productService.searchProductsInMemory("drill", KeysetCursor.encode("1.5", "2"), 2);
+
+        assertEquals(List.of("product-e"), slice.items().stream().map(ProductDTO::slug).toList());
+        assertNull(slice.next());
+    }
+
+    @Test
+    void searchProductsInMemory_withoutHits_shouldNotQueryProducts() {
+        when(productSearchIndex.search("drill", Float.POSITIVE_INFINITY, 0L, 3)).thenReturn(List.of());
+        assertEquals(List.of(), productService.searchProductsInMemory("drill", null, 2).items());
+        verify(productRepository, never()).findRowsByIds(any());
+    }
 }
@@ -0,0 +1,174 @@
+package de.philipbolting.product_catalog.slug;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.brand.BrandDTO;
+import de.philipbolting.product_catalog.product.ProductDTO;
+import de.philipbolting.product_catalog.product.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.client.RestTestClient;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@AutoConfigureRestTestClient
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class SlugRedirectsIT {
+
+    @Autowired
+    private RestTestClient restTestClient;
+
+    @Autowired
+    private SlugRedirects slugRedirects;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    void clearHistory() {
+        jdbcTemplate.update("TRUNCATE TABLE slug_history");
+        slugRedirects.refresh();
+    }
+
+    @Test
+    void changeBrandSlug_twice_shouldRedirectOldestSlugToCurrentOne() {
+        changeSlug("/api/brands/brand-1", "brand-one");
+        changeSlug("/api/brands/brand-one", "brand-uno");
+
+        assertRedirect("/api/brands/brand-1", "/api/brands/brand-uno");
+        assertRedirect("/api/brands/brand-one", "/api/brands/brand-uno");
+        restTestClient.get().uri("/api/brands/brand-uno")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+        assertThat(countHistory()).isEqualTo(2);
+    }
+
+    @Test
+    void createBrand_withRetiredSlug_shouldStopRedirecting() {
+        changeSlug("/api/brands/brand-1", "brand-one");
+        restTestClient.post().uri("/api/brands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new BrandDTO("brand-1", "Another Brand 1", ""))
+                .exchange()
+                .expectStatus().isCreated();
+
+        restTestClient.get().uri("/api/brands/brand-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Another Brand 1");
+    }
+
+    @Test
+    void changeBrandSlug_back_shouldNotCreateRedirectLoop() {
+        changeSlug("/api/brands/brand-1", "brand-one");
+        changeSlug("/api/brands/brand-one", "brand-1");
+
+        assertRedirect("/api/brands/brand-one", "/api/brands/brand-1");
+        restTestClient.get().uri("/api/brands/brand-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void changeCategorySlug_shouldRedirectWholeSubtree() {
+        changeSlug("/api/categories/category-2", "category-two");
+
+        assertRedirect("/api/categories/category-2", "/api/categories/category-two");
+        assertRedirect("/api/categories/category-2/category-2-1/category-2-1-2/products?limit=5",
+                "/api/categories/category-two/category-2-1/category-2-1-2/products?limit=5");
+        restTestClient.get().uri("/api/categories/category-two/category-2-1/category-2-1-2")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void moveCategory_afterSlugChange_shouldCollapseRedirectChain() {
+        changeSlug("/api/categories/category-2", "category-two");
+        restTestClient.post().uri("/api/categories/category-two/category-2-1/move")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("parentSlug", "category-1"))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertRedirect("/api/categories/category-2/category-2-1/category-2-1-1", "/api/categories/category-1/category-2-1/category-2-1-1");
+        assertRedirect("/api/categories/category-two/category-2-1", "/api/categories/category-1/category-2-1");
+        assertRedirect("/api/categories/category-2", "/api/categories/category-two");
+    }
+
+    @Test
+    void changeProductSlug_shouldRedirectOldSlug() {
+        changeSlug("/api/products/product-a", "product-alpha");
+
+        assertRedirect("/api/products/product-a", "/api/products/product-alpha");
+        restTestClient.get().uri("/api/products/product-alpha")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.slug").isEqualTo("product-alpha");
+    }
+
+    @Test
+    void createProduct_withRetiredSlug_whenSaveFails_shouldKeepRedirecting() {
+        changeSlug("/api/products/product-a", "product-alpha");
+        final var dto = new ProductDTO("brand-1", "category-1", "product-a", "x".repeat(51), "");
+
+        assertThatThrownBy(() -> productService.createProduct(dto)).isInstanceOf(DataIntegrityViolationException.class);
+
+        assertRedirect("/api/products/product-a", "/api/products/product-alpha");
+        assertThat(countHistory()).isEqualTo(1);
+    }
+
+    private void changeSlug(String uri, String slug) {
+        restTestClient.patch().uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(new SlugChangeDTO(slug))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private void assertRedirect(String uri, String expectedLocation) {
+        final var location = restTestClient.get().uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MOVED_PERMANENTLY)
+                .returnResult()
+                .getResponseHeaders()
+                .getLocation();
+        assertThat(location).isNotNull();
+        assertThat(location.getRawPath() + (location.getRawQuery() != null ? "?" + location.getRawQuery() : "")).isEqualTo(expectedLocation);
+    }
+
+    private int countHistory() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM slug_history", Integer.class);
+    }
+}
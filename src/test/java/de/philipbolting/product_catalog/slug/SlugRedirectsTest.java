@@ -0,0 +1,89 @@
+package de.philipbolting.product_catalog.slug;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlugRedirectsTest {
+
+    @InjectMocks
+    private SlugRedirects slugRedirects;
+    @Mock
+    private SlugHistoryRepository slugHistoryRepository;
+
+    private static SlugHistoryRepository.Row row(SlugType type, String oldSlug, String newSlug) {
+        return new SlugHistoryRepository.Row(type, oldSlug, newSlug);
+    }
+
+    @Test
+    void collapse_withChain_shouldPointEverySlugToTheCurrentOne() {
+        final var redirects = SlugRedirects.collapse(List.of(
+                row(SlugType.BRAND, "a", "b"),
+                row(SlugType.BRAND, "b", "c"),
+                row(SlugType.BRAND, "c", "d"),
+                row(SlugType.PRODUCT, "b", "x")));
+        assertEquals(Map.of("a", "d", "b", "d", "c", "d"), redirects.get(SlugType.BRAND));
+        assertEquals(Map.of("b", "x"), redirects.get(SlugType.PRODUCT));
+        assertNull(redirects.get(SlugType.CATEGORY));
+    }
+
+    @Test
+    void collapse_withCycle_shouldDropTheCycle() {
+        final var redirects = SlugRedirects.collapse(List.of(
+                row(SlugType.BRAND, "a", "b"),
+                row(SlugType.BRAND, "b", "a"),
+                row(SlugType.BRAND, "c", "d")));
+        assertEquals(Map.of("c", "d"), redirects.get(SlugType.BRAND));
+    }
+
+    @Test
+    void refresh_shouldPickUpChangesOfOtherInstances() {
+        when(slugHistoryRepository.findAll())
+                .thenReturn(List.of(row(SlugType.BRAND, "old", "new")))
+                .thenReturn(List.of());
+        slugRedirects.refresh();
+        assertEquals(Optional.of("new"), slugRedirects.find(SlugType.BRAND, "old"));
+
+        slugRedirects.refresh();
+        assertEquals(Optional.empty(), slugRedirects.find(SlugType.BRAND, "old"));
+    }
+
+    @Test
+    void find_shouldOnlyAnswerFromLoadedHistory() {
+        when(slugHistoryRepository.findAll()).thenReturn(List.of(
+                row(SlugType.CATEGORY, "old/child", "new/child"),
+                row(SlugType.CATEGORY, "new/child", "newer/child")));
+        slugRedirects.refresh();
+
+        assertEquals(Optional.of("newer/child"), slugRedirects.find(SlugType.CATEGORY, "old/child"));
+        assertEquals(Optional.empty(), slugRedirects.find(SlugType.CATEGORY, "newer/child"));
+        assertEquals(Optional.empty(), slugRedirects.find(SlugType.BRAND, "old/child"));
+        verify(slugHistoryRepository, times(1)).findAll();
+    }
+
+    @Test
+    void recordChange_shouldReleaseNewSlugAndRefresh() {
+        slugRedirects.recordChange(SlugType.BRAND, "old", "new");
+        final var inOrder = inOrder(slugHistoryRepository);
+        inOrder.verify(slugHistoryRepository).release(SlugType.BRAND, List.of("new"));
+        inOrder.verify(slugHistoryRepository).record(SlugType.BRAND, "old", "new");
+        inOrder.verify(slugHistoryRepository).findAll();
+    }
+
+    @Test
+    void release_withoutRetiredSlugs_shouldNotRefresh() {
+        when(slugHistoryRepository.release(SlugType.PRODUCT, List.of("fresh"))).thenReturn(0);
+        slugRedirects.release(SlugType.PRODUCT, List.of("fresh"));
+        verify(slugHistoryRepository, never()).findAll();
+    }
+}
@@ -0,0 +1,87 @@
+package de.philipbolting.product_catalog.suggest;
+
+import de.philipbolting.product_catalog.SecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.client.RestTestClient;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(controllers = SuggestController.class)
+@AutoConfigureRestTestClient
+@Import(SecurityConfig.class)
+class SuggestControllerTest {
+
+    @Autowired
+    private RestTestClient restTestClient;
+
+    @MockitoBean
+    private SuggestService suggestService;
+
+    @Test
+    void suggest_shouldReturnBrandsCategoriesAndProducts() {
+        when(suggestService.suggest("dri", 5)).thenReturn(new SuggestionsDTO(
+                List.of(new SuggestionDTO("drillmaster", "Drillmaster")),
+                List.of(new SuggestionDTO("tools/drills", "Drills")),
+                List.of(new SuggestionDTO("cordless-drill", "Cordless Drill"))));
+        restTestClient.get().uri("/api/suggest?q=dri")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.brands[0].slug").isEqualTo("drillmaster")
+                .jsonPath("$.categories[0].slug").isEqualTo("tools/drills")
+                .jsonPath("$.products[0].name").isEqualTo("Cordless Drill");
+    }
+
+    @Test
+    void suggest_withLimit_shouldPassLimit() {
+        when(suggestService.suggest("dri", 10)).thenReturn(new SuggestionsDTO(List.of(), List.of(), List.of()));
+        restTestClient.get().uri("/api/suggest?q=dri&limit=10")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.products").isEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidQueries")
+    void suggest_withInvalidQuery_shouldReturnBadRequest(String uri) {
+        restTestClient.get().uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(suggestService, never()).suggest(any(), anyInt());
+    }
+
+    @Test
+    void suggest_withBlankQuery_shouldReturnBadRequest() {
+        restTestClient.get().uri(builder -> builder.path("/api/suggest").queryParam("q", "  ").build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(suggestService, never()).suggest(any(), anyInt());
+    }
+
+    static Stream<String> invalidQueries() {
+        return Stream.of(
+                "/api/suggest",
+                "/api/suggest?q=",
+                "/api/suggest?q=" + "q".repeat(101),
+                "/api/suggest?q=dri&limit=0",
+                "/api/suggest?q=dri&limit=21");
+    }
+}
@@ -0,0 +1,117 @@
+package de.philipbolting.product_catalog.suggest;
+
+import de.philipbolting.product_catalog.ContainersConfig;
+import de.philipbolting.product_catalog.category.CategoryTreeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureRestTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.client.RestTestClient;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@AutoConfigureRestTestClient
+@Import(ContainersConfig.class)
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql("/db/init_brands.sql")
+@Sql("/db/init_categories.sql")
+@Sql("/db/init_products.sql")
+@Sql(statements = "TRUNCATE TABLE product, category, brand, slug_history CASCADE", executionPhase = Sql.ExecutionPhase.AFTER_TEST_CLASS)
+class SuggestIndexIT {
+
+    @Autowired
+    private RestTestClient restTestClient;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        categoryTreeCache.refresh();
+        suggestIndex.refresh();
+    }
+
+    private SuggestionsDTO suggest(String q) {
+        return restTestClient.get().uri(builder -> builder.path("/api/suggest").queryParam("q", q).queryParam("limit", 3).build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(SuggestionsDTO.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static List<String> slugs(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::slug).toList();
+    }
+
+    @Test
+    void suggest_shouldRankBrandsByProductCount() {
+        final var suggestions = suggest("bra");
+        assertEquals(List.of("brand-1", "brand-2", "brand-3"), slugs(suggestions.brands()));
+        assertEquals(List.of(), suggestions.categories());
+        assertEquals(List.of(), suggestions.products());
+    }
+
+    @Test
+    void suggest_withProductsMovedAndDeleted_shouldRankBrandsByCurrentProductCount() {
+        jdbcTemplate.update("UPDATE product SET brand_id = 3 WHERE brand_id = 1");
+        jdbcTemplate.update("DELETE FROM product WHERE brand_id = 2");
+        jdbcTemplate.update("INSERT INTO product (id, brand_id, category_id, slug, name) VALUES (nextval('seq_product'), 2, 7, 'product-h', 'Product H')");
+        suggestIndex.refreshBrandsAfterCommit();
+        assertEquals(List.of("brand-3", "brand-2", "brand-1"), slugs(suggest("bra").brands()));
+        assertEquals(List.of(0L, 1L, 5L), jdbcTemplate.queryForList("SELECT product_count FROM brand_product_count ORDER BY brand_id", Long.class));
+    }
+
+    @Test
+    void suggest_shouldReturnCategoriesWithFullSlugs() {
+        final var suggestions = suggest("category 2.1");
+        assertEquals(3, suggestions.categories().size());
+        assertEquals("category-2/category-2-1", suggestions.categories().getFirst().slug());
+        assertTrue(slugs(suggestions.categories()).contains("category-2/category-2-1/category-2-1-1"));
+    }
+
+    @Test
+    void suggest_shouldReturnProductsInNameOrder() {
+        assertEquals(List.of("product-a", "product-b", "product-c"), slugs(suggest("PRODUCT").products()));
+        assertEquals(List.of("product-g"), slugs(suggest("product g").products()));
+    }
+
+    @Test
+    void suggest_afterCreatingBrandAndProduct_shouldSuggestThem() {
+        restTestClient.post().uri("/api/brands")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        {"slug": "zephyr", "name": "Zephyr", "description": ""}
+                        """)
+                .exchange()
+                .expectStatus().isCreated();
+        restTestClient.post().uri("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body("""
+                        {"brandSlug": "zephyr", "categorySlug": "category-1", "slug": "zephyr-fan", "name": "Zephyr Fan", "description": ""}
+                        """)
+                .exchange()
+                .expectStatus().isCreated();
+        final var suggestions = suggest("zep");
+        assertEquals(List.of("zephyr"), slugs(suggestions.brands()));
+        assertEquals(List.of("zephyr-fan"), slugs(suggestions.products()));
+    }
+}
@@ -0,0 +1,175 @@
+package de.philipbolting.product_catalog.suggest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SuggestIndexTest {
+
+    private SuggestIndex suggestIndex;
+    @Mock
+    private SuggestRepository suggestRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        suggestIndex = new SuggestIndex(suggestRepository, transactionManager, new SimpleAsyncTaskExecutor(), 100);
+    }
+
+    private void givenSuggestions() {
+        doAnswer(invocation -> {
+            final SuggestRepository.SuggestionHandler handler = invocation.getArgument(0);
+            handler.handle("bosch", "Bosch", 3);
+            handler.handle("makita", "Makita", 5);
+            return null;
+        }).when(suggestRepository).forEachBrand(any());
+        doAnswer(invocation -> {
+            final SuggestRepository.SuggestionHandler handler = invocation.getArgument(0);
+            handler.handle("tools", "Tools", 8);
+            handler.handle("tools/power-tools", "Power Tools", 8);
+            return null;
+        }).when(suggestRepository).forEachCategory(any());
+        doAnswer(invocation -> {
+            final SuggestRepository.SuggestionHandler handler = invocation.getArgument(0);
+            handler.handle("cordless-drill", "Cordless Drill", 0);
+            handler.handle("compact-drill", "Compact Drill", 0);
+            handler.handle("mitre-saw", "Mitre Saw", 0);
+            return null;
+        }).when(suggestRepository).forEachProduct(any());
+        suggestIndex.refresh();
+    }
+
+    private static List<String> slugs(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::slug).toList();
+    }
+
+    @Test
+    void refresh_shouldLoadBrandsCategoriesAndProducts() {
+        givenSuggestions();
+        assertEquals(List.of("makita"), slugs(suggestIndex.suggestBrands("ma", 5)));
+        assertEquals(List.of("tools/power-tools"), slugs(suggestIndex.suggestCategories("pow", 5)));
+        assertEquals(List.of("compact-drill", "cordless-drill"), slugs(suggestIndex.suggestProducts("co", 5)));
+        assertEquals(new SuggestIndex.Stats(2, 2, 3, suggestIndex.stats().bytes()), suggestIndex.stats());
+    }
+
+    @Test
+    void addProductsAfterCommit_withoutTransaction_shouldAddImmediately() {
+        givenSuggestions();
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("combi-drill", "Combi Drill")));
+        assertEquals(List.of("combi-drill", "compact-drill", "cordless-drill"), slugs(suggestIndex.suggestProducts("co", 5)));
+        assertEquals(List.of("combi-drill", "compact-drill"), slugs(suggestIndex.suggestProducts("co", 2)));
+        assertEquals(4, suggestIndex.stats().products());
+    }
+
+    @Test
+    void addProductsAfterCommit_withLoadedProduct_shouldNotAddItTwice() {
+        givenSuggestions();
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("mitre-saw", "Mitre Saw")));
+        assertEquals(List.of("mitre-saw"), slugs(suggestIndex.suggestProducts("mitre", 5)));
+        assertEquals(3, suggestIndex.stats().products());
+    }
+
+    @Test
+    void refresh_shouldDropAddedProducts() {
+        givenSuggestions();
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("combi-drill", "Combi Drill")));
+        suggestIndex.refresh();
+        assertEquals(List.of(), slugs(suggestIndex.suggestProducts("combi", 5)));
+    }
+
+    @Test
+    void refreshBrandsAfterCommit_withoutTransaction_shouldKeepAddedProducts() {
+        givenSuggestions();
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("combi-drill", "Combi Drill")));
+        suggestIndex.refreshBrandsAfterCommit();
+        suggestIndex.refreshCategoriesAfterCommit();
+        assertEquals(List.of("combi-drill"), slugs(suggestIndex.suggestProducts("combi", 5)));
+        verify(suggestRepository, times(2)).forEachBrand(any());
+        verify(suggestRepository, times(2)).forEachCategory(any());
+        verify(suggestRepository, times(1)).forEachProduct(any());
+    }
+
+    @Test
+    void addProductsAfterCommit_withManyBatches_shouldSuggestAllOfThem() {
+        givenSuggestions();
+        for (var i = 0; i < 100; i++) {
+            suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("combi-drill-" + i, "Combi Drill " + i)));
+        }
+        assertEquals(List.of("combi-drill-0", "combi-drill-1", "combi-drill-10"), slugs(suggestIndex.suggestProducts("combi", 3)));
+        assertEquals(List.of("combi-drill-99"), slugs(suggestIndex.suggestProducts("combi drill 99", 3)));
+        assertEquals(103, suggestIndex.stats().products());
+        verify(suggestRepository, times(1)).forEachProduct(any());
+    }
+
+    @Test
+    void addProductsAfterCommit_withFullDelta_shouldRefreshInBackground() {
+        givenSuggestions();
+        suggestIndex = new SuggestIndex(suggestRepository, transactionManager, new SimpleAsyncTaskExecutor(), 1);
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("combi-drill", "Combi Drill")));
+        suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("hammer-drill", "Hammer Drill")));
+        verify(suggestRepository, timeout(5000).times(2)).forEachProduct(any());
+    }
+
+    @Test
+    void refresh_withProductAddedDuringRefresh_shouldKeepIt() {
+        doAnswer(invocation -> {
+            final SuggestRepository.SuggestionHandler handler = invocation.getArgument(0);
+            handler.handle("mitre-saw", "Mitre Saw", 0);
+            suggestIndex.addProductsAfterCommit(List.of(new SuggestionDTO("combi-drill", "Combi Drill")));
+            return null;
+        }).when(suggestRepository).forEachProduct(any());
+        suggestIndex.refresh();
+        assertEquals(List.of("combi-drill"), slugs(suggestIndex.suggestProducts("combi", 5)));
+        assertEquals(2, suggestIndex.stats().products());
+    }
+
+    // run with -Dbenchmark=true to print load time and latencies for a million products
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void suggestProducts_withMillionProducts_shouldAnswerWithinMicroseconds() {
+        final var words = new String[]{"Cordless", "Compact", "Heavy", "Brushless", "Angle", "Hammer", "Garden", "Impact"};
+        final var things = new String[]{"Drill", "Grinder", "Saw", "Hose", "Sander", "Driver", "Wrench", "Router"};
+        doAnswer(invocation -> {
+            final SuggestRepository.SuggestionHandler handler = invocation.getArgument(0);
+            for (var i = 0; i < 1_000_000; i++) {
+                handler.handle("product-" + i, words[i % words.length] + " " + things[i / 8 % things.length] + " " + i, 0);
+            }
+            return null;
+        }).when(suggestRepository).forEachProduct(any());
+        final var start = System.nanoTime();
+        suggestIndex.refresh();
+        final var stats = suggestIndex.stats();
+        System.out.printf("loaded %d products into %d bytes in %d ms%n", stats.products(), stats.bytes(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        final var random = new Random(1);
+        final var runs = 100_000;
+        final var latencies = new long[runs];
+        for (var i = 0; i < runs; i++) {
+            final var name = words[random.nextInt(words.length)] + " " + things[random.nextInt(things.length)];
+            final var prefix = name.substring(0, 1 + random.nextInt(name.length()));
+            final var queryStart = System.nanoTime();
+            final var suggestions = suggestIndex.suggestProducts(prefix, 5);
+            latencies[i] = System.nanoTime() - queryStart;
+            assertEquals(5, suggestions.size());
+        }
+        Arrays.sort(latencies);
+        System.out.printf("suggested products in p50 %.1f us, p99 %.1f us%n", latencies[runs / 2] / 1e3, latencies[runs * 99 / 100] / 1e3);
+        assertEquals(1_000_000, stats.products());
+    }
+}
@@ -0,0 +1,64 @@
+package de.philipbolting.product_catalog.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionTableTest {
+
+    private final SuggestionTable table = SuggestionTable.of(List.of(
+            new SuggestionTable.Entry("bosch", "Bosch", 40),
+            new SuggestionTable.Entry("bostik", "Bostik", 70),
+            new SuggestionTable.Entry("black-decker", "Black+Decker", 10),
+            new SuggestionTable.Entry("bort", "Bort", 40),
+            new SuggestionTable.Entry("cafe-royal", "Café Royal", 5),
+            new SuggestionTable.Entry("makita", "Makita", 90)));
+
+    private List<String> top(String prefix, int limit) {
+        return table.top(SuggestionTable.key(prefix), limit).stream().map(SuggestionTable.Entry::slug).toList();
+    }
+
+    @Test
+    void top_shouldReturnHeaviestEntriesStartingWithPrefix() {
+        assertEquals(List.of("bostik", "bort", "bosch"), top("bo", 5));
+        assertEquals(List.of("bostik", "bosch"), top("bos", 5));
+        assertEquals(List.of("makita"), top("m", 5));
+        assertEquals(List.of(), top("x", 5));
+        assertEquals(List.of(), top("boschs", 5));
+    }
+
+    @Test
+    void top_withSameWeight_shouldOrderByName() {
+        assertEquals(List.of("bostik", "bort", "bosch", "black-decker"), top("b", 5));
+    }
+
+    @Test
+    void top_withLimit_shouldStopAfterLimit() {
+        assertEquals(List.of("makita", "bostik"), top("", 2));
+        assertEquals(List.of("bostik"), top("b", 1));
+    }
+
+    @Test
+    void top_shouldIgnoreCaseAndAccents() {
+        assertEquals(List.of("cafe-royal"), top("CAFE", 5));
+        assertEquals(List.of("cafe-royal"), top("café r", 5));
+        assertEquals(List.of("black-decker"), top("black+", 5));
+    }
+
+    @Test
+    void containsName_shouldMatchExactName() {
+        assertTrue(table.containsName("Bosch"));
+        assertTrue(table.containsName("Café Royal"));
+        assertFalse(table.containsName("bosch"));
+        assertFalse(table.containsName("Bosc"));
+    }
+
+    @Test
+    void empty_shouldSuggestNothing() {
+        assertEquals(0, SuggestionTable.EMPTY.size());
+        assertEquals(List.of(), SuggestionTable.EMPTY.top(SuggestionTable.key("b"), 5));
+        assertFalse(SuggestionTable.EMPTY.containsName("Bosch"));
+    }
+}
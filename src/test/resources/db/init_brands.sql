@@ -3,3 +3,5 @@ INSERT INTO brand (id, slug, name) VALUES
 (1, 'brand-1', 'Brand 1'),
 (2, 'brand-2', 'Brand 2'),
 (3, 'brand-3', 'Brand 3');
+
+SELECT setval('seq_brand', GREATEST((SELECT max(id) FROM brand), (SELECT last_value FROM seq_brand)));
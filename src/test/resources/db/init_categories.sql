@@ -7,3 +7,14 @@ INSERT INTO category (id, parent_id, sort_order, slug, name) VALUES
 (5, 2, 1, 'category-2-1', 'Category 2.1'),
 (6, 5, 1, 'category-2-1-1', 'Category 2.1.1'),
 (7, 5, 2, 'category-2-1-2', 'Category 2.1.2');
+
+INSERT INTO category_closure (ancestor_id, descendant_id, depth) VALUES
+(1, 1, 0), (1, 3, 1), (1, 4, 1),
+(2, 2, 0), (2, 5, 1), (2, 6, 2), (2, 7, 2),
+(3, 3, 0),
+(4, 4, 0),
+(5, 5, 0), (5, 6, 1), (5, 7, 1),
+(6, 6, 0),
+(7, 7, 0);
+
+SELECT setval('seq_category', GREATEST((SELECT max(id) FROM category), (SELECT last_value FROM seq_category)));
@@ -0,0 +1,11 @@
+TRUNCATE TABLE product CASCADE;
+INSERT INTO product (id, brand_id, category_id, slug, name) VALUES
+(1, 1, 2, 'product-a', 'Product A'),
+(2, 2, 5, 'product-b', 'Product B'),
+(3, 1, 6, 'product-c', 'Product C'),
+(4, 3, 6, 'product-d', 'Product D'),
+(5, 2, 7, 'product-e', 'Product E'),
+(6, 1, 3, 'product-f', 'Product F'),
+(7, 1, 5, 'product-g', 'Product G');
+
+SELECT setval('seq_product', GREATEST((SELECT max(id) FROM product), (SELECT last_value FROM seq_product)));